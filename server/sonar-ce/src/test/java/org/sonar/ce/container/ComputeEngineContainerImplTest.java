@@ -84,10 +84,10 @@ public class ComputeEngineContainerImplTest {
       .hasSize(
         CONTAINER_ITSELF
           + 75 // level 4
-          + 7 // content of CeModule
-          + 7 // content of CeQueueModule
+          + 11 // content of CeModule
+          + 8 // content of CeQueueModule
           + 4 // content of ReportProcessingModule
-          + 4 // content of CeTaskProcessorModule
+          + 5 // content of CeTaskProcessorModule
     );
     assertThat(picoContainer.getParent().getComponentAdapters()).hasSize(
       CONTAINER_ITSELF
@@ -100,7 +100,7 @@ public class ComputeEngineContainerImplTest {
     assertThat(picoContainer.getParent().getParent().getParent().getComponentAdapters()).hasSize(
       COMPONENTS_IN_LEVEL_1_AT_CONSTRUCTION
         + 22 // level 1
-        + 46 // content of DaoModule
+        + 47 // content of DaoModule
         + 1 // content of EsSearchModule
         + 57 // content of CorePropertyDefinitions
         + 1 // content of CePropertyDefinitions
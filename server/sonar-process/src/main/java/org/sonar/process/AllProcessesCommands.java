@@ -26,6 +26,8 @@ import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.IOUtils;
+import org.sonar.process.metrics.ProcessMetric;
+import org.sonar.process.metrics.ProcessMetricsSnapshot;
 
 import static java.lang.String.format;
 import static org.apache.commons.lang.StringUtils.rightPad;
@@ -60,6 +62,9 @@ import static org.sonar.process.ProcessCommands.MAX_PROCESSES;
  *   <li>Fourth byte will always contain {@link #EMPTY} unless process declares that it is operational by writing {@link #OPERATIONAL}.
  *       This does not imply that is done starting.</li>
  *   <li>The next 8 bytes contains a long (value of {@link System#currentTimeMillis()}) which represents the date of the last ping</li>
+ *   <li>The next {@link #SYSTEM_INFO_URL_SIZE_IN_BYTES} bytes contains the URL of system info</li>
+ *   <li>The next {@link ProcessMetric#SLOTS} longs contain the metrics of process. They are written only by
+ *   the process itself (see {@link MetricsPublisher}) and can be read by any process.</li>
  * </ul>
  * </p>
  */
@@ -72,8 +77,10 @@ public class AllProcessesCommands implements AutoCloseable {
   private static final int SYSTEM_INFO_URL_BYTE_OFFSET = PING_BYTE_OFFSET + 8;
 
   private static final int SYSTEM_INFO_URL_SIZE_IN_BYTES = 500;
+  private static final int METRICS_BYTE_OFFSET = SYSTEM_INFO_URL_BYTE_OFFSET + SYSTEM_INFO_URL_SIZE_IN_BYTES;
+  private static final int METRICS_SIZE_IN_BYTES = 8 * ProcessMetric.SLOTS;
 
-  private static final int BYTE_LENGTH_FOR_ONE_PROCESS = 1 + 1 + 1 + 1 + 8 + SYSTEM_INFO_URL_SIZE_IN_BYTES;
+  private static final int BYTE_LENGTH_FOR_ONE_PROCESS = 1 + 1 + 1 + 1 + 8 + SYSTEM_INFO_URL_SIZE_IN_BYTES + METRICS_SIZE_IN_BYTES;
 
   // With this shared memory we can handle up to MAX_PROCESSES processes
   private static final int MAX_SHARED_MEMORY = BYTE_LENGTH_FOR_ONE_PROCESS * MAX_PROCESSES;
@@ -161,6 +168,25 @@ public class AllProcessesCommands implements AutoCloseable {
     writeBytes(processNumber, SYSTEM_INFO_URL_BYTE_OFFSET, urlBytes);
   }
 
+  /**
+   * To be executed only by the process itself, which is the single writer of its metrics
+   */
+  void setMetrics(int processNumber, long[] slots) {
+    int bufferOffset = offset(processNumber) + METRICS_BYTE_OFFSET;
+    for (int i = 0; i < ProcessMetric.SLOTS; i++) {
+      mappedByteBuffer.putLong(bufferOffset + 8 * i, slots[i]);
+    }
+  }
+
+  ProcessMetricsSnapshot getMetrics(int processNumber) {
+    int bufferOffset = offset(processNumber) + METRICS_BYTE_OFFSET;
+    long[] slots = new long[ProcessMetric.SLOTS];
+    for (int i = 0; i < ProcessMetric.SLOTS; i++) {
+      slots[i] = mappedByteBuffer.getLong(bufferOffset + 8 * i);
+    }
+    return new ProcessMetricsSnapshot(slots);
+  }
+
   /**
    * To be executed by monitor process to ask for child process termination
    */
@@ -286,6 +312,16 @@ public class AllProcessesCommands implements AutoCloseable {
       return AllProcessesCommands.this.getSystemInfoUrl(processNumber);
     }
 
+    @Override
+    public void setMetrics(long[] slots) {
+      AllProcessesCommands.this.setMetrics(processNumber, slots);
+    }
+
+    @Override
+    public ProcessMetricsSnapshot getMetrics() {
+      return AllProcessesCommands.this.getMetrics(processNumber);
+    }
+
     @Override
     public void askForStop() {
       AllProcessesCommands.this.askForStop(processNumber);
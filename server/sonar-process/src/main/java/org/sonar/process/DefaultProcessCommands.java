@@ -21,6 +21,7 @@ package org.sonar.process;
 
 import java.io.File;
 import org.slf4j.LoggerFactory;
+import org.sonar.process.metrics.ProcessMetricsSnapshot;
 
 /**
  * Default implementation of {@link ProcessCommands} based on a {@link AllProcessesCommands} of which will request a
@@ -101,6 +102,16 @@ public class DefaultProcessCommands implements ProcessCommands {
     return delegate.getSystemInfoUrl();
   }
 
+  @Override
+  public void setMetrics(long[] slots) {
+    delegate.setMetrics(slots);
+  }
+
+  @Override
+  public ProcessMetricsSnapshot getMetrics() {
+    return delegate.getMetrics();
+  }
+
   @Override
   public void askForStop() {
     delegate.askForStop();
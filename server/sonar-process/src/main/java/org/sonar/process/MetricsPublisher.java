@@ -0,0 +1,73 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process;
+
+import java.lang.management.ManagementFactory;
+import org.sonar.process.metrics.ProcessMetric;
+import org.sonar.process.metrics.ProcessMetrics;
+
+/**
+ * Periodically copies the metrics of the current process to the shared memory, so that they can
+ * be read by other processes without JMX. It also refreshes the gauges of the JVM.
+ */
+public class MetricsPublisher extends Thread {
+
+  private final ProcessCommands commands;
+  private final ProcessMetrics metrics;
+  private final long delayMs;
+  private final long[] slots = new long[ProcessMetric.SLOTS];
+  private volatile boolean publishing = true;
+
+  public MetricsPublisher(ProcessCommands commands) {
+    this(commands, ProcessMetrics.get(), 1_000L);
+  }
+
+  MetricsPublisher(ProcessCommands commands, ProcessMetrics metrics, long delayMs) {
+    super("Metrics Publisher");
+    this.commands = commands;
+    this.metrics = metrics;
+    this.delayMs = delayMs;
+    setDaemon(true);
+  }
+
+  @Override
+  public void run() {
+    while (publishing) {
+      publish();
+      try {
+        Thread.sleep(delayMs);
+      } catch (InterruptedException ignored) {
+        publishing = false;
+      }
+    }
+  }
+
+  void publish() {
+    Runtime runtime = Runtime.getRuntime();
+    metrics.set(ProcessMetric.HEAP_USED, runtime.totalMemory() - runtime.freeMemory());
+    metrics.set(ProcessMetric.THREADS, ManagementFactory.getThreadMXBean().getThreadCount());
+    metrics.copyTo(slots);
+    commands.setMetrics(slots);
+  }
+
+  public void stopPublishing() {
+    publishing = false;
+  }
+}
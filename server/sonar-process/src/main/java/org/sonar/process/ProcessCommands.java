@@ -20,6 +20,7 @@
 package org.sonar.process;
 
 import java.io.File;
+import org.sonar.process.metrics.ProcessMetricsSnapshot;
 
 /**
  * Process inter-communication to :
@@ -59,6 +60,17 @@ public interface ProcessCommands extends AutoCloseable {
 
   String getSystemInfoUrl();
 
+  /**
+   * To be executed by child process to publish its metrics.
+   * @param slots values of metrics, as copied by {@link org.sonar.process.metrics.ProcessMetrics#copyTo(long[])}
+   */
+  void setMetrics(long[] slots);
+
+  /**
+   * Can be called by any process to read the metrics published by the process
+   */
+  ProcessMetricsSnapshot getMetrics();
+
   /**
    * To be executed by monitor process to ask for child process termination
    */
@@ -40,6 +40,7 @@ public class ProcessEntryPoint implements Stoppable {
   private volatile Monitored monitored;
   private volatile StopperThread stopperThread;
   private final StopWatcher stopWatcher;
+  private final MetricsPublisher metricsPublisher;
 
   // new Runnable() is important to avoid conflict of call to ProcessEntryPoint#stop() with Thread#stop()
   private Thread shutdownHook = new Thread(new Runnable() {
@@ -62,6 +63,7 @@ public class ProcessEntryPoint implements Stoppable {
     this.exit = exit;
     this.commands = commands;
     this.stopWatcher = new StopWatcher(commands, this);
+    this.metricsPublisher = new MetricsPublisher(commands);
   }
 
   public ProcessCommands getCommands() {
@@ -98,6 +100,7 @@ public class ProcessEntryPoint implements Stoppable {
       logger.info("Starting " + getKey());
       Runtime.getRuntime().addShutdownHook(shutdownHook);
       stopWatcher.start();
+      metricsPublisher.start();
 
       monitored.start();
       boolean up = false;
@@ -146,6 +149,7 @@ public class ProcessEntryPoint implements Stoppable {
       stopperThread = new StopperThread(monitored, commands, Long.parseLong(props.nonNullValue(PROPERTY_TERMINATION_TIMEOUT)));
       stopperThread.start();
       stopWatcher.stopWatching();
+      metricsPublisher.stopPublishing();
     }
   }
 
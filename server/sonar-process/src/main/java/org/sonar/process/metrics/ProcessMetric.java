@@ -0,0 +1,97 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process.metrics;
+
+/**
+ * Metrics shared by processes through the shared memory of {@link org.sonar.process.AllProcessesCommands}.
+ * Each metric is stored in a fixed range of slots (64-bit values), so that the layout is the
+ * same for all processes and does not require any registration.
+ * <ul>
+ *   <li>a counter or a gauge uses a single slot</li>
+ *   <li>a histogram of durations uses {@link #HISTOGRAM_SLOTS} slots: the number of values, their sum then
+ *   the {@link #HISTOGRAM_BUCKETS} buckets of a base-2 logarithmic scale</li>
+ * </ul>
+ */
+public enum ProcessMetric {
+
+  HEAP_USED("heapUsedBytes", Type.GAUGE),
+  THREADS("threads", Type.GAUGE),
+  WEB_REQUEST_TIME("webRequestTimeMs", Type.HISTOGRAM),
+  CE_TASK_TIME("ceTaskTimeMs", Type.HISTOGRAM),
+  CE_STEP_TIME("ceStepTimeMs", Type.HISTOGRAM),
+  ES_BULK_REQUEST_TIME("esBulkRequestTimeMs", Type.HISTOGRAM),
+  ES_BULK_DOCUMENTS("esBulkDocuments", Type.COUNTER);
+
+  public enum Type {
+    COUNTER, GAUGE, HISTOGRAM
+  }
+
+  /**
+   * Bucket 0 contains the values lower than 1. Bucket i contains the values in range [2^(i-1), 2^i).
+   * Last bucket also contains all the greater values.
+   */
+  public static final int HISTOGRAM_BUCKETS = 24;
+  public static final int HISTOGRAM_SLOTS = 2 + HISTOGRAM_BUCKETS;
+
+  /**
+   * Total number of slots used by all metrics
+   */
+  public static final int SLOTS;
+
+  static {
+    int offset = 0;
+    for (ProcessMetric metric : values()) {
+      metric.offset = offset;
+      offset += metric.type == Type.HISTOGRAM ? HISTOGRAM_SLOTS : 1;
+    }
+    SLOTS = offset;
+  }
+
+  private final String key;
+  private final Type type;
+  private int offset;
+
+  ProcessMetric(String key, Type type) {
+    this.key = key;
+    this.type = type;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Index of the first slot of this metric
+   */
+  int offset() {
+    return offset;
+  }
+
+  static int bucketOf(long value) {
+    if (value < 1L) {
+      return 0;
+    }
+    return Math.min(64 - Long.numberOfLeadingZeros(value), HISTOGRAM_BUCKETS - 1);
+  }
+}
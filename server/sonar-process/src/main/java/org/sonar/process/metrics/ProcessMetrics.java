@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.sonar.process.metrics.ProcessMetric.Type.COUNTER;
+import static org.sonar.process.metrics.ProcessMetric.Type.GAUGE;
+import static org.sonar.process.metrics.ProcessMetric.Type.HISTOGRAM;
+
+/**
+ * Metrics of the current process. Updates are lock-free and do not allocate memory, so they can be
+ * done on hot paths. Values are periodically copied to the shared memory by {@link org.sonar.process.MetricsPublisher},
+ * which is the single writer of the memory area of the process.
+ */
+public class ProcessMetrics {
+
+  private static final ProcessMetrics INSTANCE = new ProcessMetrics();
+
+  private final AtomicLongArray slots = new AtomicLongArray(ProcessMetric.SLOTS);
+
+  // visible for testing
+  ProcessMetrics() {
+    // use get()
+  }
+
+  /**
+   * Metrics of the current JVM
+   */
+  public static ProcessMetrics get() {
+    return INSTANCE;
+  }
+
+  public void increment(ProcessMetric counter) {
+    add(counter, 1L);
+  }
+
+  public void add(ProcessMetric counter, long delta) {
+    checkType(counter, COUNTER);
+    slots.addAndGet(counter.offset(), delta);
+  }
+
+  public void set(ProcessMetric gauge, long value) {
+    checkType(gauge, GAUGE);
+    slots.set(gauge.offset(), value);
+  }
+
+  public void record(ProcessMetric histogram, long value) {
+    checkType(histogram, HISTOGRAM);
+    int offset = histogram.offset();
+    slots.incrementAndGet(offset);
+    slots.addAndGet(offset + 1, value);
+    slots.incrementAndGet(offset + 2 + ProcessMetric.bucketOf(value));
+  }
+
+  /**
+   * Copies the values of all slots. The array must have a length of at least {@link ProcessMetric#SLOTS}.
+   */
+  public void copyTo(long[] target) {
+    for (int i = 0; i < ProcessMetric.SLOTS; i++) {
+      target[i] = slots.get(i);
+    }
+  }
+
+  private static void checkType(ProcessMetric metric, ProcessMetric.Type expectedType) {
+    if (metric.getType() != expectedType) {
+      throw new IllegalArgumentException(String.format("Metric %s is not a %s", metric, expectedType));
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process.metrics;
+
+import java.util.Arrays;
+
+import static org.sonar.process.metrics.ProcessMetric.HISTOGRAM_BUCKETS;
+
+/**
+ * Values of the metrics of a process, as read from the shared memory.
+ */
+public class ProcessMetricsSnapshot {
+
+  private final long[] slots;
+
+  public ProcessMetricsSnapshot(long[] slots) {
+    if (slots.length != ProcessMetric.SLOTS) {
+      throw new IllegalArgumentException(String.format("Expected %d slots, got %d", ProcessMetric.SLOTS, slots.length));
+    }
+    this.slots = Arrays.copyOf(slots, slots.length);
+  }
+
+  /**
+   * Value of a counter or of a gauge
+   */
+  public long getValue(ProcessMetric metric) {
+    return slots[metric.offset()];
+  }
+
+  public Histogram getHistogram(ProcessMetric metric) {
+    if (metric.getType() != ProcessMetric.Type.HISTOGRAM) {
+      throw new IllegalArgumentException(String.format("Metric %s is not a histogram", metric));
+    }
+    int offset = metric.offset();
+    return new Histogram(slots[offset], slots[offset + 1], Arrays.copyOfRange(slots, offset + 2, offset + 2 + HISTOGRAM_BUCKETS));
+  }
+
+  public static class Histogram {
+    private final long count;
+    private final long sum;
+    private final long[] buckets;
+
+    private Histogram(long count, long sum, long[] buckets) {
+      this.count = count;
+      this.sum = sum;
+      this.buckets = buckets;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getSum() {
+      return sum;
+    }
+
+    /**
+     * Upper bound of the bucket containing the given percentile, for example 0.99 for the 99th percentile.
+     * Returns 0 if histogram is empty. As buckets follow a base-2 logarithmic scale, the relative error is
+     * lower than 100%. For the last bucket, which has no upper bound, its lower bound is returned.
+     */
+    public long getPercentile(double percentile) {
+      if (percentile <= 0.0 || percentile > 1.0) {
+        throw new IllegalArgumentException("Percentile must be in range ]0, 1]: " + percentile);
+      }
+      // buckets are not updated atomically with count, so rely on their own total
+      long total = 0L;
+      for (long bucket : buckets) {
+        total += bucket;
+      }
+      long threshold = (long) Math.ceil(percentile * total);
+      long cumulated = 0L;
+      for (int i = 0; i < buckets.length; i++) {
+        cumulated += buckets[i];
+        if (cumulated >= threshold && cumulated > 0L) {
+          return upperBoundOf(i);
+        }
+      }
+      return 0L;
+    }
+
+    private static long upperBoundOf(int bucket) {
+      if (bucket == HISTOGRAM_BUCKETS - 1) {
+        return 1L << (bucket - 1);
+      }
+      return (1L << bucket) - 1L;
+    }
+  }
+}
@@ -26,6 +26,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.process.metrics.ProcessMetric;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
@@ -71,6 +72,24 @@ public class AllProcessesCommandsTest {
     assertThat(readByte(commands, offset)).isEqualTo(UP);
   }
 
+  @Test
+  public void write_and_read_metrics() throws IOException {
+    AllProcessesCommands commands = new AllProcessesCommands(temp.newFolder());
+    assertThat(commands.getMetrics(PROCESS_NUMBER).getValue(ProcessMetric.THREADS)).isEqualTo(0L);
+
+    long[] slots = new long[ProcessMetric.SLOTS];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = 100L + i;
+    }
+    commands.setMetrics(PROCESS_NUMBER, slots);
+
+    assertThat(commands.getMetrics(PROCESS_NUMBER).getValue(ProcessMetric.HEAP_USED)).isEqualTo(100L);
+    assertThat(commands.getMetrics(PROCESS_NUMBER).getValue(ProcessMetric.THREADS)).isEqualTo(101L);
+    // other processes are not impacted
+    assertThat(commands.getMetrics(PROCESS_NUMBER + 1).getValue(ProcessMetric.THREADS)).isEqualTo(0L);
+    assertThat(commands.isUp(PROCESS_NUMBER + 1)).isFalse();
+  }
+
   @Test
   public void write_and_read_operational() throws IOException {
     AllProcessesCommands commands = new AllProcessesCommands(temp.newFolder());
@@ -0,0 +1,61 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.process.metrics.ProcessMetric;
+import org.sonar.process.metrics.ProcessMetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class MetricsPublisherTest {
+
+  ProcessCommands commands = mock(ProcessCommands.class);
+
+  @Test
+  public void publish_metrics_and_jvm_gauges() {
+    MetricsPublisher underTest = new MetricsPublisher(commands, ProcessMetrics.get(), 1_000L);
+
+    underTest.publish();
+
+    ArgumentCaptor<long[]> slots = ArgumentCaptor.forClass(long[].class);
+    verify(commands).setMetrics(slots.capture());
+    assertThat(slots.getValue()).hasSize(ProcessMetric.SLOTS);
+    assertThat(slots.getValue()[0]).isGreaterThan(0L);
+  }
+
+  @Test(timeout = 5000)
+  public void publish_periodically_until_stopped() throws InterruptedException {
+    MetricsPublisher underTest = new MetricsPublisher(commands, ProcessMetrics.get(), 1L);
+    underTest.start();
+
+    verify(commands, timeout(4000).atLeast(2)).setMetrics(any(long[].class));
+
+    underTest.stopPublishing();
+    underTest.join();
+    verify(commands, atLeastOnce()).setMetrics(any(long[].class));
+  }
+}
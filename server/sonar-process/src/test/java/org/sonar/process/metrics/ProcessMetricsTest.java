@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process.metrics;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProcessMetricsTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  ProcessMetrics underTest = new ProcessMetrics();
+
+  @Test
+  public void update_counters_gauges_and_histograms() {
+    underTest.increment(ProcessMetric.ES_BULK_DOCUMENTS);
+    underTest.add(ProcessMetric.ES_BULK_DOCUMENTS, 10L);
+    underTest.set(ProcessMetric.THREADS, 42L);
+    underTest.record(ProcessMetric.WEB_REQUEST_TIME, 0L);
+    underTest.record(ProcessMetric.WEB_REQUEST_TIME, 3L);
+    underTest.record(ProcessMetric.WEB_REQUEST_TIME, 100L);
+
+    ProcessMetricsSnapshot snapshot = snapshot();
+    assertThat(snapshot.getValue(ProcessMetric.ES_BULK_DOCUMENTS)).isEqualTo(11L);
+    assertThat(snapshot.getValue(ProcessMetric.THREADS)).isEqualTo(42L);
+    ProcessMetricsSnapshot.Histogram histogram = snapshot.getHistogram(ProcessMetric.WEB_REQUEST_TIME);
+    assertThat(histogram.getCount()).isEqualTo(3L);
+    assertThat(histogram.getSum()).isEqualTo(103L);
+    assertThat(snapshot.getHistogram(ProcessMetric.CE_TASK_TIME).getCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void percentiles_are_upper_bounds_of_buckets() {
+    for (int i = 0; i < 98; i++) {
+      underTest.record(ProcessMetric.CE_STEP_TIME, 5L);
+    }
+    underTest.record(ProcessMetric.CE_STEP_TIME, 1_000L);
+    underTest.record(ProcessMetric.CE_STEP_TIME, Long.MAX_VALUE / 2);
+
+    ProcessMetricsSnapshot.Histogram histogram = snapshot().getHistogram(ProcessMetric.CE_STEP_TIME);
+    // 5 is in bucket [4, 8)
+    assertThat(histogram.getPercentile(0.5)).isEqualTo(7L);
+    // 1000 is in bucket [512, 1024)
+    assertThat(histogram.getPercentile(0.99)).isEqualTo(1_023L);
+    // last bucket has no upper bound
+    assertThat(histogram.getPercentile(1.0)).isEqualTo(1L << (ProcessMetric.HISTOGRAM_BUCKETS - 2));
+  }
+
+  @Test
+  public void percentile_of_empty_histogram_is_zero() {
+    assertThat(snapshot().getHistogram(ProcessMetric.CE_STEP_TIME).getPercentile(0.5)).isEqualTo(0L);
+  }
+
+  @Test
+  public void fail_if_metric_has_not_expected_type() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Metric THREADS is not a COUNTER");
+
+    underTest.increment(ProcessMetric.THREADS);
+  }
+
+  @Test
+  public void bucketOf() {
+    assertThat(ProcessMetric.bucketOf(-1L)).isEqualTo(0);
+    assertThat(ProcessMetric.bucketOf(0L)).isEqualTo(0);
+    assertThat(ProcessMetric.bucketOf(1L)).isEqualTo(1);
+    assertThat(ProcessMetric.bucketOf(2L)).isEqualTo(2);
+    assertThat(ProcessMetric.bucketOf(3L)).isEqualTo(2);
+    assertThat(ProcessMetric.bucketOf(4L)).isEqualTo(3);
+    assertThat(ProcessMetric.bucketOf(Long.MAX_VALUE)).isEqualTo(ProcessMetric.HISTOGRAM_BUCKETS - 1);
+  }
+
+  private ProcessMetricsSnapshot snapshot() {
+    long[] slots = new long[ProcessMetric.SLOTS];
+    underTest.copyTo(slots);
+    return new ProcessMetricsSnapshot(slots);
+  }
+}
@@ -48,6 +48,7 @@ public class CeQueueImpl implements CeQueue {
 
   private final DbClient dbClient;
   private final UuidFactory uuidFactory;
+  private final CeQueueSignal signal;
   private final CeQueueListener[] listeners;
 
   // state
@@ -56,13 +57,14 @@ public class CeQueueImpl implements CeQueue {
   /**
    * Constructor in case there is no CeQueueListener
    */
-  public CeQueueImpl(DbClient dbClient, UuidFactory uuidFactory) {
-    this(dbClient, uuidFactory, new CeQueueListener[] {});
+  public CeQueueImpl(DbClient dbClient, UuidFactory uuidFactory, CeQueueSignal signal) {
+    this(dbClient, uuidFactory, signal, new CeQueueListener[] {});
   }
 
-  public CeQueueImpl(DbClient dbClient, UuidFactory uuidFactory, CeQueueListener[] listeners) {
+  public CeQueueImpl(DbClient dbClient, UuidFactory uuidFactory, CeQueueSignal signal, CeQueueListener[] listeners) {
     this.dbClient = dbClient;
     this.uuidFactory = uuidFactory;
+    this.signal = signal;
     this.listeners = listeners;
   }
 
@@ -80,6 +82,7 @@ public class CeQueueImpl implements CeQueue {
       CeQueueDto dto = new CeTaskSubmitToInsertedCeQueueDto(dbSession, dbClient).apply(submission);
       CeTask task = loadTask(dbSession, dto);
       dbSession.commit();
+      signal.signal();
       return task;
 
     } finally {
@@ -101,6 +104,7 @@ public class CeQueueImpl implements CeQueue {
         .toList();
       List<CeTask> tasks = loadTasks(dbSession, ceQueueDtos);
       dbSession.commit();
+      signal.signal();
       return tasks;
 
     } finally {
@@ -108,6 +112,10 @@ public class CeQueueImpl implements CeQueue {
     }
   }
 
+  protected CeQueueSignal getSignal() {
+    return signal;
+  }
+
   protected CeTask loadTask(DbSession dbSession, CeQueueDto dto) {
     if (dto.getComponentUuid() == null) {
       return new CeQueueDtoToCeTask().apply(dto);
@@ -181,6 +189,8 @@ public class CeQueueImpl implements CeQueue {
     dbClient.ceActivityDao().insert(dbSession, activityDto);
     dbClient.ceQueueDao().deleteByUuid(dbSession, queueDto.getUuid());
     dbSession.commit();
+    // pending tasks of the same component may now be processed
+    signal.signal();
     for (CeQueueListener listener : listeners) {
       listener.onRemoved(task, activityDto.getStatus());
     }
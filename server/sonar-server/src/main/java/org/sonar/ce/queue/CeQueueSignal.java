@@ -0,0 +1,58 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.api.ce.ComputeEngineSide;
+
+/**
+ * In-process notification that the queue may contain new tasks eligible for processing, for example
+ * because a task has been submitted or because an in-progress task has been removed. It allows idle
+ * workers to be woken up instead of polling the database.
+ * <p/>
+ * Each signal increments a generation number, so that a worker can detect signals which have been
+ * raised while it was busy.
+ */
+@ComputeEngineSide
+public class CeQueueSignal {
+
+  private final AtomicLong generation = new AtomicLong(0L);
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+  public long generation() {
+    return generation.get();
+  }
+
+  /**
+   * Listeners are called synchronously in the thread raising the signal, so they must not block.
+   */
+  public void addListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  public void signal() {
+    generation.incrementAndGet();
+    for (Runnable listener : listeners) {
+      listener.run();
+    }
+  }
+}
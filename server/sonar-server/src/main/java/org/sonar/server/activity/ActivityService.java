@@ -19,11 +19,13 @@
  */
 package org.sonar.server.activity;
 
+import java.util.Collection;
 import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.core.util.Uuids;
 import org.sonar.db.activity.ActivityDto;
 import org.sonar.server.activity.index.ActivityIndexer;
 import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
 import org.sonar.server.user.UserSession;
 
 public class ActivityService {
@@ -39,14 +41,36 @@ public class ActivityService {
   }
 
   public void save(Activity activity) {
-    ActivityDto dto = new ActivityDto()
+    dbClient.activityDao().insert(toDto(activity));
+    indexer.index();
+  }
+
+  /**
+   * Activities are inserted with batched statements and indexed at once
+   */
+  public void save(Collection<Activity> activities) {
+    if (activities.isEmpty()) {
+      return;
+    }
+    DbSession dbSession = dbClient.openSession(true);
+    try {
+      for (Activity activity : activities) {
+        dbClient.activityDao().insert(dbSession, toDto(activity));
+      }
+      dbSession.commit();
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+    indexer.index();
+  }
+
+  private ActivityDto toDto(Activity activity) {
+    return new ActivityDto()
       .setKey(Uuids.create())
       .setAuthor(userSession.getLogin())
       .setAction(activity.getAction())
       .setMessage(activity.getMessage())
       .setData(KeyValueFormat.format(activity.getData()))
       .setType(activity.getType().name());
-    dbClient.activityDao().insert(dto);
-    indexer.index();
   }
 }
@@ -19,6 +19,9 @@
  */
 package org.sonar.server.app;
 
+import org.sonar.process.ProcessId;
+import org.sonar.process.metrics.ProcessMetricsSnapshot;
+
 public interface ProcessCommandWrapper {
   /**
    * Requests to the main process that SQ be restarted.
@@ -30,4 +33,9 @@ public interface ProcessCommandWrapper {
    */
   void notifyOperational();
 
+  /**
+   * Metrics published by the given process in the shared memory.
+   */
+  ProcessMetricsSnapshot getMetrics(ProcessId processId);
+
 }
@@ -23,6 +23,8 @@ import java.io.File;
 import org.sonar.api.config.Settings;
 import org.sonar.process.DefaultProcessCommands;
 import org.sonar.process.ProcessCommands;
+import org.sonar.process.ProcessId;
+import org.sonar.process.metrics.ProcessMetricsSnapshot;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.sonar.process.ProcessEntryPoint.PROPERTY_PROCESS_INDEX;
@@ -45,6 +47,14 @@ public class ProcessCommandWrapperImpl implements ProcessCommandWrapper {
     call(VoidMethod.SET_OPERATIONAL, selfProcessNumber());
   }
 
+  @Override
+  public ProcessMetricsSnapshot getMetrics(ProcessId processId) {
+    File shareDir = nonNullValueAsFile(PROPERTY_SHARED_PATH);
+    try (DefaultProcessCommands commands = DefaultProcessCommands.secondary(shareDir, processId.getIpcIndex())) {
+      return commands.getMetrics();
+    }
+  }
+
   private int selfProcessNumber() {
     return nonNullAsInt(PROPERTY_PROCESS_INDEX);
   }
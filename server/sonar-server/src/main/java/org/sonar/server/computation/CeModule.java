@@ -25,8 +25,11 @@ import org.sonar.db.purge.period.DefaultPeriodCleaner;
 import org.sonar.process.systeminfo.ProcessStateSystemInfo;
 import org.sonar.process.systeminfo.SystemInfoHttpServer;
 import org.sonar.server.computation.configuration.CeConfigurationImpl;
+import org.sonar.server.computation.dbcleaner.BackgroundPurgeExecutorServiceImpl;
 import org.sonar.server.computation.dbcleaner.IndexPurgeListener;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
+import org.sonar.server.computation.indexing.IndexingQueueExecutorServiceImpl;
+import org.sonar.server.computation.indexing.IndexingQueueImpl;
 import org.sonar.server.computation.monitoring.CeDatabaseMBeanImpl;
 
 /**
@@ -44,6 +47,10 @@ public class CeModule extends Module {
 
       DefaultPeriodCleaner.class,
       ProjectCleaner.class,
-      IndexPurgeListener.class);
+      IndexPurgeListener.class,
+      BackgroundPurgeExecutorServiceImpl.class,
+
+      IndexingQueueImpl.class,
+      IndexingQueueExecutorServiceImpl.class);
   }
 }
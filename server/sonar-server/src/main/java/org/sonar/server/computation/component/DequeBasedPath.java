@@ -25,7 +25,18 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 final class DequeBasedPath<T> implements PathAwareVisitor.Path<T>, Iterable<PathAwareVisitor.PathElement<T>> {
-  private final Deque<PathAwareVisitor.PathElement<T>> deque = new ArrayDeque<>();
+  private final Deque<PathAwareVisitor.PathElement<T>> deque;
+
+  DequeBasedPath() {
+    this.deque = new ArrayDeque<>();
+  }
+
+  /**
+   * Copy of the specified path. Elements are shared, not copied.
+   */
+  DequeBasedPath(DequeBasedPath<T> path) {
+    this.deque = new ArrayDeque<>(path.deque);
+  }
 
   @Override
   public T current() {
@@ -0,0 +1,206 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import javax.annotation.Nullable;
+import org.slf4j.MDC;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static org.sonar.server.computation.component.ComponentVisitor.Order.POST_ORDER;
+import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_ORDER;
+
+/**
+ * A {@link PathAwareCrawler} in which the subtrees of siblings are visited in parallel on a {@link ForkJoinPool}.
+ * <p>
+ * Each subtree is visited with its own copy of the path, so the path elements of the ancestors are shared by siblings.
+ * In post-order, a component is visited once all its children have been visited (join point), so that values
+ * aggregated by the children into the element of their parent are complete.
+ * </p>
+ * Visitors which do not implement {@link ThreadSafeVisitor} are visited sequentially, exactly as with
+ * {@link PathAwareCrawler}.
+ * <p>
+ * By default, components are visited on a pool dedicated to the crawlers, not on the common pool. The MDC of the
+ * calling thread is copied into the threads of the pool, so that their logs go to the log file of the CE task.
+ * </p>
+ */
+public final class ParallelPathAwareCrawler<T> implements ComponentCrawler {
+  private static final ForkJoinPool CRAWLER_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+    new CrawlerThreadFactory(), null, false);
+
+  private final PathAwareVisitor<T> visitor;
+  private final ForkJoinPool pool;
+
+  public ParallelPathAwareCrawler(PathAwareVisitor<T> visitor) {
+    this(visitor, CRAWLER_POOL);
+  }
+
+  public ParallelPathAwareCrawler(PathAwareVisitor<T> visitor, ForkJoinPool pool) {
+    this.visitor = requireNonNull(visitor);
+    this.pool = requireNonNull(pool);
+  }
+
+  @Override
+  public void visit(Component component) {
+    if (visitor instanceof ThreadSafeVisitor) {
+      pool.invoke(new VisitTask(component, new DequeBasedPath<T>(), MDC.getCopyOfContextMap()));
+    } else {
+      new PathAwareCrawler<>(visitor).visit(component);
+    }
+  }
+
+  private final class VisitTask extends RecursiveAction {
+    private final Component component;
+    private final DequeBasedPath<T> path;
+    @Nullable
+    private final Map<String, String> mdc;
+
+    private VisitTask(Component component, DequeBasedPath<T> path, @Nullable Map<String, String> mdc) {
+      this.component = component;
+      this.path = path;
+      this.mdc = mdc;
+    }
+
+    @Override
+    protected void compute() {
+      Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+      setMdc(mdc);
+      try {
+        visitImpl();
+      } catch (RuntimeException e) {
+        VisitException.rethrowOrWrap(e, "Visit failed for Component {key=%s,type=%s}", component.getKey(), component.getType());
+      } finally {
+        setMdc(previousMdc);
+      }
+    }
+
+    private void visitImpl() {
+      if (!verifyDepth(component)) {
+        return;
+      }
+
+      path.add(new PathElementImpl<>(component, createForComponent(component)));
+
+      if (visitor.getOrder() == PRE_ORDER) {
+        visitNode(component, path);
+      }
+
+      visitChildren();
+
+      if (visitor.getOrder() == POST_ORDER) {
+        visitNode(component, path);
+      }
+
+      path.pop();
+    }
+
+    private void visitChildren() {
+      List<Component> children = component.getChildren();
+      if (children.size() == 1) {
+        // no need to copy the path nor to fork
+        new VisitTask(children.get(0), path, mdc).compute();
+      } else if (!children.isEmpty()) {
+        List<VisitTask> tasks = new ArrayList<>(children.size());
+        for (Component child : children) {
+          tasks.add(new VisitTask(child, new DequeBasedPath<>(path), mdc));
+        }
+        invokeAll(tasks);
+      }
+    }
+  }
+
+  private static void setMdc(@Nullable Map<String, String> context) {
+    if (context == null) {
+      MDC.clear();
+    } else {
+      MDC.setContextMap(context);
+    }
+  }
+
+  private static final class CrawlerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("CE_component_crawler-" + thread.getPoolIndex());
+      return thread;
+    }
+  }
+
+  private boolean verifyDepth(Component component) {
+    CrawlerDepthLimit maxDepth = this.visitor.getMaxDepth();
+    return maxDepth.isSameAs(component.getType()) || maxDepth.isDeeperThan(component.getType());
+  }
+
+  private void visitNode(Component component, DequeBasedPath<T> path) {
+    this.visitor.visitAny(component, path);
+    switch (component.getType()) {
+      case PROJECT:
+        this.visitor.visitProject(component, path);
+        break;
+      case MODULE:
+        this.visitor.visitModule(component, path);
+        break;
+      case DIRECTORY:
+        this.visitor.visitDirectory(component, path);
+        break;
+      case FILE:
+        this.visitor.visitFile(component, path);
+        break;
+      case VIEW:
+        this.visitor.visitView(component, path);
+        break;
+      case SUBVIEW:
+        this.visitor.visitSubView(component, path);
+        break;
+      case PROJECT_VIEW:
+        this.visitor.visitProjectView(component, path);
+        break;
+      default:
+        throw new IllegalArgumentException(format("Unsupported component type %s, no visitor method to call", component.getType()));
+    }
+  }
+
+  private T createForComponent(Component component) {
+    switch (component.getType()) {
+      case PROJECT:
+        return this.visitor.getFactory().createForProject(component);
+      case MODULE:
+        return this.visitor.getFactory().createForModule(component);
+      case DIRECTORY:
+        return this.visitor.getFactory().createForDirectory(component);
+      case FILE:
+        return this.visitor.getFactory().createForFile(component);
+      case VIEW:
+        return this.visitor.getFactory().createForView(component);
+      case SUBVIEW:
+        return this.visitor.getFactory().createForSubView(component);
+      case PROJECT_VIEW:
+        return this.visitor.getFactory().createForProjectView(component);
+      default:
+        throw new IllegalArgumentException(format("Unsupported component type %s, can not create stack object", component.getType()));
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.component;
+
+/**
+ * Marker interface of the {@link ComponentVisitor} which support being called concurrently for components of
+ * distinct subtrees. Only such visitors are actually run in parallel by {@link ParallelPathAwareCrawler}.
+ * <p>
+ * For a {@link PathAwareVisitor}, the elements of the path are shared by siblings visited in parallel: any
+ * update of the parent element (eg. aggregation of a child's value) must be thread-safe.
+ * </p>
+ */
+public interface ThreadSafeVisitor {
+}
@@ -27,8 +27,20 @@ public interface CeConfiguration {
   int getWorkerCount();
 
   /**
-   * The delay in milliseconds before calling another {@link org.sonar.server.computation.taskprocessor.CeWorkerCallable}
-   * when previous one had nothing to do.
+   * The delay in milliseconds between two lightweight checks of the queue for new pending tasks, which
+   * wake up the idle {@link org.sonar.server.computation.taskprocessor.CeWorkerCallable}.
    */
   long getQueuePollingDelay();
+
+  /**
+   * The maximum total size in bytes of the analysis reports processed concurrently. A report is
+   * always processed when no other task is in progress, whatever its size. Zero if not bounded.
+   */
+  long getReportSizeBudget();
+
+  /**
+   * The size in bytes above which an analysis report is considered large. When several workers are configured,
+   * one of them is kept for small reports, so that they don't wait for large ones. Zero to disable.
+   */
+  long getLargeReportSize();
 }
@@ -27,14 +27,19 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
 import static java.lang.String.format;
+import static org.apache.commons.io.FileUtils.ONE_MB;
 
 /**
  * Immutable implementation of {@link CeConfiguration} which takes value returned by
  * {@link CeConfiguration#getWorkerCount()} from property {@link CeConfigurationImpl#CE_WORKERS_COUNT_PROPERTY} and
  * always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when {@link CeConfiguration#getQueuePollingDelay()} is called.
+ * Sizes of reports are read in megabytes from properties {@link #CE_REPORT_SIZE_BUDGET_PROPERTY} and
+ * {@link #CE_LARGE_REPORT_SIZE_PROPERTY}.
  */
 public class CeConfigurationImpl implements CeConfiguration, Startable {
   public static final String CE_WORKERS_COUNT_PROPERTY = "sonar.ce.workerCount";
+  public static final String CE_REPORT_SIZE_BUDGET_PROPERTY = "sonar.ce.reportSizeBudgetMb";
+  public static final String CE_LARGE_REPORT_SIZE_PROPERTY = "sonar.ce.largeReportSizeMb";
 
   private static final Logger LOG = Loggers.get(CeConfigurationImpl.class);
 
@@ -43,8 +48,16 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   // 2 seconds
   @VisibleForTesting
   protected static final long DEFAULT_QUEUE_POLLING_DELAY = 2 * 1000L;
+  // not bounded
+  @VisibleForTesting
+  protected static final long DEFAULT_REPORT_SIZE_BUDGET = 0L;
+  // 10 Mb
+  @VisibleForTesting
+  protected static final long DEFAULT_LARGE_REPORT_SIZE = 10L * ONE_MB;
 
   private final int workerCount;
+  private final long reportSizeBudget;
+  private final long largeReportSize;
 
   public CeConfigurationImpl(Settings settings) {
     String workerCountAsStr = settings.getString(CE_WORKERS_COUNT_PROPERTY);
@@ -53,6 +66,31 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     } else {
       this.workerCount = parseStringValue(workerCountAsStr);
     }
+    this.reportSizeBudget = parseSizeInMb(settings, CE_REPORT_SIZE_BUDGET_PROPERTY, DEFAULT_REPORT_SIZE_BUDGET);
+    this.largeReportSize = parseSizeInMb(settings, CE_LARGE_REPORT_SIZE_PROPERTY, DEFAULT_LARGE_REPORT_SIZE);
+  }
+
+  private static long parseSizeInMb(Settings settings, String property, long defaultValue) {
+    String valueAsStr = settings.getString(property);
+    if (valueAsStr == null || valueAsStr.isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      long value = Long.parseLong(valueAsStr);
+      if (value < 0) {
+        throw sizeParsingError(valueAsStr, property);
+      }
+      return value * ONE_MB;
+    } catch (NumberFormatException e) {
+      throw sizeParsingError(valueAsStr, property);
+    }
+  }
+
+  private static MessageException sizeParsingError(String valueAsStr, String property) {
+    return MessageException.of(format(
+      "value '%s' of property %s is invalid. It must be a positive integer.",
+      valueAsStr,
+      property));
   }
 
   private static int parseStringValue(String workerCountAsStr) {
@@ -96,4 +134,14 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   public long getQueuePollingDelay() {
     return DEFAULT_QUEUE_POLLING_DELAY;
   }
+
+  @Override
+  public long getReportSizeBudget() {
+    return reportSizeBudget;
+  }
+
+  @Override
+  public long getLargeReportSize() {
+    return largeReportSize;
+  }
 }
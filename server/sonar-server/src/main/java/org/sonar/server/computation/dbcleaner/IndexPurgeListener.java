@@ -42,7 +42,8 @@ public class IndexPurgeListener implements PurgeListener {
 
   @Override
   public void onIssuesRemoval(String projectUuid, List<String> issueKeys) {
-    issueIndexer.deleteByKeys(projectUuid, issueKeys);
+    // purged issues are closed for a long time, there's no need to hide them from searches immediately
+    issueIndexer.deleteByKeys(projectUuid, issueKeys, false);
   }
 
 }
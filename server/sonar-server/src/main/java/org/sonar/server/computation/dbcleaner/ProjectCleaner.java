@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.dbcleaner;
 
+import javax.annotation.Nullable;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.config.Settings;
@@ -54,10 +55,17 @@ public class ProjectCleaner {
   }
 
   public ProjectCleaner purge(DbSession session, IdUuidPair idUuidPair, Settings projectSettings) {
+    return purge(session, idUuidPair, projectSettings, null);
+  }
+
+  /**
+   * @param maxSnapshotId snapshots with a greater id are kept untouched. See {@link PurgeConfiguration#setMaxSnapshotId(Long)}
+   */
+  public ProjectCleaner purge(DbSession session, IdUuidPair idUuidPair, Settings projectSettings, @Nullable Long maxSnapshotId) {
     long start = System.currentTimeMillis();
     profiler.reset();
 
-    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair);
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair).setMaxSnapshotId(maxSnapshotId);
 
     cleanHistoricalData(session, configuration.rootProjectIdUuid().getId(), projectSettings);
     doPurge(session, configuration);
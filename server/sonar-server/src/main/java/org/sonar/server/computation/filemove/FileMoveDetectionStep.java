@@ -22,17 +22,22 @@ package org.sonar.server.computation.filemove;
 import com.google.common.base.Predicate;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import javax.annotation.CheckForNull;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 import org.sonar.api.resources.Qualifiers;
@@ -62,6 +67,9 @@ import static com.google.common.collect.FluentIterable.from;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.sonar.server.computation.component.ComponentVisitor.Order.POST_ORDER;
+import static org.sonar.server.computation.filemove.ScoreMatrix.dbFileIndex;
+import static org.sonar.server.computation.filemove.ScoreMatrix.pair;
+import static org.sonar.server.computation.filemove.ScoreMatrix.reportFileIndex;
 
 public class FileMoveDetectionStep implements ComputationStep {
   protected static final int MIN_REQUIRED_SCORE = 85;
@@ -69,6 +77,10 @@ public class FileMoveDetectionStep implements ComputationStep {
   private static final List<String> FILE_QUALIFIERS = asList(Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE);
   private static final List<String> SORT_FIELDS = singletonList("name");
   private static final Splitter LINES_HASHES_SPLITTER = on('\n');
+  /**
+   * Below this number of (removed file, added file) pairs, all pairs are scored.
+   */
+  private static final long MAX_PAIRS_FOR_EXHAUSTIVE_SCORING = 10_000;
 
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final TreeRootHolder rootHolder;
@@ -122,11 +134,13 @@ public class FileMoveDetectionStep implements ComputationStep {
       return;
     }
 
-    // retrieve file data from report
-    Map<String, File> reportFileSourcesByKey = getReportFileSourcesByKey(reportFilesByKey, addedFileKeys);
+    // retrieve file data from report and db
+    Interner<String> lineHashesInterner = Interners.newStrongInterner();
+    Map<String, File> reportFileSourcesByKey = getReportFileSourcesByKey(reportFilesByKey, addedFileKeys, lineHashesInterner);
+    Map<String, File> dbFileSourcesByKey = getDbFileSourcesByKey(dbFilesByKey, removedFileKeys, lineHashesInterner);
 
     // compute score matrix
-    ScoreMatrix scoreMatrix = computeScoreMatrix(dbFilesByKey, removedFileKeys, reportFileSourcesByKey);
+    ScoreMatrix scoreMatrix = computeScoreMatrix(dbFileSourcesByKey, reportFileSourcesByKey);
     printIfDebug(scoreMatrix);
 
     // not a single match with score higher than MIN_REQUIRED_SCORE => abort
@@ -182,7 +196,7 @@ public class FileMoveDetectionStep implements ComputationStep {
     return builder.build();
   }
 
-  private Map<String, File> getReportFileSourcesByKey(Map<String, Component> reportFilesByKey, Set<String> addedFileKeys) {
+  private Map<String, File> getReportFileSourcesByKey(Map<String, Component> reportFilesByKey, Set<String> addedFileKeys, Interner<String> interner) {
     ImmutableMap.Builder<String, File> builder = ImmutableMap.builder();
     for (String fileKey : addedFileKeys) {
       // FIXME computation of sourceHash and lineHashes might be done multiple times for some files: here, in ComputeFileSourceData, in
@@ -197,47 +211,94 @@ public class FileMoveDetectionStep implements ComputationStep {
           sourceHashComputer.addLine(line, lineIterator.hasNext());
         }
       }
-      builder.put(fileKey, new File(component.getReportAttributes().getPath(), sourceHashComputer.getHash(), linesHashesComputer.getLineHashes()));
+      builder.put(fileKey, new File(component.getReportAttributes().getPath(), sourceHashComputer.getHash(),
+        intern(linesHashesComputer.getLineHashes(), interner)));
     }
     return builder.build();
   }
 
-  private ScoreMatrix computeScoreMatrix(Map<String, DbComponent> dtosByKey, Set<String> dbFileKeys, Map<String, File> reportFileSourcesByKey) {
-    int[][] scoreMatrix = new int[dbFileKeys.size()][reportFileSourcesByKey.size()];
-    int maxScore = 0;
-
+  /**
+   * Loads the source hash and line hashes of the removed files which have sources in db, streaming them in bulk.
+   * Line hashes are shared between files through {@code interner}.
+   */
+  private Map<String, File> getDbFileSourcesByKey(Map<String, DbComponent> dbFilesByKey, Set<String> removedFileKeys, Interner<String> interner) {
+    Map<String, DbComponent> removedFilesByUuid = from(removedFileKeys).transform(dbFilesByKey::get).uniqueIndex(DbComponent::getUuid);
+    Map<String, File> filesByKey = new HashMap<>(removedFileKeys.size());
     try (DbSession dbSession = dbClient.openSession(false)) {
-      int dbFileIndex = 0;
-      for (String removedFileKey : dbFileKeys) {
-        File fileInDb = getFile(dbSession, dtosByKey.get(removedFileKey));
-        if (fileInDb == null) {
-          continue;
-        }
+      dbClient.fileSourceDao().selectLineHashesByFileUuids(dbSession, removedFilesByUuid.keySet(), context -> {
+        FileSourceDto fileSourceDto = (FileSourceDto) context.getResultObject();
+        DbComponent dbComponent = removedFilesByUuid.get(fileSourceDto.getFileUuid());
+        String lineHashes = fileSourceDto.getLineHashes();
+        filesByKey.put(dbComponent.getKey(), new File(dbComponent.getPath(), fileSourceDto.getSrcHash(),
+          lineHashes == null ? null : intern(LINES_HASHES_SPLITTER.split(lineHashes), interner)));
+      });
+    }
 
-        int reportFileIndex = 0;
-        for (Map.Entry<String, File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-          File unmatchedFile = reportFileSourceAndKey.getValue();
-          int score = fileSimilarity.score(fileInDb, unmatchedFile);
-          scoreMatrix[dbFileIndex][reportFileIndex] = score;
-          if (score > maxScore) {
-            maxScore = score;
-          }
-          reportFileIndex++;
-        }
-        dbFileIndex++;
+    // keep the order of removed files to have a deterministic result
+    ImmutableMap.Builder<String, File> builder = ImmutableMap.builder();
+    for (String removedFileKey : removedFileKeys) {
+      File file = filesByKey.get(removedFileKey);
+      if (file != null) {
+        builder.put(removedFileKey, file);
       }
     }
+    return builder.build();
+  }
 
-    return new ScoreMatrix(dbFileKeys, reportFileSourcesByKey, scoreMatrix, maxScore);
+  private static List<String> intern(Iterable<String> lineHashes, Interner<String> interner) {
+    return from(lineHashes).transform(interner::intern).toList();
+  }
+
+  private ScoreMatrix computeScoreMatrix(Map<String, File> dbFileSourcesByKey, Map<String, File> reportFileSourcesByKey) {
+    List<String> dbFileKeys = ImmutableList.copyOf(dbFileSourcesByKey.keySet());
+    List<String> reportFileKeys = ImmutableList.copyOf(reportFileSourcesByKey.keySet());
+    List<File> dbFiles = ImmutableList.copyOf(dbFileSourcesByKey.values());
+    List<File> reportFiles = ImmutableList.copyOf(reportFileSourcesByKey.values());
+
+    long[] pairs = LongStream.of(candidatePairs(dbFiles, reportFiles))
+      .filter(pair -> canReachMinRequiredScore(dbFiles.get(dbFileIndex(pair)), reportFiles.get(reportFileIndex(pair))))
+      .toArray();
+    int[] scores = new int[pairs.length];
+    IntStream.range(0, pairs.length).parallel()
+      .forEach(i -> scores[i] = fileSimilarity.score(dbFiles.get(dbFileIndex(pairs[i])), reportFiles.get(reportFileIndex(pairs[i]))));
+    int maxScore = IntStream.of(scores).max().orElse(0);
+    LOG.debug("{} pairs of files scored out of {}", pairs.length, (long) dbFiles.size() * reportFiles.size());
+
+    return new ScoreMatrix(dbFileKeys, reportFileKeys, pairs, scores, maxScore);
+  }
+
+  /**
+   * All the pairs when there are few of them, otherwise only the pairs of files which are likely to be similar
+   * according to {@link MinHashIndex}.
+   */
+  private static long[] candidatePairs(List<File> dbFiles, List<File> reportFiles) {
+    if ((long) dbFiles.size() * reportFiles.size() <= MAX_PAIRS_FOR_EXHAUSTIVE_SCORING) {
+      long[] pairs = new long[dbFiles.size() * reportFiles.size()];
+      int i = 0;
+      for (int dbFileIndex = 0; dbFileIndex < dbFiles.size(); dbFileIndex++) {
+        for (int reportFileIndex = 0; reportFileIndex < reportFiles.size(); reportFileIndex++) {
+          pairs[i] = pair(dbFileIndex, reportFileIndex);
+          i++;
+        }
+      }
+      return pairs;
+    }
+    return MinHashIndex.create(dbFiles).candidatePairs(reportFiles);
   }
 
-  @CheckForNull
-  private File getFile(DbSession dbSession, DbComponent dbComponent) {
-    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, dbComponent.getUuid());
-    if (fileSourceDto == null) {
-      return null;
+  /**
+   * At least as many lines as the difference of line counts must be added or removed to turn one file into the other,
+   * which caps the score to the ratio of the line counts.
+   */
+  private static boolean canReachMinRequiredScore(File dbFile, File reportFile) {
+    List<String> dbLineHashes = dbFile.getLineHashes();
+    List<String> reportLineHashes = reportFile.getLineHashes();
+    if (dbLineHashes == null || reportLineHashes == null) {
+      return false;
     }
-    return new File(dbComponent.getPath(), fileSourceDto.getSrcHash(), LINES_HASHES_SPLITTER.splitToList(fileSourceDto.getLineHashes()));
+    int minLines = Math.min(dbLineHashes.size(), reportLineHashes.size());
+    int maxLines = Math.max(dbLineHashes.size(), reportLineHashes.size());
+    return 100L * minLines >= (long) MIN_REQUIRED_SCORE * maxLines;
   }
 
   private static void printIfDebug(ScoreMatrix scoreMatrix) {
@@ -0,0 +1,159 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.filemove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.sonar.server.computation.filemove.FileSimilarity.File;
+
+/**
+ * Locality sensitive index of files, based on the MinHash signatures of their sets of line hashes.
+ * <p>
+ * Signatures are split into {@link #BANDS} bands of {@link #ROWS} rows. Two files are candidates to be compared when
+ * they share at least one band. The probability for that to happen is {@code 1 - (1 - J^ROWS)^BANDS}, {@code J} being
+ * the Jaccard similarity of the line hashes of both files: almost 1 for files with similar content (0.9998 when J=0.7),
+ * low for unrelated files (0.04 when J=0.2).
+ * </p>
+ */
+final class MinHashIndex {
+  static final int BANDS = 25;
+  static final int ROWS = 4;
+  private static final int SIGNATURE_SIZE = BANDS * ROWS;
+  private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+  static {
+    for (int i = 0; i < SIGNATURE_SIZE; i++) {
+      SEEDS[i] = mix(0x9E3779B97F4A7C15L * (i + 1));
+    }
+  }
+
+  private final Map<Long, List<Integer>> dbFileIndexesByBand = new HashMap<>();
+  private final int dbFilesCount;
+
+  private MinHashIndex(int dbFilesCount) {
+    this.dbFilesCount = dbFilesCount;
+  }
+
+  /**
+   * Indexes the files of the db. Files without line hashes are ignored.
+   */
+  static MinHashIndex create(List<File> dbFiles) {
+    MinHashIndex index = new MinHashIndex(dbFiles.size());
+    long[][] signatures = signatures(dbFiles);
+    for (int dbFileIndex = 0; dbFileIndex < signatures.length; dbFileIndex++) {
+      long[] signature = signatures[dbFileIndex];
+      if (signature == null) {
+        continue;
+      }
+      for (int band = 0; band < BANDS; band++) {
+        index.dbFileIndexesByBand.computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>(1)).add(dbFileIndex);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Pairs (file in db, file in report) which share at least one band, encoded with {@link ScoreMatrix#pair(int, int)}
+   * and sorted.
+   */
+  long[] candidatePairs(List<File> reportFiles) {
+    long[][] signatures = signatures(reportFiles);
+    // lastReportFileIndex[dbFileIndex] = index + 1 of the last report file paired with the db file, to not add a pair twice
+    int[] lastReportFileIndex = new int[dbFilesCount];
+    long[] pairs = new long[16];
+    int size = 0;
+    for (int reportFileIndex = 0; reportFileIndex < signatures.length; reportFileIndex++) {
+      long[] signature = signatures[reportFileIndex];
+      if (signature == null) {
+        continue;
+      }
+      for (int band = 0; band < BANDS; band++) {
+        List<Integer> dbFileIndexes = dbFileIndexesByBand.get(bandKey(signature, band));
+        if (dbFileIndexes == null) {
+          continue;
+        }
+        for (int dbFileIndex : dbFileIndexes) {
+          if (lastReportFileIndex[dbFileIndex] != reportFileIndex + 1) {
+            lastReportFileIndex[dbFileIndex] = reportFileIndex + 1;
+            if (size == pairs.length) {
+              pairs = Arrays.copyOf(pairs, size * 2);
+            }
+            pairs[size] = ScoreMatrix.pair(dbFileIndex, reportFileIndex);
+            size++;
+          }
+        }
+      }
+    }
+    long[] res = Arrays.copyOf(pairs, size);
+    Arrays.sort(res);
+    return res;
+  }
+
+  private static long[][] signatures(List<File> files) {
+    long[][] signatures = new long[files.size()][];
+    IntStream.range(0, files.size()).parallel().forEach(i -> {
+      List<String> lineHashes = files.get(i).getLineHashes();
+      if (lineHashes != null) {
+        signatures[i] = signature(lineHashes);
+      }
+    });
+    return signatures;
+  }
+
+  static long[] signature(List<String> lineHashes) {
+    long[] signature = new long[SIGNATURE_SIZE];
+    Arrays.fill(signature, Long.MAX_VALUE);
+    for (String lineHash : lineHashes) {
+      long hash = mix(lineHash.hashCode());
+      for (int i = 0; i < SIGNATURE_SIZE; i++) {
+        long value = mix(hash ^ SEEDS[i]);
+        if (value < signature[i]) {
+          signature[i] = value;
+        }
+      }
+    }
+    return signature;
+  }
+
+  private static long bandKey(long[] signature, int band) {
+    long key = band;
+    for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+      key = mix(key * 31 + signature[row]);
+    }
+    return key;
+  }
+
+  /**
+   * Finalizer of MurmurHash3 (64 bits).
+   */
+  private static long mix(long value) {
+    long h = value;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -19,33 +19,48 @@
  */
 package org.sonar.server.computation.filemove;
 
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Scores of the pairs (file in db, file in report) which have been evaluated. Pairs are encoded with
+ * {@link #pair(int, int)} as the indexes of the files in {@code dbFileKeys} and {@code reportFileKeys} and must be
+ * sorted. Pairs which are not present have not been scored because they can not reach
+ * {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE}.
+ */
 final class ScoreMatrix {
-  private final Set<String> dbFileKeys;
-  private final Map<String, FileSimilarity.File> reportFileSourcesByKey;
-  private final int[][] scores;
+  private final List<String> dbFileKeys;
+  private final List<String> reportFileKeys;
+  private final long[] pairs;
+  private final int[] scores;
   private final int maxScore;
 
-  public ScoreMatrix(Set<String> dbFileKeys, Map<String, FileSimilarity.File> reportFileSourcesByKey, int[][] scores, int maxScore) {
+  public ScoreMatrix(List<String> dbFileKeys, List<String> reportFileKeys, long[] pairs, int[] scores, int maxScore) {
+    checkArgument(pairs.length == scores.length, "There must be as many scores as pairs");
     this.dbFileKeys = dbFileKeys;
-    this.reportFileSourcesByKey = reportFileSourcesByKey;
+    this.reportFileKeys = reportFileKeys;
+    this.pairs = pairs;
     this.scores = scores;
     this.maxScore = maxScore;
   }
 
+  static long pair(int dbFileIndex, int reportFileIndex) {
+    return ((long) dbFileIndex << 32) | reportFileIndex;
+  }
+
+  static int dbFileIndex(long pair) {
+    return (int) (pair >>> 32);
+  }
+
+  static int reportFileIndex(long pair) {
+    return (int) pair;
+  }
+
   public void accept(ScoreMatrixVisitor visitor) {
-    int dbFileIndex = 0;
-    for (String dbFileKey : dbFileKeys) {
-      int reportFileIndex = 0;
-      for (Map.Entry<String, FileSimilarity.File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-        int score = scores[dbFileIndex][reportFileIndex];
-        visitor.visit(dbFileKey, reportFileSourceAndKey.getKey(), score);
-        reportFileIndex++;
-      }
-      dbFileIndex++;
+    for (int i = 0; i < pairs.length; i++) {
+      visitor.visit(dbFileKeys.get(dbFileIndex(pairs[i])), reportFileKeys.get(reportFileIndex(pairs[i])), scores[i]);
     }
   }
 
@@ -53,22 +68,23 @@ final class ScoreMatrix {
     StringBuilder res = new StringBuilder();
     // first row: empty column, then one column for each report file (its key)
     res.append(separator);
-    for (Map.Entry<String, FileSimilarity.File> reportEntry : reportFileSourcesByKey.entrySet()) {
-      res.append(reportEntry.getKey()).append(separator);
+    for (String reportFileKey : reportFileKeys) {
+      res.append(reportFileKey).append(separator);
     }
-    // rows with data: column with db file (its key), then one column for each value
-    accept(new ScoreMatrixVisitor() {
-      private String previousDbFileKey = null;
-
-      @Override
-      public void visit(String dbFileKey, String reportFileKey, int score) {
-        if (!Objects.equals(previousDbFileKey, dbFileKey)) {
-          res.append('\n').append(dbFileKey).append(separator);
-          previousDbFileKey = dbFileKey;
-        }
+    // rows with data: column with db file (its key), then one column for each value, 0 when pair has not been scored
+    int[] row = new int[reportFileKeys.size()];
+    int pairIndex = 0;
+    for (int dbFileIndex = 0; dbFileIndex < dbFileKeys.size(); dbFileIndex++) {
+      Arrays.fill(row, 0);
+      while (pairIndex < pairs.length && dbFileIndex(pairs[pairIndex]) == dbFileIndex) {
+        row[reportFileIndex(pairs[pairIndex])] = scores[pairIndex];
+        pairIndex++;
+      }
+      res.append('\n').append(dbFileKeys.get(dbFileIndex)).append(separator);
+      for (int score : row) {
         res.append(score).append(separator);
       }
-    });
+    }
     return res.toString();
   }
 
@@ -29,6 +29,7 @@ import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.ComponentVisitor;
 import org.sonar.server.computation.component.CrawlerDepthLimit;
 import org.sonar.server.computation.component.PathAwareVisitorAdapter;
+import org.sonar.server.computation.component.ThreadSafeVisitor;
 import org.sonar.server.computation.measure.Measure;
 import org.sonar.server.computation.measure.MeasureRepository;
 import org.sonar.server.computation.metric.Metric;
@@ -38,7 +39,12 @@ import org.sonar.server.computation.period.PeriodsHolder;
 
 import static java.util.Objects.requireNonNull;
 
-public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<FormulaExecutorComponentVisitor.Counters> {
+/**
+ * Formulas are expected to be stateless and each {@link Counter} is fed by a single leaf, so this visitor can be run
+ * by a {@link org.sonar.server.computation.component.ParallelPathAwareCrawler}. Counters are aggregated into the
+ * {@link Counters} of the parent, which is synchronized.
+ */
+public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<FormulaExecutorComponentVisitor.Counters> implements ThreadSafeVisitor {
   private static final SimpleStackElementFactory<Counters> COUNTERS_FACTORY = new SimpleStackElementFactory<Counters>() {
 
     @Override
@@ -214,7 +220,7 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
   public static class Counters {
     Map<Formula, Counter> countersByFormula = new HashMap<>();
 
-    public void aggregate(Formula formula, Counter childCounter) {
+    public synchronized void aggregate(Formula formula, Counter childCounter) {
       Counter counter = countersByFormula.get(formula);
       if (counter == null) {
         countersByFormula.put(formula, childCounter);
@@ -227,7 +233,7 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
      * Counter can be null on a level when it has not been fed by children levels
      */
     @CheckForNull
-    public Counter getCounter(Formula formula) {
+    public synchronized Counter getCounter(Formula formula) {
       return countersByFormula.get(formula);
     }
   }
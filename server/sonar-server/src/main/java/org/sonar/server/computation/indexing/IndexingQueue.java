@@ -0,0 +1,35 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.indexing;
+
+/**
+ * Durable queue of Elasticsearch indexing requests. Requests are persisted in table ES_QUEUE, so that
+ * Compute Engine tasks do not wait for Elasticsearch and requests which were not processed before a
+ * crash are replayed at startup.
+ */
+public interface IndexingQueue {
+
+  /**
+   * Persists and commits a request to index the documents of type {@code docType} of the given project.
+   * The request is processed asynchronously. See {@link org.sonar.db.es.EsQueueDto} for the supported types.
+   */
+  void enqueue(String docType, String projectUuid);
+
+}
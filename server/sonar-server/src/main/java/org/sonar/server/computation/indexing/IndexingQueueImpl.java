@@ -0,0 +1,240 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.indexing;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.MultimapBuilder;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.es.EsQueueDto;
+import org.sonar.server.es.BaseIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.test.index.TestIndexer;
+
+import static org.sonar.db.es.EsQueueDto.DOC_TYPE_ISSUES;
+import static org.sonar.db.es.EsQueueDto.DOC_TYPE_TESTS;
+
+/**
+ * Requests are drained by a single thread ({@link IndexingQueueExecutorService}):
+ * <ul>
+ *   <li>as soon as possible after being enqueued. Several calls to {@link #enqueue(String, String)} received
+ *   while a drain is running are served by a single subsequent drain</li>
+ *   <li>at startup then every {@link #DRAIN_DELAY_MS} milliseconds, in order to replay the requests which
+ *   were not processed before a crash, or which failed</li>
+ * </ul>
+ * Requests are read by batches of {@link #BATCH_SIZE}. Requests of a batch which relate to the same type of
+ * documents and to the same project are coalesced, so that a project is indexed only once per batch.
+ * Requests are deleted only when indexing succeeded.
+ * <p/>
+ * Indexers index the documents updated since their last indexing, whatever the project. This date is more recent
+ * than the documents of the requests which failed or which were not processed before the previous stop. These requests
+ * are replayed by indexing all the documents of their project.
+ */
+public class IndexingQueueImpl implements IndexingQueue, Startable {
+
+  private static final Logger LOG = Loggers.get(IndexingQueueImpl.class);
+
+  @VisibleForTesting
+  static final int BATCH_SIZE = 1_000;
+  @VisibleForTesting
+  static final long DRAIN_DELAY_MS = 10_000L;
+
+  private final DbClient dbClient;
+  private final IssueIndexer issueIndexer;
+  private final TestIndexer testIndexer;
+  private final IndexingQueueExecutorService executorService;
+  private final System2 system2;
+  private final AtomicBoolean drainRequested = new AtomicBoolean(false);
+  // accessed only by the thread which drains the queue
+  private final Set<Map.Entry<String, String>> failedRequests = new HashSet<>();
+  private volatile long startedAt = 0L;
+
+  public IndexingQueueImpl(DbClient dbClient, IssueIndexer issueIndexer, TestIndexer testIndexer, IndexingQueueExecutorService executorService,
+    System2 system2) {
+    this.dbClient = dbClient;
+    this.issueIndexer = issueIndexer;
+    this.testIndexer = testIndexer;
+    this.executorService = executorService;
+    this.system2 = system2;
+  }
+
+  @Override
+  public void start() {
+    startedAt = system2.now();
+    executorService.scheduleWithFixedDelay(this::safeDrain, 0L, DRAIN_DELAY_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    // pending requests are persisted, they are processed at next startup
+  }
+
+  @Override
+  public void enqueue(String docType, String projectUuid) {
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      dbClient.esQueueDao().insert(dbSession, docType, projectUuid);
+      dbSession.commit();
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+    requestDrain();
+  }
+
+  private void requestDrain() {
+    if (drainRequested.compareAndSet(false, true)) {
+      try {
+        executorService.execute(() -> {
+          drainRequested.set(false);
+          safeDrain();
+        });
+      } catch (RejectedExecutionException e) {
+        // executor is stopped, request is processed at next startup
+        drainRequested.set(false);
+      }
+    }
+  }
+
+  private void safeDrain() {
+    try {
+      drain();
+    } catch (Exception e) {
+      // the scheduled task must not be cancelled, requests are kept and replayed later
+      LOG.error("Fail to process indexing queue", e);
+    }
+  }
+
+  /**
+   * Processes the queue until it is empty or until all remaining requests can't be processed yet.
+   */
+  @VisibleForTesting
+  void drain() {
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      boolean progress = true;
+      while (progress) {
+        List<EsQueueDto> batch = dbClient.esQueueDao().selectOldest(dbSession, BATCH_SIZE);
+        progress = processBatch(dbSession, batch) && batch.size() == BATCH_SIZE;
+      }
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+  }
+
+  /**
+   * @return true if at least one request of the batch has been deleted
+   */
+  private boolean processBatch(DbSession dbSession, List<EsQueueDto> batch) {
+    ListMultimap<Map.Entry<String, String>, Long> idsByRequest = MultimapBuilder.linkedHashKeys().arrayListValues().build();
+    Set<Map.Entry<String, String>> requestsToReplay = new HashSet<>();
+    for (EsQueueDto dto : batch) {
+      Map.Entry<String, String> request = Maps.immutableEntry(dto.getDocType(), dto.getProjectUuid());
+      idsByRequest.put(request, dto.getId());
+      if (dto.getCreatedAt() < startedAt || failedRequests.contains(request)) {
+        requestsToReplay.add(request);
+      }
+    }
+
+    boolean deleted = false;
+    for (Map.Entry<Map.Entry<String, String>, Collection<Long>> entry : idsByRequest.asMap().entrySet()) {
+      Map.Entry<String, String> request = entry.getKey();
+      if (process(request.getKey(), request.getValue(), requestsToReplay.contains(request))) {
+        failedRequests.remove(request);
+        dbClient.esQueueDao().delete(dbSession, entry.getValue());
+        dbSession.commit();
+        deleted = true;
+      } else {
+        failedRequests.add(request);
+      }
+    }
+    return deleted;
+  }
+
+  /**
+   * @param replay whether all the documents of the project must be indexed, and not only the ones updated since the
+   *               last indexing
+   * @return true if the request is processed and can be deleted from the queue
+   */
+  private boolean process(String docType, String projectUuid, boolean replay) {
+    BaseIndexer indexer = indexerOf(docType);
+    if (indexer == null) {
+      LOG.warn("Unsupported type of documents in indexing queue, request is dropped: {}", docType);
+      return true;
+    }
+    if (!indexer.isEnabled()) {
+      // indexers are enabled at the end of startup
+      return false;
+    }
+    try {
+      if (DOC_TYPE_ISSUES.equals(docType)) {
+        indexIssues(projectUuid, replay);
+      } else {
+        indexTests(projectUuid, replay);
+      }
+      return true;
+    } catch (Exception e) {
+      LOG.error(String.format("Fail to index %s of project %s, request is kept in queue", docType, projectUuid), e);
+      return false;
+    }
+  }
+
+  private void indexIssues(String projectUuid, boolean replay) {
+    if (replay) {
+      issueIndexer.indexProject(projectUuid);
+    } else {
+      issueIndexer.index(projectUuid);
+    }
+  }
+
+  private void indexTests(String projectUuid, boolean replay) {
+    if (replay) {
+      testIndexer.indexProject(projectUuid);
+    } else {
+      testIndexer.index(projectUuid);
+    }
+  }
+
+  @CheckForNull
+  private BaseIndexer indexerOf(String docType) {
+    switch (docType) {
+      case DOC_TYPE_ISSUES:
+        return issueIndexer;
+      case DOC_TYPE_TESTS:
+        return testIndexer;
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,415 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.issue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact representation of an issue stored in {@link IssueCache}. The fields which are shared by many
+ * issues are ids in a {@link IssueDictionary} and dates are epoch milliseconds.
+ * <p/>
+ * The flags and the fields used to decide whether an issue must be persisted or notified are decoded eagerly.
+ * The other fields (message, attributes, tags, locations, changes, comments, ...) are kept encoded and are decoded
+ * only when the {@link DefaultIssue} is materialized by {@link #toDefaultIssue()}.
+ */
+public final class CompactIssue {
+
+  private static final int FLAG_NEW = 1;
+  private static final int FLAG_CHANGED = 1 << 1;
+  private static final int FLAG_SEND_NOTIFICATIONS = 1 << 2;
+  private static final int FLAG_BEING_CLOSED = 1 << 3;
+  private static final int FLAG_ON_DISABLED_RULE = 1 << 4;
+  private static final int FLAG_MANUAL_SEVERITY = 1 << 5;
+
+  private static final long NULL_LONG = Long.MIN_VALUE;
+  private static final int NULL_LENGTH = -1;
+  private static final byte NULL_TYPE = -1;
+  private static final RuleType[] RULE_TYPES = RuleType.values();
+
+  private final IssueDictionary dictionary;
+  private final byte[] data;
+  private final int flags;
+  private final int ruleRepositoryId;
+  private final int ruleId;
+  private final int componentUuidId;
+  private final int statusId;
+  private final int resolutionId;
+  private final int severityId;
+  private final int assigneeId;
+  private final long creationDate;
+  private final long updateDate;
+  private final long closeDate;
+  private final int bodyOffset;
+
+  CompactIssue(IssueDictionary dictionary, byte[] data) {
+    this.dictionary = dictionary;
+    this.data = data;
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    this.flags = buffer.get();
+    this.ruleRepositoryId = buffer.getInt();
+    this.ruleId = buffer.getInt();
+    this.componentUuidId = buffer.getInt();
+    this.statusId = buffer.getInt();
+    this.resolutionId = buffer.getInt();
+    this.severityId = buffer.getInt();
+    this.assigneeId = buffer.getInt();
+    this.creationDate = buffer.getLong();
+    this.updateDate = buffer.getLong();
+    this.closeDate = buffer.getLong();
+    this.bodyOffset = buffer.position();
+  }
+
+  public boolean isNew() {
+    return (flags & FLAG_NEW) != 0;
+  }
+
+  public boolean isChanged() {
+    return (flags & FLAG_CHANGED) != 0;
+  }
+
+  public boolean mustSendNotifications() {
+    return (flags & FLAG_SEND_NOTIFICATIONS) != 0;
+  }
+
+  public boolean isBeingClosed() {
+    return (flags & FLAG_BEING_CLOSED) != 0;
+  }
+
+  @CheckForNull
+  public RuleKey ruleKey() {
+    String repository = dictionary.valueOf(ruleRepositoryId);
+    return repository == null ? null : RuleKey.of(repository, dictionary.valueOf(ruleId));
+  }
+
+  @CheckForNull
+  public String componentUuid() {
+    return dictionary.valueOf(componentUuidId);
+  }
+
+  @CheckForNull
+  public String status() {
+    return dictionary.valueOf(statusId);
+  }
+
+  @CheckForNull
+  public String resolution() {
+    return dictionary.valueOf(resolutionId);
+  }
+
+  @CheckForNull
+  public String severity() {
+    return dictionary.valueOf(severityId);
+  }
+
+  @CheckForNull
+  public String assignee() {
+    return dictionary.valueOf(assigneeId);
+  }
+
+  @CheckForNull
+  public Date creationDate() {
+    return toDate(creationDate);
+  }
+
+  @CheckForNull
+  public Date updateDate() {
+    return toDate(updateDate);
+  }
+
+  @CheckForNull
+  public Date closeDate() {
+    return toDate(closeDate);
+  }
+
+  /**
+   * Creates a new {@link DefaultIssue} with all the fields of the issue
+   */
+  public DefaultIssue toDefaultIssue() {
+    DefaultIssue issue = new DefaultIssue()
+      .setNew(isNew())
+      .setChanged(isChanged())
+      .setSendNotifications(mustSendNotifications())
+      .setBeingClosed(isBeingClosed())
+      .setOnDisabledRule((flags & FLAG_ON_DISABLED_RULE) != 0)
+      .setManualSeverity((flags & FLAG_MANUAL_SEVERITY) != 0)
+      .setRuleKey(ruleKey())
+      .setComponentUuid(componentUuid())
+      .setResolution(resolution())
+      .setSeverity(severity())
+      .setAssignee(assignee())
+      .setCreationDate(creationDate())
+      .setUpdateDate(updateDate())
+      .setCloseDate(closeDate());
+    String status = status();
+    if (status != null) {
+      issue.setStatus(status);
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    buffer.position(bodyOffset);
+    issue.setKey(readString(buffer));
+    byte type = buffer.get();
+    issue.setType(type == NULL_TYPE ? null : RULE_TYPES[type]);
+    issue.setComponentKey(readId(buffer));
+    issue.setModuleUuid(readId(buffer));
+    issue.setModuleUuidPath(readId(buffer));
+    issue.setProjectUuid(readId(buffer));
+    issue.setProjectKey(readId(buffer));
+    issue.setLanguage(readId(buffer));
+    issue.setAuthorLogin(readId(buffer));
+    issue.setMessage(readString(buffer));
+    issue.setChecksum(readString(buffer));
+    int line = buffer.getInt();
+    issue.setLine(line == 0 ? null : line);
+    if (buffer.get() != 0) {
+      issue.setGap(buffer.getDouble());
+    }
+    long effort = buffer.getLong();
+    issue.setEffort(effort == NULL_LONG ? null : Duration.create(effort));
+    long selectedAt = buffer.getLong();
+    issue.setSelectedAt(selectedAt == NULL_LONG ? null : selectedAt);
+    readAttributes(buffer, issue);
+    readTags(buffer, issue);
+    byte[] locations = readBytes(buffer);
+    if (locations != null) {
+      issue.setLocations(parseLocations(locations));
+    }
+    byte[] extras = readBytes(buffer);
+    if (extras != null) {
+      readExtras(extras, issue);
+    }
+    return issue;
+  }
+
+  static void write(DefaultIssue issue, IssueDictionary dictionary, DataOutputStream output) throws IOException {
+    output.writeByte(flagsOf(issue));
+    RuleKey ruleKey = issue.ruleKey();
+    output.writeInt(dictionary.idOf(ruleKey == null ? null : ruleKey.repository()));
+    output.writeInt(dictionary.idOf(ruleKey == null ? null : ruleKey.rule()));
+    output.writeInt(dictionary.idOf(issue.componentUuid()));
+    output.writeInt(dictionary.idOf(issue.status()));
+    output.writeInt(dictionary.idOf(issue.resolution()));
+    output.writeInt(dictionary.idOf(issue.severity()));
+    output.writeInt(dictionary.idOf(issue.assignee()));
+    output.writeLong(toLong(issue.creationDate()));
+    output.writeLong(toLong(issue.updateDate()));
+    output.writeLong(toLong(issue.closeDate()));
+
+    writeString(output, issue.key());
+    output.writeByte(issue.type() == null ? NULL_TYPE : issue.type().ordinal());
+    output.writeInt(dictionary.idOf(issue.componentKey()));
+    output.writeInt(dictionary.idOf(issue.moduleUuid()));
+    output.writeInt(dictionary.idOf(issue.moduleUuidPath()));
+    output.writeInt(dictionary.idOf(issue.projectUuid()));
+    output.writeInt(dictionary.idOf(issue.projectKey()));
+    output.writeInt(dictionary.idOf(issue.language()));
+    output.writeInt(dictionary.idOf(issue.authorLogin()));
+    writeString(output, issue.message());
+    writeString(output, issue.checksum());
+    // lines start at 1
+    output.writeInt(issue.line() == null ? 0 : issue.line());
+    Double gap = issue.gap();
+    output.writeBoolean(gap != null);
+    if (gap != null) {
+      output.writeDouble(gap);
+    }
+    Duration effort = issue.effort();
+    output.writeLong(effort == null ? NULL_LONG : effort.toMinutes());
+    Long selectedAt = issue.selectedAt();
+    output.writeLong(selectedAt == null ? NULL_LONG : selectedAt);
+    writeAttributes(output, issue.attributes(), dictionary);
+    writeTags(output, issue.tags(), dictionary);
+    Object locations = issue.getLocations();
+    writeBytes(output, locations instanceof DbIssues.Locations ? ((DbIssues.Locations) locations).toByteArray() : null);
+    writeBytes(output, extrasOf(issue));
+  }
+
+  private static int flagsOf(DefaultIssue issue) {
+    int flags = 0;
+    flags |= issue.isNew() ? FLAG_NEW : 0;
+    flags |= issue.isChanged() ? FLAG_CHANGED : 0;
+    flags |= issue.mustSendNotifications() ? FLAG_SEND_NOTIFICATIONS : 0;
+    flags |= issue.isBeingClosed() ? FLAG_BEING_CLOSED : 0;
+    flags |= issue.isOnDisabledRule() ? FLAG_ON_DISABLED_RULE : 0;
+    flags |= issue.manualSeverity() ? FLAG_MANUAL_SEVERITY : 0;
+    return flags;
+  }
+
+  private static void writeAttributes(DataOutputStream output, Map<String, String> attributes, IssueDictionary dictionary) throws IOException {
+    output.writeInt(attributes.size());
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      output.writeInt(dictionary.idOf(attribute.getKey()));
+      writeString(output, attribute.getValue());
+    }
+  }
+
+  private void readAttributes(ByteBuffer buffer, DefaultIssue issue) {
+    int size = buffer.getInt();
+    for (int i = 0; i < size; i++) {
+      issue.setAttribute(readId(buffer), readString(buffer));
+    }
+  }
+
+  private static void writeTags(DataOutputStream output, Set<String> tags, IssueDictionary dictionary) throws IOException {
+    output.writeInt(tags.size());
+    for (String tag : tags) {
+      output.writeInt(dictionary.idOf(tag));
+    }
+  }
+
+  private void readTags(ByteBuffer buffer, DefaultIssue issue) {
+    int size = buffer.getInt();
+    if (size > 0) {
+      List<String> tags = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        tags.add(readId(buffer));
+      }
+      issue.setTags(tags);
+    }
+  }
+
+  /**
+   * Changes, comments and locations which are not {@link DbIssues.Locations} are rare. They are serialized
+   * together, so that the current change keeps being one of the changes.
+   */
+  @CheckForNull
+  private static byte[] extrasOf(DefaultIssue issue) throws IOException {
+    Object locations = issue.getLocations();
+    Object otherLocations = locations instanceof DbIssues.Locations ? null : locations;
+    if (issue.changes().isEmpty() && issue.currentChange() == null && issue.comments().isEmpty() && otherLocations == null) {
+      return null;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(new ArrayList<>(issue.changes()));
+      output.writeObject(issue.currentChange());
+      output.writeObject(new ArrayList<>(issue.comments()));
+      output.writeObject(otherLocations);
+    }
+    return bytes.toByteArray();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void readExtras(byte[] extras, DefaultIssue issue) {
+    try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(extras))) {
+      List<FieldDiffs> changes = (List<FieldDiffs>) input.readObject();
+      FieldDiffs currentChange = (FieldDiffs) input.readObject();
+      List<IssueComment> comments = (List<IssueComment>) input.readObject();
+      Object otherLocations = input.readObject();
+      if (!changes.isEmpty() || currentChange != null) {
+        List<FieldDiffs> issueChanges = new ArrayList<>(changes);
+        issue.setChanges(issueChanges);
+        if (currentChange != null) {
+          // setCurrentChange() also adds the change to the list of changes, which already contains it
+          issue.setCurrentChange(currentChange);
+          issueChanges.remove(issueChanges.size() - 1);
+        }
+      }
+      for (IssueComment comment : comments) {
+        issue.addComment((DefaultIssueComment) comment);
+      }
+      if (otherLocations != null) {
+        issue.setLocations(otherLocations);
+      }
+    } catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Fail to read changes and comments of issue " + issue.key(), e);
+    }
+  }
+
+  private static DbIssues.Locations parseLocations(byte[] bytes) {
+    try {
+      return DbIssues.Locations.parseFrom(bytes);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read locations of issue", e);
+    }
+  }
+
+  @CheckForNull
+  private String readId(ByteBuffer buffer) {
+    return dictionary.valueOf(buffer.getInt());
+  }
+
+  private static void writeString(DataOutputStream output, @Nullable String s) throws IOException {
+    writeBytes(output, s == null ? null : s.getBytes(UTF_8));
+  }
+
+  @CheckForNull
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    String s = new String(buffer.array(), buffer.position(), length, UTF_8);
+    buffer.position(buffer.position() + length);
+    return s;
+  }
+
+  private static void writeBytes(DataOutputStream output, @Nullable byte[] bytes) throws IOException {
+    if (bytes == null) {
+      output.writeInt(NULL_LENGTH);
+    } else {
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  @CheckForNull
+  private static byte[] readBytes(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static long toLong(@Nullable Date date) {
+    return date == null ? NULL_LONG : date.getTime();
+  }
+
+  @CheckForNull
+  private static Date toDate(long time) {
+    return time == NULL_LONG ? null : new Date(time);
+  }
+}
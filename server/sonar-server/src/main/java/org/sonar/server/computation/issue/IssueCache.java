@@ -19,25 +19,144 @@
  */
 package org.sonar.server.computation.issue;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.TempFolder;
 import org.sonar.core.issue.DefaultIssue;
-import org.sonar.server.util.cache.DiskCache;
+import org.sonar.core.util.CloseableIterator;
 
 /**
  * Cache of all the issues involved in the analysis. Their state is as it will be
  * persisted in database (after issue tracking, auto-assignment, ...)
+ * <p/>
+ * Issues are stored on disk as {@link CompactIssue}. The values shared by issues are stored once, in a dictionary
+ * kept in memory, so the file can be read only by the instance which wrote it.
  */
-public class IssueCache extends DiskCache<DefaultIssue> {
+public class IssueCache {
+
+  private final File file;
+  private final System2 system2;
+  private final IssueDictionary dictionary = new IssueDictionary();
 
   // this constructor is used by picocontainer
   public IssueCache(TempFolder tempFolder, System2 system2) throws IOException {
-    super(tempFolder.newFile("issues", ".dat"), system2);
+    this(tempFolder.newFile("issues", ".dat"), system2);
   }
 
   public IssueCache(File file, System2 system2) {
-    super(file, system2);
+    this.file = file;
+    this.system2 = system2;
+    try {
+      // truncates the file, which can be reused by tests
+      FileUtils.writeByteArrayToFile(file, new byte[0]);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write into file: " + file, e);
+    }
+  }
+
+  public Appender newAppender() {
+    return new Appender();
+  }
+
+  /**
+   * Materializes all the issues. Prefer {@link #traverseCompact()} when only some of the issues are needed.
+   */
+  public CloseableIterator<DefaultIssue> traverse() {
+    return new DefaultIssueIterator(traverseCompact());
+  }
+
+  public CloseableIterator<CompactIssue> traverseCompact() {
+    try {
+      return new CompactIssueIterator(new DataInputStream(new BufferedInputStream(FileUtils.openInputStream(file))));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to traverse file: " + file, e);
+    }
+  }
+
+  public class Appender implements AutoCloseable {
+    private final DataOutputStream output;
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+
+    private Appender() {
+      try {
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to open file " + file, e);
+      }
+    }
+
+    public Appender append(DefaultIssue issue) {
+      try {
+        recordBytes.reset();
+        CompactIssue.write(issue, dictionary, record);
+        record.flush();
+        output.writeInt(recordBytes.size());
+        recordBytes.writeTo(output);
+        return this;
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to write into file " + file, e);
+      }
+    }
+
+    @Override
+    public void close() {
+      system2.close(output);
+    }
+  }
+
+  private class CompactIssueIterator extends CloseableIterator<CompactIssue> {
+    private final DataInputStream input;
+
+    private CompactIssueIterator(DataInputStream input) {
+      this.input = input;
+    }
+
+    @Override
+    protected CompactIssue doNext() {
+      try {
+        int length = input.readInt();
+        byte[] data = new byte[length];
+        input.readFully(data);
+        return new CompactIssue(dictionary, data);
+      } catch (EOFException e) {
+        return null;
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read file " + file, e);
+      }
+    }
+
+    @Override
+    protected void doClose() {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  private static class DefaultIssueIterator extends CloseableIterator<DefaultIssue> {
+    private final CloseableIterator<CompactIssue> compactIssues;
+
+    private DefaultIssueIterator(CloseableIterator<CompactIssue> compactIssues) {
+      this.compactIssues = compactIssues;
+    }
+
+    @Override
+    protected DefaultIssue doNext() {
+      return compactIssues.hasNext() ? compactIssues.next().toDefaultIssue() : null;
+    }
+
+    @Override
+    protected void doClose() {
+      compactIssues.close();
+    }
   }
 }
@@ -0,0 +1,68 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.issue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Assigns an int id to each distinct string value, so that the values which are shared by many issues
+ * (rule, component, status, assignee, ...) are stored once. Id {@link #NULL_ID} is reserved for {@code null}.
+ * <p/>
+ * Values returned by {@link #valueOf(int)} are always the same instance, so that the issues which are
+ * materialized from {@link CompactIssue} share their strings.
+ */
+class IssueDictionary {
+
+  static final int NULL_ID = 0;
+
+  private final List<String> values = new ArrayList<>();
+  private final Map<String, Integer> ids = new HashMap<>();
+
+  IssueDictionary() {
+    values.add(null);
+  }
+
+  synchronized int idOf(@Nullable String value) {
+    if (value == null) {
+      return NULL_ID;
+    }
+    Integer id = ids.get(value);
+    if (id == null) {
+      id = values.size();
+      values.add(value);
+      ids.put(value, id);
+    }
+    return id;
+  }
+
+  @CheckForNull
+  synchronized String valueOf(int id) {
+    return values.get(id);
+  }
+
+  synchronized int size() {
+    return values.size() - 1;
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.measure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Values of the measures of a past analysis, indexed by component and metric.
+ * <p>
+ * Components and metrics are mapped to dense int indexes and values are stored in an open addressing
+ * hash table of primitive arrays, so that the measures of all the components of a project can be kept
+ * in memory at once without creating one object per measure.
+ * </p>
+ * Measures without value are not stored, they can't be distinguished from missing measures.
+ */
+@NotThreadSafe
+public final class PastMeasuresTable {
+
+  private static final long EMPTY_KEY = -1L;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final Map<String, Integer> componentIndexes;
+  private final Map<Integer, Integer> metricIndexes;
+  private long[] keys;
+  private double[] values;
+  private int size = 0;
+
+  public PastMeasuresTable(Iterable<String> componentUuids, Iterable<Integer> metricIds) {
+    this.componentIndexes = toIndexes(componentUuids);
+    this.metricIndexes = toIndexes(metricIds);
+    this.keys = newKeys(INITIAL_CAPACITY);
+    this.values = new double[INITIAL_CAPACITY];
+  }
+
+  private static <T> Map<T, Integer> toIndexes(Iterable<T> items) {
+    Map<T, Integer> indexes = new HashMap<>();
+    for (T item : items) {
+      if (!indexes.containsKey(item)) {
+        indexes.put(item, indexes.size());
+      }
+    }
+    return indexes;
+  }
+
+  /**
+   * Measures of components or metrics which have not been declared in constructor are ignored.
+   */
+  public void put(String componentUuid, int metricId, double value) {
+    long key = key(componentUuid, metricId);
+    if (key == EMPTY_KEY) {
+      return;
+    }
+    if (2 * (size + 1) > keys.length) {
+      resize(2 * keys.length);
+    }
+    int slot = slot(keys, key);
+    if (keys[slot] == EMPTY_KEY) {
+      keys[slot] = key;
+      size++;
+    }
+    values[slot] = value;
+  }
+
+  /**
+   * Value of the measure, or {@code defaultValue} if there's no such measure or if the measure has no value.
+   */
+  public double get(String componentUuid, int metricId, double defaultValue) {
+    long key = key(componentUuid, metricId);
+    if (key == EMPTY_KEY) {
+      return defaultValue;
+    }
+    int slot = slot(keys, key);
+    return keys[slot] == EMPTY_KEY ? defaultValue : values[slot];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private long key(String componentUuid, int metricId) {
+    Integer componentIndex = componentIndexes.get(componentUuid);
+    Integer metricIndex = metricIndexes.get(metricId);
+    if (componentIndex == null || metricIndex == null) {
+      return EMPTY_KEY;
+    }
+    return (long) componentIndex * metricIndexes.size() + metricIndex;
+  }
+
+  /**
+   * Linear probing. Returns either the slot of the key or the first empty slot.
+   */
+  private static int slot(long[] keys, long key) {
+    int mask = keys.length - 1;
+    int slot = mix(key) & mask;
+    while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static int mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private void resize(int capacity) {
+    checkArgument(capacity > 0, "Too many past measures");
+    long[] newKeys = newKeys(capacity);
+    double[] newValues = new double[capacity];
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != EMPTY_KEY) {
+        int slot = slot(newKeys, keys[i]);
+        newKeys[slot] = keys[i];
+        newValues[slot] = values[i];
+      }
+    }
+    this.keys = newKeys;
+    this.values = newValues;
+  }
+
+  private static long[] newKeys(int capacity) {
+    long[] array = new long[capacity];
+    Arrays.fill(array, EMPTY_KEY);
+    return array;
+  }
+}
@@ -40,4 +40,14 @@ public interface CeDatabaseMBean {
   boolean getPoolRemoveAbandoned();
 
   int getPoolRemoveAbandonedTimeoutSeconds();
+
+  /**
+   * Number of files which line hashes are in cache
+   */
+  long getLineHashesCacheSize();
+
+  /**
+   * Ratio of line hashes lookups served by cache since startup, between 0 and 1
+   */
+  double getLineHashesCacheHitRate();
 }
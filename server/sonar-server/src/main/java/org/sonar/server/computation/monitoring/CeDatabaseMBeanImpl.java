@@ -22,6 +22,7 @@ package org.sonar.server.computation.monitoring;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.picocontainer.Startable;
 import org.sonar.db.DbClient;
+import org.sonar.db.source.LineHashesCache;
 import org.sonar.process.Jmx;
 import org.sonar.process.systeminfo.SystemInfoSection;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
@@ -91,6 +92,20 @@ public class CeDatabaseMBeanImpl implements CeDatabaseMBean, Startable, SystemIn
     return commonsDbcp().getRemoveAbandonedTimeout();
   }
 
+  @Override
+  public long getLineHashesCacheSize() {
+    return lineHashesCache().size();
+  }
+
+  @Override
+  public double getLineHashesCacheHitRate() {
+    return lineHashesCache().getHitRate();
+  }
+
+  private LineHashesCache lineHashesCache() {
+    return dbClient.fileSourceDao().getLineHashesCache();
+  }
+
   private BasicDataSource commonsDbcp() {
     return (BasicDataSource) dbClient.getDatabase().getDataSource();
   }
@@ -108,6 +123,12 @@ public class CeDatabaseMBeanImpl implements CeDatabaseMBean, Startable, SystemIn
     builder.addAttributesBuilder().setKey("Pool Max Wait (ms)").setLongValue(getPoolMaxWaitMillis()).build();
     builder.addAttributesBuilder().setKey("Pool Remove Abandoned").setBooleanValue(getPoolRemoveAbandoned()).build();
     builder.addAttributesBuilder().setKey("Pool Remove Abandoned Timeout (sec)").setLongValue(getPoolRemoveAbandonedTimeoutSeconds()).build();
+    LineHashesCache lineHashesCache = lineHashesCache();
+    builder.addAttributesBuilder().setKey("Line Hashes Cache Size (files)").setLongValue(lineHashesCache.size()).build();
+    builder.addAttributesBuilder().setKey("Line Hashes Cache Hits").setLongValue(lineHashesCache.getHits()).build();
+    builder.addAttributesBuilder().setKey("Line Hashes Cache Misses").setLongValue(lineHashesCache.getMisses()).build();
+    builder.addAttributesBuilder().setKey("Line Hashes Cache Evictions").setLongValue(lineHashesCache.getEvictions()).build();
+    builder.addAttributesBuilder().setKey("Line Hashes Cache Hit Rate").setDoubleValue(lineHashesCache.getHitRate()).build();
     return builder.build();
   }
 }
@@ -52,4 +52,24 @@ public interface CeTasksMBean {
    * Configured number of Workers.
    */
   int getWorkerCount();
+
+  /**
+   * Configured maximum total size of the reports processed concurrently, in bytes. Zero if not bounded.
+   */
+  long getReportSizeBudget();
+
+  /**
+   * Total size of the reports under processing, in bytes.
+   */
+  long getAdmittedReportSize();
+
+  /**
+   * Count of large reports under processing.
+   */
+  int getLargeReportCount();
+
+  /**
+   * Count of times an eligible task has been postponed, since instance startup, because of the size of the reports under processing.
+   */
+  long getPostponedCount();
 }
@@ -25,14 +25,17 @@ import org.sonar.process.Jmx;
 import org.sonar.process.systeminfo.SystemInfoSection;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 import org.sonar.server.computation.configuration.CeConfiguration;
+import org.sonar.server.computation.queue.CeTaskAdmission;
 
 public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSection {
   private final CEQueueStatus queueStatus;
   private final CeConfiguration ceConfiguration;
+  private final CeTaskAdmission admission;
 
-  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration) {
+  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration, CeTaskAdmission admission) {
     this.queueStatus = queueStatus;
     this.ceConfiguration = ceConfiguration;
+    this.admission = admission;
   }
 
   @Override
@@ -78,6 +81,26 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     return ceConfiguration.getWorkerCount();
   }
 
+  @Override
+  public long getReportSizeBudget() {
+    return ceConfiguration.getReportSizeBudget();
+  }
+
+  @Override
+  public long getAdmittedReportSize() {
+    return admission.getAdmittedReportSize();
+  }
+
+  @Override
+  public int getLargeReportCount() {
+    return admission.getLargeReportCount();
+  }
+
+  @Override
+  public long getPostponedCount() {
+    return admission.getPostponedCount();
+  }
+
   @Override
   public ProtobufSystemInfo.Section toProtobuf() {
     ProtobufSystemInfo.Section.Builder builder = ProtobufSystemInfo.Section.newBuilder();
@@ -88,6 +111,10 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     builder.addAttributesBuilder().setKey("Processed With Success").setLongValue(getSuccessCount()).build();
     builder.addAttributesBuilder().setKey("Processing Time (ms)").setLongValue(getProcessingTime()).build();
     builder.addAttributesBuilder().setKey("Worker Count").setLongValue(getWorkerCount()).build();
+    builder.addAttributesBuilder().setKey("Report Size Budget (bytes)").setLongValue(getReportSizeBudget()).build();
+    builder.addAttributesBuilder().setKey("Report Size In Progress (bytes)").setLongValue(getAdmittedReportSize()).build();
+    builder.addAttributesBuilder().setKey("Large Reports In Progress").setLongValue(getLargeReportCount()).build();
+    builder.addAttributesBuilder().setKey("Postponed Tasks").setLongValue(getPostponedCount()).build();
     return builder.build();
   }
 }
@@ -31,6 +31,7 @@ public class CeQueueModule extends Module {
     add(
       // queue state
       InternalCeQueueImpl.class,
+      CeTaskAdmissionImpl.class,
 
       // queue monitoring
       CEQueueStatusImpl.class,
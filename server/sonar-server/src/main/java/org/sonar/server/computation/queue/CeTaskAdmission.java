@@ -0,0 +1,52 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+/**
+ * Decides whether an eligible pending task can be processed now, according to the estimated cost of the
+ * tasks in progress. The cost of a task is the size of its analysis report.
+ */
+public interface CeTaskAdmission {
+
+  /**
+   * Reserves the resources required by the task. Returns {@code false} if it must be postponed.
+   */
+  boolean tryAdmit(String taskUuid);
+
+  /**
+   * Frees the resources reserved by {@link #tryAdmit(String)}. Does nothing if the task has not been admitted.
+   */
+  void release(String taskUuid);
+
+  /**
+   * Total size in bytes of the reports under processing.
+   */
+  long getAdmittedReportSize();
+
+  /**
+   * Number of large reports under processing.
+   */
+  int getLargeReportCount();
+
+  /**
+   * Number of times an eligible task has been postponed since startup.
+   */
+  long getPostponedCount();
+}
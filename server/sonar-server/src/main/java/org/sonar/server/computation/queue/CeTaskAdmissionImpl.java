@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.ce.queue.report.ReportFiles;
+import org.sonar.server.computation.configuration.CeConfiguration;
+
+/**
+ * Admits tasks against the budget {@link CeConfiguration#getReportSizeBudget()}. Small reports can skip ahead
+ * of the large ones which don't fit in the budget. When several workers are configured, at most
+ * {@code workerCount - 1} large reports are processed concurrently, so that one worker remains available
+ * for small reports.
+ */
+@ComputeEngineSide
+public class CeTaskAdmissionImpl implements CeTaskAdmission {
+
+  private final ReportFiles reportFiles;
+  private final int workerCount;
+  private final long budget;
+  private final long largeReportSize;
+
+  // state
+  private final Map<String, Long> admittedSizes = new HashMap<>();
+  private long admittedSize = 0L;
+  private int largeCount = 0;
+  private long postponedCount = 0L;
+
+  public CeTaskAdmissionImpl(CeConfiguration configuration, ReportFiles reportFiles) {
+    this.reportFiles = reportFiles;
+    this.workerCount = configuration.getWorkerCount();
+    this.budget = configuration.getReportSizeBudget();
+    this.largeReportSize = configuration.getLargeReportSize();
+  }
+
+  @Override
+  public boolean tryAdmit(String taskUuid) {
+    // tasks which are not related to a report have no file, so their cost is zero
+    long size = reportFiles.fileForUuid(taskUuid).length();
+    boolean large = isLarge(size);
+    synchronized (this) {
+      // a task is always admitted when no other one is in progress, else it would never be processed
+      if (!admittedSizes.isEmpty() && (exceedsBudget(size) || (large && !hasLargeLane()))) {
+        postponedCount++;
+        return false;
+      }
+      admittedSizes.put(taskUuid, size);
+      admittedSize += size;
+      if (large) {
+        largeCount++;
+      }
+      return true;
+    }
+  }
+
+  private boolean isLarge(long size) {
+    return largeReportSize > 0L && size >= largeReportSize;
+  }
+
+  private boolean exceedsBudget(long size) {
+    return budget > 0L && admittedSize + size > budget;
+  }
+
+  private boolean hasLargeLane() {
+    return workerCount == 1 || largeCount < workerCount - 1;
+  }
+
+  @Override
+  public synchronized void release(String taskUuid) {
+    Long size = admittedSizes.remove(taskUuid);
+    if (size != null) {
+      admittedSize -= size;
+      if (isLarge(size)) {
+        largeCount--;
+      }
+    }
+  }
+
+  @Override
+  public synchronized long getAdmittedReportSize() {
+    return admittedSize;
+  }
+
+  @Override
+  public synchronized int getLargeReportCount() {
+    return largeCount;
+  }
+
+  @Override
+  public synchronized long getPostponedCount() {
+    return postponedCount;
+  }
+}
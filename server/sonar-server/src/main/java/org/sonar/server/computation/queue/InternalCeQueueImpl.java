@@ -27,6 +27,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.ce.queue.CeQueueImpl;
 import org.sonar.ce.queue.CeQueueListener;
+import org.sonar.ce.queue.CeQueueSignal;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.core.util.UuidFactory;
@@ -43,16 +44,18 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
   private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
+  private final CeTaskAdmission admission;
 
   // state
   private AtomicBoolean peekPaused = new AtomicBoolean(false);
 
-  public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory,
-    CEQueueStatus queueStatus, CeQueueListener[] listeners) {
-    super(dbClient, uuidFactory, listeners);
+  public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CeQueueSignal signal,
+    CEQueueStatus queueStatus, CeTaskAdmission admission, CeQueueListener[] listeners) {
+    super(dbClient, uuidFactory, signal, listeners);
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
+    this.admission = admission;
   }
 
   @Override
@@ -62,7 +65,7 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     }
     DbSession dbSession = dbClient.openSession(false);
     try {
-      Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession);
+      Optional<CeQueueDto> dto = peekAdmitted(dbSession);
       CeTask task = null;
       if (dto.isPresent()) {
         task = loadTask(dbSession, dto.get());
@@ -75,6 +78,24 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     }
   }
 
+  /**
+   * Candidates are the oldest pending tasks of distinct components. When the task of a component is postponed by
+   * {@link CeTaskAdmission} or peeked by another worker, the next tasks of the same component are not candidates, so
+   * tasks of a component are processed in order of submission.
+   */
+  private Optional<CeQueueDto> peekAdmitted(DbSession dbSession) {
+    for (String taskUuid : dbClient.ceQueueDao().selectEligibleForPeek(dbSession)) {
+      if (admission.tryAdmit(taskUuid)) {
+        Optional<CeQueueDto> peeked = dbClient.ceQueueDao().tryToPeek(dbSession, taskUuid);
+        if (peeked.isPresent()) {
+          return peeked;
+        }
+        admission.release(taskUuid);
+      }
+    }
+    return Optional.absent();
+  }
+
   @Override
   public int clear() {
     return cancelAll(true);
@@ -82,6 +103,8 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
 
   @Override
   public void remove(CeTask task, CeActivityDto.Status status, CeTaskResult taskResult) {
+    // released before removal, which signals the workers waiting for postponed tasks
+    admission.release(task.getUuid());
     DbSession dbSession = dbClient.openSession(false);
     try {
       Optional<CeQueueDto> queueDto = dbClient.ceQueueDao().selectByUuid(dbSession, task.getUuid());
@@ -136,6 +159,7 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
   @Override
   public void resumePeek() {
     this.peekPaused.set(false);
+    getSignal().signal();
   }
 
   @Override
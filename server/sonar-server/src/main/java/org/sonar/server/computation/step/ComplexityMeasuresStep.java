@@ -20,7 +20,7 @@
 package org.sonar.server.computation.step;
 
 import com.google.common.collect.ImmutableList;
-import org.sonar.server.computation.component.PathAwareCrawler;
+import org.sonar.server.computation.component.ParallelPathAwareCrawler;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.computation.formula.AverageFormula;
 import org.sonar.server.computation.formula.DistributionFormula;
@@ -80,7 +80,7 @@ public class ComplexityMeasuresStep implements ComputationStep {
 
   @Override
   public void execute() {
-    new PathAwareCrawler<>(
+    new ParallelPathAwareCrawler<>(
       FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(FORMULAS))
       .visit(treeRootHolder.getRoot());
   }
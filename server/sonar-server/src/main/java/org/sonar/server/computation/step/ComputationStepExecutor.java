@@ -24,6 +24,8 @@ import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
+import org.sonar.process.metrics.ProcessMetric;
+import org.sonar.process.metrics.ProcessMetrics;
 
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
@@ -62,7 +64,8 @@ public final class ComputationStepExecutor {
     for (ComputationStep step : steps.instances()) {
       stepProfiler.start();
       step.execute();
-      stepProfiler.stopInfo(step.getDescription());
+      long durationMs = stepProfiler.stopInfo(step.getDescription());
+      ProcessMetrics.get().record(ProcessMetric.CE_STEP_TIME, durationMs);
     }
   }
 
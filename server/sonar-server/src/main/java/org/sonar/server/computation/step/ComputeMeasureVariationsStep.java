@@ -22,6 +22,7 @@ package org.sonar.server.computation.step;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -42,6 +43,7 @@ import org.sonar.server.computation.measure.Measure;
 import org.sonar.server.computation.measure.MeasureKey;
 import org.sonar.server.computation.measure.MeasureRepository;
 import org.sonar.server.computation.measure.MeasureVariations;
+import org.sonar.server.computation.measure.PastMeasuresTable;
 import org.sonar.server.computation.metric.Metric;
 import org.sonar.server.computation.metric.MetricRepository;
 import org.sonar.server.computation.period.Period;
@@ -62,21 +64,15 @@ import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_
  */
 public class ComputeMeasureVariationsStep implements ComputationStep {
 
+  // measures on files are currently purged, so past measures are not available on files
+  private static final CrawlerDepthLimit VARIATIONS_MAX_DEPTH = CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW);
+
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
   private final PeriodsHolder periodsHolder;
   private final MetricRepository metricRepository;
   private final MeasureRepository measureRepository;
 
-  private final Function<PastMeasureDto, MeasureKey> pastMeasureToMeasureKey = new Function<PastMeasureDto, MeasureKey>() {
-    @Nullable
-    @Override
-    public MeasureKey apply(@Nonnull PastMeasureDto input) {
-      Metric metric = metricRepository.getById(input.getMetricId());
-      return new MeasureKey(metric.getKey(), null);
-    }
-  };
-
   public ComputeMeasureVariationsStep(DbClient dbClient, TreeRootHolder treeRootHolder, PeriodsHolder periodsHolder, MetricRepository metricRepository,
     MeasureRepository measureRepository) {
     this.dbClient = dbClient;
@@ -88,28 +84,62 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
 
   @Override
   public void execute() {
+    List<Metric> metrics = from(metricRepository.getAll()).filter(NumericMetric.INSTANCE).toList();
+    Set<Integer> metricIds = from(metrics).transform(MetricDtoToMetricId.INSTANCE).toSet();
+    ComponentUuidsCollector componentUuidsCollector = new ComponentUuidsCollector();
+    new DepthTraversalTypeAwareCrawler(componentUuidsCollector).visit(treeRootHolder.getRoot());
+
+    Map<Integer, PastMeasuresTable> pastMeasuresByPeriod = loadPastMeasures(componentUuidsCollector.uuids, metricIds);
+    new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(metrics, pastMeasuresByPeriod))
+      .visit(treeRootHolder.getRoot());
+  }
+
+  /**
+   * Past measures of all components are loaded with a single streamed query per period, instead of one
+   * query per component and per period.
+   */
+  private Map<Integer, PastMeasuresTable> loadPastMeasures(List<String> componentUuids, Set<Integer> metricIds) {
+    Map<Integer, PastMeasuresTable> pastMeasuresByPeriod = new HashMap<>();
     DbSession dbSession = dbClient.openSession(false);
     try {
-      List<Metric> metrics = from(metricRepository.getAll()).filter(NumericMetric.INSTANCE).toList();
-      new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(dbSession, metrics))
-        .visit(treeRootHolder.getRoot());
+      for (Period period : periodsHolder.getPeriods()) {
+        PastMeasuresTable pastMeasures = new PastMeasuresTable(componentUuids, metricIds);
+        dbClient.measureDao().selectByProjectSnapshotIdAndMetricIds(dbSession, period.getSnapshotId(), metricIds, context -> {
+          PastMeasureDto dto = (PastMeasureDto) context.getResultObject();
+          if (dto.hasValue()) {
+            pastMeasures.put(dto.getComponentUuid(), dto.getMetricId(), dto.getValue());
+          }
+        });
+        pastMeasuresByPeriod.put(period.getIndex(), pastMeasures);
+      }
     } finally {
       dbClient.closeSession(dbSession);
     }
+    return pastMeasuresByPeriod;
+  }
+
+  private static class ComponentUuidsCollector extends TypeAwareVisitorAdapter {
+    private final List<String> uuids = new ArrayList<>();
+
+    ComponentUuidsCollector() {
+      super(VARIATIONS_MAX_DEPTH, PRE_ORDER);
+    }
+
+    @Override
+    public void visitAny(Component component) {
+      uuids.add(component.getUuid());
+    }
   }
 
   private class VariationMeasuresVisitor extends TypeAwareVisitorAdapter {
 
-    private final DbSession session;
-    private final Set<Integer> metricIds;
     private final List<Metric> metrics;
+    private final Map<Integer, PastMeasuresTable> pastMeasuresByPeriod;
 
-    VariationMeasuresVisitor(DbSession session, List<Metric> metrics) {
-      // measures on files are currently purged, so past measures are not available on files
-      super(CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW), PRE_ORDER);
-      this.session = session;
-      this.metricIds = from(metrics).transform(MetricDtoToMetricId.INSTANCE).toSet();
+    VariationMeasuresVisitor(List<Metric> metrics, Map<Integer, PastMeasuresTable> pastMeasuresByPeriod) {
+      super(VARIATIONS_MAX_DEPTH, PRE_ORDER);
       this.metrics = metrics;
+      this.pastMeasuresByPeriod = pastMeasuresByPeriod;
     }
 
     @Override
@@ -120,21 +150,17 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
 
     private MeasuresWithVariationRepository computeMeasuresWithVariations(Component component) {
       MeasuresWithVariationRepository measuresWithVariationRepository = new MeasuresWithVariationRepository();
-      for (Period period : periodsHolder.getPeriods()) {
-        List<PastMeasureDto> pastMeasures = dbClient.measureDao()
-          .selectByComponentUuidAndProjectSnapshotIdAndMetricIds(session, component.getUuid(), period.getSnapshotId(), metricIds);
-        setVariationMeasures(component, pastMeasures, period.getIndex(), measuresWithVariationRepository);
+      for (Map.Entry<Integer, PastMeasuresTable> entry : pastMeasuresByPeriod.entrySet()) {
+        setVariationMeasures(component, entry.getValue(), entry.getKey(), measuresWithVariationRepository);
       }
       return measuresWithVariationRepository;
     }
 
-    private void setVariationMeasures(Component component, List<PastMeasureDto> pastMeasures, int period, MeasuresWithVariationRepository measuresWithVariationRepository) {
-      Map<MeasureKey, PastMeasureDto> pastMeasuresByMeasureKey = from(pastMeasures).uniqueIndex(pastMeasureToMeasureKey);
+    private void setVariationMeasures(Component component, PastMeasuresTable pastMeasures, int period, MeasuresWithVariationRepository measuresWithVariationRepository) {
       for (Metric metric : metrics) {
         Optional<Measure> measure = measureRepository.getRawMeasure(component, metric);
         if (measure.isPresent() && !measure.get().hasVariations()) {
-          PastMeasureDto pastMeasure = pastMeasuresByMeasureKey.get(new MeasureKey(metric.getKey(), null));
-          double pastValue = (pastMeasure != null && pastMeasure.hasValue()) ? pastMeasure.getValue() : 0d;
+          double pastValue = pastMeasures.get(component.getUuid(), metric.getId(), 0d);
           measuresWithVariationRepository.add(metric, measure.get(), period, computeVariation(measure.get(), pastValue));
         }
       }
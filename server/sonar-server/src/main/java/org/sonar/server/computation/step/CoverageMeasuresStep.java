@@ -20,7 +20,7 @@
 package org.sonar.server.computation.step;
 
 import com.google.common.collect.ImmutableList;
-import org.sonar.server.computation.component.PathAwareCrawler;
+import org.sonar.server.computation.component.ParallelPathAwareCrawler;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.computation.formula.Formula;
 import org.sonar.server.computation.formula.FormulaExecutorComponentVisitor;
@@ -96,7 +96,7 @@ public class CoverageMeasuresStep implements ComputationStep {
 
   @Override
   public void execute() {
-    new PathAwareCrawler<>(
+    new ParallelPathAwareCrawler<>(
       FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(COVERAGE_FORMULAS))
         .visit(treeRootHolder.getRoot());
   }
@@ -20,21 +20,23 @@
 package org.sonar.server.computation.step;
 
 import org.sonar.server.computation.component.TreeRootHolder;
-import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.computation.indexing.IndexingQueue;
+
+import static org.sonar.db.es.EsQueueDto.DOC_TYPE_ISSUES;
 
 public class IndexIssuesStep implements ComputationStep {
 
-  private final IssueIndexer indexer;
+  private final IndexingQueue indexingQueue;
   private final TreeRootHolder treeRootHolder;
 
-  public IndexIssuesStep(IssueIndexer indexer, TreeRootHolder treeRootHolder) {
-    this.indexer = indexer;
+  public IndexIssuesStep(IndexingQueue indexingQueue, TreeRootHolder treeRootHolder) {
+    this.indexingQueue = indexingQueue;
     this.treeRootHolder = treeRootHolder;
   }
 
   @Override
   public void execute() {
-    indexer.index(treeRootHolder.getRoot().getUuid());
+    indexingQueue.enqueue(DOC_TYPE_ISSUES, treeRootHolder.getRoot().getUuid());
   }
 
   @Override
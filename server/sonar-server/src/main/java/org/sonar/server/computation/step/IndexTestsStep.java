@@ -20,21 +20,23 @@
 package org.sonar.server.computation.step;
 
 import org.sonar.server.computation.component.TreeRootHolder;
-import org.sonar.server.test.index.TestIndexer;
+import org.sonar.server.computation.indexing.IndexingQueue;
+
+import static org.sonar.db.es.EsQueueDto.DOC_TYPE_TESTS;
 
 public class IndexTestsStep implements ComputationStep {
 
-  private final TestIndexer indexer;
+  private final IndexingQueue indexingQueue;
   private final TreeRootHolder treeRootHolder;
 
-  public IndexTestsStep(TestIndexer indexer, TreeRootHolder treeRootHolder) {
-    this.indexer = indexer;
+  public IndexTestsStep(IndexingQueue indexingQueue, TreeRootHolder treeRootHolder) {
+    this.indexingQueue = indexingQueue;
     this.treeRootHolder = treeRootHolder;
   }
 
   @Override
   public void execute() {
-    indexer.index(treeRootHolder.getRoot().getUuid());
+    indexingQueue.enqueue(DOC_TYPE_TESTS, treeRootHolder.getRoot().getUuid());
   }
 
   @Override
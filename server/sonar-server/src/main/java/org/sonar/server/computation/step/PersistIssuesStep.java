@@ -19,25 +19,49 @@
  */
 package org.sonar.server.computation.step;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.executor.BatchResult;
 import org.sonar.api.issue.IssueComment;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.DefaultIssueComment;
 import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.logs.Profiler;
+import org.sonar.db.BatchSession;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.MyBatis;
 import org.sonar.db.issue.IssueChangeDto;
 import org.sonar.db.issue.IssueChangeMapper;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueMapper;
-import org.sonar.server.computation.issue.UpdateConflictResolver;
-import org.sonar.db.DbSession;
-import org.sonar.db.MyBatis;
+import org.sonar.server.computation.issue.CompactIssue;
 import org.sonar.server.computation.issue.IssueCache;
 import org.sonar.server.computation.issue.RuleRepository;
-import org.sonar.db.DbClient;
-import org.sonar.core.util.CloseableIterator;
+import org.sonar.server.computation.issue.UpdateConflictResolver;
 
+/**
+ * Issues, updates and changes are buffered separately and each buffer is flushed as a homogeneous
+ * JDBC batch. Interleaving different statements in the same {@link BatchSession} forces MyBatis to
+ * execute one JDBC batch per statement.
+ */
 public class PersistIssuesStep implements ComputationStep {
 
+  private static final Logger LOG = Loggers.get(PersistIssuesStep.class);
+
+  /**
+   * Must be lower than {@link BatchSession#MAX_BATCH_SIZE}, otherwise the session commits by itself
+   * and the update counts, required to detect conflicts, are lost.
+   */
+  private static final int BATCH_SIZE = BatchSession.MAX_BATCH_SIZE - 50;
+  private static final String UPDATE_STATEMENT = IssueMapper.class.getName() + ".updateIfBeforeSelectedDate";
+
   private final DbClient dbClient;
   private final System2 system2;
   private final UpdateConflictResolver conflictResolver;
@@ -56,53 +80,157 @@ public class PersistIssuesStep implements ComputationStep {
   @Override
   public void execute() {
     DbSession session = dbClient.openSession(true);
-    IssueMapper mapper = session.getMapper(IssueMapper.class);
-    IssueChangeMapper changeMapper = session.getMapper(IssueChangeMapper.class);
-
-    CloseableIterator<DefaultIssue> issues = issueCache.traverse();
+    CloseableIterator<CompactIssue> issues = issueCache.traverseCompact();
+    Profiler profiler = Profiler.create(LOG).start();
     try {
+      IssuePersister persister = new IssuePersister(session);
       while (issues.hasNext()) {
-        DefaultIssue issue = issues.next();
-        boolean saved = false;
+        // unchanged issues, which are most of the issues of a project, are not materialized
+        CompactIssue issue = issues.next();
         if (issue.isNew()) {
-          Integer ruleId = ruleRepository.getByKey(issue.ruleKey()).getId();
-          IssueDto dto = IssueDto.toDtoForComputationInsert(issue, ruleId, system2.now());
-          mapper.insert(dto);
-          saved = true;
+          persister.insert(issue.toDefaultIssue());
         } else if (issue.isChanged()) {
-          IssueDto dto = IssueDto.toDtoForUpdate(issue, system2.now());
-          int updateCount = mapper.updateIfBeforeSelectedDate(dto);
-          if (updateCount == 0) {
-            // End-user and scan changed the issue at the same time.
-            // See https://jira.sonarsource.com/browse/SONAR-4309
-            conflictResolver.resolve(issue, mapper);
-          }
-          saved = true;
-        }
-        if (saved) {
-          insertChanges(changeMapper, issue);
+          persister.update(issue.toDefaultIssue());
         }
       }
-      session.flushStatements();
+      persister.flush();
       session.commit();
+      persister.logStatistics(profiler);
     } finally {
       MyBatis.closeQuietly(session);
       issues.close();
     }
   }
 
-  private static void insertChanges(IssueChangeMapper mapper, DefaultIssue issue) {
-    for (IssueComment comment : issue.comments()) {
-      DefaultIssueComment c = (DefaultIssueComment) comment;
-      if (c.isNew()) {
-        IssueChangeDto changeDto = IssueChangeDto.of(c);
-        mapper.insert(changeDto);
+  private class IssuePersister {
+    private final DbSession session;
+    private final IssueMapper mapper;
+    private final IssueChangeMapper changeMapper;
+    private final long now = system2.now();
+    private final List<IssueDto> inserts = new ArrayList<>(BATCH_SIZE);
+    private final Map<String, DefaultIssue> updates = new HashMap<>(BATCH_SIZE);
+    private final List<IssueChangeDto> changes = new ArrayList<>(BATCH_SIZE);
+    private long insertCount = 0L;
+    private long updateCount = 0L;
+    private long changeCount = 0L;
+    private long conflictCount = 0L;
+
+    IssuePersister(DbSession session) {
+      this.session = session;
+      this.mapper = session.getMapper(IssueMapper.class);
+      this.changeMapper = session.getMapper(IssueChangeMapper.class);
+    }
+
+    void insert(DefaultIssue issue) {
+      Integer ruleId = ruleRepository.getByKey(issue.ruleKey()).getId();
+      inserts.add(IssueDto.toDtoForComputationInsert(issue, ruleId, now));
+      if (inserts.size() >= BATCH_SIZE) {
+        flushInserts();
       }
+      addChanges(issue);
     }
-    FieldDiffs diffs = issue.currentChange();
-    if (!issue.isNew() && diffs != null) {
-      IssueChangeDto changeDto = IssueChangeDto.of(issue.key(), diffs);
-      mapper.insert(changeDto);
+
+    void update(DefaultIssue issue) {
+      updates.put(issue.key(), issue);
+      if (updates.size() >= BATCH_SIZE) {
+        flushUpdates();
+      }
+    }
+
+    void flush() {
+      flushInserts();
+      flushUpdates();
+      flushChanges();
+    }
+
+    private void flushInserts() {
+      for (IssueDto dto : inserts) {
+        mapper.insert(dto);
+      }
+      session.flushStatements();
+      insertCount += inserts.size();
+      inserts.clear();
+    }
+
+    private void flushUpdates() {
+      for (DefaultIssue issue : updates.values()) {
+        mapper.updateIfBeforeSelectedDate(IssueDto.toDtoForUpdate(issue, now));
+      }
+      resolveConflicts(session.flushStatements());
+      // changes are inserted once conflicts are resolved, as it's done for a single issue
+      for (DefaultIssue issue : updates.values()) {
+        addChanges(issue);
+      }
+      updateCount += updates.size();
+      updates.clear();
+    }
+
+    /**
+     * End-user and scan changed the same issues at the same time. Such updates did not
+     * modify any row.
+     * See https://jira.sonarsource.com/browse/SONAR-4309
+     */
+    private void resolveConflicts(List<BatchResult> batchResults) {
+      List<DefaultIssue> conflicts = new ArrayList<>();
+      for (BatchResult batchResult : batchResults) {
+        if (UPDATE_STATEMENT.equals(batchResult.getMappedStatement().getId())) {
+          int[] counts = batchResult.getUpdateCounts();
+          List<Object> dtos = batchResult.getParameterObjects();
+          for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+              conflicts.add(updates.get(((IssueDto) dtos.get(i)).getKey()));
+            }
+          }
+        }
+      }
+      for (DefaultIssue conflict : conflicts) {
+        conflictResolver.resolve(conflict, mapper);
+      }
+      if (!conflicts.isEmpty()) {
+        session.flushStatements();
+        conflictCount += conflicts.size();
+      }
+    }
+
+    private void addChanges(DefaultIssue issue) {
+      for (IssueComment comment : issue.comments()) {
+        DefaultIssueComment c = (DefaultIssueComment) comment;
+        if (c.isNew()) {
+          addChange(IssueChangeDto.of(c));
+        }
+      }
+      FieldDiffs diffs = issue.currentChange();
+      if (!issue.isNew() && diffs != null) {
+        addChange(IssueChangeDto.of(issue.key(), diffs));
+      }
+    }
+
+    private void addChange(IssueChangeDto change) {
+      changes.add(change);
+      if (changes.size() >= BATCH_SIZE) {
+        flushChanges();
+      }
+    }
+
+    private void flushChanges() {
+      for (IssueChangeDto change : changes) {
+        changeMapper.insert(change);
+      }
+      session.flushStatements();
+      changeCount += changes.size();
+      changes.clear();
+    }
+
+    void logStatistics(Profiler profiler) {
+      long durationInMs = Math.max(1L, system2.now() - now);
+      profiler
+        .addContext("inserts", insertCount)
+        .addContext("updates", updateCount)
+        .addContext("conflicts", conflictCount)
+        .addContext("changes", changeCount)
+        .addContext("issuesPerSecond", (insertCount + updateCount) * 1000L / durationInMs)
+        .logTimeLast(true)
+        .stopInfo("Issues persisted");
     }
   }
 
@@ -21,14 +21,13 @@ package org.sonar.server.computation.step;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Table;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -124,7 +123,7 @@ public class PersistTestsStep implements ComputationStep {
 
     private void persistTestResults(Component component) {
       Multimap<String, DbFileSources.Test.Builder> testsByName = buildDbTests(component.getReportAttributes().getRef());
-      Table<String, String, DbFileSources.Test.CoveredFile.Builder> coveredFilesByName = loadCoverageDetails(component.getReportAttributes().getRef());
+      Map<String, Map<String, CoveredLines>> coveredFilesByName = loadCoverageDetails(component.getReportAttributes().getRef());
       List<DbFileSources.Test> tests = addCoveredFilesToTests(testsByName, coveredFilesByName);
       if (checkIfThereAreUnprocessedCoverageDetails(testsByName, coveredFilesByName, component.getKey())) {
         hasUnprocessedCoverageDetails = true;
@@ -157,8 +156,8 @@ public class PersistTestsStep implements ComputationStep {
     }
 
     private boolean checkIfThereAreUnprocessedCoverageDetails(Multimap<String, DbFileSources.Test.Builder> testsByName,
-      Table<String, String, DbFileSources.Test.CoveredFile.Builder> coveredFilesByName, String componentKey) {
-      Set<String> unprocessedCoverageDetailNames = new HashSet<>(coveredFilesByName.rowKeySet());
+      Map<String, Map<String, CoveredLines>> coveredFilesByName, String componentKey) {
+      Set<String> unprocessedCoverageDetailNames = new HashSet<>(coveredFilesByName.keySet());
       unprocessedCoverageDetailNames.removeAll(testsByName.keySet());
       boolean hasUnprocessedCoverage = !unprocessedCoverageDetailNames.isEmpty();
       if (hasUnprocessedCoverage) {
@@ -168,13 +167,16 @@ public class PersistTestsStep implements ComputationStep {
     }
 
     private List<DbFileSources.Test> addCoveredFilesToTests(Multimap<String, DbFileSources.Test.Builder> testsByName,
-      Table<String, String, DbFileSources.Test.CoveredFile.Builder> coveredFilesByName) {
+      Map<String, Map<String, CoveredLines>> coveredFilesByName) {
       List<DbFileSources.Test> tests = new ArrayList<>();
+      DbFileSources.Test.CoveredFile.Builder coveredFileBuilder = DbFileSources.Test.CoveredFile.newBuilder();
       for (DbFileSources.Test.Builder test : testsByName.values()) {
-        Collection<DbFileSources.Test.CoveredFile.Builder> coveredFiles = coveredFilesByName.row(test.getName()).values();
-        if (!coveredFiles.isEmpty()) {
-          for (DbFileSources.Test.CoveredFile.Builder coveredFile : coveredFiles) {
-            test.addCoveredFile(coveredFile);
+        Map<String, CoveredLines> coveredFiles = coveredFilesByName.get(test.getName());
+        if (coveredFiles != null) {
+          for (Map.Entry<String, CoveredLines> coveredFile : coveredFiles.entrySet()) {
+            coveredFileBuilder.clear().setFileUuid(coveredFile.getKey());
+            coveredFile.getValue().writeTo(coveredFileBuilder);
+            test.addCoveredFile(coveredFileBuilder);
           }
         }
         tests.add(test.build());
@@ -211,29 +213,28 @@ public class PersistTestsStep implements ComputationStep {
     }
 
     /**
-     * returns a Table of (test name, main file uuid, covered file)
+     * returns the covered lines by test name and main file uuid. Coverage details of a test on a file can
+     * be split into several messages of the report, their lines are merged.
      */
-    private Table<String, String, DbFileSources.Test.CoveredFile.Builder> loadCoverageDetails(int testFileRef) {
-      Table<String, String, DbFileSources.Test.CoveredFile.Builder> nameToCoveredFiles = HashBasedTable.create();
+    private Map<String, Map<String, CoveredLines>> loadCoverageDetails(int testFileRef) {
+      Map<String, Map<String, CoveredLines>> nameToCoveredFiles = new LinkedHashMap<>();
 
       try (CloseableIterator<ScannerReport.CoverageDetail> coverageIterator = reportReader.readCoverageDetails(testFileRef)) {
         while (coverageIterator.hasNext()) {
           ScannerReport.CoverageDetail batchCoverageDetail = coverageIterator.next();
           for (ScannerReport.CoverageDetail.CoveredFile batchCoveredFile : batchCoverageDetail.getCoveredFileList()) {
-            String testName = batchCoverageDetail.getTestName();
+            Map<String, CoveredLines> coveredFiles = nameToCoveredFiles.get(batchCoverageDetail.getTestName());
+            if (coveredFiles == null) {
+              coveredFiles = new LinkedHashMap<>();
+              nameToCoveredFiles.put(batchCoverageDetail.getTestName(), coveredFiles);
+            }
             String mainFileUuid = getUuid(batchCoveredFile.getFileRef());
-            DbFileSources.Test.CoveredFile.Builder existingDbCoveredFile = nameToCoveredFiles.get(testName, mainFileUuid);
-            List<Integer> batchCoveredLines = batchCoveredFile.getCoveredLineList();
-            if (existingDbCoveredFile == null) {
-              DbFileSources.Test.CoveredFile.Builder dbCoveredFile = DbFileSources.Test.CoveredFile.newBuilder()
-                .setFileUuid(getUuid(batchCoveredFile.getFileRef()))
-                .addAllCoveredLine(batchCoveredLines);
-              nameToCoveredFiles.put(testName, mainFileUuid, dbCoveredFile);
-            } else {
-              List<Integer> remainingBatchCoveredLines = new ArrayList<>(batchCoveredLines);
-              remainingBatchCoveredLines.removeAll(existingDbCoveredFile.getCoveredLineList());
-              existingDbCoveredFile.addAllCoveredLine(batchCoveredLines);
+            CoveredLines coveredLines = coveredFiles.get(mainFileUuid);
+            if (coveredLines == null) {
+              coveredLines = new CoveredLines();
+              coveredFiles.put(mainFileUuid, coveredLines);
             }
+            coveredLines.addAll(batchCoveredFile.getCoveredLineList());
           }
         }
       }
@@ -249,4 +250,32 @@ public class PersistTestsStep implements ComputationStep {
     }
   }
 
+  /**
+   * Lines of a main file covered by a test, accumulated in a primitive array then
+   * sorted and deduplicated once when written.
+   */
+  static class CoveredLines {
+    private int[] lines = new int[16];
+    private int size = 0;
+
+    void addAll(List<Integer> coveredLines) {
+      if (size + coveredLines.size() > lines.length) {
+        lines = Arrays.copyOf(lines, Math.max(2 * lines.length, size + coveredLines.size()));
+      }
+      for (Integer line : coveredLines) {
+        lines[size] = line;
+        size++;
+      }
+    }
+
+    void writeTo(DbFileSources.Test.CoveredFile.Builder builder) {
+      Arrays.sort(lines, 0, size);
+      for (int i = 0; i < size; i++) {
+        if (i == 0 || lines[i] != lines[i - 1]) {
+          builder.addCoveredLine(lines[i]);
+        }
+      }
+    }
+  }
+
 }
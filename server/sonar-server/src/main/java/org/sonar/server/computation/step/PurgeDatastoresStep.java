@@ -19,9 +19,18 @@
  */
 package org.sonar.server.computation.step;
 
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.slf4j.MDC;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.config.PurgeConstants;
+import org.sonar.server.computation.dbcleaner.BackgroundPurgeExecutorService;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.purge.IdUuidPair;
 import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.DbIdsRepository;
@@ -37,19 +46,23 @@ import static org.sonar.server.computation.component.CrawlerDepthLimit.reportMax
 
 public class PurgeDatastoresStep implements ComputationStep {
 
+  private static final Logger LOG = Loggers.get(PurgeDatastoresStep.class);
+
   private final ProjectCleaner projectCleaner;
   private final DbClient dbClient;
   private final DbIdsRepository dbIdsRepository;
   private final TreeRootHolder treeRootHolder;
   private final SettingsRepository settingsRepository;
+  private final BackgroundPurgeExecutorService backgroundPurgeExecutorService;
 
   public PurgeDatastoresStep(DbClient dbClient, ProjectCleaner projectCleaner, DbIdsRepository dbIdsRepository, TreeRootHolder treeRootHolder,
-    SettingsRepository settingsRepository) {
+    SettingsRepository settingsRepository, BackgroundPurgeExecutorService backgroundPurgeExecutorService) {
     this.projectCleaner = projectCleaner;
     this.dbClient = dbClient;
     this.dbIdsRepository = dbIdsRepository;
     this.treeRootHolder = treeRootHolder;
     this.settingsRepository = settingsRepository;
+    this.backgroundPurgeExecutorService = backgroundPurgeExecutorService;
   }
 
   @Override
@@ -69,9 +82,53 @@ public class PurgeDatastoresStep implements ComputationStep {
   }
 
   private void execute(Component root) {
+    IdUuidPair idUuidPair = new IdUuidPair(dbIdsRepository.getComponentId(root), root.getUuid());
+    Settings settings = settingsRepository.getSettings(root);
+    if (settings.getBoolean(PurgeConstants.PROPERTY_PURGE_IN_BACKGROUND)) {
+      // the worker is released without waiting for the purge, which is reentrant if the server stops before its end.
+      // The next analysis of the component can run concurrently, so its snapshots must not be touched.
+      long maxSnapshotId = selectLastSnapshotId(idUuidPair.getId());
+      Map<String, String> mdc = MDC.getCopyOfContextMap();
+      backgroundPurgeExecutorService.execute(() -> purgeInBackground(idUuidPair, settings, maxSnapshotId, mdc));
+    } else {
+      purge(idUuidPair, settings, null);
+    }
+  }
+
+  /**
+   * Id of the snapshot of the current analysis, which has just been flagged as last. Snapshots of the next
+   * analyses have greater ids.
+   */
+  private long selectLastSnapshotId(long componentId) {
+    DbSession session = dbClient.openSession(false);
+    try {
+      SnapshotDto lastSnapshot = dbClient.snapshotDao().selectLastSnapshotByComponentId(session, componentId);
+      return lastSnapshot == null ? 0L : lastSnapshot.getId();
+    } finally {
+      dbClient.closeSession(session);
+    }
+  }
+
+  /**
+   * Failures are logged, as nobody waits for the end of the purge. Logs go to the log file of the CE task.
+   */
+  private void purgeInBackground(IdUuidPair idUuidPair, Settings settings, long maxSnapshotId, @Nullable Map<String, String> mdc) {
+    if (mdc != null) {
+      MDC.setContextMap(mdc);
+    }
+    try {
+      purge(idUuidPair, settings, maxSnapshotId);
+    } catch (Exception e) {
+      LOG.error(String.format("Fail to purge data of component %s in background", idUuidPair.getUuid()), e);
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  private void purge(IdUuidPair idUuidPair, Settings settings, @Nullable Long maxSnapshotId) {
     DbSession session = dbClient.openSession(true);
     try {
-      projectCleaner.purge(session, new IdUuidPair(dbIdsRepository.getComponentId(root), root.getUuid()), settingsRepository.getSettings(root));
+      projectCleaner.purge(session, idUuidPair, settings, maxSnapshotId);
       session.commit();
     } finally {
       dbClient.closeSession(session);
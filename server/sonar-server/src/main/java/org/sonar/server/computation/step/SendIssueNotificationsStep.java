@@ -28,6 +28,7 @@ import org.sonar.core.util.CloseableIterator;
 import org.sonar.server.computation.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.TreeRootHolder;
+import org.sonar.server.computation.issue.CompactIssue;
 import org.sonar.server.computation.issue.IssueCache;
 import org.sonar.server.computation.issue.RuleRepository;
 import org.sonar.server.issue.notification.IssueChangeNotification;
@@ -76,7 +77,7 @@ public class SendIssueNotificationsStep implements ComputationStep {
 
   private void doExecute(Component project) {
     NewIssuesStatistics newIssuesStats = new NewIssuesStatistics();
-    CloseableIterator<DefaultIssue> issues = issueCache.traverse();
+    CloseableIterator<CompactIssue> issues = issueCache.traverseCompact();
     try {
       processIssues(newIssuesStats, issues, project);
     } finally {
@@ -89,13 +90,13 @@ public class SendIssueNotificationsStep implements ComputationStep {
     }
   }
 
-  private void processIssues(NewIssuesStatistics newIssuesStats, CloseableIterator<DefaultIssue> issues, Component project) {
+  private void processIssues(NewIssuesStatistics newIssuesStats, CloseableIterator<CompactIssue> issues, Component project) {
     while (issues.hasNext()) {
-      DefaultIssue issue = issues.next();
+      CompactIssue issue = issues.next();
       if (issue.isNew() && issue.resolution() == null) {
-        newIssuesStats.add(issue);
+        newIssuesStats.add(issue.toDefaultIssue());
       } else if (issue.isChanged() && issue.mustSendNotifications()) {
-        sendIssueChangeNotification(issue, project);
+        sendIssueChangeNotification(issue.toDefaultIssue(), project);
       }
     }
   }
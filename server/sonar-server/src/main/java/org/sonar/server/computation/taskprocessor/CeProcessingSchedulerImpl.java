@@ -23,6 +23,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableScheduledFuture;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
@@ -30,6 +31,7 @@ import javax.annotation.Nullable;
 import org.picocontainer.Startable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeQueueSignal;
 import org.sonar.server.computation.configuration.CeConfiguration;
 
 import static com.google.common.util.concurrent.Futures.addCallback;
@@ -38,19 +40,29 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startable {
   private static final Logger LOG = Loggers.get(CeProcessingSchedulerImpl.class);
 
+  /**
+   * Idle workers are woken up by {@link CeQueueSignal}. As a safety net, they still poll the queue
+   * when they have not been signaled for this delay.
+   */
+  static final long MIN_IDLE_DELAY = 60_000L;
+
   private final CeProcessingSchedulerExecutorService executorService;
   private final CeWorkerCallable workerRunnable;
+  private final CeQueueSignal signal;
 
   private final long delayBetweenTasks;
+  private final long idleDelay;
   private final TimeUnit timeUnit;
   private final ChainingCallback[] chainingCallbacks;
 
   public CeProcessingSchedulerImpl(CeConfiguration ceConfiguration,
-    CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerCallable workerRunnable) {
+    CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerCallable workerRunnable, CeQueueSignal signal) {
     this.executorService = processingExecutorService;
     this.workerRunnable = workerRunnable;
+    this.signal = signal;
 
     this.delayBetweenTasks = ceConfiguration.getQueuePollingDelay();
+    this.idleDelay = Math.max(delayBetweenTasks, MIN_IDLE_DELAY);
     this.timeUnit = MILLISECONDS;
 
     int workerCount = ceConfiguration.getWorkerCount();
@@ -68,8 +80,10 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
   @Override
   public void startScheduling() {
     for (ChainingCallback chainingCallback : chainingCallbacks) {
+      chainingCallback.generation = signal.generation();
       ListenableScheduledFuture<Boolean> future = executorService.schedule(workerRunnable, delayBetweenTasks, timeUnit);
       addCallback(future, chainingCallback, executorService);
+      signal.addListener(chainingCallback);
     }
   }
 
@@ -80,13 +94,21 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
     }
   }
 
-  private class ChainingCallback implements FutureCallback<Boolean> {
+  /**
+   * Chains the executions of a worker. It is also a listener of {@link CeQueueSignal}: when the worker is
+   * idle, the delayed execution is canceled and replaced by an immediate one.
+   */
+  private class ChainingCallback implements FutureCallback<Boolean>, Runnable {
     private final AtomicBoolean keepRunning = new AtomicBoolean(true);
     @CheckForNull
     private ListenableFuture<Boolean> workerFuture;
+    // generation of CeQueueSignal when the current execution has been submitted
+    private long generation;
+    private boolean waitingForSignal = false;
 
     @Override
-    public void onSuccess(@Nullable Boolean result) {
+    public synchronized void onSuccess(@Nullable Boolean result) {
+      waitingForSignal = false;
       if (result != null && result) {
         chainWithoutDelay();
       } else {
@@ -95,7 +117,13 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
     }
 
     @Override
-    public void onFailure(Throwable t) {
+    public synchronized void onFailure(Throwable t) {
+      if (t instanceof CancellationException) {
+        // execution canceled by stop() or replaced by an immediate execution in run(). The callback may be
+        // called after the start of the replacing execution, so the state of the latter must not be changed.
+        return;
+      }
+      waitingForSignal = false;
       if (t instanceof Error) {
         LOG.error("Compute Engine execution failed. Scheduled processing interrupted.", t);
       } else {
@@ -103,16 +131,34 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
       }
     }
 
+    /**
+     * Called when {@link CeQueueSignal} is raised
+     */
+    @Override
+    public synchronized void run() {
+      if (waitingForSignal && keepRunning() && workerFuture != null && workerFuture.cancel(false)) {
+        waitingForSignal = false;
+        chainWithoutDelay();
+      }
+    }
+
     private void chainWithoutDelay() {
       if (keepRunning()) {
+        generation = signal.generation();
         workerFuture = executorService.submit(workerRunnable);
       }
       addCallback();
     }
 
     private void chainWithDelay() {
+      if (signal.generation() != generation) {
+        // a signal has been raised during the execution of the worker
+        chainWithoutDelay();
+        return;
+      }
       if (keepRunning()) {
-        workerFuture = executorService.schedule(workerRunnable, delayBetweenTasks, timeUnit);
+        workerFuture = executorService.schedule(workerRunnable, idleDelay, timeUnit);
+        waitingForSignal = true;
       }
       addCallback();
     }
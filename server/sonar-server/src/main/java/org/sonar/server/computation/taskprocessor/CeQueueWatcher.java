@@ -0,0 +1,108 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.taskprocessor;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeQueueSignal;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.server.computation.configuration.CeConfiguration;
+
+/**
+ * Tasks are submitted by the Web Server, which runs in another process than the workers. This component
+ * periodically executes a lightweight query to detect new pending tasks, then wakes up idle workers
+ * through {@link CeQueueSignal}. Idle workers do not poll the queue by themselves.
+ */
+@ComputeEngineSide
+public class CeQueueWatcher implements Startable {
+  private static final Logger LOG = Loggers.get(CeQueueWatcher.class);
+  private static final String THREAD_NAME_PREFIX = "ce-queue-watcher-";
+
+  private final DbClient dbClient;
+  private final CeQueueSignal signal;
+  private final long delay;
+
+  @CheckForNull
+  private ScheduledExecutorService executorService;
+  // accessed only by the thread of executorService
+  private Optional<Long> lastMaxCreatedAt = Optional.absent();
+
+  public CeQueueWatcher(DbClient dbClient, CeQueueSignal signal, CeConfiguration ceConfiguration) {
+    this.dbClient = dbClient;
+    this.signal = signal;
+    this.delay = ceConfiguration.getQueuePollingDelay();
+  }
+
+  @Override
+  public void start() {
+    executorService = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat(THREAD_NAME_PREFIX + "%d")
+        .setPriority(Thread.MIN_PRIORITY)
+        .setDaemon(true)
+        .build());
+    executorService.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        check();
+      }
+    }, delay, delay, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  void check() {
+    try {
+      Optional<Long> maxCreatedAt = selectMaxCreatedAtOfPending();
+      if (!maxCreatedAt.equals(lastMaxCreatedAt)) {
+        lastMaxCreatedAt = maxCreatedAt;
+        if (maxCreatedAt.isPresent()) {
+          signal.signal();
+        }
+      }
+    } catch (RuntimeException e) {
+      // an exception would cancel the next executions
+      LOG.warn("Failed to check Compute Engine queue", e);
+    }
+  }
+
+  private Optional<Long> selectMaxCreatedAtOfPending() {
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      return dbClient.ceQueueDao().selectMaxCreatedAtOfPending(dbSession);
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+  }
+}
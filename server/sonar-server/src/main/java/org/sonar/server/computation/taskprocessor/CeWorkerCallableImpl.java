@@ -28,6 +28,8 @@ import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.ce.taskprocessor.CeTaskProcessor;
 import org.sonar.core.util.logs.Profiler;
 import org.sonar.db.ce.CeActivityDto;
+import org.sonar.process.metrics.ProcessMetric;
+import org.sonar.process.metrics.ProcessMetrics;
 import org.sonar.server.computation.queue.InternalCeQueue;
 
 import static java.lang.String.format;
@@ -91,7 +93,8 @@ public class CeWorkerCallableImpl implements CeWorkerCallable {
       // logging twice: once in sonar.log and once in CE appender
       stopProfiler(ceProfiler, task, status);
       ceLogging.clearForTask();
-      stopProfiler(regularProfiler, task, status);
+      long durationMs = stopProfiler(regularProfiler, task, status);
+      ProcessMetrics.get().record(ProcessMetric.CE_TASK_TIME, durationMs);
     }
   }
 
@@ -101,13 +104,12 @@ public class CeWorkerCallableImpl implements CeWorkerCallable {
     return profiler.startInfo("Execute task");
   }
 
-  private static void stopProfiler(Profiler profiler, CeTask task, CeActivityDto.Status status) {
+  private static long stopProfiler(Profiler profiler, CeTask task, CeActivityDto.Status status) {
     addContext(profiler, task);
     if (status == CeActivityDto.Status.FAILED) {
-      profiler.stopError("Executed task");
-    } else {
-      profiler.stopInfo("Executed task");
+      return profiler.stopError("Executed task");
     }
+    return profiler.stopInfo("Executed task");
   }
 
   private static void addContext(Profiler profiler, CeTask task) {
@@ -48,7 +48,7 @@ public abstract class BaseIndexer implements Startable {
    * Indices are populated and refreshed when all startup components have been executed. See
    * {@link IndexerStartupTask}
    */
-  private boolean enabled = false;
+  private volatile boolean enabled = false;
 
   protected BaseIndexer(EsClient client, long threadKeepAliveSeconds, String indexName, String typeName,
     String dateFieldName) {
@@ -95,6 +95,10 @@ public abstract class BaseIndexer implements Startable {
 
   protected abstract long doIndex(long lastUpdatedAt);
 
+  public boolean isEnabled() {
+    return enabled;
+  }
+
   public BaseIndexer setEnabled(boolean b) {
     this.enabled = b;
     return this;
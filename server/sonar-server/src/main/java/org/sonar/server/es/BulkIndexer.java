@@ -27,6 +27,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ListenableActionFuture;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
 import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequestBuilder;
 import org.elasticsearch.action.bulk.BulkItemResponse;
@@ -46,6 +47,8 @@ import org.picocontainer.Startable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.ProgressLogger;
+import org.sonar.process.metrics.ProcessMetric;
+import org.sonar.process.metrics.ProcessMetrics;
 
 import static java.lang.String.format;
 
@@ -54,7 +57,8 @@ import static java.lang.String.format;
  * <ul>
  *   <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
  *   <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
- *   <li>index refresh is optional (enabled by default)</li>
+ *   <li>index refresh is optional (enabled by default). It's skipped if no requests were added.</li>
+ *   <li>deletion of documents matching a search request pipelines the scroll of ids with the execution of bulk requests</li>
  * </ul>
  */
 public class BulkIndexer implements Startable {
@@ -63,6 +67,8 @@ public class BulkIndexer implements Startable {
   private static final long FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB).bytes();
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final String ALREADY_STARTED_MESSAGE = "Bulk indexing is already started";
+  static final int DELETION_SCROLL_SIZE = 1_000;
+  private static final TimeValue DELETION_SCROLL_TIMEOUT = TimeValue.timeValueMinutes(5);
 
   private final EsClient client;
   private final String indexName;
@@ -72,6 +78,7 @@ public class BulkIndexer implements Startable {
   private BulkRequestBuilder bulkRequest = null;
   private Map<String, Object> largeInitialSettings = null;
   private final AtomicLong counter = new AtomicLong(0L);
+  private long addedRequests = 0L;
   private final int concurrentRequests;
   private final Semaphore semaphore;
   private final ProgressLogger progress;
@@ -134,10 +141,12 @@ public class BulkIndexer implements Startable {
     }
     bulkRequest = client.prepareBulk().setRefresh(false);
     counter.set(0L);
+    addedRequests = 0L;
     progress.start();
   }
 
   public void add(ActionRequest request) {
+    addedRequests++;
     bulkRequest.request().add(request);
     if (bulkRequest.request().estimatedSizeInBytes() >= flushByteSize) {
       executeBulk();
@@ -147,35 +156,40 @@ public class BulkIndexer implements Startable {
   public void addDeletion(SearchRequestBuilder searchRequest) {
     searchRequest
       .addSort("_doc", SortOrder.ASC)
-      .setScroll(TimeValue.timeValueMinutes(5))
-      .setSize(100)
+      .setScroll(DELETION_SCROLL_TIMEOUT)
+      .setSize(DELETION_SCROLL_SIZE)
       // load only doc ids, not _source fields
       .setFetchSource(false);
 
-    // this search is synchronous. An optimization would be to be non-blocking,
-    // but it requires to tracking pending requests in close().
-    // Same semaphore can't be reused because of potential deadlock (requires to acquire
-    // two locks)
     SearchResponse searchResponse = searchRequest.get();
-
-    while (true) {
-      SearchHit[] hits = searchResponse.getHits().getHits();
+    String scrollId = searchResponse.getScrollId();
+    SearchHit[] hits = searchResponse.getHits().getHits();
+    while (hits.length > 0) {
+      // The next page is requested before converting the current one into delete requests, so that
+      // scroll round-trips overlap the execution of bulk requests. The scroll request does not
+      // acquire the semaphore of bulk requests, so there's no risk of deadlock.
+      // The native client is used because the proxy of EsClient supports only synchronous requests, so
+      // this request is neither logged nor profiled.
+      ListenableActionFuture<SearchResponse> nextPage = client.nativeClient().prepareSearchScroll(scrollId)
+        .setScroll(DELETION_SCROLL_TIMEOUT)
+        .execute();
       for (SearchHit hit : hits) {
-        DeleteRequestBuilder deleteRequestBuilder = client.prepareDelete(hit.index(), hit.type(), hit.getId());
-        SearchHitField routing = hit.field("_routing");
-        if (routing != null) {
-          deleteRequestBuilder.setRouting((String) routing.getValue());
-        }
-        add(deleteRequestBuilder.request());
+        addDeletion(hit);
       }
+      searchResponse = nextPage.actionGet();
+      scrollId = searchResponse.getScrollId();
+      hits = searchResponse.getHits().getHits();
+    }
+    client.nativeClient().prepareClearScroll().addScrollId(scrollId).get();
+  }
 
-      String scrollId = searchResponse.getScrollId();
-      searchResponse = client.prepareSearchScroll(scrollId).setScroll(TimeValue.timeValueMinutes(5)).get();
-      if (hits.length == 0) {
-        client.nativeClient().prepareClearScroll().addScrollId(scrollId).get();
-        break;
-      }
+  private void addDeletion(SearchHit hit) {
+    DeleteRequestBuilder deleteRequestBuilder = client.prepareDelete(hit.index(), hit.type(), hit.getId());
+    SearchHitField routing = hit.field("_routing");
+    if (routing != null) {
+      deleteRequestBuilder.setRouting((String) routing.getValue());
     }
+    add(deleteRequestBuilder.request());
   }
 
   /**
@@ -205,7 +219,7 @@ public class BulkIndexer implements Startable {
     }
     progress.stop();
 
-    if (!disableRefresh) {
+    if (!disableRefresh && addedRequests > 0) {
       client.prepareRefresh(indexName).get();
     }
     if (large) {
@@ -243,6 +257,9 @@ public class BulkIndexer implements Startable {
     public void onResponse(BulkResponse response) {
       semaphore.release();
       counter.addAndGet(response.getItems().length);
+      ProcessMetrics metrics = ProcessMetrics.get();
+      metrics.record(ProcessMetric.ES_BULK_REQUEST_TIME, response.getTookInMillis());
+      metrics.add(ProcessMetric.ES_BULK_DOCUMENTS, response.getItems().length);
 
       for (BulkItemResponse item : response.getItems()) {
         if (item.isFailed()) {
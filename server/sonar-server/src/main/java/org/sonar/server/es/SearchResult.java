@@ -37,6 +37,16 @@ public class SearchResult<DOC extends BaseDoc> {
     this.docs = EsUtils.convertToDocs(response.getHits(), converter);
   }
 
+  /**
+   * Result with facets which have been computed by a previous search, for example when cached.
+   * Aggregations of the response, if any, are ignored.
+   */
+  public SearchResult(SearchResponse response, Function<Map<String, Object>, DOC> converter, Facets facets) {
+    this.facets = facets;
+    this.total = response.getHits().totalHits();
+    this.docs = EsUtils.convertToDocs(response.getHits(), converter);
+  }
+
   public List<DOC> getDocs() {
     return docs;
   }
@@ -43,10 +43,16 @@ import java.util.Map;
 public class IssueAuthorizationIndexer extends BaseIndexer {
 
   private final DbClient dbClient;
+  private final IssueFacetCache facetCache;
 
   public IssueAuthorizationIndexer(DbClient dbClient, EsClient esClient) {
+    this(dbClient, esClient, IssueFacetCache.disabled());
+  }
+
+  public IssueAuthorizationIndexer(DbClient dbClient, EsClient esClient, IssueFacetCache facetCache) {
     super(esClient, 0L, IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_AUTHORIZATION, IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT);
     this.dbClient = dbClient;
+    this.facetCache = facetCache;
   }
 
   @Override
@@ -80,6 +86,9 @@ public class IssueAuthorizationIndexer extends BaseIndexer {
       maxDate = Math.max(maxDate, authorization.getUpdatedAt());
     }
     bulk.stop();
+    for (IssueAuthorizationDao.Dto authorization : authorizations) {
+      facetCache.invalidateProject(authorization.getProjectUuid());
+    }
     return maxDate;
   }
 
@@ -89,6 +98,7 @@ public class IssueAuthorizationIndexer extends BaseIndexer {
       .setRefresh(refresh)
       .setRouting(uuid)
       .get();
+    facetCache.invalidateProject(uuid);
   }
 
   private ActionRequest newUpdateRequest(IssueAuthorizationDao.Dto dto) {
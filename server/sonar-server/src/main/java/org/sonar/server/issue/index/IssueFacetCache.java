@@ -0,0 +1,274 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.BooleanUtils;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.server.es.Facets;
+import org.sonar.server.es.SearchOptions;
+import org.sonar.server.issue.IssueQuery;
+
+import static org.sonarqube.ws.client.issue.IssueFilterParameters.CREATED_AT;
+
+/**
+ * In-memory cache of the facets computed by {@link IssueIndex#search(IssueQuery, SearchOptions)}.
+ * <p/>
+ * Entries are keyed by the filters of the query, the requested facets and the authorization scope of the
+ * user. They are evicted in LRU order when the maximum size is reached, and invalidated by {@link IssueIndexer}
+ * and {@link IssueAuthorizationIndexer} when the issues or the permissions of a project are indexed.
+ * As the Compute Engine indexes the issues of analyses in its own process, entries also expire after
+ * a short delay.
+ * <p/>
+ * Queries on views and "created at" facets without upper bound are not cached, as their results
+ * depend on data which is not tracked by the issue indexers, or on the current time.
+ */
+@ServerSide
+public class IssueFacetCache {
+
+  public static final int DEFAULT_MAX_SIZE = 1_000;
+  public static final long DEFAULT_TTL_MS = 30_000L;
+
+  private final System2 system;
+  private final int maxSize;
+  private final long ttlMs;
+  private final LinkedHashMap<Key, Entry> entries;
+  private long generation = 0L;
+  private long hits = 0L;
+  private long misses = 0L;
+  private long evictions = 0L;
+
+  public IssueFacetCache(System2 system) {
+    this(system, DEFAULT_MAX_SIZE, DEFAULT_TTL_MS);
+  }
+
+  /**
+   * @param maxSize maximum number of cached searches. Cache is disabled if zero.
+   * @param ttlMs   delay in milliseconds after which cached facets are not used anymore
+   */
+  @VisibleForTesting
+  IssueFacetCache(System2 system, int maxSize, long ttlMs) {
+    this.system = system;
+    this.maxSize = maxSize;
+    this.ttlMs = ttlMs;
+    this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        if (size() > IssueFacetCache.this.maxSize) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Cache which never stores any facets
+   */
+  public static IssueFacetCache disabled() {
+    return new IssueFacetCache(System2.INSTANCE, 0, 0L);
+  }
+
+  /**
+   * Key of the facets requested by the search, or {@code null} if they can't be cached.
+   */
+  @CheckForNull
+  public synchronized Key keyOf(IssueQuery query, SearchOptions options, @Nullable String login) {
+    if (maxSize == 0 || options.getFacets().isEmpty() || !query.viewUuids().isEmpty()
+      || (options.getFacets().contains(CREATED_AT) && query.createdBefore() == null)) {
+      return null;
+    }
+    List<Object> values = Arrays.asList(
+      normalize(query.issueKeys()),
+      normalize(query.severities()),
+      normalize(query.statuses()),
+      normalize(query.resolutions()),
+      normalize(query.componentUuids()),
+      normalize(query.moduleUuids()),
+      normalize(query.moduleRootUuids()),
+      normalize(query.projectUuids()),
+      normalize(query.directories()),
+      normalize(query.fileUuids()),
+      normalize(query.rules()),
+      normalize(query.assignees()),
+      normalize(query.authors()),
+      normalize(query.languages()),
+      normalize(query.tags()),
+      normalize(query.types()),
+      query.onComponentOnly(),
+      query.assigned(),
+      query.resolved(),
+      time(query.createdAt()),
+      time(query.createdAfter()),
+      time(query.createdBefore()),
+      query.facetMode(),
+      query.checkAuthorization(),
+      query.userLogin(),
+      normalize(query.userGroups()),
+      login,
+      normalize(options.getFacets()));
+    return new Key(values, scopeOf(query), generation);
+  }
+
+  /**
+   * Uuids of the projects which the search is restricted to. Empty if the search may return issues
+   * of any project.
+   */
+  private static Set<String> scopeOf(IssueQuery query) {
+    if (BooleanUtils.isTrue(query.onComponentOnly())) {
+      return ImmutableSet.of();
+    }
+    return ImmutableSet.copyOf(query.projectUuids());
+  }
+
+  private static Set<String> normalize(Collection<?> values) {
+    Set<String> result = new TreeSet<>();
+    for (Object value : values) {
+      result.add(String.valueOf(value));
+    }
+    return result;
+  }
+
+  @CheckForNull
+  private static Long time(@Nullable Date date) {
+    return date == null ? null : date.getTime();
+  }
+
+  /**
+   * A copy of the cached facets, so that they can be completed by caller, or {@code null} if missing.
+   */
+  @CheckForNull
+  public synchronized Facets get(Key key) {
+    Entry entry = entries.get(key);
+    if (entry == null || system.now() - entry.createdAt >= ttlMs) {
+      if (entry != null) {
+        entries.remove(key);
+      }
+      misses++;
+      return null;
+    }
+    hits++;
+    return copy(entry.facets);
+  }
+
+  /**
+   * Facets are not cached if an invalidation occurred since creation of the key, as they
+   * may have been computed on stale data.
+   */
+  public synchronized void put(Key key, Facets facets) {
+    if (key.generation == generation) {
+      entries.put(key, new Entry(key.scope, copy(facets), system.now()));
+    }
+  }
+
+  public synchronized void invalidateProject(String projectUuid) {
+    generation++;
+    Iterator<Entry> it = entries.values().iterator();
+    while (it.hasNext()) {
+      Set<String> scope = it.next().scope;
+      if (scope.isEmpty() || scope.contains(projectUuid)) {
+        it.remove();
+      }
+    }
+  }
+
+  public synchronized void invalidateAll() {
+    generation++;
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long hits() {
+    return hits;
+  }
+
+  public synchronized long misses() {
+    return misses;
+  }
+
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  private static Facets copy(Facets facets) {
+    LinkedHashMap<String, LinkedHashMap<String, Long>> copy = new LinkedHashMap<>();
+    for (Map.Entry<String, LinkedHashMap<String, Long>> facet : facets.getAll().entrySet()) {
+      copy.put(facet.getKey(), new LinkedHashMap<>(facet.getValue()));
+    }
+    return new Facets(copy);
+  }
+
+  public static final class Key {
+    private final List<Object> values;
+    private final Set<String> scope;
+    private final long generation;
+
+    private Key(List<Object> values, Set<String> scope, long generation) {
+      this.values = values;
+      this.scope = scope;
+      this.generation = generation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      return values.equals(((Key) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+      return values.hashCode();
+    }
+  }
+
+  private static final class Entry {
+    private final Set<String> scope;
+    private final Facets facets;
+    private final long createdAt;
+
+    private Entry(Set<String> scope, Facets facets, long createdAt) {
+      this.scope = scope;
+      this.facets = facets;
+      this.createdAt = createdAt;
+    }
+  }
+}
@@ -69,6 +69,7 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.server.es.BaseIndex;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.Facets;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.es.Sorting;
@@ -160,12 +161,18 @@ public class IssueIndex extends BaseIndex {
   private final Sorting sorting;
   private final System2 system;
   private final UserSession userSession;
+  private final IssueFacetCache facetCache;
 
   public IssueIndex(EsClient client, System2 system, UserSession userSession) {
+    this(client, system, userSession, IssueFacetCache.disabled());
+  }
+
+  public IssueIndex(EsClient client, System2 system, UserSession userSession, IssueFacetCache facetCache) {
     super(client);
 
     this.system = system;
     this.userSession = userSession;
+    this.facetCache = facetCache;
     this.sorting = new Sorting();
     this.sorting.add(IssueQuery.SORT_BY_ASSIGNEE, IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE);
     this.sorting.add(IssueQuery.SORT_BY_STATUS, IssueIndexDefinition.FIELD_ISSUE_STATUS);
@@ -231,8 +238,17 @@ public class IssueIndex extends BaseIndex {
       requestBuilder.setQuery(esQuery);
     }
 
+    IssueFacetCache.Key facetKey = facetCache.keyOf(query, options, userSession.getLogin());
+    Facets cachedFacets = facetKey == null ? null : facetCache.get(facetKey);
+    if (cachedFacets != null) {
+      return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER, cachedFacets);
+    }
     configureStickyFacets(query, options, filters, esQuery, requestBuilder);
-    return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
+    SearchResult<IssueDoc> result = new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
+    if (facetKey != null) {
+      facetCache.put(facetKey, result.getFacets());
+    }
+    return result;
   }
 
   private void configureSorting(IssueQuery query, SearchRequestBuilder esRequest) {
@@ -46,10 +46,16 @@ public class IssueIndexer extends BaseIndexer {
   private static final int MAX_BATCH_SIZE = 1000;
 
   private final DbClient dbClient;
+  private final IssueFacetCache facetCache;
 
   public IssueIndexer(DbClient dbClient, EsClient esClient) {
+    this(dbClient, esClient, IssueFacetCache.disabled());
+  }
+
+  public IssueIndexer(DbClient dbClient, EsClient esClient, IssueFacetCache facetCache) {
     super(esClient, 300, INDEX, TYPE_ISSUE, FIELD_ISSUE_TECHNICAL_UPDATED_AT);
     this.dbClient = dbClient;
+    this.facetCache = facetCache;
   }
 
   @Override
@@ -61,6 +67,14 @@ public class IssueIndexer extends BaseIndexer {
     doIndex(createBulkIndexer(true), 0L, null);
   }
 
+  /**
+   * Indexes all the issues of the project, whatever the date of the last indexing. Contrary to {@link #index(String)},
+   * issues older than the issues of the last indexed project are not missed.
+   */
+  public void indexProject(String projectUuid) {
+    doIndex(createBulkIndexer(false), 0L, projectUuid);
+  }
+
   public void index(final String projectUuid) {
     super.index(new IndexerTask() {
       @Override
@@ -75,6 +89,7 @@ public class IssueIndexer extends BaseIndexer {
    */
   public void index(Iterator<IssueDoc> issues) {
     doIndex(createBulkIndexer(false), issues);
+    facetCache.invalidateAll();
   }
 
   private long doIndex(BulkIndexer bulk, long lastUpdatedAt, @Nullable String projectUuid) {
@@ -87,6 +102,15 @@ public class IssueIndexer extends BaseIndexer {
       return maxDate;
     } finally {
       dbSession.close();
+      invalidateFacets(projectUuid);
+    }
+  }
+
+  private void invalidateFacets(@Nullable String projectUuid) {
+    if (projectUuid == null) {
+      facetCache.invalidateAll();
+    } else {
+      facetCache.invalidateProject(projectUuid);
     }
   }
 
@@ -114,9 +138,18 @@ public class IssueIndexer extends BaseIndexer {
       .setQuery(boolQuery().must(termQuery(FIELD_ISSUE_PROJECT_UUID, uuid)));
     bulk.addDeletion(search);
     bulk.stop();
+    facetCache.invalidateProject(uuid);
   }
 
   public void deleteByKeys(String projectUuid, List<String> issueKeys) {
+    deleteByKeys(projectUuid, issueKeys, true);
+  }
+
+  /**
+   * @param refresh if {@code false}, the index is not refreshed and deleted issues are still returned by
+   *                searches until the next periodical refresh of the index
+   */
+  public void deleteByKeys(String projectUuid, List<String> issueKeys, boolean refresh) {
     if (issueKeys.isEmpty()) {
       return;
     }
@@ -135,7 +168,10 @@ public class IssueIndexer extends BaseIndexer {
       }
     }
     EsUtils.executeBulkRequest(builder, DELETE_ERROR_MESSAGE, projectUuid);
-    esClient.prepareRefresh(INDEX).get();
+    if (refresh) {
+      esClient.prepareRefresh(INDEX).get();
+    }
+    facetCache.invalidateProject(projectUuid);
   }
 
   private BulkIndexer createBulkIndexer(boolean large) {
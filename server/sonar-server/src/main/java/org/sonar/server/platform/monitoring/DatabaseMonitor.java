@@ -22,6 +22,7 @@ package org.sonar.server.platform.monitoring;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.apache.commons.dbcp.BasicDataSource;
@@ -29,13 +30,21 @@ import org.apache.commons.dbutils.DbUtils;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
+import org.sonar.db.profiling.SqlStatementStatistics;
+import org.sonar.db.profiling.SqlStatistics;
+import org.sonar.db.source.LineHashesCache;
 import org.sonar.db.version.DatabaseVersion;
 
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
 /**
- * Information about database and connection pool
+ * Information about database, connection pool and statistics of SQL statements
  */
 public class DatabaseMonitor extends BaseMonitorMBean implements DatabaseMonitorMBean {
 
+  private static final int SLOWEST_SQL_STATEMENTS = 10;
+
   private final DatabaseVersion dbVersion;
   private final DbClient dbClient;
 
@@ -99,14 +108,61 @@ public class DatabaseMonitor extends BaseMonitorMBean implements DatabaseMonitor
     return commonsDbcp().getRemoveAbandonedTimeout();
   }
 
+  @Override
+  public long getSqlExecutions() {
+    return sqlStatistics().getExecutions();
+  }
+
+  @Override
+  public long getSqlTotalTimeMillis() {
+    return MICROSECONDS.toMillis(sqlStatistics().getTotalTimeMicros());
+  }
+
+  @Override
+  public String[] getSlowestSqlStatements() {
+    return sqlStatistics().getStatements().stream()
+      .sorted(Comparator.comparingLong(SqlStatementStatistics::getTotalTimeMicros).reversed())
+      .limit(SLOWEST_SQL_STATEMENTS)
+      .map(s -> format("%d ms in %d executions (max %d ms, p99 %d ms, %d rows): %s",
+        MICROSECONDS.toMillis(s.getTotalTimeMicros()), s.getExecutions(), MICROSECONDS.toMillis(s.getMaxTimeMicros()),
+        MICROSECONDS.toMillis(s.getPercentileMicros(0.99)), s.getRows(), s.getSql()))
+      .toArray(String[]::new);
+  }
+
+  @Override
+  public long getLineHashesCacheSize() {
+    return lineHashesCache().size();
+  }
+
+  @Override
+  public double getLineHashesCacheHitRate() {
+    return lineHashesCache().getHitRate();
+  }
+
   @Override
   public Map<String, Object> attributes() {
     Map<String, Object> attributes = new LinkedHashMap<>();
     completeDbAttributes(attributes);
     completePoolAttributes(attributes);
+    completeSqlAttributes(attributes);
+    completeLineHashesCacheAttributes(attributes);
     return attributes;
   }
 
+  private void completeLineHashesCacheAttributes(Map<String, Object> attributes) {
+    LineHashesCache cache = lineHashesCache();
+    attributes.put("Line Hashes Cache Size (files)", cache.size());
+    attributes.put("Line Hashes Cache Hits", cache.getHits());
+    attributes.put("Line Hashes Cache Misses", cache.getMisses());
+    attributes.put("Line Hashes Cache Evictions", cache.getEvictions());
+    attributes.put("Line Hashes Cache Hit Rate", cache.getHitRate());
+  }
+
+  private void completeSqlAttributes(Map<String, Object> attributes) {
+    attributes.put("SQL Executions", getSqlExecutions());
+    attributes.put("SQL Total Time (ms)", getSqlTotalTimeMillis());
+  }
+
   private void completePoolAttributes(Map<String, Object> attributes) {
     attributes.put("Pool Active Connections", getPoolActiveConnections());
     attributes.put("Pool Max Connections", getPoolMaxActiveConnections());
@@ -119,6 +175,14 @@ public class DatabaseMonitor extends BaseMonitorMBean implements DatabaseMonitor
     attributes.put("Pool Remove Abandoned Timeout (seconds)", getPoolRemoveAbandonedTimeoutSeconds());
   }
 
+  private SqlStatistics sqlStatistics() {
+    return dbClient.getDatabase().getSqlStatistics();
+  }
+
+  private LineHashesCache lineHashesCache() {
+    return dbClient.fileSourceDao().getLineHashesCache();
+  }
+
   private BasicDataSource commonsDbcp() {
     return (BasicDataSource) dbClient.getDatabase().getDataSource();
   }
@@ -68,4 +68,29 @@ public interface DatabaseMonitorMBean {
    * Timeout in seconds before an abandoned connection can be removed.
    */
   int getPoolRemoveAbandonedTimeoutSeconds();
+
+  /**
+   * Number of SQL statements executed since startup
+   */
+  long getSqlExecutions();
+
+  /**
+   * Total time spent executing SQL statements since startup
+   */
+  long getSqlTotalTimeMillis();
+
+  /**
+   * The normalized SQL statements that spent the most time in database, with their statistics.
+   */
+  String[] getSlowestSqlStatements();
+
+  /**
+   * Number of files which line hashes are in cache
+   */
+  long getLineHashesCacheSize();
+
+  /**
+   * Ratio of line hashes lookups served by cache since startup, between 0 and 1
+   */
+  double getLineHashesCacheHitRate();
 }
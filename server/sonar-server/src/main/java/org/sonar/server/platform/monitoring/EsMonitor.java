@@ -30,15 +30,22 @@ import org.elasticsearch.cluster.health.ClusterHealthStatus;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.issue.index.IssueFacetCache;
 
 import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
 
 public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
 
   private final EsClient esClient;
+  private final IssueFacetCache issueFacetCache;
 
   public EsMonitor(EsClient esClient) {
+    this(esClient, IssueFacetCache.disabled());
+  }
+
+  public EsMonitor(EsClient esClient, IssueFacetCache issueFacetCache) {
     this.esClient = esClient;
+    this.issueFacetCache = issueFacetCache;
   }
 
   @Override
@@ -71,6 +78,16 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
     attributes.put("Indices", indexAttributes());
     attributes.put("Number of Nodes", getNumberOfNodes());
     attributes.put("Nodes", nodeAttributes());
+    attributes.put("Issue Facet Cache", issueFacetCacheAttributes());
+    return attributes;
+  }
+
+  private LinkedHashMap<String, Object> issueFacetCacheAttributes() {
+    LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Size", issueFacetCache.size());
+    attributes.put("Hits", issueFacetCache.hits());
+    attributes.put("Misses", issueFacetCache.misses());
+    attributes.put("Evictions", issueFacetCache.evictions());
     return attributes;
   }
 
@@ -0,0 +1,93 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.ws;
+
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.core.permission.GlobalPermissions;
+import org.sonar.process.ProcessId;
+import org.sonar.process.metrics.ProcessMetric;
+import org.sonar.process.metrics.ProcessMetricsSnapshot;
+import org.sonar.server.app.ProcessCommandWrapper;
+import org.sonar.server.user.UserSession;
+
+/**
+ * Implementation of the {@code metrics} action for the System WebService.
+ * Metrics are read from the shared memory, so processes are never called.
+ */
+public class MetricsAction implements SystemWsAction {
+
+  private static final ProcessId[] PROCESSES = {ProcessId.WEB_SERVER, ProcessId.COMPUTE_ENGINE, ProcessId.ELASTICSEARCH};
+
+  private final UserSession userSession;
+  private final ProcessCommandWrapper processCommandWrapper;
+
+  public MetricsAction(UserSession userSession, ProcessCommandWrapper processCommandWrapper) {
+    this.userSession = userSession;
+    this.processCommandWrapper = processCommandWrapper;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    controller.createAction("metrics")
+      .setDescription("Get the latest runtime metrics published by each process (heap, threads, latencies).<br/>" +
+        "Values are refreshed every second by the processes. Durations are in milliseconds.<br/>" +
+        "Requires 'Administer' permissions.")
+      .setSince("6.0")
+      .setInternal(true)
+      .setResponseExample(getClass().getResource("/org/sonar/server/platform/ws/example-system-metrics.json"))
+      .setHandler(this);
+  }
+
+  @Override
+  public void handle(Request request, Response response) {
+    userSession.checkPermission(GlobalPermissions.SYSTEM_ADMIN);
+    JsonWriter json = response.newJsonWriter();
+    json.beginObject();
+    for (ProcessId processId : PROCESSES) {
+      json.name(processId.getKey());
+      writeMetrics(json, processCommandWrapper.getMetrics(processId));
+    }
+    json.endObject();
+    json.close();
+  }
+
+  private static void writeMetrics(JsonWriter json, ProcessMetricsSnapshot snapshot) {
+    json.beginObject();
+    for (ProcessMetric metric : ProcessMetric.values()) {
+      json.name(metric.getKey());
+      if (metric.getType() == ProcessMetric.Type.HISTOGRAM) {
+        ProcessMetricsSnapshot.Histogram histogram = snapshot.getHistogram(metric);
+        json.beginObject()
+          .prop("count", histogram.getCount())
+          .prop("sum", histogram.getSum())
+          .prop("p50", histogram.getPercentile(0.50))
+          .prop("p95", histogram.getPercentile(0.95))
+          .prop("p99", histogram.getPercentile(0.99))
+          .endObject();
+      } else {
+        json.value(snapshot.getValue(metric));
+      }
+    }
+    json.endObject();
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.ws;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.server.ws.WebService.Param;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.core.permission.GlobalPermissions;
+import org.sonar.db.Database;
+import org.sonar.db.profiling.SqlStatementStatistics;
+import org.sonar.db.profiling.SqlStatistics;
+import org.sonar.server.user.UserSession;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Implementation of the {@code sql_statistics} action for the System WebService.
+ */
+public class SqlStatisticsAction implements SystemWsAction {
+
+  static final int MAX_PAGE_SIZE = 500;
+
+  private static final Map<String, ToLongFunction<SqlStatementStatistics>> SORT_FIELDS = ImmutableMap.<String, ToLongFunction<SqlStatementStatistics>>builder()
+    .put("totalTime", SqlStatementStatistics::getTotalTimeMicros)
+    .put("executions", SqlStatementStatistics::getExecutions)
+    .put("maxTime", SqlStatementStatistics::getMaxTimeMicros)
+    .put("p99", s -> s.getPercentileMicros(0.99))
+    .put("rows", SqlStatementStatistics::getRows)
+    .build();
+
+  private final UserSession userSession;
+  private final Database database;
+
+  public SqlStatisticsAction(UserSession userSession, Database database) {
+    this.userSession = userSession;
+    this.database = database;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction("sql_statistics")
+      .setDescription("Get the statistics of the SQL statements executed by the web server since startup, " +
+        "aggregated by normalized SQL. Durations are in milliseconds.<br/>" +
+        "Requires 'Administer' permissions.")
+      .setSince("6.0")
+      .setInternal(true)
+      .setResponseExample(getClass().getResource("/org/sonar/server/platform/ws/example-system-sql-statistics.json"))
+      .setHandler(this);
+
+    action.createParam(Param.SORT)
+      .setDescription("Sort field, in descending order")
+      .setPossibleValues(SORT_FIELDS.keySet())
+      .setDefaultValue("totalTime");
+
+    action.createParam(Param.PAGE_SIZE)
+      .setDescription("Max number of statements to return. Must be between 1 and " + MAX_PAGE_SIZE)
+      .setDefaultValue("50");
+  }
+
+  @Override
+  public void handle(Request request, Response response) {
+    userSession.checkPermission(GlobalPermissions.SYSTEM_ADMIN);
+    int pageSize = request.mandatoryParamAsInt(Param.PAGE_SIZE);
+    checkArgument(pageSize >= 1 && pageSize <= MAX_PAGE_SIZE, "The '%s' parameter must be between 1 and %s (got %s)", Param.PAGE_SIZE, MAX_PAGE_SIZE, pageSize);
+    SqlStatistics statistics = database.getSqlStatistics();
+    ToLongFunction<SqlStatementStatistics> sortField = SORT_FIELDS.get(request.mandatoryParam(Param.SORT));
+    List<SqlStatementStatistics> statements = statistics.getStatements().stream()
+      .sorted(Comparator.comparingLong(sortField).reversed())
+      .limit(pageSize)
+      .collect(toList());
+
+    JsonWriter json = response.newJsonWriter();
+    json.beginObject()
+      .prop("executions", statistics.getExecutions())
+      .prop("totalTime", toMillis(statistics.getTotalTimeMicros()));
+    json.name("statements").beginArray();
+    for (SqlStatementStatistics statement : statements) {
+      json.beginObject()
+        .prop("sql", statement.getSql())
+        .prop("executions", statement.getExecutions())
+        .prop("totalTime", toMillis(statement.getTotalTimeMicros()))
+        .prop("maxTime", toMillis(statement.getMaxTimeMicros()))
+        .prop("p50", toMillis(statement.getPercentileMicros(0.50)))
+        .prop("p95", toMillis(statement.getPercentileMicros(0.95)))
+        .prop("p99", toMillis(statement.getPercentileMicros(0.99)))
+        .prop("rows", statement.getRows())
+        .endObject();
+    }
+    json.endArray();
+    json.endObject();
+    json.close();
+  }
+
+  private static double toMillis(long micros) {
+    return micros / 1_000.0;
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.qualityprofile;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.qualityprofile.ActiveRuleDto;
+import org.sonar.db.qualityprofile.ActiveRuleKey;
+import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.QualityProfileDto;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleParamDto;
+import org.sonar.server.activity.Activity;
+import org.sonar.server.exceptions.BadRequestException;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Profiles, rules and active rules loaded at once for a bulk change on a Quality profile and its descendants,
+ * so that {@link RuleActivator} does not request the database for each rule and each inherited profile.
+ * It is kept up-to-date with the changes of the bulk change. Update dates of profiles are written once, at the end,
+ * by {@link #flush(DbClient, DbSession)}.
+ */
+class RuleActivatorCache {
+
+  private final Map<String, QualityProfileDto> profilesByKey = new HashMap<>();
+  private final ListMultimap<String, QualityProfileDto> childrenByKey = ArrayListMultimap.create();
+  private final Map<RuleKey, RuleDto> rulesByKey = new HashMap<>();
+  private final ListMultimap<RuleKey, RuleParamDto> ruleParamsByRuleKey = ArrayListMultimap.create();
+  private final Map<ActiveRuleKey, ActiveRuleDto> activeRulesByKey = new HashMap<>();
+  private final ListMultimap<ActiveRuleKey, ActiveRuleParamDto> activeRuleParamsByKey = ArrayListMultimap.create();
+
+  private final Set<String> updatedProfileKeys = new HashSet<>();
+  private final List<Activity> activities = new ArrayList<>();
+
+  private RuleActivatorCache() {
+    // use load()
+  }
+
+  static RuleActivatorCache load(DbClient db, DbSession session, String profileKey, Collection<RuleKey> ruleKeys) {
+    RuleActivatorCache cache = new RuleActivatorCache();
+    QualityProfileDto profile = db.qualityProfileDao().selectByKey(session, profileKey);
+    if (profile != null) {
+      cache.loadProfiles(db, session, profile);
+      cache.loadRules(db, session, ruleKeys);
+      cache.loadActiveRules(db, session, profile);
+    }
+    return cache;
+  }
+
+  private void loadProfiles(DbClient db, DbSession session, QualityProfileDto profile) {
+    Deque<QualityProfileDto> profiles = new ArrayDeque<>();
+    profiles.add(profile);
+    while (!profiles.isEmpty()) {
+      QualityProfileDto current = profiles.remove();
+      profilesByKey.put(current.getKey(), current);
+      List<QualityProfileDto> children = db.qualityProfileDao().selectChildren(session, current.getKey());
+      childrenByKey.putAll(current.getKey(), children);
+      profiles.addAll(children);
+    }
+  }
+
+  private void loadRules(DbClient db, DbSession session, Collection<RuleKey> ruleKeys) {
+    List<RuleKey> keys = newArrayList(ruleKeys);
+    Map<Integer, RuleKey> ruleKeysById = new HashMap<>();
+    for (RuleDto rule : db.ruleDao().selectByKeys(session, keys)) {
+      rulesByKey.put(rule.getKey(), rule);
+      ruleKeysById.put(rule.getId(), rule.getKey());
+    }
+    for (RuleParamDto ruleParam : db.ruleDao().selectRuleParamsByRuleKeys(session, keys)) {
+      ruleParamsByRuleKey.put(ruleKeysById.get(ruleParam.getRuleId()), ruleParam);
+    }
+  }
+
+  private void loadActiveRules(DbClient db, DbSession session, QualityProfileDto profile) {
+    Set<String> profileKeys = new HashSet<>(profilesByKey.keySet());
+    // severity and parameters can be inherited from the parent of the profile
+    String parentKee = profile.getParentKee();
+    if (parentKee != null) {
+      profileKeys.add(parentKee);
+    }
+    Map<Integer, ActiveRuleKey> activeRuleKeysById = new HashMap<>();
+    for (String profileKey : profileKeys) {
+      for (ActiveRuleDto activeRule : db.activeRuleDao().selectByProfileKey(session, profileKey)) {
+        if (rulesByKey.containsKey(activeRule.getKey().ruleKey())) {
+          activeRulesByKey.put(activeRule.getKey(), activeRule);
+          activeRuleKeysById.put(activeRule.getId(), activeRule.getKey());
+        }
+      }
+    }
+    for (ActiveRuleParamDto activeRuleParam : db.activeRuleDao().selectParamsByActiveRuleIds(session, newArrayList(activeRuleKeysById.keySet()))) {
+      activeRuleParamsByKey.put(activeRuleKeysById.get(activeRuleParam.getActiveRuleId()), activeRuleParam);
+    }
+  }
+
+  /**
+   * Same as {@link RuleActivatorContextFactory#create(String, RuleKey, DbSession)}, without any db round trip
+   */
+  RuleActivatorContext createContext(String profileKey, RuleKey ruleKey) {
+    QualityProfileDto profile = profilesByKey.get(profileKey);
+    if (profile == null) {
+      throw new BadRequestException("Quality profile not found: " + profileKey);
+    }
+    RuleDto rule = rulesByKey.get(ruleKey);
+    if (rule == null) {
+      throw new BadRequestException("Rule not found: " + ruleKey);
+    }
+    RuleActivatorContext context = new RuleActivatorContext()
+      .setProfile(profile)
+      .setRule(rule)
+      .setRuleParams(ruleParamsByRuleKey.get(ruleKey));
+    ActiveRuleKey key = ActiveRuleKey.of(profileKey, ruleKey);
+    context
+      .setActiveRule(activeRulesByKey.get(key))
+      .setActiveRuleParams(activeRuleParamsByKey.get(key));
+    String parentKee = profile.getParentKee();
+    if (parentKee != null) {
+      ActiveRuleKey parentKey = ActiveRuleKey.of(parentKee, ruleKey);
+      context
+        .setParentActiveRule(activeRulesByKey.get(parentKey))
+        .setParentActiveRuleParams(activeRuleParamsByKey.get(parentKey));
+    }
+    return context;
+  }
+
+  List<QualityProfileDto> children(String profileKey) {
+    return childrenByKey.get(profileKey);
+  }
+
+  void onInsert(ActiveRuleDto activeRule, List<ActiveRuleParamDto> params) {
+    activeRulesByKey.put(activeRule.getKey(), activeRule);
+    activeRuleParamsByKey.putAll(activeRule.getKey(), params);
+  }
+
+  void onParamInsert(ActiveRuleKey key, ActiveRuleParamDto param) {
+    activeRuleParamsByKey.put(key, param);
+  }
+
+  void onParamDelete(ActiveRuleKey key, ActiveRuleParamDto param) {
+    activeRuleParamsByKey.remove(key, param);
+  }
+
+  void onProfileUpdate(QualityProfileDto profile) {
+    updatedProfileKeys.add(profile.getKey());
+  }
+
+  void addActivity(Activity activity) {
+    activities.add(activity);
+  }
+
+  List<Activity> activities() {
+    return activities;
+  }
+
+  /**
+   * Writes the update dates of profiles, once per profile.
+   */
+  void flush(DbClient db, DbSession session) {
+    for (String profileKey : updatedProfileKeys) {
+      db.qualityProfileDao().update(session, profilesByKey.get(profileKey));
+    }
+    updatedProfileKeys.clear();
+  }
+}
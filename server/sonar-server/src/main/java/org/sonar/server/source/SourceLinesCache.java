@@ -0,0 +1,152 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.CheckForNull;
+import org.sonar.api.Properties;
+import org.sonar.api.Property;
+import org.sonar.api.config.Settings;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static java.lang.String.format;
+
+/**
+ * Bounded LRU cache of the blocks of source lines decoded from the column FILE_SOURCES.BINARY_DATA.
+ * Blocks are identified by file and by date of last update of its sources, so that a new analysis
+ * implicitly invalidates the blocks of the previous one. Least recently used blocks are evicted
+ * when the approximate size of the cached lines exceeds the limit, which is defined by the
+ * property {@value #SIZE_PROPERTY}. Value zero disables the cache.
+ *
+ * @see org.sonar.db.source.FileSourceDto#decodeSourceBlocks(int, int)
+ */
+@Properties({
+  @Property(
+    key = SourceLinesCache.SIZE_PROPERTY,
+    defaultValue = "32",
+    name = "Maximum size of the cache of source lines, in MB",
+    project = false,
+    global = false)
+})
+public class SourceLinesCache {
+
+  public static final String SIZE_PROPERTY = "sonar.web.sourceLinesCache.sizeInMb";
+
+  // approximate memory used by a Line object, in addition to its serialized size
+  private static final int LINE_OVERHEAD = 64;
+
+  private final long maxWeight;
+  private final Map<BlockKey, Block> blocks = new LinkedHashMap<>(16, 0.75F, true);
+  private long weight = 0L;
+
+  public SourceLinesCache(Settings settings) {
+    this(maxWeight(settings));
+  }
+
+  SourceLinesCache(long maxWeight) {
+    this.maxWeight = maxWeight;
+  }
+
+  private static long maxWeight(Settings settings) {
+    long sizeInMb = settings.getLong(SIZE_PROPERTY);
+    if (sizeInMb < 0) {
+      throw new IllegalArgumentException(format("Property %s must be positive. Got: %d", SIZE_PROPERTY, sizeInMb));
+    }
+    return sizeInMb * 1024 * 1024;
+  }
+
+  @CheckForNull
+  public synchronized List<DbFileSources.Line> get(String fileUuid, long updatedAt, int blockIndex) {
+    Block block = blocks.get(new BlockKey(fileUuid, updatedAt, blockIndex));
+    return block == null ? null : block.lines;
+  }
+
+  public synchronized void put(String fileUuid, long updatedAt, int blockIndex, List<DbFileSources.Line> lines) {
+    Block block = new Block(lines);
+    if (block.weight > maxWeight) {
+      return;
+    }
+    Block previous = blocks.put(new BlockKey(fileUuid, updatedAt, blockIndex), block);
+    if (previous != null) {
+      weight -= previous.weight;
+    }
+    weight += block.weight;
+    Iterator<Block> eldest = blocks.values().iterator();
+    while (weight > maxWeight && eldest.hasNext()) {
+      weight -= eldest.next().weight;
+      eldest.remove();
+    }
+  }
+
+  synchronized int size() {
+    return blocks.size();
+  }
+
+  synchronized long weight() {
+    return weight;
+  }
+
+  private static final class Block {
+    private final List<DbFileSources.Line> lines;
+    private final long weight;
+
+    private Block(List<DbFileSources.Line> lines) {
+      this.lines = lines;
+      long w = LINE_OVERHEAD;
+      for (DbFileSources.Line line : lines) {
+        w += LINE_OVERHEAD + line.getSerializedSize();
+      }
+      this.weight = w;
+    }
+  }
+
+  private static final class BlockKey {
+    private final String fileUuid;
+    private final long updatedAt;
+    private final int blockIndex;
+
+    private BlockKey(String fileUuid, long updatedAt, int blockIndex) {
+      this.fileUuid = fileUuid;
+      this.updatedAt = updatedAt;
+      this.blockIndex = blockIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      BlockKey that = (BlockKey) o;
+      return updatedAt == that.updatedAt && blockIndex == that.blockIndex && fileUuid.equals(that.fileUuid);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(fileUuid, updatedAt, blockIndex);
+    }
+  }
+}
@@ -25,20 +25,29 @@ import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 
+import static org.sonar.db.source.FileSourceDto.blockIndexOfLine;
+
 public class SourceService {
 
   private final DbClient dbClient;
   private final HtmlSourceDecorator htmlDecorator;
+  private final SourceLinesCache cache;
 
-  public SourceService(DbClient dbClient, HtmlSourceDecorator htmlDecorator) {
+  public SourceService(DbClient dbClient, HtmlSourceDecorator htmlDecorator, SourceLinesCache cache) {
     this.dbClient = dbClient;
     this.htmlDecorator = htmlDecorator;
+    this.cache = cache;
   }
 
   /**
@@ -65,17 +74,70 @@ public class SourceService {
   private <E> Optional<Iterable<E>> getLines(DbSession dbSession, String fileUuid, int from, int toInclusive, Function<DbFileSources.Line, E> function) {
     verifyLine(from);
     Preconditions.checkArgument(toInclusive >= from, String.format("Line number must greater than or equal to %d, got %d", from, toInclusive));
-    FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, fileUuid);
-    if (dto == null) {
+    Long updatedAt = dbClient.fileSourceDao().selectSourceUpdatedAt(dbSession, fileUuid);
+    if (updatedAt == null) {
+      return Optional.absent();
+    }
+    List<List<DbFileSources.Line>> blocks = loadBlocks(dbSession, fileUuid, updatedAt, blockIndexOfLine(from), blockIndexOfLine(toInclusive));
+    if (blocks == null) {
       return Optional.absent();
     }
-    DbFileSources.Data data = dto.getSourceData();
-    return Optional.of((Iterable<E>) FluentIterable.from(data.getLinesList())
+    return Optional.of((Iterable<E>) FluentIterable.from(Iterables.concat(blocks))
       .filter(new IsGreaterOrEqualThanLine(from))
       .limit(toInclusive - from + 1)
       .transform(function));
   }
 
+  /**
+   * Blocks of lines are read from cache. Missing blocks are decoded from db, without decoding
+   * the blocks of lines that are out of the requested range.
+   * All the blocks are read under the same date of update of sources.
+   * Returns {@code null} if the sources of file have been deleted in the meantime.
+   */
+  @CheckForNull
+  private List<List<DbFileSources.Line>> loadBlocks(DbSession dbSession, String fileUuid, long updatedAt, int fromBlock, int toBlock) {
+    List<List<DbFileSources.Line>> blocks = new ArrayList<>();
+    FileSourceDto dto = null;
+    int blockIndex = fromBlock;
+    while (blockIndex <= toBlock) {
+      List<DbFileSources.Line> block = cache.get(fileUuid, updatedAt, blockIndex);
+      if (block != null) {
+        blocks.add(block);
+        blockIndex++;
+        if (block.size() < FileSourceDto.LINES_PER_BLOCK) {
+          // end of file
+          break;
+        }
+        continue;
+      }
+      if (dto == null) {
+        dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, fileUuid);
+        if (dto == null) {
+          return null;
+        }
+        if (dto.getUpdatedAt() != updatedAt) {
+          // sources have been updated in the meantime. Blocks already read from cache are
+          // obsolete, so the whole range is decoded again from the new sources.
+          updatedAt = dto.getUpdatedAt();
+          blocks.clear();
+          blockIndex = fromBlock;
+        }
+      }
+      List<List<DbFileSources.Line>> decodedBlocks = dto.decodeSourceBlocks(blockIndex, toBlock);
+      for (List<DbFileSources.Line> decodedBlock : decodedBlocks) {
+        cache.put(fileUuid, updatedAt, blockIndex, decodedBlock);
+        blocks.add(decodedBlock);
+        blockIndex++;
+      }
+      if (blockIndex <= toBlock) {
+        // end of file is reached. Remember it to avoid loading data on next requests.
+        cache.put(fileUuid, updatedAt, blockIndex, Collections.<DbFileSources.Line>emptyList());
+      }
+      break;
+    }
+    return blocks;
+  }
+
   private static void verifyLine(int line) {
     Preconditions.checkArgument(line >= 1, String.format("Line number must start at 1, got %d", line));
   }
@@ -65,7 +65,8 @@ public class TestIndexDefinition implements IndexDefinition {
     mapping.stringFieldBuilder(FIELD_STACKTRACE).disableNorms().disableSearch().build();
     mapping.setProperty(FIELD_COVERED_FILES, ImmutableMap.of("type", "nested", "properties", ImmutableMap.of(
       FIELD_COVERED_FILE_UUID, ImmutableMap.of("type", "string", "index", "not_analyzed"),
-      FIELD_COVERED_FILE_LINES, ImmutableMap.of("type", "integer")
+      // lines are only used to filter tests, never to sort nor to aggregate
+      FIELD_COVERED_FILE_LINES, ImmutableMap.of("type", "integer", "doc_values", false)
       )));
     mapping.createDateTimeField(FIELD_UPDATED_AT);
   }
@@ -59,6 +59,15 @@ public class TestIndexer extends BaseIndexer {
     });
   }
 
+  /**
+   * Indexes all the tests of the project, whatever the date of the last indexing. Contrary to {@link #index(String)},
+   * tests older than the tests of the last indexed project are not missed.
+   */
+  public void indexProject(String projectUuid) {
+    deleteByProject(projectUuid);
+    doIndex(new BulkIndexer(esClient, INDEX), 0L, projectUuid);
+  }
+
   public long index(Iterator<FileSourcesUpdaterHelper.Row> dbRows) {
     BulkIndexer bulk = new BulkIndexer(esClient, INDEX);
     return doIndex(bulk, dbRows);
@@ -72,7 +81,10 @@ public class TestIndexer extends BaseIndexer {
   private long doIndex(long lastUpdatedAt, @Nullable String projectUuid) {
     final BulkIndexer bulk = new BulkIndexer(esClient, INDEX);
     bulk.setLarge(lastUpdatedAt == 0L);
+    return doIndex(bulk, lastUpdatedAt, projectUuid);
+  }
 
+  private long doIndex(BulkIndexer bulk, long lastUpdatedAt, @Nullable String projectUuid) {
     DbSession dbSession = dbClient.openSession(false);
     try {
       TestResultSetIterator rowIt = TestResultSetIterator.create(dbClient, dbSession, lastUpdatedAt, projectUuid);
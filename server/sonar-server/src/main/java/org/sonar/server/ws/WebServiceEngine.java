@@ -35,6 +35,8 @@ import org.sonar.api.server.ws.WebService;
 import org.sonar.api.server.ws.internal.ValidatingRequest;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.process.metrics.ProcessMetric;
+import org.sonar.process.metrics.ProcessMetrics;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.Errors;
 import org.sonar.server.exceptions.Message;
@@ -45,6 +47,7 @@ import org.sonarqube.ws.MediaTypes;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.apache.commons.lang.StringUtils.substringAfterLast;
 import static org.sonar.server.ws.RequestVerifier.verifyRequest;
 import static org.sonar.server.ws.ServletRequest.SUPPORTED_MEDIA_TYPES_BY_URL_SUFFIX;
@@ -96,6 +99,7 @@ public class WebServiceEngine implements LocalConnector, Startable {
   }
 
   public void execute(Request request, Response response, String controllerPath, String actionKey, @Nullable String actionExtension) {
+    long start = System.nanoTime();
     try {
       WebService.Action action = getAction(controllerPath, actionKey);
       if (request instanceof ValidatingRequest) {
@@ -114,6 +118,8 @@ public class WebServiceEngine implements LocalConnector, Startable {
     } catch (Exception e) {
       Loggers.get(getClass()).error("Fail to process request " + request, e);
       sendErrors(response, 500, new Errors().add(Message.of(e.getMessage())));
+    } finally {
+      ProcessMetrics.get().record(ProcessMetric.WEB_REQUEST_TIME, NANOSECONDS.toMillis(System.nanoTime() - start));
     }
   }
 
@@ -56,7 +56,8 @@ public class CeQueueImplTest {
 
   UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   CeQueueListener listener = mock(CeQueueListener.class);
-  CeQueue underTest = new CeQueueImpl(dbTester.getDbClient(), uuidFactory, new CeQueueListener[] {listener});
+  CeQueueSignal signal = new CeQueueSignal();
+  CeQueue underTest = new CeQueueImpl(dbTester.getDbClient(), uuidFactory, signal, new CeQueueListener[] {listener});
 
   @Test
   public void submit_returns_task_populated_from_CeTaskSubmit_and_creates_CeQueue_row() {
@@ -86,6 +87,15 @@ public class CeQueueImplTest {
     verifyCeTask(taskSubmit, task, null);
   }
 
+  @Test
+  public void submit_and_massSubmit_raise_signal() {
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    assertThat(signal.generation()).isEqualTo(1L);
+
+    underTest.massSubmit(asList(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_2", null), createTaskSubmit("some type")));
+    assertThat(signal.generation()).isEqualTo(2L);
+  }
+
   @Test
   public void submit_fails_with_ISE_if_paused() {
     underTest.pauseSubmit();
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.activity;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.assertj.core.data.MapEntry;
@@ -35,6 +36,7 @@ import org.sonar.server.activity.index.ActivityIndexer;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.tester.UserSessionRule;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -87,4 +89,27 @@ public class ActivityServiceTest {
     assertThat(docs.get(0).getDetails()).containsOnly(MapEntry.entry("foo", "bar"));
   }
 
+  @Test
+  public void insert_and_index_many_activities() {
+    Activity activity1 = new Activity();
+    activity1.setType(Activity.Type.QPROFILE);
+    activity1.setAction("ACTIVATED");
+    Activity activity2 = new Activity();
+    activity2.setType(Activity.Type.QPROFILE);
+    activity2.setAction("UPDATED");
+
+    service.save(asList(activity1, activity2));
+
+    assertThat(db.countRowsOfTable("activities")).isEqualTo(2);
+    List<ActivityDoc> docs = es.getDocuments("activities", "activity", ActivityDoc.class);
+    assertThat(docs).extracting("action").containsOnly("ACTIVATED", "UPDATED");
+  }
+
+  @Test
+  public void do_nothing_when_saving_no_activities() {
+    service.save(Collections.<Activity>emptyList());
+
+    assertThat(db.countRowsOfTable("activities")).isZero();
+  }
+
 }
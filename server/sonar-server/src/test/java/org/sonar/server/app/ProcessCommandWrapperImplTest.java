@@ -27,6 +27,8 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.config.Settings;
 import org.sonar.process.DefaultProcessCommands;
+import org.sonar.process.ProcessId;
+import org.sonar.process.metrics.ProcessMetric;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.process.ProcessEntryPoint.PROPERTY_PROCESS_INDEX;
@@ -112,4 +114,20 @@ public class ProcessCommandWrapperImplTest {
     }
   }
 
+  @Test
+  public void getMetrics_reads_shareMemory_file() throws IOException {
+    File tmpDir = temp.newFolder().getAbsoluteFile();
+    settings.setProperty(PROPERTY_SHARED_PATH, tmpDir.getAbsolutePath());
+    long[] slots = new long[ProcessMetric.SLOTS];
+    slots[0] = 1_000L;
+    try (DefaultProcessCommands processCommands = DefaultProcessCommands.secondary(tmpDir, ProcessId.COMPUTE_ENGINE.getIpcIndex())) {
+      processCommands.setMetrics(slots);
+    }
+
+    ProcessCommandWrapperImpl underTest = new ProcessCommandWrapperImpl(settings);
+
+    assertThat(underTest.getMetrics(ProcessId.COMPUTE_ENGINE).getValue(ProcessMetric.HEAP_USED)).isEqualTo(1_000L);
+    assertThat(underTest.getMetrics(ProcessId.WEB_SERVER).getValue(ProcessMetric.HEAP_USED)).isEqualTo(0L);
+  }
+
 }
@@ -0,0 +1,177 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.slf4j.MDC;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.component.Component.Type.DIRECTORY;
+import static org.sonar.server.computation.component.Component.Type.FILE;
+import static org.sonar.server.computation.component.Component.Type.MODULE;
+import static org.sonar.server.computation.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.component.ComponentVisitor.Order.POST_ORDER;
+
+public class ParallelPathAwareCrawlerTest {
+
+  private static final int DIRECTORIES = 10;
+  private static final int FILES_PER_DIRECTORY = 100;
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void aggregate_values_of_children_visited_in_parallel() {
+    Component tree = tree();
+    FileCountVisitor visitor = new ThreadSafeFileCountVisitor();
+
+    new ParallelPathAwareCrawler<>(visitor, pool).visit(tree);
+
+    assertThat(visitor.fileCountByRef).hasSize(1 + 1 + DIRECTORIES);
+    assertThat(visitor.fileCountByRef.get(1)).isEqualTo(DIRECTORIES * FILES_PER_DIRECTORY);
+    assertThat(visitor.fileCountByRef.get(2)).isEqualTo(DIRECTORIES * FILES_PER_DIRECTORY);
+    for (int dirRef = 3; dirRef < 3 + DIRECTORIES; dirRef++) {
+      assertThat(visitor.fileCountByRef.get(dirRef)).isEqualTo(FILES_PER_DIRECTORY);
+    }
+  }
+
+  @Test
+  public void visit_sequentially_visitors_which_are_not_thread_safe() {
+    Component tree = tree();
+    FileCountVisitor visitor = new FileCountVisitor();
+
+    new ParallelPathAwareCrawler<>(visitor, pool).visit(tree);
+
+    assertThat(visitor.threads).containsOnly(Thread.currentThread());
+    assertThat(visitor.fileCountByRef.get(1)).isEqualTo(DIRECTORIES * FILES_PER_DIRECTORY);
+  }
+
+  @Test
+  public void propagate_MDC_of_caller_to_threads_of_pool() {
+    final Map<Integer, String> mdcByRef = new ConcurrentHashMap<>();
+    FileCountVisitor visitor = new ThreadSafeFileCountVisitor() {
+      @Override
+      public void visitFile(Component file, Path<AtomicInteger> path) {
+        super.visitFile(file, path);
+        mdcByRef.put(file.getReportAttributes().getRef(), String.valueOf(MDC.get("ceLogPath")));
+      }
+    };
+
+    MDC.put("ceLogPath", "task.log");
+    try {
+      new ParallelPathAwareCrawler<>(visitor, pool).visit(tree());
+    } finally {
+      MDC.remove("ceLogPath");
+    }
+
+    assertThat(mdcByRef).hasSize(DIRECTORIES * FILES_PER_DIRECTORY);
+    assertThat(mdcByRef.values()).containsOnly("task.log");
+  }
+
+  @Test
+  public void wrap_exception_of_visitor_in_VisitException() {
+    Component file = ReportComponent.builder(FILE, 3).build();
+    Component tree = ReportComponent.builder(PROJECT, 1).addChildren(file, ReportComponent.builder(FILE, 4).build()).build();
+    PathAwareVisitor<AtomicInteger> visitor = new ThreadSafeFileCountVisitor() {
+      @Override
+      public void visitFile(Component file, Path<AtomicInteger> path) {
+        throw new IllegalArgumentException("faulty visitor");
+      }
+    };
+
+    expectedException.expect(VisitException.class);
+    expectedException.expectMessage("Visit failed for Component {key=key_3,type=FILE}");
+
+    new ParallelPathAwareCrawler<>(visitor, pool).visit(tree);
+  }
+
+  private static Component tree() {
+    List<Component> directories = new ArrayList<>();
+    int ref = 3;
+    for (int d = 0; d < DIRECTORIES; d++) {
+      int dirRef = ref++;
+      List<Component> files = new ArrayList<>();
+      for (int f = 0; f < FILES_PER_DIRECTORY; f++) {
+        files.add(ReportComponent.builder(FILE, 1000 + dirRef * FILES_PER_DIRECTORY + f).build());
+      }
+      directories.add(ReportComponent.builder(DIRECTORY, dirRef).addChildren(files.toArray(new Component[0])).build());
+    }
+    Component module = ReportComponent.builder(MODULE, 2).addChildren(directories.toArray(new Component[0])).build();
+    return ReportComponent.builder(PROJECT, 1).addChildren(module).build();
+  }
+
+  private static class FileCountVisitor extends PathAwareVisitorAdapter<AtomicInteger> {
+    final Map<Integer, Integer> fileCountByRef = new ConcurrentHashMap<>();
+    final List<Thread> threads = new ArrayList<>();
+
+    FileCountVisitor() {
+      super(CrawlerDepthLimit.LEAVES, POST_ORDER, new SimpleStackElementFactory<AtomicInteger>() {
+        @Override
+        public AtomicInteger createForAny(Component component) {
+          return new AtomicInteger();
+        }
+      });
+    }
+
+    @Override
+    public void visitFile(Component file, Path<AtomicInteger> path) {
+      recordThread();
+      path.parent().incrementAndGet();
+    }
+
+    @Override
+    public void visitAny(Component component, Path<AtomicInteger> path) {
+      if (component.getType() != FILE) {
+        int count = path.current().get();
+        fileCountByRef.put(component.getReportAttributes().getRef(), count);
+        if (!path.isRoot()) {
+          path.parent().addAndGet(count);
+        }
+      }
+    }
+
+    void recordThread() {
+      synchronized (threads) {
+        if (!threads.contains(Thread.currentThread())) {
+          threads.add(Thread.currentThread());
+        }
+      }
+    }
+  }
+
+  private static class ThreadSafeFileCountVisitor extends FileCountVisitor implements ThreadSafeVisitor {
+  }
+}
@@ -28,6 +28,8 @@ import org.sonar.api.utils.MessageException;
 
 import static java.lang.Math.abs;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_LARGE_REPORT_SIZE_PROPERTY;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_REPORT_SIZE_BUDGET_PROPERTY;
 import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_WORKERS_COUNT_PROPERTY;
 
 public class CeConfigurationImplTest {
@@ -102,6 +104,45 @@ public class CeConfigurationImplTest {
     new CeConfigurationImpl(settings);
   }
 
+  @Test
+  public void report_sizes_have_default_values_when_properties_are_not_defined() {
+    CeConfigurationImpl underTest = new CeConfigurationImpl(settings);
+
+    assertThat(underTest.getReportSizeBudget()).isEqualTo(0L);
+    assertThat(underTest.getLargeReportSize()).isEqualTo(10L * 1024 * 1024);
+  }
+
+  @Test
+  public void report_sizes_are_read_in_megabytes() {
+    settings.setProperty(CE_REPORT_SIZE_BUDGET_PROPERTY, 200);
+    settings.setProperty(CE_LARGE_REPORT_SIZE_PROPERTY, 0);
+
+    CeConfigurationImpl underTest = new CeConfigurationImpl(settings);
+
+    assertThat(underTest.getReportSizeBudget()).isEqualTo(200L * 1024 * 1024);
+    assertThat(underTest.getLargeReportSize()).isEqualTo(0L);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_report_size_budget_is_negative() {
+    settings.setProperty(CE_REPORT_SIZE_BUDGET_PROPERTY, "-1");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value '-1' of property " + CE_REPORT_SIZE_BUDGET_PROPERTY + " is invalid. It must be a positive integer.");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_large_report_size_is_not_an_integer() {
+    settings.setProperty(CE_LARGE_REPORT_SIZE_PROPERTY, "foo");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value 'foo' of property " + CE_LARGE_REPORT_SIZE_PROPERTY + " is invalid. It must be a positive integer.");
+
+    new CeConfigurationImpl(settings);
+  }
+
   private void expectMessageException(int value) {
     expectedException.expect(MessageException.class);
     expectedException.expectMessage("value '" + value + "' of property " + CE_WORKERS_COUNT_PROPERTY + " is invalid. " +
@@ -29,6 +29,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 public class CeConfigurationRule extends ExternalResource implements CeConfiguration {
   private int workerCount = CeConfigurationImpl.DEFAULT_WORKER_COUNT;
   private long queuePollingDelay = CeConfigurationImpl.DEFAULT_QUEUE_POLLING_DELAY;
+  private long reportSizeBudget = CeConfigurationImpl.DEFAULT_REPORT_SIZE_BUDGET;
+  private long largeReportSize = CeConfigurationImpl.DEFAULT_LARGE_REPORT_SIZE;
 
   @Override
   public int getWorkerCount() {
@@ -50,4 +52,26 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     checkArgument(queuePollingDelay > 0, "Queue polling delay must be >= 0");
     this.queuePollingDelay = queuePollingDelay;
   }
+
+  @Override
+  public long getReportSizeBudget() {
+    return reportSizeBudget;
+  }
+
+  public CeConfigurationRule setReportSizeBudget(long reportSizeBudget) {
+    checkArgument(reportSizeBudget >= 0, "report size budget must be >= 0");
+    this.reportSizeBudget = reportSizeBudget;
+    return this;
+  }
+
+  @Override
+  public long getLargeReportSize() {
+    return largeReportSize;
+  }
+
+  public CeConfigurationRule setLargeReportSize(long largeReportSize) {
+    checkArgument(largeReportSize >= 0, "large report size must be >= 0");
+    this.largeReportSize = largeReportSize;
+    return this;
+  }
 }
@@ -45,7 +45,7 @@ public class IndexPurgeListenerTest {
   public void test_onIssuesRemoval() {
     underTest.onIssuesRemoval("P1", asList("ISSUE1", "ISSUE2"));
 
-    verify(issueIndexer).deleteByKeys("P1", asList("ISSUE1", "ISSUE2"));
+    verify(issueIndexer).deleteByKeys("P1", asList("ISSUE1", "ISSUE2"), false);
   }
 
 }
@@ -20,9 +20,14 @@
 package org.sonar.server.computation.filemove;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -47,7 +52,9 @@ import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.sonar.api.resources.Qualifiers.FILE;
@@ -218,6 +225,7 @@ public class FileMoveDetectionStepTest {
   private FileSourceDao fileSourceDao = mock(FileSourceDao.class);
   private FileSimilarity fileSimilarity = new FileSimilarityImpl(new SourceSimilarityImpl());
   private long dbIdGenerator = 0;
+  private Map<String, FileSourceDto> fileSourcesInDbByUuid = new HashMap<>();
 
   private FileMoveDetectionStep underTest = new FileMoveDetectionStep(analysisMetadataHolder, treeRootHolder, dbClient,
     sourceLinesRepository, fileSimilarity, movedFilesRepository);
@@ -227,6 +235,18 @@ public class FileMoveDetectionStepTest {
     when(dbClient.openSession(false)).thenReturn(dbSession);
     when(dbClient.componentDao()).thenReturn(componentDao);
     when(dbClient.fileSourceDao()).thenReturn(fileSourceDao);
+    doAnswer(invocation -> {
+      Collection<String> fileUuids = (Collection<String>) invocation.getArguments()[1];
+      ResultHandler handler = (ResultHandler) invocation.getArguments()[2];
+      fileUuids.stream()
+        .filter(fileSourcesInDbByUuid::containsKey)
+        .forEach(fileUuid -> {
+          ResultContext context = mock(ResultContext.class);
+          when(context.getResultObject()).thenReturn(fileSourcesInDbByUuid.get(fileUuid));
+          handler.handleResult(context);
+        });
+      return null;
+    }).when(fileSourceDao).selectLineHashesByFileUuids(eq(dbSession), anyCollectionOf(String.class), any(ResultHandler.class));
   }
 
   @Test
@@ -420,6 +440,38 @@ public class FileMoveDetectionStepTest {
     assertThat(originalFile5.getUuid()).isEqualTo(dtos[3].uuid());
   }
 
+  @Test
+  public void execute_detects_moves_among_many_added_and_removed_files() {
+    analysisMetadataHolder.setBaseProjectSnapshot(SNAPSHOT);
+    int filesCount = 150;
+    String[] dbFileKeys = new String[filesCount];
+    Component[] reportFiles = new Component[filesCount];
+    for (int i = 0; i < filesCount; i++) {
+      Component dbFile = fileComponent(1000 + i);
+      dbFileKeys[i] = dbFile.getKey();
+      mockContentOfFileIdDb(dbFile.getKey(), contentOf(i));
+      reportFiles[i] = fileComponent(2000 + i);
+      setFileContentInReport(2000 + i, contentOf(i));
+    }
+    ComponentDtoWithSnapshotId[] dtos = mockComponentsForSnapshot(dbFileKeys);
+    setFilesInReport(reportFiles);
+
+    underTest.execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).containsOnly(reportFiles);
+    for (int i = 0; i < filesCount; i++) {
+      assertThat(movedFilesRepository.getOriginalFile(reportFiles[i]).get().getUuid()).isEqualTo(dtos[i].uuid());
+    }
+  }
+
+  private static String[] contentOf(int fileIndex) {
+    String[] content = new String[20];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = "line " + i + " of file " + fileIndex;
+    }
+    return content;
+  }
+
   private void setFileContentInReport(int ref, String[] content) {
     sourceLinesRepository.addLines(ref, content);
   }
@@ -434,10 +486,10 @@ public class FileMoveDetectionStepTest {
       sourceHashComputer.addLine(line, lineIterator.hasNext());
     }
 
-    when(fileSourceDao.selectSourceByFileUuid(dbSession, componentUuidOf(key)))
-      .thenReturn(new FileSourceDto()
-        .setLineHashes(on('\n').join(linesHashesComputer.getLineHashes()))
-        .setSrcHash(sourceHashComputer.getHash()));
+    fileSourcesInDbByUuid.put(componentUuidOf(key), new FileSourceDto()
+      .setFileUuid(componentUuidOf(key))
+      .setLineHashes(on('\n').join(linesHashesComputer.getLineHashes()))
+      .setSrcHash(sourceHashComputer.getHash()));
   }
 
   private void setFilesInReport(Component... files) {
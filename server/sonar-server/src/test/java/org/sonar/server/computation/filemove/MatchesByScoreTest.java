@@ -20,17 +20,15 @@
 package org.sonar.server.computation.filemove;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import org.junit.Test;
 
-import static com.google.common.collect.ImmutableSet.of;
+import static com.google.common.collect.ImmutableList.of;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.filemove.ScoreMatrix.pair;
 import static org.sonar.server.computation.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
 
 public class MatchesByScoreTest {
@@ -39,30 +37,30 @@ public class MatchesByScoreTest {
 
   @Test
   public void creates_returns_always_the_same_instance_of_maxScore_is_less_than_min_required_score() {
-    Set<String> doesNotMatterDbFileKeys = Collections.emptySet();
-    Map<String, FileSimilarity.File> doesNotMatterReportFiles = Collections.emptyMap();
-    int[][] doesNotMatterScores = new int[0][0];
+    List<String> doesNotMatterDbFileKeys = Collections.emptyList();
+    List<String> doesNotMatterReportFileKeys = Collections.emptyList();
+    long[] doesNotMatterPairs = new long[0];
+    int[] doesNotMatterScores = new int[0];
 
-    ScoreMatrix scoreMatrix1 = new ScoreMatrix(doesNotMatterDbFileKeys, doesNotMatterReportFiles, doesNotMatterScores, MIN_REQUIRED_SCORE - 1);
+    ScoreMatrix scoreMatrix1 = new ScoreMatrix(doesNotMatterDbFileKeys, doesNotMatterReportFileKeys, doesNotMatterPairs, doesNotMatterScores,
+      MIN_REQUIRED_SCORE - 1);
     MatchesByScore matchesByScore = MatchesByScore.create(scoreMatrix1);
 
     assertThat(matchesByScore.getSize()).isEqualTo(0);
     assertThat(matchesByScore).isEmpty();
 
-    ScoreMatrix scoreMatrix2 = new ScoreMatrix(doesNotMatterDbFileKeys, doesNotMatterReportFiles, doesNotMatterScores, MIN_REQUIRED_SCORE - 5);
+    ScoreMatrix scoreMatrix2 = new ScoreMatrix(doesNotMatterDbFileKeys, doesNotMatterReportFileKeys, doesNotMatterPairs, doesNotMatterScores,
+      MIN_REQUIRED_SCORE - 5);
     assertThat(MatchesByScore.create(scoreMatrix2)).isSameAs(matchesByScore);
   }
 
   @Test
   public void creates_supports_score_with_same_value_as_min_required_score() {
     int maxScore = 92;
-    int[][] scores = {
-      {maxScore},
-      {8},
-      {85},
-    };
+    long[] pairs = {pair(0, 0), pair(1, 0), pair(2, 0)};
+    int[] scores = {maxScore, 8, 85};
     MatchesByScore matchesByScore = MatchesByScore.create(new ScoreMatrix(
-      of("A", "B", "C"), ImmutableMap.of("1", fileOf("1")), scores, maxScore));
+      of("A", "B", "C"), of("1"), pairs, scores, maxScore));
 
     assertThat(matchesByScore.getSize()).isEqualTo(2);
     assertThat(Lists.newArrayList(matchesByScore)).isEqualTo(Arrays.asList(
@@ -77,7 +75,14 @@ public class MatchesByScoreTest {
     ));
   }
 
-  private static FileSimilarity.File fileOf(String key) {
-    return new FileSimilarity.File("path of " + key, null, null);
+  @Test
+  public void creates_ignores_pairs_which_have_not_been_scored() {
+    long[] pairs = {pair(1, 1)};
+    int[] scores = {90};
+    MatchesByScore matchesByScore = MatchesByScore.create(new ScoreMatrix(
+      of("A", "B"), of("1", "2"), pairs, scores, 90));
+
+    assertThat(matchesByScore.getSize()).isEqualTo(1);
+    assertThat(Lists.newArrayList(matchesByScore).get(90 - MIN_REQUIRED_SCORE)).containsExactly(new Match("B", "2"));
   }
 }
@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.filemove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.server.computation.filemove.FileSimilarity.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.filemove.ScoreMatrix.pair;
+
+public class MinHashIndexTest {
+
+  @Test
+  public void signature_does_not_depend_on_order_nor_duplicates_of_lines() {
+    assertThat(MinHashIndex.signature(Arrays.asList("a", "b", "c")))
+      .isEqualTo(MinHashIndex.signature(Arrays.asList("c", "a", "b", "a")));
+  }
+
+  @Test
+  public void candidate_pairs_contains_files_with_similar_content() {
+    List<String> content1 = lines("foo", 100);
+    List<String> content2 = lines("bar", 100);
+    List<String> content2Modified = new ArrayList<>(content2);
+    content2Modified.set(50, "modified line");
+
+    MinHashIndex index = MinHashIndex.create(Arrays.asList(file(content1), file(content2)));
+
+    assertThat(index.candidatePairs(Arrays.asList(file(content2Modified), file(lines("other", 100)), file(content1))))
+      .containsExactly(pair(0, 2), pair(1, 0));
+  }
+
+  @Test
+  public void candidate_pairs_ignores_files_without_line_hashes() {
+    MinHashIndex index = MinHashIndex.create(Arrays.asList(file(null), file(lines("foo", 10))));
+
+    assertThat(index.candidatePairs(Arrays.asList(file(lines("foo", 10)), file(null)))).containsExactly(pair(1, 0));
+  }
+
+  private static List<String> lines(String prefix, int count) {
+    List<String> res = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      res.add(prefix + i);
+    }
+    return res;
+  }
+
+  private static File file(List<String> lineHashes) {
+    return new File("path", null, lineHashes);
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.indexing;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.search.SearchHit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.test.db.TestTesting;
+import org.sonar.server.test.index.TestDoc;
+import org.sonar.server.test.index.TestIndexDefinition;
+import org.sonar.server.test.index.TestIndexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.db.es.EsQueueDto.DOC_TYPE_ISSUES;
+import static org.sonar.db.es.EsQueueDto.DOC_TYPE_TESTS;
+
+public class IndexingQueueImplTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  @Rule
+  public EsTester esTester = new EsTester(new TestIndexDefinition(new Settings()));
+
+  DbClient dbClient = dbTester.getDbClient();
+  DbSession dbSession = dbTester.getSession();
+  IssueIndexer issueIndexer = mock(IssueIndexer.class);
+  TestIndexer testIndexer = mock(TestIndexer.class);
+  IndexingQueueExecutorService executorService = mock(IndexingQueueExecutorService.class);
+  System2 system2 = mock(System2.class);
+
+  IndexingQueueImpl underTest = new IndexingQueueImpl(dbClient, issueIndexer, testIndexer, executorService, system2);
+
+  @Test
+  public void start_schedules_periodic_drain() {
+    underTest.start();
+
+    verify(executorService).scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(IndexingQueueImpl.DRAIN_DELAY_MS), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void enqueue_persists_request_and_requests_a_single_drain() {
+    enableIndexers();
+
+    underTest.enqueue(DOC_TYPE_ISSUES, "P1");
+    underTest.enqueue(DOC_TYPE_ISSUES, "P2");
+
+    assertThat(dbClient.esQueueDao().countAll(dbSession)).isEqualTo(2);
+    ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+    verify(executorService).execute(drain.capture());
+
+    drain.getValue().run();
+
+    verify(issueIndexer).index("P1");
+    verify(issueIndexer).index("P2");
+    assertThat(dbClient.esQueueDao().countAll(dbSession)).isEqualTo(0);
+
+    underTest.enqueue(DOC_TYPE_TESTS, "P1");
+    verify(executorService, times(2)).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void drain_coalesces_requests_of_same_project() {
+    enableIndexers();
+    insert(DOC_TYPE_ISSUES, "P1");
+    insert(DOC_TYPE_TESTS, "P1");
+    insert(DOC_TYPE_ISSUES, "P1");
+    insert(DOC_TYPE_ISSUES, "P2");
+
+    underTest.drain();
+
+    verify(issueIndexer).index("P1");
+    verify(issueIndexer).index("P2");
+    verify(testIndexer).index("P1");
+    assertThat(dbClient.esQueueDao().countAll(dbSession)).isEqualTo(0);
+  }
+
+  @Test
+  public void drain_keeps_requests_when_indexer_is_disabled() {
+    when(issueIndexer.isEnabled()).thenReturn(true);
+    insert(DOC_TYPE_ISSUES, "P1");
+    insert(DOC_TYPE_TESTS, "P1");
+
+    underTest.drain();
+
+    verify(issueIndexer).index("P1");
+    verify(testIndexer, never()).index(anyString());
+    assertThat(dbClient.esQueueDao().selectOldest(dbSession, 10)).extracting("docType").containsExactly(DOC_TYPE_TESTS);
+  }
+
+  @Test
+  public void drain_keeps_requests_when_indexing_fails() {
+    enableIndexers();
+    doThrow(new IllegalStateException("ES is down")).when(issueIndexer).index("P1");
+    insert(DOC_TYPE_ISSUES, "P1");
+    insert(DOC_TYPE_ISSUES, "P2");
+
+    underTest.drain();
+
+    verify(issueIndexer).index("P2");
+    assertThat(dbClient.esQueueDao().selectOldest(dbSession, 10)).extracting("projectUuid").containsExactly("P1");
+  }
+
+  @Test
+  public void drain_replays_failed_requests_by_indexing_whole_project() {
+    enableIndexers();
+    doThrow(new IllegalStateException("ES is down")).when(issueIndexer).index("P1");
+    insert(DOC_TYPE_ISSUES, "P1");
+    underTest.drain();
+
+    underTest.drain();
+
+    verify(issueIndexer).index("P1");
+    verify(issueIndexer).indexProject("P1");
+    assertThat(dbClient.esQueueDao().countAll(dbSession)).isEqualTo(0);
+
+    // next requests of the project are not replays
+    insert(DOC_TYPE_ISSUES, "P1");
+    doNothing().when(issueIndexer).index("P1");
+    underTest.drain();
+    verify(issueIndexer, times(2)).index("P1");
+    verify(issueIndexer).indexProject("P1");
+  }
+
+  @Test
+  public void drain_replays_requests_of_previous_run_by_indexing_whole_project() {
+    enableIndexers();
+    insert(DOC_TYPE_ISSUES, "P1");
+    insert(DOC_TYPE_TESTS, "P1");
+    when(system2.now()).thenReturn(Long.MAX_VALUE);
+    underTest.start();
+
+    underTest.drain();
+
+    verify(issueIndexer).indexProject("P1");
+    verify(testIndexer).indexProject("P1");
+    verify(issueIndexer, never()).index(anyString());
+    verify(testIndexer, never()).index(anyString());
+  }
+
+  @Test
+  public void replayed_request_is_indexed_even_if_other_project_has_been_indexed_since_failure() throws Exception {
+    dbTester.prepareDbUnit(getClass(), "index_source.xml");
+    TestTesting.updateDataColumn(dbSession, "FILE1_UUID", TestTesting.newRandomTests(1));
+    TestTesting.updateDataColumn(dbSession, "FILE2_UUID", TestTesting.newRandomTests(1));
+    dbTester.executeUpdateSql("update file_sources set updated_at=1000 where file_uuid=?", "FILE1_UUID");
+    dbTester.executeUpdateSql("update file_sources set updated_at=2000 where file_uuid=?", "FILE2_UUID");
+    TestIndexer realTestIndexer = spy(new TestIndexer(dbClient, esTester.client()));
+    realTestIndexer.setEnabled(true);
+    doThrow(new IllegalStateException("ES is down")).doCallRealMethod().when(realTestIndexer).index("ABCD");
+    underTest = new IndexingQueueImpl(dbClient, issueIndexer, realTestIndexer, executorService, system2);
+    insert(DOC_TYPE_TESTS, "ABCD");
+    insert(DOC_TYPE_TESTS, "DCBA");
+
+    // indexing of ABCD fails, then DCBA, which is more recent, is indexed
+    underTest.drain();
+    assertThat(esTester.getDocuments(TestIndexDefinition.INDEX, TestIndexDefinition.TYPE)).hasSize(1);
+
+    underTest.drain();
+
+    List<SearchHit> docs = esTester.getDocuments(TestIndexDefinition.INDEX, TestIndexDefinition.TYPE);
+    assertThat(docs).extracting(doc -> new TestDoc(doc.sourceAsMap()).projectUuid()).containsOnly("ABCD", "DCBA");
+    assertThat(dbClient.esQueueDao().countAll(dbSession)).isEqualTo(0);
+  }
+
+  @Test
+  public void drain_drops_unsupported_requests() {
+    enableIndexers();
+    insert("unknown", "P1");
+
+    underTest.drain();
+
+    assertThat(dbClient.esQueueDao().countAll(dbSession)).isEqualTo(0);
+  }
+
+  @Test
+  public void drain_replays_all_batches() {
+    enableIndexers();
+    for (int i = 0; i < IndexingQueueImpl.BATCH_SIZE + 10; i++) {
+      dbClient.esQueueDao().insert(dbSession, DOC_TYPE_ISSUES, "P" + i);
+    }
+    dbSession.commit();
+
+    underTest.drain();
+
+    verify(issueIndexer, times(IndexingQueueImpl.BATCH_SIZE + 10)).index(anyString());
+    assertThat(dbClient.esQueueDao().countAll(dbSession)).isEqualTo(0);
+  }
+
+  @Test
+  public void index_tests() throws Exception {
+    dbTester.prepareDbUnit(getClass(), "index_source.xml");
+    TestTesting.updateDataColumn(dbSession, "FILE1_UUID", TestTesting.newRandomTests(1));
+    TestIndexer realTestIndexer = new TestIndexer(dbClient, esTester.client());
+    realTestIndexer.setEnabled(true);
+    underTest = new IndexingQueueImpl(dbClient, issueIndexer, realTestIndexer, executorService, system2);
+    insert(DOC_TYPE_TESTS, "ABCD");
+
+    underTest.drain();
+
+    List<SearchHit> docs = esTester.getDocuments(TestIndexDefinition.INDEX, TestIndexDefinition.TYPE);
+    assertThat(docs).hasSize(1);
+    TestDoc doc = new TestDoc(docs.get(0).sourceAsMap());
+    assertThat(doc.projectUuid()).isEqualTo("ABCD");
+    assertThat(doc.fileUuid()).isEqualTo("FILE1_UUID");
+    assertThat(doc.coveredFiles()).isNotEmpty();
+    assertThat(dbClient.esQueueDao().countAll(dbSession)).isEqualTo(0);
+  }
+
+  private void enableIndexers() {
+    when(issueIndexer.isEnabled()).thenReturn(true);
+    when(testIndexer.isEnabled()).thenReturn(true);
+  }
+
+  private void insert(String docType, String projectUuid) {
+    dbClient.esQueueDao().insert(dbSession, docType, projectUuid);
+    dbSession.commit();
+  }
+}
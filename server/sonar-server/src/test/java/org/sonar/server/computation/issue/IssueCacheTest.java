@@ -0,0 +1,270 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.issue;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Date;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.junit.Assert.fail;
+import static org.sonar.api.issue.Issue.RESOLUTION_FIXED;
+import static org.sonar.api.issue.Issue.STATUS_CLOSED;
+import static org.sonar.api.issue.Issue.STATUS_OPEN;
+
+public class IssueCacheTest {
+
+  private static final Date DATE_1 = new Date(1_450_000_000_000L);
+  private static final Date DATE_2 = new Date(1_460_000_000_000L);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void write_and_read() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+    try (CloseableIterator<DefaultIssue> traverse = underTest.traverse()) {
+      assertThat(traverse).isEmpty();
+    }
+
+    underTest.newAppender()
+      .append(new DefaultIssue().setKey("ISSUE_1").setStatus(STATUS_OPEN))
+      .append(new DefaultIssue().setKey("ISSUE_2").setStatus(STATUS_OPEN))
+      .close();
+    underTest.newAppender()
+      .append(new DefaultIssue().setKey("ISSUE_3").setStatus(STATUS_OPEN))
+      .close();
+
+    assertThat(keys(underTest.traverse())).containsExactly("ISSUE_1", "ISSUE_2", "ISSUE_3");
+    // the cache can be traversed several times
+    assertThat(keys(underTest.traverse())).containsExactly("ISSUE_1", "ISSUE_2", "ISSUE_3");
+  }
+
+  @Test
+  public void restore_all_fields() throws Exception {
+    DbIssues.Locations locations = DbIssues.Locations.newBuilder()
+      .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(10).setEndLine(12).build())
+      .build();
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE_1")
+      .setType(RuleType.BUG)
+      .setRuleKey(RuleKey.of("java", "S001"))
+      .setComponentUuid("FILE_UUID")
+      .setComponentKey("FILE_KEY")
+      .setModuleUuid("MODULE_UUID")
+      .setModuleUuidPath(".MODULE_UUID.")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("PROJECT_KEY")
+      .setLanguage("java")
+      .setSeverity(Severity.CRITICAL)
+      .setManualSeverity(true)
+      .setMessage("the message")
+      .setLine(42)
+      .setGap(3.5)
+      .setEffort(Duration.create(120L))
+      .setStatus(STATUS_CLOSED)
+      .setResolution(RESOLUTION_FIXED)
+      .setAssignee("henry")
+      .setAuthorLogin("john")
+      .setChecksum("c7b5db46591806455cf082bb348631e8")
+      .setAttributes(ImmutableMap.of("jira", "SONAR-1"))
+      .setTags(asList("bug", "security"))
+      .setLocations(locations)
+      .setCreationDate(DATE_1)
+      .setUpdateDate(DATE_2)
+      .setCloseDate(DATE_2)
+      .setSelectedAt(1_440_000_000_000L)
+      .setNew(false)
+      .setChanged(true)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setSendNotifications(true);
+
+    DefaultIssue restored = writeAndRead(issue);
+
+    assertThat(restored.key()).isEqualTo("ISSUE_1");
+    assertThat(restored.type()).isEqualTo(RuleType.BUG);
+    assertThat(restored.ruleKey()).isEqualTo(RuleKey.of("java", "S001"));
+    assertThat(restored.componentUuid()).isEqualTo("FILE_UUID");
+    assertThat(restored.componentKey()).isEqualTo("FILE_KEY");
+    assertThat(restored.moduleUuid()).isEqualTo("MODULE_UUID");
+    assertThat(restored.moduleUuidPath()).isEqualTo(".MODULE_UUID.");
+    assertThat(restored.projectUuid()).isEqualTo("PROJECT_UUID");
+    assertThat(restored.projectKey()).isEqualTo("PROJECT_KEY");
+    assertThat(restored.language()).isEqualTo("java");
+    assertThat(restored.severity()).isEqualTo(Severity.CRITICAL);
+    assertThat(restored.manualSeverity()).isTrue();
+    assertThat(restored.message()).isEqualTo("the message");
+    assertThat(restored.line()).isEqualTo(42);
+    assertThat(restored.gap()).isEqualTo(3.5);
+    assertThat(restored.effort()).isEqualTo(Duration.create(120L));
+    assertThat(restored.status()).isEqualTo(STATUS_CLOSED);
+    assertThat(restored.resolution()).isEqualTo(RESOLUTION_FIXED);
+    assertThat(restored.assignee()).isEqualTo("henry");
+    assertThat(restored.authorLogin()).isEqualTo("john");
+    assertThat(restored.checksum()).isEqualTo("c7b5db46591806455cf082bb348631e8");
+    assertThat(restored.attributes()).containsOnly(entry("jira", "SONAR-1"));
+    assertThat(restored.tags()).containsExactly("bug", "security");
+    assertThat((DbIssues.Locations) restored.getLocations()).isEqualTo(locations);
+    assertThat(restored.creationDate()).isEqualTo(DATE_1);
+    assertThat(restored.updateDate()).isEqualTo(DATE_2);
+    assertThat(restored.closeDate()).isEqualTo(DATE_2);
+    assertThat(restored.selectedAt()).isEqualTo(1_440_000_000_000L);
+    assertThat(restored.isNew()).isFalse();
+    assertThat(restored.isChanged()).isTrue();
+    assertThat(restored.isBeingClosed()).isTrue();
+    assertThat(restored.isOnDisabledRule()).isTrue();
+    assertThat(restored.mustSendNotifications()).isTrue();
+  }
+
+  @Test
+  public void restore_null_fields() throws Exception {
+    DefaultIssue restored = writeAndRead(new DefaultIssue().setKey("ISSUE_1"));
+
+    assertThat(restored.key()).isEqualTo("ISSUE_1");
+    assertThat(restored.type()).isNull();
+    assertThat(restored.ruleKey()).isNull();
+    assertThat(restored.componentUuid()).isNull();
+    assertThat(restored.severity()).isNull();
+    assertThat(restored.message()).isNull();
+    assertThat(restored.line()).isNull();
+    assertThat(restored.gap()).isNull();
+    assertThat(restored.effort()).isNull();
+    assertThat(restored.status()).isNull();
+    assertThat(restored.assignee()).isNull();
+    assertThat(restored.attributes()).isEmpty();
+    assertThat(restored.tags()).isEmpty();
+    assertThat((Object) restored.getLocations()).isNull();
+    assertThat(restored.creationDate()).isNull();
+    assertThat(restored.selectedAt()).isNull();
+    assertThat(restored.changes()).isEmpty();
+    assertThat(restored.currentChange()).isNull();
+    assertThat(restored.comments()).isEmpty();
+    assertThat(restored.isNew()).isTrue();
+  }
+
+  @Test
+  public void restore_changes_and_comments() throws Exception {
+    FieldDiffs pastChange = new FieldDiffs().setUserLogin("john").setCreationDate(DATE_1).setDiff("severity", "MINOR", "MAJOR");
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE_1")
+      .setStatus(STATUS_OPEN)
+      .setChanges(newArrayList(pastChange))
+      .setFieldChange(IssueChangeContext.createScan(DATE_2), "status", "REOPENED", STATUS_OPEN)
+      .addComment(DefaultIssueComment.create("ISSUE_1", "john", "a comment").setNew(true));
+
+    DefaultIssue restored = writeAndRead(issue);
+
+    assertThat(restored.changes()).hasSize(2);
+    assertThat(restored.changes().get(0).toString()).isEqualTo(pastChange.toString());
+    assertThat(restored.currentChange()).isSameAs(restored.changes().get(1));
+    assertThat(restored.currentChange().get("status").newValue()).isEqualTo(STATUS_OPEN);
+    assertThat(restored.comments()).hasSize(1);
+    DefaultIssueComment comment = (DefaultIssueComment) restored.comments().get(0);
+    assertThat(comment.markdownText()).isEqualTo("a comment");
+    assertThat(comment.isNew()).isTrue();
+  }
+
+  @Test
+  public void traverse_compact_issues_without_materializing_them() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+    underTest.newAppender()
+      .append(new DefaultIssue().setKey("ISSUE_1").setRuleKey(RuleKey.of("java", "S001")).setComponentUuid("FILE_UUID")
+        .setStatus(STATUS_OPEN).setSeverity(Severity.MAJOR).setAssignee("henry").setCreationDate(DATE_1).setNew(true))
+      .append(new DefaultIssue().setKey("ISSUE_2").setRuleKey(RuleKey.of("java", "S001")).setComponentUuid("FILE_UUID")
+        .setStatus(STATUS_CLOSED).setResolution(RESOLUTION_FIXED).setNew(false).setChanged(true).setSendNotifications(true))
+      .close();
+
+    try (CloseableIterator<CompactIssue> traverse = underTest.traverseCompact()) {
+      CompactIssue first = traverse.next();
+      assertThat(first.isNew()).isTrue();
+      assertThat(first.isChanged()).isFalse();
+      assertThat(first.ruleKey()).isEqualTo(RuleKey.of("java", "S001"));
+      assertThat(first.componentUuid()).isEqualTo("FILE_UUID");
+      assertThat(first.status()).isEqualTo(STATUS_OPEN);
+      assertThat(first.resolution()).isNull();
+      assertThat(first.severity()).isEqualTo(Severity.MAJOR);
+      assertThat(first.assignee()).isEqualTo("henry");
+      assertThat(first.creationDate()).isEqualTo(DATE_1);
+
+      CompactIssue second = traverse.next();
+      assertThat(second.isNew()).isFalse();
+      assertThat(second.isChanged()).isTrue();
+      assertThat(second.mustSendNotifications()).isTrue();
+      assertThat(second.resolution()).isEqualTo(RESOLUTION_FIXED);
+      assertThat(second.creationDate()).isNull();
+      // values shared by issues are stored once
+      assertThat(second.componentUuid()).isSameAs(first.componentUuid());
+      assertThat(second.toDefaultIssue().ruleKey().rule()).isSameAs(first.toDefaultIssue().ruleKey().rule());
+
+      assertThat(traverse.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void fail_if_file_is_not_writable() throws Exception {
+    try {
+      new IssueCache(temp.newFolder(), System2.INSTANCE);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageContaining("Fail to write into file");
+    }
+  }
+
+  private DefaultIssue writeAndRead(DefaultIssue issue) throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+    underTest.newAppender().append(issue).close();
+    try (CloseableIterator<DefaultIssue> traverse = underTest.traverse()) {
+      DefaultIssue restored = traverse.next();
+      assertThat(traverse.hasNext()).isFalse();
+      return restored;
+    }
+  }
+
+  private static List<String> keys(CloseableIterator<DefaultIssue> issues) {
+    List<String> keys = newArrayList();
+    try {
+      while (issues.hasNext()) {
+        keys.add(issues.next().key());
+      }
+    } finally {
+      issues.close();
+    }
+    return keys;
+  }
+}
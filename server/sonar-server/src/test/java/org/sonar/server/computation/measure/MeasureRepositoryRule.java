@@ -24,10 +24,10 @@ import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.SetMultimap;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -59,9 +59,9 @@ public class MeasureRepositoryRule extends ExternalResource implements MeasureRe
   private final ComponentProvider componentProvider;
   @CheckForNull
   private final MetricRepositoryRule metricRepositoryRule;
-  private final Map<InternalKey, Measure> baseMeasures = new HashMap<>();
-  private final Map<InternalKey, Measure> rawMeasures = new HashMap<>();
-  private final Map<InternalKey, Measure> initialRawMeasures = new HashMap<>();
+  private final Map<InternalKey, Measure> baseMeasures = new ConcurrentHashMap<>();
+  private final Map<InternalKey, Measure> rawMeasures = new ConcurrentHashMap<>();
+  private final Map<InternalKey, Measure> initialRawMeasures = new ConcurrentHashMap<>();
   private final Predicate<Map.Entry<InternalKey, Measure>> isAddedMeasure = new Predicate<Map.Entry<InternalKey, Measure>>() {
     @Override
     public boolean apply(@Nonnull Map.Entry<InternalKey, Measure> input) {
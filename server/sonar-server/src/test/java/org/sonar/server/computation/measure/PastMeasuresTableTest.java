@@ -0,0 +1,92 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.measure;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PastMeasuresTableTest {
+
+  PastMeasuresTable underTest = new PastMeasuresTable(asList("PROJECT", "DIR"), asList(1, 2, 3));
+
+  @Test
+  public void get_value_of_measure() {
+    underTest.put("PROJECT", 1, 10d);
+    underTest.put("DIR", 1, 20d);
+    underTest.put("DIR", 3, 0.5d);
+
+    assertThat(underTest.get("PROJECT", 1, 0d)).isEqualTo(10d);
+    assertThat(underTest.get("DIR", 1, 0d)).isEqualTo(20d);
+    assertThat(underTest.get("DIR", 3, 0d)).isEqualTo(0.5d);
+    assertThat(underTest.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void get_default_value_if_measure_is_missing() {
+    underTest.put("PROJECT", 1, 10d);
+
+    assertThat(underTest.get("PROJECT", 2, -1d)).isEqualTo(-1d);
+    assertThat(underTest.get("DIR", 1, -1d)).isEqualTo(-1d);
+    assertThat(underTest.get("UNKNOWN", 1, -1d)).isEqualTo(-1d);
+    assertThat(underTest.get("PROJECT", 999, -1d)).isEqualTo(-1d);
+  }
+
+  @Test
+  public void ignore_unknown_components_and_metrics() {
+    underTest.put("UNKNOWN", 1, 10d);
+    underTest.put("PROJECT", 999, 10d);
+
+    assertThat(underTest.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void override_value() {
+    underTest.put("PROJECT", 1, 10d);
+    underTest.put("PROJECT", 1, 20d);
+
+    assertThat(underTest.get("PROJECT", 1, 0d)).isEqualTo(20d);
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void store_many_measures() {
+    List<String> components = new ArrayList<>();
+    for (int i = 0; i < 2_000; i++) {
+      components.add("C" + i);
+    }
+    PastMeasuresTable table = new PastMeasuresTable(components, asList(1, 2, 3));
+    for (String component : components) {
+      for (int metricId = 1; metricId <= 3; metricId++) {
+        table.put(component, metricId, component.hashCode() + metricId);
+      }
+    }
+
+    assertThat(table.size()).isEqualTo(6_000);
+    for (String component : components) {
+      for (int metricId = 1; metricId <= 3; metricId++) {
+        assertThat(table.get(component, metricId, 0d)).isEqualTo((double) component.hashCode() + metricId);
+      }
+    }
+  }
+}
@@ -28,6 +28,7 @@ import org.junit.Test;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 import org.sonar.server.computation.configuration.CeConfiguration;
+import org.sonar.server.computation.queue.CeTaskAdmission;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -38,8 +39,12 @@ public class CeTasksMBeanImplTest {
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
   private static final int WORKER_COUNT = 56;
+  private static final long REPORT_SIZE_BUDGET = 1_000;
+  private static final long ADMITTED_REPORT_SIZE = 400;
+  private static final int LARGE_REPORT_COUNT = 1;
+  private static final long POSTPONED_COUNT = 3;
 
-  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration());
+  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration(), new DumbCeTaskAdmission());
 
   @Test
   public void register_and_unregister() throws Exception {
@@ -64,13 +69,21 @@ public class CeTasksMBeanImplTest {
   @Test
   public void getWorkerCount_delegates_to_the_CEConfiguration_instance() {
     assertThat(underTest.getWorkerCount()).isEqualTo(WORKER_COUNT);
+    assertThat(underTest.getReportSizeBudget()).isEqualTo(REPORT_SIZE_BUDGET);
+  }
+
+  @Test
+  public void scheduling_state_delegates_to_the_CeTaskAdmission_instance() {
+    assertThat(underTest.getAdmittedReportSize()).isEqualTo(ADMITTED_REPORT_SIZE);
+    assertThat(underTest.getLargeReportCount()).isEqualTo(LARGE_REPORT_COUNT);
+    assertThat(underTest.getPostponedCount()).isEqualTo(POSTPONED_COUNT);
   }
 
   @Test
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Tasks");
-    assertThat(section.getAttributesCount()).isEqualTo(6);
+    assertThat(section.getAttributesCount()).isEqualTo(10);
   }
 
   /**
@@ -134,6 +147,43 @@ public class CeTasksMBeanImplTest {
     public long getQueuePollingDelay() {
       throw new UnsupportedOperationException("getQueuePollingDelay is not implemented");
     }
+
+    @Override
+    public long getReportSizeBudget() {
+      return REPORT_SIZE_BUDGET;
+    }
+
+    @Override
+    public long getLargeReportSize() {
+      throw new UnsupportedOperationException("getLargeReportSize is not implemented");
+    }
+  }
+
+  private static class DumbCeTaskAdmission implements CeTaskAdmission {
+    @Override
+    public boolean tryAdmit(String taskUuid) {
+      throw new UnsupportedOperationException("tryAdmit is not implemented");
+    }
+
+    @Override
+    public void release(String taskUuid) {
+      throw new UnsupportedOperationException("release is not implemented");
+    }
+
+    @Override
+    public long getAdmittedReportSize() {
+      return ADMITTED_REPORT_SIZE;
+    }
+
+    @Override
+    public int getLargeReportCount() {
+      return LARGE_REPORT_COUNT;
+    }
+
+    @Override
+    public long getPostponedCount() {
+      return POSTPONED_COUNT;
+    }
   }
 
   @CheckForNull
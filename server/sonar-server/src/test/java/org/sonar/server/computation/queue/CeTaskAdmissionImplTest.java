@@ -0,0 +1,138 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.Settings;
+import org.sonar.ce.queue.report.ReportFiles;
+import org.sonar.process.ProcessProperties;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CeTaskAdmissionImplTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public CeConfigurationRule configuration = new CeConfigurationRule();
+
+  ReportFiles reportFiles;
+
+  @Before
+  public void setUp() throws IOException {
+    Settings settings = new Settings();
+    settings.setProperty(ProcessProperties.PATH_DATA, temp.newFolder().getAbsolutePath());
+    reportFiles = new ReportFiles(settings);
+  }
+
+  @Test
+  public void admit_tasks_until_budget_is_reached() throws Exception {
+    configuration.setWorkerCount(3).setReportSizeBudget(100L).setLargeReportSize(0L);
+    createReport("T1", 60L);
+    createReport("T2", 50L);
+    createReport("T3", 40L);
+    CeTaskAdmission underTest = new CeTaskAdmissionImpl(configuration, reportFiles);
+
+    assertThat(underTest.tryAdmit("T1")).isTrue();
+    assertThat(underTest.tryAdmit("T2")).isFalse();
+    // small report skips ahead of the one which does not fit
+    assertThat(underTest.tryAdmit("T3")).isTrue();
+    assertThat(underTest.getAdmittedReportSize()).isEqualTo(100L);
+    assertThat(underTest.getPostponedCount()).isEqualTo(1L);
+
+    underTest.release("T1");
+    assertThat(underTest.tryAdmit("T2")).isTrue();
+    assertThat(underTest.getAdmittedReportSize()).isEqualTo(90L);
+  }
+
+  @Test
+  public void always_admit_task_when_no_other_one_is_in_progress() throws Exception {
+    configuration.setWorkerCount(2).setReportSizeBudget(100L).setLargeReportSize(0L);
+    createReport("T1", 500L);
+    CeTaskAdmission underTest = new CeTaskAdmissionImpl(configuration, reportFiles);
+
+    assertThat(underTest.tryAdmit("T1")).isTrue();
+    assertThat(underTest.getAdmittedReportSize()).isEqualTo(500L);
+  }
+
+  @Test
+  public void keep_a_worker_for_small_reports() throws Exception {
+    configuration.setWorkerCount(3).setLargeReportSize(100L);
+    createReport("LARGE1", 150L);
+    createReport("LARGE2", 100L);
+    createReport("LARGE3", 200L);
+    createReport("SMALL", 99L);
+    CeTaskAdmission underTest = new CeTaskAdmissionImpl(configuration, reportFiles);
+
+    assertThat(underTest.tryAdmit("LARGE1")).isTrue();
+    assertThat(underTest.tryAdmit("LARGE2")).isTrue();
+    assertThat(underTest.tryAdmit("LARGE3")).isFalse();
+    assertThat(underTest.tryAdmit("SMALL")).isTrue();
+    assertThat(underTest.getLargeReportCount()).isEqualTo(2);
+
+    underTest.release("LARGE1");
+    assertThat(underTest.getLargeReportCount()).isEqualTo(1);
+    assertThat(underTest.tryAdmit("LARGE3")).isTrue();
+  }
+
+  @Test
+  public void single_worker_processes_large_reports() throws Exception {
+    configuration.setWorkerCount(1).setLargeReportSize(100L);
+    createReport("LARGE", 150L);
+    CeTaskAdmission underTest = new CeTaskAdmissionImpl(configuration, reportFiles);
+
+    assertThat(underTest.tryAdmit("LARGE")).isTrue();
+  }
+
+  @Test
+  public void tasks_without_report_cost_nothing() {
+    configuration.setWorkerCount(2).setReportSizeBudget(100L);
+    CeTaskAdmission underTest = new CeTaskAdmissionImpl(configuration, reportFiles);
+
+    assertThat(underTest.tryAdmit("T1")).isTrue();
+    assertThat(underTest.tryAdmit("T2")).isTrue();
+    assertThat(underTest.getAdmittedReportSize()).isEqualTo(0L);
+    assertThat(underTest.getLargeReportCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void release_ignores_tasks_which_are_not_admitted() {
+    CeTaskAdmission underTest = new CeTaskAdmissionImpl(configuration, reportFiles);
+
+    underTest.release("UNKNOWN");
+
+    assertThat(underTest.getAdmittedReportSize()).isEqualTo(0L);
+  }
+
+  private void createReport(String taskUuid, long size) throws IOException {
+    File file = reportFiles.fileForUuid(taskUuid);
+    file.getParentFile().mkdirs();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(size);
+    }
+  }
+}
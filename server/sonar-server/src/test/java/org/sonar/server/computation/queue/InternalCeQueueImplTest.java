@@ -22,6 +22,7 @@ package org.sonar.server.computation.queue;
 import com.google.common.base.Optional;
 import java.util.List;
 import javax.annotation.Nullable;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -29,6 +30,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.api.utils.internal.TestSystem2;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.ce.queue.CeQueueListener;
+import org.sonar.ce.queue.CeQueueSignal;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.ce.queue.CeTaskSubmit;
@@ -46,6 +48,7 @@ import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -67,7 +70,14 @@ public class InternalCeQueueImplTest {
   UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   CEQueueStatus queueStatus = new CEQueueStatusImpl(dbTester.getDbClient());
   CeQueueListener listener = mock(CeQueueListener.class);
-  InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, new CeQueueListener[] {listener});
+  CeQueueSignal signal = new CeQueueSignal();
+  CeTaskAdmission admission = mock(CeTaskAdmission.class);
+  InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, signal, queueStatus, admission, new CeQueueListener[] {listener});
+
+  @Before
+  public void setUp() {
+    when(admission.tryAdmit(anyString())).thenReturn(true);
+  }
 
   @Test
   public void submit_returns_task_populated_from_CeTaskSubmit_and_creates_CeQueue_row() {
@@ -207,6 +217,46 @@ public class InternalCeQueueImplTest {
     verify(listener, never()).onRemoved(eq(task), any(CeActivityDto.Status.class));
   }
 
+  @Test
+  public void peek_skips_tasks_which_are_not_admitted() throws Exception {
+    CeTask postponed = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_2");
+    when(admission.tryAdmit(postponed.getUuid())).thenReturn(false);
+
+    Optional<CeTask> peek = underTest.peek();
+    assertThat(peek.get().getUuid()).isEqualTo(task.getUuid());
+    assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(session, postponed.getUuid()).get().getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
+
+    // postponed task is not admitted yet
+    assertThat(underTest.peek().isPresent()).isFalse();
+  }
+
+  @Test
+  public void peek_does_not_skip_postponed_task_of_same_project() throws Exception {
+    CeTask postponed = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask next = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    when(admission.tryAdmit(postponed.getUuid())).thenReturn(false);
+
+    // reports of a project are processed in order of submission
+    assertThat(underTest.peek().isPresent()).isFalse();
+    verify(admission, never()).tryAdmit(next.getUuid());
+    assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(session, next.getUuid()).get().getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
+
+    when(admission.tryAdmit(postponed.getUuid())).thenReturn(true);
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(postponed.getUuid());
+  }
+
+  @Test
+  public void remove_releases_admitted_task() throws Exception {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    underTest.peek();
+    verify(admission).tryAdmit(task.getUuid());
+
+    underTest.remove(task, CeActivityDto.Status.SUCCESS, null);
+
+    verify(admission).release(task.getUuid());
+  }
+
   @Test
   public void peek_nothing_if_paused() throws Exception {
     submit(CeTaskTypes.REPORT, "PROJECT_1");
@@ -281,6 +331,18 @@ public class InternalCeQueueImplTest {
     assertThat(underTest.isPeekPaused()).isTrue();
     underTest.resumePeek();
     assertThat(underTest.isPeekPaused()).isFalse();
+    // idle workers are woken up
+    assertThat(signal.generation()).isEqualTo(1L);
+  }
+
+  @Test
+  public void remove_raises_signal() throws Exception {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    long generation = signal.generation();
+
+    underTest.remove(task, CeActivityDto.Status.SUCCESS, null);
+
+    assertThat(signal.generation()).isEqualTo(generation + 1);
   }
 
   private void verifyCeTask(CeTaskSubmit taskSubmit, CeTask task, @Nullable ComponentDto componentDto) {
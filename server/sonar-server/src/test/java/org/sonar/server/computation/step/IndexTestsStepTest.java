@@ -19,59 +19,34 @@
  */
 package org.sonar.server.computation.step;
 
-import java.util.List;
-import org.elasticsearch.search.SearchHit;
 import org.junit.Rule;
 import org.junit.Test;
-import org.sonar.api.config.Settings;
-import org.sonar.api.utils.System2;
-import org.sonar.db.DbClient;
-import org.sonar.db.DbTester;
 import org.sonar.server.computation.batch.TreeRootHolderRule;
 import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.ReportComponent;
-import org.sonar.server.es.EsTester;
-import org.sonar.server.test.db.TestTesting;
-import org.sonar.server.test.index.TestDoc;
-import org.sonar.server.test.index.TestIndexDefinition;
-import org.sonar.server.test.index.TestIndexer;
+import org.sonar.server.computation.indexing.IndexingQueue;
 
-import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.sonar.db.es.EsQueueDto.DOC_TYPE_TESTS;
 
 public class IndexTestsStepTest extends BaseStepTest {
 
   @Rule
-  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule()
+    .setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid("ABCD").setKey("PROJECT_KEY").build());
 
-  @Rule
-  public EsTester esTester = new EsTester(new TestIndexDefinition(new Settings()));
-
-  @Rule
-  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
-
-  DbClient dbClient = dbTester.getDbClient();
+  IndexingQueue indexingQueue = mock(IndexingQueue.class);
 
   @Override
   protected ComputationStep step() {
-    TestIndexer testIndexer = new TestIndexer(dbClient, esTester.client());
-    testIndexer.setEnabled(true);
-    return new IndexTestsStep(testIndexer, treeRootHolder);
+    return new IndexTestsStep(indexingQueue, treeRootHolder);
   }
 
   @Test
-  public void index_test() throws Exception {
-    dbTester.prepareDbUnit(getClass(), "index_source.xml");
-    TestTesting.updateDataColumn(dbTester.getSession(), "FILE1_UUID", TestTesting.newRandomTests(1));
-
-    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid("ABCD").setKey("PROJECT_KEY").build());
-
+  public void enqueue_indexing_of_project() {
     step().execute();
 
-    List<SearchHit> docs = esTester.getDocuments(TestIndexDefinition.INDEX, TestIndexDefinition.TYPE);
-    assertThat(docs).hasSize(1);
-    TestDoc doc = new TestDoc(docs.get(0).sourceAsMap());
-    assertThat(doc.projectUuid()).isEqualTo("ABCD");
-    assertThat(doc.fileUuid()).isEqualTo("FILE1_UUID");
-    assertThat(doc.coveredFiles()).isNotEmpty();
+    verify(indexingQueue).enqueue(DOC_TYPE_TESTS, "ABCD");
   }
 }
@@ -24,6 +24,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentMatcher;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.Severity;
@@ -38,6 +39,7 @@ import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.db.issue.IssueDto;
+import org.sonar.db.issue.IssueMapper;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -47,7 +49,10 @@ import org.sonar.server.computation.issue.RuleRepositoryImpl;
 import org.sonar.server.computation.issue.UpdateConflictResolver;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class PersistIssuesStepTest extends BaseStepTest {
@@ -150,6 +155,32 @@ public class PersistIssuesStepTest extends BaseStepTest {
     dbTester.assertDbUnit(getClass(), "close_issue-result.xml", "issues");
   }
 
+  @Test
+  public void resolve_conflict_when_issue_has_been_updated_since_analysis() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    UpdateConflictResolver conflictResolver = mock(UpdateConflictResolver.class);
+    step = new PersistIssuesStep(dbClient, system2, conflictResolver, new RuleRepositoryImpl(dbClient), issueCache);
+
+    issueCache.newAppender().append(new DefaultIssue()
+      .setKey("ISSUE")
+      .setType(RuleType.CODE_SMELL)
+      .setRuleKey(RuleKey.of("xoo", "S01"))
+      .setComponentUuid("COMPONENT")
+      .setProjectUuid("PROJECT")
+      .setSeverity(Severity.BLOCKER)
+      .setStatus(Issue.STATUS_CLOSED)
+      .setResolution(Issue.RESOLUTION_FIXED)
+      // issue has been updated in db at 1300000000000
+      .setSelectedAt(1200000000000L)
+      .setNew(false)
+      .setChanged(true)
+      ).close();
+
+    step.execute();
+
+    verify(conflictResolver).resolve(argThat(new IssueKeyMatcher("ISSUE")), any(IssueMapper.class));
+  }
+
   @Test
   public void add_comment() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -206,4 +237,16 @@ public class PersistIssuesStepTest extends BaseStepTest {
     dbTester.assertDbUnit(getClass(), "add_change-result.xml", new String[] {"id", "created_at", "updated_at"}, "issue_changes");
   }
 
+  private static class IssueKeyMatcher extends ArgumentMatcher<DefaultIssue> {
+    private final String key;
+
+    IssueKeyMatcher(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public boolean matches(Object argument) {
+      return argument != null && key.equals(((DefaultIssue) argument).key());
+    }
+  }
 }
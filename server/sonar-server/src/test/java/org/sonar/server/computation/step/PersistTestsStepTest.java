@@ -207,6 +207,20 @@ public class PersistTestsStepTest extends BaseStepTest {
     assertThat(coveredLines).containsOnly(1, 2, 3, 4);
   }
 
+  @Test
+  public void covered_lines_are_sorted_and_deduplicated() {
+    reportReader.putTests(TEST_FILE_REF_1, Arrays.asList(newTest(1)));
+    reportReader.putCoverageDetails(TEST_FILE_REF_1, Arrays.asList(
+      newCoverageDetailWithLines(1, MAIN_FILE_REF_1, 7, 3, 5),
+      newCoverageDetailWithLines(1, MAIN_FILE_REF_1, 5, 1, 3)));
+
+    underTest.execute();
+
+    FileSourceDto dto = dbClient.fileSourceDao().selectTest(TEST_FILE_UUID_1);
+    List<Integer> coveredLines = dto.getTestData().get(0).getCoveredFile(0).getCoveredLineList();
+    assertThat(coveredLines).containsExactly(1, 3, 5, 7);
+  }
+
   @Test
   public void update_existing_test() {
     // ARRANGE
@@ -27,11 +27,19 @@ import com.tngtech.java.junit.dataprovider.UseDataProvider;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import java.util.concurrent.atomic.AtomicReference;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.MDC;
 import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.core.config.PurgeConstants;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.purge.IdUuidPair;
 import org.sonar.server.computation.batch.TreeRootHolderRule;
 import org.sonar.server.computation.component.Component;
@@ -39,12 +47,17 @@ import org.sonar.server.computation.component.MutableDbIdsRepositoryRule;
 import org.sonar.server.computation.component.ReportComponent;
 import org.sonar.server.computation.component.SettingsRepository;
 import org.sonar.server.computation.component.ViewsComponent;
+import org.sonar.server.computation.dbcleaner.BackgroundPurgeExecutorService;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
 import org.sonar.server.util.WrapInSingleElementArray;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.isNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -56,16 +69,23 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
   private static final String PROJECT_KEY = "PROJECT_KEY";
   private static final long PROJECT_ID = 123L;
   private static final String PROJECT_UUID = "UUID-1234";
+  private static final long LAST_SNAPSHOT_ID = 456L;
 
   @Rule
   public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
   @Rule
   public MutableDbIdsRepositoryRule dbIdsRepository = MutableDbIdsRepositoryRule.standalone();
+  @Rule
+  public LogTester logTester = new LogTester();
 
   ProjectCleaner projectCleaner = mock(ProjectCleaner.class);
   SettingsRepository settingsRepository = mock(SettingsRepository.class);
+  BackgroundPurgeExecutorService backgroundPurgeExecutorService = mock(BackgroundPurgeExecutorService.class);
+
+  DbClient dbClient = mock(DbClient.class, Mockito.RETURNS_DEEP_STUBS);
 
-  PurgeDatastoresStep underTest = new PurgeDatastoresStep(mock(DbClient.class, Mockito.RETURNS_DEEP_STUBS), projectCleaner, dbIdsRepository, treeRootHolder, settingsRepository);
+  PurgeDatastoresStep underTest = new PurgeDatastoresStep(dbClient, projectCleaner, dbIdsRepository, treeRootHolder, settingsRepository,
+    backgroundPurgeExecutorService);
 
   @Test
   public void call_purge_method_of_the_purge_task_for_project() {
@@ -81,6 +101,82 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
     verify_call_purge_method_of_the_purge_task(project);
   }
 
+  @Test
+  public void call_purge_method_of_the_purge_task_in_background_if_in_settings() {
+    Component project = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    when(settingsRepository.getSettings(project)).thenReturn(new Settings().setProperty(PurgeConstants.PROPERTY_PURGE_IN_BACKGROUND, true));
+    dbIdsRepository.setComponentId(project, PROJECT_ID);
+    mockLastSnapshot();
+
+    underTest.execute();
+
+    verifyNoMoreInteractions(projectCleaner);
+    ArgumentCaptor<Runnable> purge = ArgumentCaptor.forClass(Runnable.class);
+    verify(backgroundPurgeExecutorService).execute(purge.capture());
+    purge.getValue().run();
+    verify(projectCleaner).purge(any(DbSession.class), any(IdUuidPair.class), any(Settings.class), eq(LAST_SNAPSHOT_ID));
+  }
+
+  @Test
+  public void purge_in_background_does_not_touch_snapshots_of_next_analyses() {
+    Runnable purge = executeAndCaptureBackgroundPurge();
+
+    // the next analysis of the project starts before the purge
+    when(dbClient.snapshotDao().selectLastSnapshotByComponentId(any(DbSession.class), eq(PROJECT_ID))).thenReturn(new SnapshotDto().setId(LAST_SNAPSHOT_ID + 1));
+    purge.run();
+
+    verify(projectCleaner).purge(any(DbSession.class), any(IdUuidPair.class), any(Settings.class), eq(LAST_SNAPSHOT_ID));
+  }
+
+  @Test
+  public void log_failure_of_purge_in_background() {
+    doThrow(new IllegalStateException("purge failure")).when(projectCleaner).purge(any(DbSession.class), any(IdUuidPair.class), any(Settings.class), any(Long.class));
+
+    Runnable purge = executeAndCaptureBackgroundPurge();
+    purge.run();
+
+    assertThat(logTester.logs(LoggerLevel.ERROR)).containsOnly("Fail to purge data of component " + PROJECT_UUID + " in background");
+  }
+
+  @Test
+  public void purge_in_background_with_MDC_of_task() {
+    final AtomicReference<String> mdcOfPurge = new AtomicReference<>();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        mdcOfPurge.set(MDC.get("ceLogPath"));
+        return null;
+      }
+    }).when(projectCleaner).purge(any(DbSession.class), any(IdUuidPair.class), any(Settings.class), any(Long.class));
+
+    MDC.put("ceLogPath", "task.log");
+    Runnable purge;
+    try {
+      purge = executeAndCaptureBackgroundPurge();
+    } finally {
+      MDC.remove("ceLogPath");
+    }
+    purge.run();
+
+    assertThat(mdcOfPurge.get()).isEqualTo("task.log");
+    assertThat(MDC.get("ceLogPath")).isNull();
+  }
+
+  private Runnable executeAndCaptureBackgroundPurge() {
+    Component project = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    when(settingsRepository.getSettings(project)).thenReturn(new Settings().setProperty(PurgeConstants.PROPERTY_PURGE_IN_BACKGROUND, true));
+    dbIdsRepository.setComponentId(project, PROJECT_ID);
+    mockLastSnapshot();
+
+    underTest.execute();
+
+    ArgumentCaptor<Runnable> purge = ArgumentCaptor.forClass(Runnable.class);
+    verify(backgroundPurgeExecutorService).execute(purge.capture());
+    return purge.getValue();
+  }
+
   @DataProvider
   public static Object[][] nonRootProjectComponentTypes() {
     return dataproviderFromComponentTypeValues(new Predicate<Component.Type>() {
@@ -133,11 +229,15 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
     underTest.execute();
 
     ArgumentCaptor<IdUuidPair> argumentCaptor = ArgumentCaptor.forClass(IdUuidPair.class);
-    verify(projectCleaner).purge(any(DbSession.class), argumentCaptor.capture(), any(Settings.class));
+    verify(projectCleaner).purge(any(DbSession.class), argumentCaptor.capture(), any(Settings.class), (Long) isNull());
     assertThat(argumentCaptor.getValue().getId()).isEqualTo(PROJECT_ID);
     assertThat(argumentCaptor.getValue().getUuid()).isEqualTo(PROJECT_UUID);
   }
 
+  private void mockLastSnapshot() {
+    when(dbClient.snapshotDao().selectLastSnapshotByComponentId(any(DbSession.class), eq(PROJECT_ID))).thenReturn(new SnapshotDto().setId(LAST_SNAPSHOT_ID));
+  }
+
   private static Object[][] dataproviderFromComponentTypeValues(Predicate<Component.Type> predicate) {
     return FluentIterable.from(asList(Component.Type.values()))
         .filter(predicate)
@@ -23,8 +23,10 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableScheduledFuture;
 import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
 import java.util.Queue;
@@ -43,6 +45,9 @@ import javax.annotation.concurrent.Immutable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.ce.queue.CeQueueSignal;
 import org.sonar.server.computation.configuration.CeConfigurationRule;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -66,9 +71,11 @@ public class CeProcessingSchedulerImplTest {
   private CeWorkerCallable ceWorkerRunnable = mock(CeWorkerCallable.class);
   private StubCeProcessingSchedulerExecutorService processingExecutorService = new StubCeProcessingSchedulerExecutorService();
   private SchedulerCall regularDelayedPoll = new SchedulerCall(ceWorkerRunnable, 2000L, TimeUnit.MILLISECONDS);
+  private SchedulerCall idleDelayedPoll = new SchedulerCall(ceWorkerRunnable, CeProcessingSchedulerImpl.MIN_IDLE_DELAY, TimeUnit.MILLISECONDS);
   private SchedulerCall notDelayedPoll = new SchedulerCall(ceWorkerRunnable);
+  private CeQueueSignal signal = new CeQueueSignal();
 
-  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
+  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable, signal);
 
   @Test
   public void polls_without_delay_when_CeWorkerCallable_returns_true() throws Exception {
@@ -99,7 +106,7 @@ public class CeProcessingSchedulerImplTest {
   }
 
   @Test
-  public void polls_with_regular_delay_when_CeWorkerCallable_returns_false() throws Exception {
+  public void polls_with_idle_delay_when_CeWorkerCallable_returns_false() throws Exception {
     when(ceWorkerRunnable.call())
       .thenReturn(false)
       .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
@@ -108,7 +115,90 @@ public class CeProcessingSchedulerImplTest {
 
     assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
       regularDelayedPoll,
-      regularDelayedPoll
+      idleDelayedPoll
+      );
+  }
+
+  @Test
+  public void signal_replaces_idle_polling_by_poll_without_delay() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    // execute the first polling, then worker is idle
+    processingExecutorService.futures.poll().get();
+    signal.signal();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      idleDelayedPoll,
+      notDelayedPoll
+      );
+  }
+
+  @Test
+  public void polls_without_delay_when_signal_is_raised_while_CeWorkerCallable_is_running() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenAnswer(new Answer<Boolean>() {
+        @Override
+        public Boolean answer(InvocationOnMock invocation) {
+          signal.signal();
+          return false;
+        }
+      })
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      notDelayedPoll
+      );
+  }
+
+  @Test
+  public void late_callback_of_canceled_idle_polling_does_not_ignore_next_signals() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    // execute the first polling, then worker is idle
+    processingExecutorService.futures.poll().get();
+    // signal replaces the idle polling by a poll without delay, which also returns false
+    processingExecutorService.deferExecutions = true;
+    signal.signal();
+    processingExecutorService.deferExecutions = false;
+    // callback of the canceled idle polling is called after the one of the poll without delay
+    processingExecutorService.runDeferredExecutionsInReverseOrder();
+    signal.signal();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      idleDelayedPoll,
+      notDelayedPoll,
+      idleDelayedPoll,
+      notDelayedPoll
+      );
+  }
+
+  @Test
+  public void signal_is_ignored_when_worker_is_not_idle() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(true)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    signal.signal();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      notDelayedPoll
       );
   }
 
@@ -132,13 +222,13 @@ public class CeProcessingSchedulerImplTest {
       regularDelayedPoll,
       notDelayedPoll,
       notDelayedPoll,
-      regularDelayedPoll,
+      idleDelayedPoll,
       notDelayedPoll,
-      regularDelayedPoll,
+      idleDelayedPoll,
       notDelayedPoll,
-      regularDelayedPoll,
-      regularDelayedPoll,
-      regularDelayedPoll
+      idleDelayedPoll,
+      idleDelayedPoll,
+      idleDelayedPoll
       );
   }
 
@@ -175,9 +265,9 @@ public class CeProcessingSchedulerImplTest {
     assertThat(cancelledTaskFutureCount).isEqualTo(1);
     assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
       regularDelayedPoll,
-      regularDelayedPoll,
+      idleDelayedPoll,
       notDelayedPoll,
-      regularDelayedPoll
+      idleDelayedPoll
       );
   }
 
@@ -189,7 +279,7 @@ public class CeProcessingSchedulerImplTest {
 
     ListenableScheduledFuture listenableScheduledFuture = mock(ListenableScheduledFuture.class);
     CeProcessingSchedulerExecutorService processingExecutorService = mock(CeProcessingSchedulerExecutorService.class);
-    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable, signal);
     when(processingExecutorService.schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
         .thenReturn(listenableScheduledFuture);
 
@@ -218,11 +308,20 @@ public class CeProcessingSchedulerImplTest {
     private final ListeningScheduledExecutorService delegate = MoreExecutors.listeningDecorator(new SynchronousStubExecutorService());
 
     private final List<SchedulerCall> schedulerCalls = new ArrayList<>();
+    // when true, calls to execute(Runnable), eg. of future callbacks, are delayed until runDeferredExecutionsInReverseOrder()
+    private boolean deferExecutions = false;
+    private final Deque<Runnable> deferredExecutions = new ArrayDeque<>();
 
     public List<SchedulerCall> getSchedulerCalls() {
       return schedulerCalls;
     }
 
+    public void runDeferredExecutionsInReverseOrder() {
+      while (!deferredExecutions.isEmpty()) {
+        deferredExecutions.pollLast().run();
+      }
+    }
+
     public void runFutures() throws ExecutionException, InterruptedException {
       while (futures.peek() != null) {
         Future<?> future = futures.poll();
@@ -323,7 +422,11 @@ public class CeProcessingSchedulerImplTest {
 
     @Override
     public void execute(Runnable command) {
-      delegate.execute(command);
+      if (deferExecutions) {
+        deferredExecutions.add(command);
+      } else {
+        delegate.execute(command);
+      }
     }
 
     /**
@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.taskprocessor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.queue.CeQueueSignal;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CeQueueWatcherTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
+
+  CeQueueSignal signal = new CeQueueSignal();
+  CeQueueWatcher underTest = new CeQueueWatcher(dbTester.getDbClient(), signal, ceConfiguration);
+
+  @Test
+  public void do_not_signal_if_queue_is_empty() {
+    underTest.check();
+
+    assertThat(signal.generation()).isEqualTo(0L);
+  }
+
+  @Test
+  public void signal_when_new_task_is_pending() {
+    insertPending("TASK_1", 1_000L);
+
+    underTest.check();
+    assertThat(signal.generation()).isEqualTo(1L);
+
+    // no changes
+    underTest.check();
+    assertThat(signal.generation()).isEqualTo(1L);
+
+    insertPending("TASK_2", 2_000L);
+    underTest.check();
+    assertThat(signal.generation()).isEqualTo(2L);
+  }
+
+  @Test
+  public void start_and_stop() {
+    underTest.start();
+    underTest.stop();
+  }
+
+  private void insertPending(String uuid, long createdAt) {
+    CeQueueDto queueDto = new CeQueueDto();
+    queueDto.setTaskType(CeTaskTypes.REPORT);
+    queueDto.setComponentUuid("PROJECT_1");
+    queueDto.setUuid(uuid);
+    queueDto.setStatus(CeQueueDto.Status.PENDING);
+    queueDto.setCreatedAt(createdAt);
+    queueDto.setUpdatedAt(createdAt);
+    dbTester.getDbClient().ceQueueDao().insert(dbTester.getSession(), queueDto);
+    dbTester.getSession().commit();
+  }
+}
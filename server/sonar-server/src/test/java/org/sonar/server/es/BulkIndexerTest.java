@@ -102,6 +102,27 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(removeFrom);
   }
 
+  @Test
+  public void bulk_delete_more_documents_than_scroll_size() throws Exception {
+    int max = 2 * BulkIndexer.DELETION_SCROLL_SIZE + 500;
+    int removeFrom = 200;
+    FakeDoc[] docs = new FakeDoc[max];
+    for (int i = 0; i < max; i++) {
+      docs[i] = FakeIndexDefinition.newDoc(i);
+    }
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, docs);
+    assertThat(count()).isEqualTo(max);
+
+    SearchRequestBuilder req = esTester.client().prepareSearch(FakeIndexDefinition.INDEX)
+      .setTypes(FakeIndexDefinition.TYPE)
+      .setQuery(QueryBuilders.rangeQuery(FakeIndexDefinition.INT_FIELD).gte(removeFrom));
+    BulkIndexer.delete(esTester.client(), FakeIndexDefinition.INDEX, req);
+
+    assertThat(count()).isEqualTo(removeFrom);
+    // scroll is cleared
+    assertThat(openSearchContexts()).isEqualTo(0);
+  }
+
   @Test
   public void disable_refresh() {
     BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
@@ -121,6 +142,11 @@ public class BulkIndexerTest {
     return esTester.countDocuments("fakes", "fake");
   }
 
+  private long openSearchContexts() {
+    return esTester.client().nativeClient().admin().indices().prepareStats(FakeIndexDefinition.INDEX).setSearch(true).get()
+      .getTotal().getSearch().getOpenContexts();
+  }
+
   private int replicas() {
     GetSettingsResponse settingsResp = esTester.client().nativeClient().admin().indices()
       .prepareGetSettings(FakeIndexDefinition.INDEX).get();
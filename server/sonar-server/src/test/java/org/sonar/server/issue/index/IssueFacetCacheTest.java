@@ -0,0 +1,158 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.server.es.Facets;
+import org.sonar.server.es.SearchOptions;
+import org.sonar.server.issue.IssueQuery;
+import org.sonar.server.tester.UserSessionRule;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IssueFacetCacheTest {
+
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+
+  System2 system = mock(System2.class);
+  IssueFacetCache underTest = new IssueFacetCache(system, 2, 1_000L);
+
+  @Test
+  public void get_cached_facets() {
+    IssueFacetCache.Key key = underTest.keyOf(query("P1"), options("severities"), null);
+    assertThat(underTest.get(key)).isNull();
+
+    underTest.put(key, facets("MAJOR", 3L));
+
+    assertThat(underTest.get(underTest.keyOf(query("P1"), options("severities"), null)).get("severities")).containsOnly(entry("MAJOR", 3L));
+    assertThat(underTest.hits()).isEqualTo(1L);
+    assertThat(underTest.misses()).isEqualTo(1L);
+  }
+
+  @Test
+  public void keys_do_not_depend_on_order_of_values_nor_on_sorting() {
+    IssueQuery query = IssueQuery.builder(userSession).severities(newArrayList("MAJOR", "INFO")).sort(IssueQuery.SORT_BY_SEVERITY).build();
+    IssueQuery sameFilters = IssueQuery.builder(userSession).severities(newArrayList("INFO", "MAJOR")).build();
+    IssueQuery otherFilters = IssueQuery.builder(userSession).severities(newArrayList("INFO")).build();
+
+    assertThat(underTest.keyOf(query, options("statuses", "severities"), null)).isEqualTo(underTest.keyOf(sameFilters, options("severities", "statuses"), null));
+    assertThat(underTest.keyOf(query, options("severities"), null)).isNotEqualTo(underTest.keyOf(otherFilters, options("severities"), null));
+    assertThat(underTest.keyOf(query, options("severities"), null)).isNotEqualTo(underTest.keyOf(query, options("statuses"), null));
+    assertThat(underTest.keyOf(query, options("severities"), null)).isNotEqualTo(underTest.keyOf(query, options("severities"), "john"));
+  }
+
+  @Test
+  public void do_not_cache_unsupported_searches() {
+    assertThat(underTest.keyOf(query("P1"), new SearchOptions(), null)).isNull();
+    assertThat(underTest.keyOf(IssueQuery.builder(userSession).viewUuids(newArrayList("V1")).build(), options("severities"), null)).isNull();
+    assertThat(underTest.keyOf(query("P1"), options("createdAt"), null)).isNull();
+    assertThat(underTest.keyOf(IssueQuery.builder(userSession).createdBefore(new Date(1_000L)).build(), options("createdAt"), null)).isNotNull();
+    assertThat(IssueFacetCache.disabled().keyOf(query("P1"), options("severities"), null)).isNull();
+  }
+
+  @Test
+  public void invalidate_searches_on_project() {
+    IssueFacetCache.Key onP1 = underTest.keyOf(query("P1"), options("severities"), null);
+    IssueFacetCache.Key onAllProjects = underTest.keyOf(IssueQuery.builder(userSession).build(), options("severities"), null);
+    IssueFacetCache.Key onP2 = underTest.keyOf(query("P2"), options("severities"), null);
+    underTest.put(onP1, facets("MAJOR", 1L));
+    underTest.put(onAllProjects, facets("MAJOR", 2L));
+
+    underTest.invalidateProject("P2");
+
+    assertThat(underTest.size()).isEqualTo(1);
+    assertThat(underTest.get(onP1)).isNotNull();
+    assertThat(underTest.get(onAllProjects)).isNull();
+
+    underTest.invalidateAll();
+
+    assertThat(underTest.size()).isEqualTo(0);
+    // computed before invalidation
+    underTest.put(onP2, facets("MAJOR", 1L));
+    assertThat(underTest.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void evict_least_recently_used_searches() {
+    IssueFacetCache.Key onP1 = underTest.keyOf(query("P1"), options("severities"), null);
+    IssueFacetCache.Key onP2 = underTest.keyOf(query("P2"), options("severities"), null);
+    IssueFacetCache.Key onP3 = underTest.keyOf(query("P3"), options("severities"), null);
+    underTest.put(onP1, facets("MAJOR", 1L));
+    underTest.put(onP2, facets("MAJOR", 2L));
+    underTest.get(onP1);
+
+    underTest.put(onP3, facets("MAJOR", 3L));
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.evictions()).isEqualTo(1L);
+    assertThat(underTest.get(onP2)).isNull();
+    assertThat(underTest.get(onP1)).isNotNull();
+  }
+
+  @Test
+  public void cached_facets_expire() {
+    when(system.now()).thenReturn(10_000L);
+    IssueFacetCache.Key key = underTest.keyOf(query("P1"), options("severities"), null);
+    underTest.put(key, facets("MAJOR", 1L));
+
+    when(system.now()).thenReturn(10_999L);
+    assertThat(underTest.get(key)).isNotNull();
+
+    when(system.now()).thenReturn(11_000L);
+    assertThat(underTest.get(key)).isNull();
+    assertThat(underTest.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void cached_facets_are_not_altered_by_callers() {
+    IssueFacetCache.Key key = underTest.keyOf(query("P1"), options("severities"), null);
+    Facets facets = facets("MAJOR", 1L);
+    underTest.put(key, facets);
+    facets.get("severities").put("INFO", 0L);
+    underTest.get(key).get("severities").put("BLOCKER", 0L);
+
+    assertThat(underTest.get(key).get("severities")).containsOnly(entry("MAJOR", 1L));
+  }
+
+  private IssueQuery query(String projectUuid) {
+    return IssueQuery.builder(userSession).projectUuids(newArrayList(projectUuid)).build();
+  }
+
+  private static SearchOptions options(String... facets) {
+    return new SearchOptions().addFacets(newArrayList(facets));
+  }
+
+  private static Facets facets(String severity, long count) {
+    LinkedHashMap<String, Long> buckets = new LinkedHashMap<>();
+    buckets.put(severity, count);
+    LinkedHashMap<String, LinkedHashMap<String, Long>> facets = new LinkedHashMap<>();
+    facets.put("severities", buckets);
+    return new Facets(facets);
+  }
+}
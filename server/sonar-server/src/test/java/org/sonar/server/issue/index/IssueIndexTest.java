@@ -396,6 +396,32 @@ public class IssueIndexTest {
     assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 2L), entry("MAJOR", 1L));
   }
 
+  @Test
+  public void facets_are_cached_until_issues_of_project_are_indexed() {
+    IssueFacetCache facetCache = new IssueFacetCache(System2.INSTANCE);
+    IssueIndex index = new IssueIndex(tester.client(), System2.INSTANCE, userSessionRule, facetCache);
+    IssueIndexer indexer = new IssueIndexer(null, tester.client(), facetCache);
+    ComponentDto project = ComponentTesting.newProjectDto();
+    ComponentDto file = ComponentTesting.newFileDto(project);
+    indexIssues(
+      IssueTesting.newDoc("ISSUE1", file).setSeverity(Severity.INFO),
+      IssueTesting.newDoc("ISSUE2", file).setSeverity(Severity.MAJOR));
+    IssueQuery query = IssueQuery.builder(userSessionRule).projectUuids(newArrayList(project.uuid())).build();
+    SearchOptions options = new SearchOptions().addFacets(newArrayList("severities"));
+
+    assertThat(index.search(query, options).getFacets().get("severities")).containsOnly(entry("INFO", 1L), entry("MAJOR", 1L));
+    SearchResult<IssueDoc> result = index.search(query, options.setPage(2, 1));
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 1L), entry("MAJOR", 1L));
+    assertThat(result.getDocs()).hasSize(1);
+    assertThat(result.getTotal()).isEqualTo(2L);
+    assertThat(facetCache.hits()).isEqualTo(1L);
+
+    indexer.deleteByKeys(project.uuid(), newArrayList("ISSUE2"));
+
+    assertThat(index.search(query, options).getFacets().get("severities")).containsOnly(entry("INFO", 1L));
+    assertThat(facetCache.misses()).isEqualTo(2L);
+  }
+
   @Test
   public void filter_by_statuses() {
     ComponentDto project = ComponentTesting.newProjectDto();
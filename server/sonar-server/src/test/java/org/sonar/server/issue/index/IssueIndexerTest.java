@@ -150,6 +150,18 @@ public class IssueIndexerTest {
     assertThat(esTester.countDocuments("issues", "issue")).isZero();
   }
 
+  @Test
+  public void delete_issues_by_keys_without_refresh() throws Exception {
+    addIssue("P1", "Issue1");
+    addIssue("P1", "Issue2");
+
+    IssueIndexer indexer = createIndexer();
+    indexer.deleteByKeys("P1", asList("Issue1"), false);
+    esTester.client().prepareRefresh("issues").get();
+
+    verifyIssueKeys("Issue2");
+  }
+
   @Test
   public void nothing_to_do_when_delete_issues_on_empty_list() throws Exception {
     addIssue("P1", "Issue1");
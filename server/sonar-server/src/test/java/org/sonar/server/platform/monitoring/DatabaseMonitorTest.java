@@ -61,4 +61,20 @@ public class DatabaseMonitorTest {
     Map<String, Object> attributes = underTest.attributes();
     assertThat((int) attributes.get("Pool Max Connections")).isGreaterThan(0);
   }
+
+  @Test
+  public void sql_info() {
+    Map<String, Object> attributes = underTest.attributes();
+    assertThat(attributes).containsKeys("SQL Executions", "SQL Total Time (ms)");
+    assertThat(underTest.getSlowestSqlStatements().length).isLessThanOrEqualTo(10);
+  }
+
+  @Test
+  public void line_hashes_cache_info() {
+    Map<String, Object> attributes = underTest.attributes();
+    assertThat(attributes).containsKeys("Line Hashes Cache Size (files)", "Line Hashes Cache Hits", "Line Hashes Cache Misses",
+      "Line Hashes Cache Evictions", "Line Hashes Cache Hit Rate");
+    assertThat(underTest.getLineHashesCacheSize()).isEqualTo(0);
+    assertThat(underTest.getLineHashesCacheHitRate()).isEqualTo(0.0);
+  }
 }
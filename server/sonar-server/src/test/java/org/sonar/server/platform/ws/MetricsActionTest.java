@@ -0,0 +1,86 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.ws;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.core.permission.GlobalPermissions;
+import org.sonar.process.ProcessId;
+import org.sonar.process.metrics.ProcessMetric;
+import org.sonar.process.metrics.ProcessMetricsSnapshot;
+import org.sonar.server.app.ProcessCommandWrapper;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.TestResponse;
+import org.sonar.server.ws.WsActionTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MetricsActionTest {
+  @Rule
+  public UserSessionRule userSessionRule = UserSessionRule.standalone().login("login")
+    .setName("name");
+
+  ProcessCommandWrapper processCommandWrapper = mock(ProcessCommandWrapper.class);
+
+  WsActionTester ws = new WsActionTester(new MetricsAction(userSessionRule, processCommandWrapper));
+
+  @Test
+  public void test_definition() throws Exception {
+    assertThat(ws.getDef().key()).isEqualTo("metrics");
+    assertThat(ws.getDef().isInternal()).isTrue();
+    assertThat(ws.getDef().since()).isEqualTo("6.0");
+    assertThat(ws.getDef().responseExampleAsString()).isNotEmpty();
+    assertThat(ws.getDef().params()).isEmpty();
+  }
+
+  @Test(expected = ForbiddenException.class)
+  public void should_fail_when_does_not_have_admin_right() {
+    userSessionRule.setGlobalPermissions(GlobalPermissions.SCAN_EXECUTION);
+
+    ws.newRequest().execute();
+  }
+
+  @Test
+  public void write_metrics_of_each_process() {
+    userSessionRule.setGlobalPermissions(GlobalPermissions.SYSTEM_ADMIN);
+    long[] webSlots = new long[ProcessMetric.SLOTS];
+    // heap and threads gauges
+    webSlots[0] = 100L;
+    webSlots[1] = 7L;
+    // web requests: count, sum and two values in bucket [16, 32)
+    webSlots[2] = 2L;
+    webSlots[3] = 40L;
+    webSlots[4 + 5] = 2L;
+    when(processCommandWrapper.getMetrics(ProcessId.WEB_SERVER)).thenReturn(new ProcessMetricsSnapshot(webSlots));
+    when(processCommandWrapper.getMetrics(ProcessId.COMPUTE_ENGINE)).thenReturn(new ProcessMetricsSnapshot(new long[ProcessMetric.SLOTS]));
+    when(processCommandWrapper.getMetrics(ProcessId.ELASTICSEARCH)).thenReturn(new ProcessMetricsSnapshot(new long[ProcessMetric.SLOTS]));
+
+    TestResponse response = ws.newRequest().execute();
+
+    assertThat(response.getInput())
+      .startsWith("{\"web\":{\"heapUsedBytes\":100,\"threads\":7,\"webRequestTimeMs\":{\"count\":2,\"sum\":40,\"p50\":31,\"p95\":31,\"p99\":31},")
+      .contains(",\"ce\":{\"heapUsedBytes\":0,")
+      .contains(",\"es\":{\"heapUsedBytes\":0,")
+      .endsWith("\"esBulkDocuments\":0}}");
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.ws;
+
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.core.permission.GlobalPermissions;
+import org.sonar.db.Database;
+import org.sonar.db.profiling.SqlStatementStatistics;
+import org.sonar.db.profiling.SqlStatistics;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.WsActionTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.test.JsonAssert.assertJson;
+
+public class SqlStatisticsActionTest {
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public UserSessionRule userSessionRule = UserSessionRule.standalone().login("login")
+    .setName("name");
+
+  SqlStatistics statistics = mock(SqlStatistics.class);
+  Database database = mock(Database.class);
+
+  WsActionTester ws = new WsActionTester(new SqlStatisticsAction(userSessionRule, database));
+
+  @Test
+  public void test_definition() throws Exception {
+    assertThat(ws.getDef().key()).isEqualTo("sql_statistics");
+    assertThat(ws.getDef().isInternal()).isTrue();
+    assertThat(ws.getDef().responseExampleAsString()).isNotEmpty();
+    assertThat(ws.getDef().param("s").defaultValue()).isEqualTo("totalTime");
+    assertThat(ws.getDef().param("ps").defaultValue()).isEqualTo("50");
+  }
+
+  @Test(expected = ForbiddenException.class)
+  public void should_fail_when_does_not_have_admin_right() {
+    userSessionRule.setGlobalPermissions(GlobalPermissions.SCAN_EXECUTION);
+
+    ws.newRequest().execute();
+  }
+
+  @Test
+  public void return_statements_sorted_by_total_time() {
+    userSessionRule.setGlobalPermissions(GlobalPermissions.SYSTEM_ADMIN);
+    mockStatistics();
+
+    String json = ws.newRequest().execute().getInput();
+
+    assertJson(json).isSimilarTo("{" +
+      "  \"executions\": 12," +
+      "  \"totalTime\": 15.0," +
+      "  \"statements\": [" +
+      "    {\"sql\": \"select * from projects\", \"executions\": 2, \"totalTime\": 12.0, \"maxTime\": 10.0, \"p99\": 10.0, \"rows\": 30}," +
+      "    {\"sql\": \"select * from issues where id=?\", \"executions\": 10, \"totalTime\": 3.0, \"maxTime\": 1.0, \"p99\": 0.511, \"rows\": 10}" +
+      "  ]" +
+      "}");
+  }
+
+  @Test
+  public void sort_and_limit_statements() {
+    userSessionRule.setGlobalPermissions(GlobalPermissions.SYSTEM_ADMIN);
+    mockStatistics();
+
+    String json = ws.newRequest().setParam("s", "executions").setParam("ps", "1").execute().getInput();
+
+    assertJson(json).isSimilarTo("{\"statements\": [{\"sql\": \"select * from issues where id=?\"}]}");
+    assertThat(json).doesNotContain("projects");
+  }
+
+  @Test
+  public void fail_when_page_size_is_negative() {
+    userSessionRule.setGlobalPermissions(GlobalPermissions.SYSTEM_ADMIN);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("The 'ps' parameter must be between 1 and 500 (got -1)");
+
+    ws.newRequest().setParam("ps", "-1").execute();
+  }
+
+  @Test
+  public void fail_when_page_size_is_greater_than_max() {
+    userSessionRule.setGlobalPermissions(GlobalPermissions.SYSTEM_ADMIN);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("The 'ps' parameter must be between 1 and 500 (got 501)");
+
+    ws.newRequest().setParam("ps", "501").execute();
+  }
+
+  private void mockStatistics() {
+    SqlStatementStatistics projects = mockStatement("select * from projects", 2, 12_000, 10_000, 10_000, 30);
+    SqlStatementStatistics issues = mockStatement("select * from issues where id=?", 10, 3_000, 1_000, 511, 10);
+    when(statistics.getStatements()).thenReturn(Arrays.asList(issues, projects));
+    when(statistics.getExecutions()).thenReturn(12L);
+    when(statistics.getTotalTimeMicros()).thenReturn(15_000L);
+    when(database.getSqlStatistics()).thenReturn(statistics);
+  }
+
+  private static SqlStatementStatistics mockStatement(String sql, long executions, long totalMicros, long maxMicros, long p99Micros, long rows) {
+    SqlStatementStatistics statement = mock(SqlStatementStatistics.class);
+    when(statement.getSql()).thenReturn(sql);
+    when(statement.getExecutions()).thenReturn(executions);
+    when(statement.getTotalTimeMicros()).thenReturn(totalMicros);
+    when(statement.getMaxTimeMicros()).thenReturn(maxMicros);
+    when(statement.getPercentileMicros(0.99)).thenReturn(p99Micros);
+    when(statement.getRows()).thenReturn(rows);
+    return statement;
+  }
+}
@@ -890,6 +890,38 @@ public class RuleActivatorMediumTest {
     assertThat(result.countFailed()).isGreaterThan(0);
   }
 
+  @Test
+  public void bulk_activation_propagates_to_child_profiles() {
+    createChildProfiles();
+
+    // x1 is activated on child profile P2, and so inherited by P3
+    RuleActivation activation = new RuleActivation(XOO_X1);
+    activation.setSeverity(BLOCKER);
+    activation.setParameter("max", "7");
+    activate(activation, XOO_P2_KEY);
+
+    BulkChangeResult result = ruleActivator.bulkActivate(new RuleQuery().setKey(XOO_X1.toString()), XOO_P1_KEY, CRITICAL);
+    ruleActivator.bulkActivate(new RuleQuery().setKey(XOO_X2.toString()), XOO_P1_KEY, CRITICAL);
+
+    dbSession.clearCache();
+    assertThat(result.countSucceeded()).isEqualTo(1);
+    // x1 is activated with default parameters on P1 and is now overridden by P2
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P1_KEY, XOO_X1), CRITICAL, null, ImmutableMap.of("max", "10"));
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P2_KEY, XOO_X1), BLOCKER, OVERRIDES, ImmutableMap.of("max", "7"));
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P3_KEY, XOO_X1), BLOCKER, INHERITED, ImmutableMap.of("max", "7"));
+    // x2 is inherited by descendants
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P2_KEY, XOO_X2), CRITICAL, INHERITED, Collections.<String, String>emptyMap());
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P3_KEY, XOO_X2), CRITICAL, INHERITED, Collections.<String, String>emptyMap());
+  }
+
+  @Test
+  public void bulk_activation_fails_on_unknown_profile() {
+    BulkChangeResult result = ruleActivator.bulkActivate(new RuleQuery().setKey(XOO_X1.toString()), "unknown", CRITICAL);
+
+    assertThat(result.countSucceeded()).isEqualTo(0);
+    assertThat(result.countFailed()).isEqualTo(1);
+  }
+
   @Test
   public void set_and_unset_parent_profile() {
     // x1 is activated on the "future parent" P1
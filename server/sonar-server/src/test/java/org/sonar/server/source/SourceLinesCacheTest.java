@@ -0,0 +1,122 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SourceLinesCacheTest {
+
+  private static final List<DbFileSources.Line> LINES = asList(
+    DbFileSources.Line.newBuilder().setLine(1).setSource("foo").build(),
+    DbFileSources.Line.newBuilder().setLine(2).setSource("bar").build());
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  Settings settings = new Settings(new PropertyDefinitions(SourceLinesCache.class));
+
+  SourceLinesCache underTest = new SourceLinesCache(settings);
+
+  @Test
+  public void get_and_put() {
+    assertThat(underTest.get("FILE", 1_000L, 0)).isNull();
+
+    underTest.put("FILE", 1_000L, 0, LINES);
+
+    assertThat(underTest.get("FILE", 1_000L, 0)).isSameAs(LINES);
+    assertThat(underTest.get("FILE", 1_000L, 1)).isNull();
+    assertThat(underTest.get("OTHER_FILE", 1_000L, 0)).isNull();
+  }
+
+  @Test
+  public void blocks_of_previous_analysis_are_not_returned() {
+    underTest.put("FILE", 1_000L, 0, LINES);
+
+    assertThat(underTest.get("FILE", 2_000L, 0)).isNull();
+  }
+
+  @Test
+  public void evict_least_recently_used_blocks_when_max_weight_is_exceeded() {
+    underTest.put("FILE", 1_000L, 0, LINES);
+    long blockWeight = underTest.weight();
+    underTest = new SourceLinesCache(blockWeight * 2);
+
+    underTest.put("FILE", 1_000L, 0, LINES);
+    underTest.put("FILE", 1_000L, 1, LINES);
+    // block 0 becomes the most recently used
+    underTest.get("FILE", 1_000L, 0);
+    underTest.put("FILE", 1_000L, 2, LINES);
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.weight()).isEqualTo(blockWeight * 2);
+    assertThat(underTest.get("FILE", 1_000L, 0)).isNotNull();
+    assertThat(underTest.get("FILE", 1_000L, 1)).isNull();
+    assertThat(underTest.get("FILE", 1_000L, 2)).isNotNull();
+  }
+
+  @Test
+  public void replace_block() {
+    underTest.put("FILE", 1_000L, 0, LINES);
+    underTest.put("FILE", 1_000L, 0, Collections.<DbFileSources.Line>emptyList());
+
+    assertThat(underTest.size()).isEqualTo(1);
+    assertThat(underTest.get("FILE", 1_000L, 0)).isEmpty();
+  }
+
+  @Test
+  public void do_not_cache_block_bigger_than_max_weight() {
+    underTest = new SourceLinesCache(10L);
+
+    underTest.put("FILE", 1_000L, 0, LINES);
+
+    assertThat(underTest.size()).isZero();
+    assertThat(underTest.weight()).isZero();
+  }
+
+  @Test
+  public void max_size_is_configurable() {
+    settings.setProperty(SourceLinesCache.SIZE_PROPERTY, "0");
+    underTest = new SourceLinesCache(settings);
+
+    underTest.put("FILE", 1_000L, 0, LINES);
+
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void fail_if_max_size_is_negative() {
+    settings.setProperty(SourceLinesCache.SIZE_PROPERTY, "-1");
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.web.sourceLinesCache.sizeInMb must be positive. Got: -1");
+
+    new SourceLinesCache(settings);
+  }
+}
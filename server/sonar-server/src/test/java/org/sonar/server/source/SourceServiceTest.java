@@ -22,14 +22,18 @@ package org.sonar.server.source;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.FileSourceDao;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.server.source.index.FileSourceTesting;
 
@@ -48,8 +52,9 @@ public class SourceServiceTest {
   public ExpectedException expectedException = ExpectedException.none();
 
   HtmlSourceDecorator htmlDecorator = mock(HtmlSourceDecorator.class);
+  SourceLinesCache cache = new SourceLinesCache(32L * 1024 * 1024);
 
-  SourceService underTest = new SourceService(dbTester.getDbClient(), htmlDecorator);
+  SourceService underTest = new SourceService(dbTester.getDbClient(), htmlDecorator, cache);
 
   @Before
   public void injectFakeLines() throws IOException {
@@ -113,6 +118,69 @@ public class SourceServiceTest {
     assertThat(lines.get()).isEmpty();
   }
 
+  @Test
+  public void get_range_of_lines_over_multiple_blocks() throws Exception {
+    String fileUuid = "BIG_FILE_UUID";
+    dbTester.getDbClient().fileSourceDao().insert(new FileSourceDto()
+      .setFileUuid(fileUuid)
+      .setProjectUuid("PROJECT_UUID")
+      .setSourceData(FileSourceTesting.newFakeData(FileSourceDto.LINES_PER_BLOCK * 3).build()));
+
+    int from = FileSourceDto.LINES_PER_BLOCK - 1;
+    int to = FileSourceDto.LINES_PER_BLOCK * 2 + 1;
+    List<DbFileSources.Line> lines = Lists.newArrayList(underTest.getLines(dbTester.getSession(), fileUuid, from, to).get());
+
+    assertThat(lines).hasSize(to - from + 1);
+    assertThat(lines.get(0).getLine()).isEqualTo(from);
+    assertThat(lines.get(lines.size() - 1).getLine()).isEqualTo(to);
+    // only the three blocks containing the range of lines are decoded
+    assertThat(cache.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void lines_are_read_from_cache_until_sources_are_updated() throws Exception {
+    underTest.getLines(dbTester.getSession(), FILE_UUID, 1, 10);
+    FileSourceDto dto = dbTester.getDbClient().fileSourceDao().selectSourceByFileUuid(dbTester.getSession(), FILE_UUID);
+    dto.setSourceData(FileSourceTesting.newFakeData(3).build());
+    dbTester.getDbClient().fileSourceDao().update(dto);
+
+    assertThat(underTest.getLines(dbTester.getSession(), FILE_UUID, 1, 10).get()).hasSize(10);
+
+    dto.setUpdatedAt(dto.getUpdatedAt() + 1L);
+    dbTester.getDbClient().fileSourceDao().update(dto);
+
+    assertThat(underTest.getLines(dbTester.getSession(), FILE_UUID, 1, 10).get()).hasSize(3);
+  }
+
+  @Test
+  public void blocks_are_read_under_the_same_date_of_update_when_sources_are_updated_concurrently() throws Exception {
+    DbSession dbSession = mock(DbSession.class);
+    DbClient dbClient = mock(DbClient.class);
+    FileSourceDao fileSourceDao = mock(FileSourceDao.class);
+    when(dbClient.fileSourceDao()).thenReturn(fileSourceDao);
+    FileSourceDto dto = new FileSourceDto()
+      .setFileUuid(FILE_UUID)
+      .setSourceData(FileSourceTesting.newFakeData(FileSourceDto.LINES_PER_BLOCK * 2).build())
+      .setUpdatedAt(2_000L);
+    // analysis is persisted between the two queries
+    when(fileSourceDao.selectSourceUpdatedAt(dbSession, FILE_UUID)).thenReturn(1_000L);
+    when(fileSourceDao.selectSourceByFileUuid(dbSession, FILE_UUID)).thenReturn(dto);
+    List<DbFileSources.Line> obsoleteBlock = new ArrayList<>();
+    for (int i = 1; i <= FileSourceDto.LINES_PER_BLOCK; i++) {
+      obsoleteBlock.add(DbFileSources.Line.newBuilder().setLine(i).setSource("OBSOLETE").build());
+    }
+    cache.put(FILE_UUID, 1_000L, 0, obsoleteBlock);
+    underTest = new SourceService(dbClient, htmlDecorator, cache);
+
+    List<String> lines = Lists.newArrayList(underTest.getLinesAsRawText(dbSession, FILE_UUID, 1, FileSourceDto.LINES_PER_BLOCK + 1).get());
+
+    assertThat(lines).hasSize(FileSourceDto.LINES_PER_BLOCK + 1);
+    assertThat(lines).doesNotContain("OBSOLETE");
+    assertThat(lines.get(0)).isEqualTo("SOURCE_1");
+    assertThat(cache.get(FILE_UUID, 2_000L, 0)).isNotNull();
+    assertThat(cache.get(FILE_UUID, 2_000L, 1)).isNotNull();
+  }
+
   @Test
   public void getLines_file_does_not_exist() throws Exception {
     Optional<Iterable<DbFileSources.Line>> lines = underTest.getLines(dbTester.getSession(), "FILE_DOES_NOT_EXIST", 1, 10);
@@ -27,4 +27,14 @@ public interface PurgeConstants {
   String WEEKS_BEFORE_KEEPING_ONLY_ONE_SNAPSHOT_BY_MONTH = "sonar.dbcleaner.weeksBeforeKeepingOnlyOneSnapshotByMonth";
   String WEEKS_BEFORE_DELETING_ALL_SNAPSHOTS = "sonar.dbcleaner.weeksBeforeDeletingAllSnapshots";
   String DAYS_BEFORE_DELETING_CLOSED_ISSUES = "sonar.dbcleaner.daysBeforeDeletingClosedIssues";
+
+  /**
+   * Number of tables purged concurrently. Default is 1.
+   */
+  String PROPERTY_THREADS = "sonar.dbcleaner.threads";
+
+  /**
+   * If true, the Compute Engine purges the database in background, once the analysis report is processed.
+   */
+  String PROPERTY_PURGE_IN_BACKGROUND = "sonar.dbcleaner.background";
 }
@@ -24,8 +24,10 @@ import com.google.protobuf.MapEntry;
 import com.google.protobuf.Message;
 import java.io.StringWriter;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import javax.annotation.CheckForNull;
 import org.sonar.api.utils.text.JsonWriter;
 
 /**
@@ -124,32 +126,65 @@ import org.sonar.api.utils.text.JsonWriter;
  *     }
  *   }
  * </pre>
+ *
+ * <h3>Generated writers</h3>
+ * <p>
+ * Messages of a .proto file whose outer class {@code Foo} is bundled with a class {@code FooJson}, as generated
+ * at build time by sonar-ws-generator, are written by the generated accessors instead of by reflection.
+ * The generated class must provide the method {@code public static BiConsumer<Message, JsonWriter> writerOf(Class)},
+ * returning the writer of the fields of a message type or null if the type is not supported.
+ * </p>
  */
 public class ProtobufJsonFormat {
 
+  private static final String GENERATED_CLASS_SUFFIX = "Json";
+
   private ProtobufJsonFormat() {
     // only statics
   }
 
   static class MessageType {
-    private static final Map<Class<? extends Message>, MessageType> TYPES_BY_CLASS = new HashMap<>();
+    private static final Map<Class<? extends Message>, MessageType> TYPES_BY_CLASS = new ConcurrentHashMap<>();
 
     private final Descriptors.FieldDescriptor[] fieldDescriptors;
     private final boolean doesWrapRepeated;
+    @CheckForNull
+    private final BiConsumer<Message, JsonWriter> generatedWriter;
 
-    private MessageType(Descriptors.Descriptor descriptor) {
+    private MessageType(Class<? extends Message> messageClass, Descriptors.Descriptor descriptor) {
       this.fieldDescriptors = descriptor.getFields().toArray(new Descriptors.FieldDescriptor[descriptor.getFields().size()]);
       this.doesWrapRepeated = fieldDescriptors.length == 1 && fieldDescriptors[0].isRepeated() && descriptor.getName().equalsIgnoreCase(fieldDescriptors[0].getName());
+      this.generatedWriter = generatedWriterOf(messageClass);
     }
 
     static MessageType of(Message message) {
       MessageType type = TYPES_BY_CLASS.get(message.getClass());
       if (type == null) {
-        type = new MessageType(message.getDescriptorForType());
+        type = new MessageType(message.getClass(), message.getDescriptorForType());
         TYPES_BY_CLASS.put(message.getClass(), type);
       }
       return type;
     }
+
+    @CheckForNull
+    private static BiConsumer<Message, JsonWriter> generatedWriterOf(Class<? extends Message> messageClass) {
+      Class<?> outerClass = messageClass;
+      while (outerClass.getEnclosingClass() != null) {
+        outerClass = outerClass.getEnclosingClass();
+      }
+      if (outerClass == messageClass) {
+        return null;
+      }
+      try {
+        Class<?> generatedClass = Class.forName(outerClass.getName() + GENERATED_CLASS_SUFFIX, true, messageClass.getClassLoader());
+        return (BiConsumer<Message, JsonWriter>) generatedClass.getMethod("writerOf", Class.class).invoke(null, messageClass);
+      } catch (ClassNotFoundException e) {
+        // no generated writers, fields are written by reflection
+        return null;
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Fail to load the generated JSON writer of " + messageClass, e);
+      }
+    }
   }
 
   public static void write(Message message, JsonWriter writer) {
@@ -168,6 +203,10 @@ public class ProtobufJsonFormat {
 
   private static void writeMessage(Message message, JsonWriter writer) {
     MessageType type = MessageType.of(message);
+    if (type.generatedWriter != null) {
+      type.generatedWriter.accept(message, writer);
+      return;
+    }
     for (Descriptors.FieldDescriptor fieldDescriptor : type.fieldDescriptors) {
       if (fieldDescriptor.isRepeated()) {
         writer.name(fieldDescriptor.getName());
@@ -0,0 +1,42 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.test;
+
+import com.google.protobuf.Message;
+import java.util.function.BiConsumer;
+import org.sonar.api.utils.text.JsonWriter;
+
+/**
+ * Stands for the class generated by sonar-ws-generator for test.proto. Only the message
+ * {@link Test.Fake} has a generated writer.
+ */
+public final class TestJson {
+
+  private TestJson() {
+    // only statics
+  }
+
+  public static BiConsumer<Message, JsonWriter> writerOf(Class<? extends Message> messageClass) {
+    if (messageClass == Test.Fake.class) {
+      return (message, writer) -> writer.name("generated").value(((Test.Fake) message).getLabel());
+    }
+    return null;
+  }
+}
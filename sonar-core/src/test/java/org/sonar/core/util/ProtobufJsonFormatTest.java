@@ -27,6 +27,7 @@ import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.text.JsonWriter;
 import org.sonar.core.test.Test.Countries;
 import org.sonar.core.test.Test.Country;
+import org.sonar.core.test.Test.Fake;
 import org.sonar.core.test.Test.NestedMsg;
 import org.sonar.core.test.Test.PrimitiveTypeMsg;
 import org.sonar.core.test.Test.TestArray;
@@ -214,4 +215,11 @@ public class ProtobufJsonFormatTest {
   public void constructor_is_private() throws Exception {
     assertThat(TestUtils.hasOnlyPrivateConstructors(ProtobufJsonFormat.class)).isTrue();
   }
+
+  @Test
+  public void use_generated_writer_when_available() {
+    Fake fake = Fake.newBuilder().setLabel("foo").setLine(3).build();
+
+    assertThat(toJson(fake)).isEqualTo("{\"generated\":\"foo\"}");
+  }
 }
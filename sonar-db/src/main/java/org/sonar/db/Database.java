@@ -22,6 +22,7 @@ package org.sonar.db;
 import javax.sql.DataSource;
 import org.picocontainer.Startable;
 import org.sonar.db.dialect.Dialect;
+import org.sonar.db.profiling.SqlStatistics;
 
 /**
  * @since 2.12
@@ -38,4 +39,13 @@ public interface Database extends Startable {
   Dialect getDialect();
 
   void enableSqlLogging(boolean enable);
+
+  /**
+   * Statistics of the SQL statements executed by MyBatis mappers since startup. Implementations which
+   * do not collect statistics return empty statistics.
+   * @since 6.0
+   */
+  default SqlStatistics getSqlStatistics() {
+    return new SqlStatistics();
+  }
 }
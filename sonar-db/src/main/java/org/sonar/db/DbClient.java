@@ -36,6 +36,7 @@ import org.sonar.db.dashboard.DashboardDao;
 import org.sonar.db.dashboard.WidgetDao;
 import org.sonar.db.dashboard.WidgetPropertyDao;
 import org.sonar.db.duplication.DuplicationDao;
+import org.sonar.db.es.EsQueueDao;
 import org.sonar.db.event.EventDao;
 import org.sonar.db.issue.IssueChangeDao;
 import org.sonar.db.issue.IssueDao;
@@ -99,6 +100,7 @@ public class DbClient {
   private final IssueChangeDao issueChangeDao;
   private final CeQueueDao ceQueueDao;
   private final CeActivityDao ceActivityDao;
+  private final EsQueueDao esQueueDao;
   private final DashboardDao dashboardDao;
   private final ActiveDashboardDao activeDashboardDao;
   private final WidgetDao widgetDao;
@@ -154,6 +156,7 @@ public class DbClient {
     issueChangeDao = getDao(map, IssueChangeDao.class);
     ceQueueDao = getDao(map, CeQueueDao.class);
     ceActivityDao = getDao(map, CeActivityDao.class);
+    esQueueDao = getDao(map, EsQueueDao.class);
     dashboardDao = getDao(map, DashboardDao.class);
     activeDashboardDao = getDao(map, ActiveDashboardDao.class);
     widgetDao = getDao(map, WidgetDao.class);
@@ -298,6 +301,10 @@ public class DbClient {
     return ceActivityDao;
   }
 
+  public EsQueueDao esQueueDao() {
+    return esQueueDao;
+  }
+
   public DashboardDao dashboardDao() {
     return dashboardDao;
   }
@@ -39,6 +39,7 @@ import org.sonar.db.dialect.DialectUtils;
 import org.sonar.db.profiling.NullConnectionInterceptor;
 import org.sonar.db.profiling.ProfiledConnectionInterceptor;
 import org.sonar.db.profiling.ProfiledDataSource;
+import org.sonar.db.profiling.SqlStatistics;
 
 import static java.lang.String.format;
 
@@ -55,6 +56,7 @@ public class DefaultDatabase implements Database {
   private static final String SONAR_JDBC_URL = "sonar.jdbc.url";
 
   private Settings settings;
+  private final SqlStatistics sqlStatistics = new SqlStatistics();
   private ProfiledDataSource datasource;
   private Dialect dialect;
   private Properties properties;
@@ -137,6 +139,11 @@ public class DefaultDatabase implements Database {
     enableSqlLogging(datasource, enable);
   }
 
+  @Override
+  public SqlStatistics getSqlStatistics() {
+    return sqlStatistics;
+  }
+
   private static void enableSqlLogging(ProfiledDataSource ds, boolean enable) {
     ds.setConnectionInterceptor(enable ? ProfiledConnectionInterceptor.INSTANCE : NullConnectionInterceptor.INSTANCE);
   }
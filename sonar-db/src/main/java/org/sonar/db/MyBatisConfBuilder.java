@@ -29,6 +29,7 @@ import org.apache.ibatis.type.JdbcType;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.dialect.Dialect;
+import org.sonar.db.profiling.SqlStatisticsInterceptor;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
@@ -47,6 +48,7 @@ public final class MyBatisConfBuilder {
     this.conf.getVariables().setProperty("_true", dialect.getTrueSqlValue());
     this.conf.getVariables().setProperty("_false", dialect.getFalseSqlValue());
     this.conf.getVariables().setProperty("_scrollFetchSize", String.valueOf(dialect.getScrollDefaultFetchSize()));
+    this.conf.addInterceptor(new SqlStatisticsInterceptor(database.getSqlStatistics()));
   }
 
   public void loadAlias(String alias, Class dtoClass) {
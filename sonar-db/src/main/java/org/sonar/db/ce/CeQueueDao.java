@@ -33,7 +33,12 @@ import static org.sonar.db.ce.CeQueueDto.Status.PENDING;
 
 public class CeQueueDao implements Dao {
 
-  private static final RowBounds ONE_ROW_LIMIT = new RowBounds(0, 1);
+  /**
+   * Number of eligible tasks loaded by {@link #peek(DbSession)}. If the first one is claimed by another worker
+   * in the meantime, the next ones are tried without executing again the query of eligible tasks. As eligible
+   * tasks are on distinct components, these next ones never run concurrently with the claimed one.
+   */
+  private static final RowBounds PEEK_CANDIDATES_LIMIT = new RowBounds(0, 10);
 
   private final System2 system2;
 
@@ -108,17 +113,37 @@ public class CeQueueDao implements Dao {
     return mapper(dbSession).countByStatusAndComponentUuid(status, componentUuid);
   }
 
+  /**
+   * Creation date of the most recent pending task. This query is much lighter than {@link #peek(DbSession)}, so
+   * it can be frequently executed to detect tasks submitted by another process.
+   */
+  public Optional<Long> selectMaxCreatedAtOfPending(DbSession session) {
+    return Optional.fromNullable(mapper(session).selectMaxCreatedAtOfPending());
+  }
+
   public Optional<CeQueueDto> peek(DbSession session) {
-    List<String> taskUuids = mapper(session).selectEligibleForPeek(ONE_ROW_LIMIT);
-    if (taskUuids.isEmpty()) {
-      return Optional.absent();
+    for (String taskUuid : selectEligibleForPeek(session)) {
+      Optional<CeQueueDto> peeked = tryToPeek(session, taskUuid);
+      if (peeked.isPresent()) {
+        return peeked;
+      }
     }
+    return Optional.absent();
+  }
 
-    String taskUuid = taskUuids.get(0);
-    return tryToPeek(session, taskUuid);
+  /**
+   * Uuids of the oldest pending tasks which can be peeked, as no other task is in progress on the same component.
+   * Only the oldest pending task of each component is returned, so that a later task of a component is never peeked
+   * when its oldest one has been peeked by another worker in the meantime.
+   */
+  public List<String> selectEligibleForPeek(DbSession session) {
+    return mapper(session).selectEligibleForPeek(PEEK_CANDIDATES_LIMIT);
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
+  /**
+   * Changes the status of the task to in-progress, unless it has been peeked by another worker in the meantime.
+   */
+  public Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
     int touchedRows = mapper(session).updateIfStatus(taskUuid, IN_PROGRESS, system2.now(), system2.now(), PENDING);
     if (touchedRows != 1) {
       return Optional.absent();
@@ -37,6 +37,9 @@ public interface CeQueueMapper {
 
   List<String> selectEligibleForPeek(RowBounds rowBounds);
 
+  @CheckForNull
+  Long selectMaxCreatedAtOfPending();
+
   @CheckForNull
   CeQueueDto selectByUuid(@Param("uuid") String uuid);
 
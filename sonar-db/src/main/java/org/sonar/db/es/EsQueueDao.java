@@ -0,0 +1,69 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.es;
+
+import java.util.Collection;
+import java.util.List;
+import org.apache.ibatis.session.RowBounds;
+import org.sonar.api.utils.System2;
+import org.sonar.db.Dao;
+import org.sonar.db.DbSession;
+
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
+
+public class EsQueueDao implements Dao {
+
+  private final System2 system2;
+
+  public EsQueueDao(System2 system2) {
+    this.system2 = system2;
+  }
+
+  public EsQueueDto insert(DbSession session, String docType, String projectUuid) {
+    EsQueueDto dto = new EsQueueDto()
+      .setDocType(docType)
+      .setProjectUuid(projectUuid)
+      .setCreatedAt(system2.now());
+    mapper(session).insert(dto);
+    return dto;
+  }
+
+  /**
+   * Ordered by ascending id: oldest to newest
+   */
+  public List<EsQueueDto> selectOldest(DbSession session, int limit) {
+    return mapper(session).selectOldest(new RowBounds(0, limit));
+  }
+
+  public int countAll(DbSession session) {
+    return mapper(session).countAll();
+  }
+
+  public void delete(DbSession session, Collection<Long> ids) {
+    executeLargeInputsWithoutOutput(ids, partition -> {
+      mapper(session).deleteByIds(partition);
+      return null;
+    });
+  }
+
+  private static EsQueueMapper mapper(DbSession session) {
+    return session.getMapper(EsQueueMapper.class);
+  }
+}
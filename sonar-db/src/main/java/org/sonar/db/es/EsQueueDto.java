@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.es;
+
+/**
+ * Request to index in Elasticsearch some documents of a project, persisted in table ES_QUEUE until it is processed.
+ */
+public class EsQueueDto {
+
+  public static final String DOC_TYPE_ISSUES = "issues";
+  public static final String DOC_TYPE_TESTS = "tests";
+
+  private Long id;
+  private String docType;
+  private String projectUuid;
+  private long createdAt;
+
+  public Long getId() {
+    return id;
+  }
+
+  public EsQueueDto setId(Long id) {
+    this.id = id;
+    return this;
+  }
+
+  public String getDocType() {
+    return docType;
+  }
+
+  public EsQueueDto setDocType(String docType) {
+    this.docType = docType;
+    return this;
+  }
+
+  public String getProjectUuid() {
+    return projectUuid;
+  }
+
+  public EsQueueDto setProjectUuid(String projectUuid) {
+    this.projectUuid = projectUuid;
+    return this;
+  }
+
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  public EsQueueDto setCreatedAt(long createdAt) {
+    this.createdAt = createdAt;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return "EsQueueDto{" +
+      "id=" + id +
+      ", docType='" + docType + '\'' +
+      ", projectUuid='" + projectUuid + '\'' +
+      ", createdAt=" + createdAt +
+      '}';
+  }
+}
@@ -25,12 +25,14 @@ import java.util.List;
 import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.SnapshotDto;
 
 import static com.google.common.collect.FluentIterable.from;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
 
 public class MeasureDao implements Dao {
 
@@ -67,6 +69,19 @@ public class MeasureDao implements Dao {
         SnapshotDto.STATUS_PROCESSED));
   }
 
+  /**
+   * Streams the measures of all the components of a project snapshot, excluding measures on developers.
+   * The field {@link PastMeasureDto#getComponentUuid()} is populated.
+   */
+  public void selectByProjectSnapshotIdAndMetricIds(DbSession session, long projectSnapshotId, Set<Integer> metricIds, ResultHandler handler) {
+    executeLargeInputsWithoutOutput(
+      metricIds,
+      ids -> {
+        mapper(session).selectByProjectSnapshotIdAndStatusAndMetricIds(projectSnapshotId, ids, SnapshotDto.STATUS_PROCESSED, handler);
+        return null;
+      });
+  }
+
   /**
    * Used by plugin Developer Cockpit
    */
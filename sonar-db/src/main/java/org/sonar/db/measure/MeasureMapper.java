@@ -24,6 +24,7 @@ import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 public interface MeasureMapper {
 
@@ -51,6 +52,9 @@ public interface MeasureMapper {
   List<PastMeasureDto> selectByComponentUuidAndProjectSnapshotIdAndStatusAndMetricIds(@Param("componentUuid") String componentuuid, @Param("rootSnapshotId") long rootSnapshotId,
     @Param("metricIds") List<Integer> metricIds, @Param("status") String status);
 
+  void selectByProjectSnapshotIdAndStatusAndMetricIds(@Param("rootSnapshotId") long rootSnapshotId, @Param("metricIds") List<Integer> metricIds,
+    @Param("status") String status, ResultHandler resultHandler);
+
   void insert(MeasureDto measureDto);
 
   List<String> selectMetricKeysForSnapshot(@Param("snapshotId") long snapshotId);
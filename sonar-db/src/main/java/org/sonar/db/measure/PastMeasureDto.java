@@ -29,6 +29,7 @@ public class PastMeasureDto {
   private Double value;
   private Integer metricId;
   private Integer personId;
+  private String componentUuid;
 
   public Long getId() {
     return id;
@@ -72,4 +73,16 @@ public class PastMeasureDto {
     return this;
   }
 
+  /**
+   * Populated only when measures of several components are loaded at once.
+   */
+  @CheckForNull
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
+  public PastMeasureDto setComponentUuid(@Nullable String componentUuid) {
+    this.componentUuid = componentUuid;
+    return this;
+  }
 }
@@ -30,6 +30,7 @@ public class SqlLogFormatter {
   public static final int PARAM_MAX_WIDTH = 500;
   private static final String PARAM_NULL = "[null]";
   private static final Pattern NEWLINE_PATTERN = Pattern.compile("\\n");
+  private static final Pattern PARAMETERS_LIST_PATTERN = Pattern.compile("\\(\\?(, \\?)+\\)");
 
   private SqlLogFormatter() {
     // only statics
@@ -39,6 +40,82 @@ public class SqlLogFormatter {
     return StringUtils.replaceChars(sql, '\n', ' ');
   }
 
+  /**
+   * Key used to aggregate the statistics of a statement: whitespaces are collapsed,
+   * literals are replaced by ? and lists of parameters, for example generated by
+   * MyBatis {@code <foreach>}, are collapsed to a single parameter.
+   */
+  public static String normalizeSql(String sql) {
+    StringBuilder sb = new StringBuilder(sql.length());
+    int i = 0;
+    while (i < sql.length()) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i = skipWhitespaces(sql, i);
+        if (sb.length() > 0 && i < sql.length() && !isSeparator(sb.charAt(sb.length() - 1)) && !isCloseGroup(sql.charAt(i))) {
+          sb.append(' ');
+        }
+      } else if (c == '\'') {
+        i = skipStringLiteral(sql, i);
+        sb.append('?');
+      } else if (Character.isDigit(c) && (sb.length() == 0 || !isIdentifierPart(sb.charAt(sb.length() - 1)))) {
+        i = skipNumberLiteral(sql, i);
+        sb.append('?');
+      } else if (c == ',') {
+        sb.append(", ");
+        i++;
+      } else {
+        sb.append(c);
+        i++;
+      }
+    }
+    return PARAMETERS_LIST_PATTERN.matcher(sb).replaceAll("(?)");
+  }
+
+  private static int skipWhitespaces(String sql, int from) {
+    int i = from;
+    while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipStringLiteral(String sql, int from) {
+    int i = from + 1;
+    while (i < sql.length()) {
+      if (sql.charAt(i) == '\'') {
+        // quotes are escaped by doubling them
+        if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+          i += 2;
+          continue;
+        }
+        return i + 1;
+      }
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipNumberLiteral(String sql, int from) {
+    int i = from;
+    while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$';
+  }
+
+  private static boolean isSeparator(char c) {
+    return c == '(' || c == ' ';
+  }
+
+  private static boolean isCloseGroup(char c) {
+    return c == ')' || c == ',';
+  }
+
   public static String formatParam(@Nullable Object param) {
     if (param == null) {
       return PARAM_NULL;
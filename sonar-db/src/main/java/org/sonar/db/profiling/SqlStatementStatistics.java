@@ -0,0 +1,139 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution statistics of a normalized SQL statement. Updates are lock-free and
+ * striped, so that concurrent executions of the same statement do not contend.
+ * <p/>
+ * Latencies are recorded in microseconds in a log-linear histogram: each power of two
+ * is divided in {@link #SUB_BUCKETS} linear sub-buckets, so the relative error
+ * of percentiles is lower than 25%.
+ */
+public class SqlStatementStatistics {
+
+  static final int SUB_BUCKETS = 4;
+  private static final int SUB_BUCKET_BITS = 2;
+  // values up to 2^40 microseconds, about 12 days
+  private static final int MAX_EXPONENT = 40;
+  static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final String sql;
+  private final LongAdder executions = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+  private final LongAccumulator maxMicros = new LongAccumulator(Long::max, 0L);
+  private final LongAdder rows = new LongAdder();
+  private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+  SqlStatementStatistics(String sql) {
+    this.sql = sql;
+  }
+
+  void recordExecution(long durationNanos) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+    executions.increment();
+    totalMicros.add(micros);
+    maxMicros.accumulate(micros);
+    histogram.incrementAndGet(bucketOf(micros));
+  }
+
+  void addRows(long count) {
+    if (count > 0L) {
+      rows.add(count);
+    }
+  }
+
+  /**
+   * Normalized SQL, see {@link SqlLogFormatter#normalizeSql(String)}
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  public long getExecutions() {
+    return executions.sum();
+  }
+
+  public long getTotalTimeMicros() {
+    return totalMicros.sum();
+  }
+
+  public long getMaxTimeMicros() {
+    return maxMicros.get();
+  }
+
+  /**
+   * Number of rows read from result sets, or updated
+   */
+  public long getRows() {
+    return rows.sum();
+  }
+
+  /**
+   * Upper bound, in microseconds, of the latency of the given percentile of executions,
+   * for example 0.99 for the 99th percentile. Returns 0 if statement has never been executed.
+   */
+  public long getPercentileMicros(double percentile) {
+    if (percentile <= 0.0 || percentile > 1.0) {
+      throw new IllegalArgumentException("Percentile must be in range ]0, 1]: " + percentile);
+    }
+    long[] counts = new long[BUCKETS];
+    long total = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = histogram.get(i);
+      total += counts[i];
+    }
+    long threshold = (long) Math.ceil(percentile * total);
+    long cumulated = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      cumulated += counts[i];
+      if (cumulated > 0L && cumulated >= threshold) {
+        return Math.min(upperBoundOf(i), getMaxTimeMicros());
+      }
+    }
+    return 0L;
+  }
+
+  static int bucketOf(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) Math.max(micros, 0L);
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+    int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+    return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1L;
+  }
+}
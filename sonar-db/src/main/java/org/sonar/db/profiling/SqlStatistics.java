@@ -0,0 +1,95 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Always-on statistics of the SQL statements executed through {@link SqlStatisticsInterceptor},
+ * aggregated by normalized SQL. The number of distinct statements is bounded: when
+ * {@link #MAX_STATEMENTS} is reached, new statements are aggregated under {@link #OTHER_STATEMENTS}.
+ */
+public class SqlStatistics {
+
+  static final int MAX_STATEMENTS = 2_000;
+  // raw SQL differ from normalized SQL by literals and by the size of lists of parameters
+  static final int MAX_RAW_STATEMENTS = 10 * MAX_STATEMENTS;
+  public static final String OTHER_STATEMENTS = "<other statements>";
+
+  private final ConcurrentMap<String, SqlStatementStatistics> statementsBySql = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, SqlStatementStatistics> statementsByRawSql = new ConcurrentHashMap<>();
+
+  /**
+   * Statistics of the given raw SQL. Normalization is not free, so its result is
+   * remembered for the SQL which are executed many times.
+   */
+  SqlStatementStatistics of(String sql) {
+    SqlStatementStatistics statement = statementsByRawSql.get(sql);
+    if (statement != null) {
+      return statement;
+    }
+    statement = ofNormalized(SqlLogFormatter.normalizeSql(sql));
+    if (statementsByRawSql.size() < MAX_RAW_STATEMENTS) {
+      statementsByRawSql.put(sql, statement);
+    }
+    return statement;
+  }
+
+  private SqlStatementStatistics ofNormalized(String normalizedSql) {
+    SqlStatementStatistics statement = statementsBySql.get(normalizedSql);
+    if (statement != null) {
+      return statement;
+    }
+    String key = statementsBySql.size() < MAX_STATEMENTS ? normalizedSql : OTHER_STATEMENTS;
+    return statementsBySql.computeIfAbsent(key, SqlStatementStatistics::new);
+  }
+
+  public List<SqlStatementStatistics> getStatements() {
+    return new ArrayList<>(statementsBySql.values());
+  }
+
+  public long getExecutions() {
+    long executions = 0L;
+    for (SqlStatementStatistics statement : statementsBySql.values()) {
+      executions += statement.getExecutions();
+    }
+    return executions;
+  }
+
+  public long getTotalTimeMicros() {
+    long total = 0L;
+    for (SqlStatementStatistics statement : statementsBySql.values()) {
+      total += statement.getTotalTimeMicros();
+    }
+    return total;
+  }
+
+  /**
+   * Drop all the statistics. Statements which are being executed when reset is
+   * called may keep on updating the dropped statistics.
+   */
+  public void reset() {
+    statementsByRawSql.clear();
+    statementsBySql.clear();
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * MyBatis plugin which records the {@link SqlStatistics} of the statements executed by mappers. Only
+ * the execution of statements is intercepted: neither connections nor result sets are wrapped.
+ * <p/>
+ * Rows are those returned by queries or updated by updates. Rows of queries streamed to a
+ * {@link ResultHandler} and rows of batches are not counted.
+ */
+@Intercepts({
+  @Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
+  @Signature(type = StatementHandler.class, method = "update", args = {Statement.class}),
+  @Signature(type = StatementHandler.class, method = "batch", args = {Statement.class})
+})
+public class SqlStatisticsInterceptor implements Interceptor {
+
+  private final SqlStatistics statistics;
+
+  public SqlStatisticsInterceptor(SqlStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    StatementHandler handler = (StatementHandler) invocation.getTarget();
+    SqlStatementStatistics statementStatistics = statistics.of(handler.getBoundSql().getSql());
+    long start = System.nanoTime();
+    Object result;
+    try {
+      result = invocation.proceed();
+    } finally {
+      statementStatistics.recordExecution(System.nanoTime() - start);
+    }
+    if (result instanceof List) {
+      statementStatistics.addRows(((List) result).size());
+    } else if (result instanceof Integer) {
+      statementStatistics.addRows((Integer) result);
+    }
+    return result;
+  }
+
+  @Override
+  public Object plugin(Object target) {
+    if (target instanceof StatementHandler) {
+      return Plugin.wrap(target, this);
+    }
+    return target;
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    // no properties
+  }
+}
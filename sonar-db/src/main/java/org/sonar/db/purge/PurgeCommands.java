@@ -23,12 +23,22 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.ToIntBiFunction;
+import javax.annotation.Nullable;
+import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.session.SqlSession;
+import org.sonar.db.DbSession;
+import org.sonar.db.MyBatis;
 
 import static com.google.common.collect.FluentIterable.from;
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 
 class PurgeCommands {
 
@@ -38,11 +48,25 @@ class PurgeCommands {
   private final SqlSession session;
   private final PurgeMapper purgeMapper;
   private final PurgeProfiler profiler;
+  @Nullable
+  private final MyBatis mybatis;
+  @Nullable
+  private final ExecutorService executor;
 
   PurgeCommands(SqlSession session, PurgeMapper purgeMapper, PurgeProfiler profiler) {
+    this(session, purgeMapper, profiler, null, null);
+  }
+
+  /**
+   * When {@code executor} is not null, the deletions of tables which do not depend on each other are executed
+   * concurrently, each one on its own session opened by {@code mybatis}.
+   */
+  PurgeCommands(SqlSession session, PurgeMapper purgeMapper, PurgeProfiler profiler, @Nullable MyBatis mybatis, @Nullable ExecutorService executor) {
     this.session = session;
     this.purgeMapper = purgeMapper;
     this.profiler = profiler;
+    this.mybatis = mybatis;
+    this.executor = executor;
   }
 
   @VisibleForTesting
@@ -67,82 +91,21 @@ class PurgeCommands {
 
     // possible missing optimization: filter requests according to resource scope
 
-    profiler.start("deleteResourceLinks (project_links)");
-    for (List<String> componentUuidPartition : componentUuidsPartitions) {
-      purgeMapper.deleteResourceLinks(componentUuidPartition);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceProperties (properties)");
-    for (List<Long> partResourceIds : componentIdPartitions) {
-      purgeMapper.deleteResourceProperties(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceIndex (resource_index)");
-    for (List<Long> partResourceIds : componentIdPartitions) {
-      purgeMapper.deleteResourceIndex(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceGroupRoles (group_roles)");
-    for (List<Long> partResourceIds : componentIdPartitions) {
-      purgeMapper.deleteResourceGroupRoles(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceUserRoles (user_roles)");
-    for (List<Long> partResourceIds : componentIdPartitions) {
-      purgeMapper.deleteResourceUserRoles(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceManualMeasures (manual_measures)");
-    for (List<String> componentUuidPartition : componentUuidsPartitions) {
-      purgeMapper.deleteResourceManualMeasures(componentUuidPartition);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteComponentIssueChanges (issue_changes)");
-    for (List<String> componentUuidPartition : componentUuidsPartitions) {
-      purgeMapper.deleteComponentIssueChanges(componentUuidPartition);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteComponentIssues (issues)");
-    for (List<String> componentUuidPartition : componentUuidsPartitions) {
-      purgeMapper.deleteComponentIssues(componentUuidPartition);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteComponentEvents (events)");
-    for (List<String> componentUuidPartition : componentUuidsPartitions) {
-      purgeMapper.deleteComponentEvents(componentUuidPartition);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResource (projects)");
-    for (List<Long> partResourceIds : componentIdPartitions) {
-      purgeMapper.deleteResource(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAuthors (authors)");
-    for (List<Long> partResourceIds : componentIdPartitions) {
-      purgeMapper.deleteAuthors(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
+    execute(
+      deletion("deleteResourceLinks (project_links)", componentUuidsPartitions, PurgeMapper::deleteResourceLinks),
+      deletion("deleteResourceProperties (properties)", componentIdPartitions, PurgeMapper::deleteResourceProperties),
+      deletion("deleteResourceIndex (resource_index)", componentIdPartitions, PurgeMapper::deleteResourceIndex),
+      deletion("deleteResourceGroupRoles (group_roles)", componentIdPartitions, PurgeMapper::deleteResourceGroupRoles),
+      deletion("deleteResourceUserRoles (user_roles)", componentIdPartitions, PurgeMapper::deleteResourceUserRoles),
+      deletion("deleteResourceManualMeasures (manual_measures)", componentUuidsPartitions, PurgeMapper::deleteResourceManualMeasures),
+      // issue changes are selected through their issues
+      deletion("deleteComponentIssueChanges (issue_changes)", componentUuidsPartitions, PurgeMapper::deleteComponentIssueChanges)
+        .andThen(deletion("deleteComponentIssues (issues)", componentUuidsPartitions, PurgeMapper::deleteComponentIssues)),
+      deletion("deleteComponentEvents (events)", componentUuidsPartitions, PurgeMapper::deleteComponentEvents),
+      deletion("deleteAuthors (authors)", componentIdPartitions, PurgeMapper::deleteAuthors));
+
+    // components are deleted last so that an interrupted purge is executed again on next analysis
+    execute(deletion("deleteResource (projects)", componentIdPartitions, PurgeMapper::deleteResource));
   }
 
   void deleteSnapshots(PurgeSnapshotQuery... queries) {
@@ -154,31 +117,18 @@ class PurgeCommands {
 
   @VisibleForTesting
   protected void deleteSnapshots(final List<Long> snapshotIds) {
+    if (snapshotIds.isEmpty()) {
+      return;
+    }
 
     List<List<Long>> snapshotIdsPartition = Lists.partition(snapshotIds, MAX_SNAPSHOTS_PER_QUERY);
 
-    deleteSnapshotDuplications(snapshotIdsPartition);
-
-    profiler.start("deleteSnapshotEvents (events)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshotEvents(partSnapshotIds);
-    }
-    session.commit();
-    profiler.stop();
+    execute(
+      deletion("deleteSnapshotDuplications (duplications_index)", snapshotIdsPartition, PurgeMapper::deleteSnapshotDuplications),
+      deletion("deleteSnapshotEvents (events)", snapshotIdsPartition, PurgeMapper::deleteSnapshotEvents),
+      deletion("deleteSnapshotMeasures (project_measures)", snapshotIdsPartition, PurgeMapper::deleteSnapshotMeasures));
 
-    profiler.start("deleteSnapshotMeasures (project_measures)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshotMeasures(partSnapshotIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteSnapshot (snapshots)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshot(partSnapshotIds);
-    }
-    session.commit();
-    profiler.stop();
+    execute(deletion("deleteSnapshot (snapshots)", snapshotIdsPartition, PurgeMapper::deleteSnapshot));
   }
 
   void purgeSnapshots(PurgeSnapshotQuery... queries) {
@@ -190,17 +140,16 @@ class PurgeCommands {
   @VisibleForTesting
   protected void purgeSnapshots(Iterable<Long> snapshotIds) {
     // note that events are not deleted
+    if (Iterables.isEmpty(snapshotIds)) {
+      return;
+    }
     Iterable<List<Long>> snapshotIdsPartition = Iterables.partition(snapshotIds, MAX_SNAPSHOTS_PER_QUERY);
 
-    deleteSnapshotDuplications(snapshotIdsPartition);
-
-    profiler.start("deleteSnapshotWastedMeasures (project_measures)");
     List<Long> metricIdsWithoutHistoricalData = purgeMapper.selectMetricIdsWithoutHistoricalData();
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshotWastedMeasures(partSnapshotIds, metricIdsWithoutHistoricalData);
-    }
-    session.commit();
-    profiler.stop();
+    execute(
+      deletion("deleteSnapshotDuplications (duplications_index)", snapshotIdsPartition, PurgeMapper::deleteSnapshotDuplications),
+      deletion("deleteSnapshotWastedMeasures (project_measures)", snapshotIdsPartition,
+        (mapper, partSnapshotIds) -> mapper.deleteSnapshotWastedMeasures(partSnapshotIds, metricIdsWithoutHistoricalData)));
 
     profiler.start("updatePurgeStatusToOne (snapshots)");
     for (Long snapshotId : snapshotIds) {
@@ -210,26 +159,86 @@ class PurgeCommands {
     profiler.stop();
   }
 
-  private void deleteSnapshotDuplications(Iterable<List<Long>> snapshotIdsPartition) {
-    profiler.start("deleteSnapshotDuplications (duplications_index)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshotDuplications(partSnapshotIds);
+  public void deleteFileSources(String rootUuid) {
+    execute(deletion("deleteFileSources (file_sources)", singletonList(rootUuid), PurgeMapper::deleteFileSourcesByProjectUuid));
+  }
+
+  public void deleteCeActivity(String rootUuid) {
+    execute(deletion("deleteCeActivity (ce_activity)", singletonList(rootUuid), PurgeMapper::deleteCeActivityByProjectUuid));
+  }
+
+  /**
+   * Deletes the rows of a table with one statement per element of {@code parameters}. Each statement is committed
+   * on its own so that transactions, and the locks they hold, are bounded by the size of the partitions.
+   */
+  private <T> Deletion deletion(String table, Iterable<T> parameters, ToIntBiFunction<PurgeMapper, T> delete) {
+    return (deletionSession, mapper) -> {
+      long start = profiler.now();
+      long rows = 0L;
+      for (T parameter : parameters) {
+        rows += deletedRows(deletionSession, delete.applyAsInt(mapper, parameter));
+        deletionSession.commit();
+      }
+      profiler.record(table, profiler.now() - start, rows);
+    };
+  }
+
+  /**
+   * Statements of batch sessions return a negative placeholder. The actual counts are known once flushed.
+   */
+  private static long deletedRows(SqlSession session, int result) {
+    if (result >= 0) {
+      return result;
     }
-    session.commit();
-    profiler.stop();
+    long rows = 0L;
+    for (BatchResult batchResult : session.flushStatements()) {
+      for (int count : batchResult.getUpdateCounts()) {
+        rows += Math.max(count, 0);
+      }
+    }
+    return rows;
   }
 
-  public void deleteFileSources(String rootUuid) {
-    profiler.start("deleteFileSources (file_sources)");
-    purgeMapper.deleteFileSourcesByProjectUuid(rootUuid);
+  /**
+   * Executes deletions of tables which do not depend on each other, concurrently if an executor is available.
+   */
+  private void execute(Deletion... deletions) {
+    if (executor == null || deletions.length == 1) {
+      for (Deletion deletion : deletions) {
+        deletion.execute(session, purgeMapper);
+      }
+      return;
+    }
+
+    // release the locks of the caller before deleting from other sessions
     session.commit();
-    profiler.stop();
+    List<Future<?>> futures = new ArrayList<>(deletions.length);
+    for (Deletion deletion : deletions) {
+      futures.add(executor.submit(() -> executeInNewSession(deletion)));
+    }
+    for (Future<?> future : futures) {
+      Futures.getUnchecked(future);
+    }
   }
 
-  public void deleteCeActivity(String rootUuid) {
-    profiler.start("deleteCeActivity (ce_activity)");
-    purgeMapper.deleteCeActivityByProjectUuid(rootUuid);
-    session.commit();
-    profiler.stop();
+  private void executeInNewSession(Deletion deletion) {
+    DbSession deletionSession = mybatis.openSession(true);
+    try {
+      deletion.execute(deletionSession, deletionSession.getMapper(PurgeMapper.class));
+    } finally {
+      MyBatis.closeQuietly(deletionSession);
+    }
+  }
+
+  @FunctionalInterface
+  private interface Deletion {
+    void execute(SqlSession session, PurgeMapper mapper);
+
+    default Deletion andThen(Deletion next) {
+      return (session, mapper) -> {
+        execute(session, mapper);
+        next.execute(session, mapper);
+      };
+    }
   }
 }
@@ -20,11 +20,16 @@
 package org.sonar.db.purge;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.ibatis.session.SqlSession;
 import org.sonar.api.resources.Scopes;
@@ -71,17 +76,38 @@ public class PurgeDao implements Dao {
 
   public void purge(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler) {
     PurgeMapper mapper = session.getMapper(PurgeMapper.class);
-    PurgeCommands commands = new PurgeCommands(session, mapper, profiler);
-    List<ResourceDto> projects = getProjects(conf.rootProjectIdUuid().getId(), session);
-    for (ResourceDto project : projects) {
-      LOG.debug("-> Clean " + project.getLongName() + " [id=" + project.getId() + "]");
-      deleteAbortedBuilds(project, commands);
-      purge(project, conf.scopesWithoutHistoricalData(), commands);
+    ExecutorService executor = newExecutor(conf.threads());
+    try {
+      PurgeCommands commands = new PurgeCommands(session, mapper, profiler, mybatis, executor);
+      List<ResourceDto> projects = getProjects(conf.rootProjectIdUuid().getId(), session);
+      for (ResourceDto project : projects) {
+        LOG.debug("-> Clean " + project.getLongName() + " [id=" + project.getId() + "]");
+        deleteAbortedBuilds(project, conf.maxSnapshotId(), commands);
+        purge(project, conf.scopesWithoutHistoricalData(), conf.maxSnapshotId(), commands);
+      }
+      for (ResourceDto project : projects) {
+        disableOrphanResources(project, session, mapper, listener);
+      }
+      deleteOldClosedIssues(conf, mapper, listener);
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
     }
-    for (ResourceDto project : projects) {
-      disableOrphanResources(project, session, mapper, listener);
+  }
+
+  /**
+   * Tables are purged sequentially on the session of the caller when a single thread is configured
+   */
+  @CheckForNull
+  private static ExecutorService newExecutor(int threads) {
+    if (threads <= 1) {
+      return null;
     }
-    deleteOldClosedIssues(conf, mapper, listener);
+    return Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("DB_purge-%d")
+      .build());
   }
 
   private static void deleteOldClosedIssues(PurgeConfiguration conf, PurgeMapper mapper, PurgeListener listener) {
@@ -98,21 +124,23 @@ public class PurgeDao implements Dao {
     listener.onIssuesRemoval(conf.rootProjectIdUuid().getUuid(), issueKeys);
   }
 
-  private static void deleteAbortedBuilds(ResourceDto project, PurgeCommands commands) {
+  private static void deleteAbortedBuilds(ResourceDto project, @Nullable Long maxSnapshotId, PurgeCommands commands) {
     LOG.debug("<- Delete aborted builds");
     PurgeSnapshotQuery query = PurgeSnapshotQuery.create()
       .setIslast(false)
       .setStatus(UNPROCESSED_STATUS)
-      .setRootProjectId(project.getId());
+      .setRootProjectId(project.getId())
+      .setMaxId(maxSnapshotId);
     commands.deleteSnapshots(query);
   }
 
-  private static void purge(ResourceDto project, String[] scopesWithoutHistoricalData, PurgeCommands purgeCommands) {
+  private static void purge(ResourceDto project, String[] scopesWithoutHistoricalData, @Nullable Long maxSnapshotId, PurgeCommands purgeCommands) {
     List<Long> projectSnapshotIds = purgeCommands.selectSnapshotIds(
       PurgeSnapshotQuery.create()
         .setResourceId(project.getId())
         .setIslast(false)
-        .setNotPurged(true));
+        .setNotPurged(true)
+        .setMaxId(maxSnapshotId));
     for (Long projectSnapshotId : projectSnapshotIds) {
       LOG.debug("<- Clean snapshot " + projectSnapshotId);
       if (!ArrayUtils.isEmpty(scopesWithoutHistoricalData)) {
@@ -34,17 +34,17 @@ public interface PurgeMapper {
    */
   List<IdUuidPair> selectComponentsByProjectUuid(String projectUuid);
 
-  void deleteSnapshot(@Param("snapshotIds") List<Long> snapshotIds);
+  int deleteSnapshot(@Param("snapshotIds") List<Long> snapshotIds);
 
-  void deleteSnapshotDuplications(@Param("snapshotIds") List<Long> snapshotIds);
+  int deleteSnapshotDuplications(@Param("snapshotIds") List<Long> snapshotIds);
 
-  void deleteSnapshotEvents(@Param("snapshotIds") List<Long> snapshotIds);
+  int deleteSnapshotEvents(@Param("snapshotIds") List<Long> snapshotIds);
 
-  void deleteSnapshotMeasures(@Param("snapshotIds") List<Long> snapshotIds);
+  int deleteSnapshotMeasures(@Param("snapshotIds") List<Long> snapshotIds);
 
   List<Long> selectMetricIdsWithoutHistoricalData();
 
-  void deleteSnapshotWastedMeasures(@Param("snapshotIds") List<Long> snapshotIds, @Param("mids") List<Long> metricIds);
+  int deleteSnapshotWastedMeasures(@Param("snapshotIds") List<Long> snapshotIds, @Param("mids") List<Long> metricIds);
 
   void updatePurgeStatusToOne(long snapshotId);
 
@@ -52,35 +52,35 @@ public interface PurgeMapper {
 
   void resolveResourceIssuesNotAlreadyResolved(@Param("componentUuid") String componentUuid, @Param("dateAsLong") Long dateAsLong);
 
-  void deleteResourceIndex(@Param("resourceIds") List<Long> resourceIds);
+  int deleteResourceIndex(@Param("resourceIds") List<Long> resourceIds);
 
   void deleteEvent(long eventId);
 
   void setSnapshotIsLastToFalse(long resourceId);
 
-  void deleteResourceLinks(@Param("componentUuids") List<String> componentUuids);
+  int deleteResourceLinks(@Param("componentUuids") List<String> componentUuids);
 
-  void deleteResourceProperties(@Param("resourceIds") List<Long> resourceIds);
+  int deleteResourceProperties(@Param("resourceIds") List<Long> resourceIds);
 
-  void deleteResource(@Param("resourceIds") List<Long> resourceIds);
+  int deleteResource(@Param("resourceIds") List<Long> resourceIds);
 
-  void deleteResourceGroupRoles(@Param("resourceIds") List<Long> resourceIds);
+  int deleteResourceGroupRoles(@Param("resourceIds") List<Long> resourceIds);
 
-  void deleteResourceUserRoles(@Param("resourceIds") List<Long> resourceIds);
+  int deleteResourceUserRoles(@Param("resourceIds") List<Long> resourceIds);
 
-  void deleteResourceManualMeasures(@Param("componentUuids") List<String> componentUuids);
+  int deleteResourceManualMeasures(@Param("componentUuids") List<String> componentUuids);
 
-  void deleteComponentEvents(@Param("componentUuids") List<String> componentUuids);
+  int deleteComponentEvents(@Param("componentUuids") List<String> componentUuids);
 
-  void deleteAuthors(@Param("resourceIds") List<Long> resourceIds);
+  int deleteAuthors(@Param("resourceIds") List<Long> resourceIds);
 
   List<PurgeableSnapshotDto> selectPurgeableSnapshotsWithEvents(long resourceId);
 
   List<PurgeableSnapshotDto> selectPurgeableSnapshotsWithoutEvents(long resourceId);
 
-  void deleteComponentIssueChanges(@Param("componentUuids") List<String> componentUuids);
+  int deleteComponentIssueChanges(@Param("componentUuids") List<String> componentUuids);
 
-  void deleteComponentIssues(@Param("componentUuids") List<String> componentUuids);
+  int deleteComponentIssues(@Param("componentUuids") List<String> componentUuids);
 
   List<String> selectOldClosedIssueKeys(@Param("projectUuid") String projectUuid, @Nullable @Param("toDate") Long toDate);
 
@@ -88,10 +88,10 @@ public interface PurgeMapper {
 
   void deleteIssueChangesFromIssueKeys(@Param("issueKeys") List<String> issueKeys);
 
-  void deleteFileSourcesByProjectUuid(String rootProjectUuid);
+  int deleteFileSourcesByProjectUuid(String rootProjectUuid);
 
   void deleteFileSourcesByUuid(String fileUuid);
 
-  void deleteCeActivityByProjectUuid(String projectUuid);
+  int deleteCeActivityByProjectUuid(String projectUuid);
 
 }
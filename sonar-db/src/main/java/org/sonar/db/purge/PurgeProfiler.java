@@ -30,9 +30,14 @@ import java.util.Map.Entry;
 import org.sonar.api.utils.TimeUtils;
 import org.sonar.api.utils.log.Logger;
 
+/**
+ * Cumulates the time spent and the number of rows deleted per table. Deletions can be recorded
+ * concurrently by the threads of a purge, see {@link #record(String, long, long)}.
+ */
 public class PurgeProfiler {
 
-  private Map<String, Long> durations = new HashMap<>();
+  private final Map<String, Long> durations = new HashMap<>();
+  private final Map<String, Long> rows = new HashMap<>();
   private long startTime;
   private String currentTable;
   private final Clock clock;
@@ -46,8 +51,9 @@ public class PurgeProfiler {
     this.clock = clock;
   }
 
-  public void reset() {
+  public synchronized void reset() {
     durations.clear();
+    rows.clear();
   }
 
   void start(String table) {
@@ -56,16 +62,22 @@ public class PurgeProfiler {
   }
 
   void stop() {
-    final Long cumulatedDuration;
-    if (durations.containsKey(currentTable)) {
-      cumulatedDuration = durations.get(currentTable);
-    } else {
-      cumulatedDuration = 0L;
-    }
-    durations.put(currentTable, cumulatedDuration + (clock.now() - startTime));
+    record(currentTable, clock.now() - startTime, 0L);
+  }
+
+  long now() {
+    return clock.now();
   }
 
-  public void dump(long totalTime, Logger logger) {
+  /**
+   * Thread-safe alternative to {@link #start(String)} and {@link #stop()}.
+   */
+  synchronized void record(String table, long duration, long deletedRows) {
+    durations.merge(table, duration, Long::sum);
+    rows.merge(table, deletedRows, Long::sum);
+  }
+
+  public synchronized void dump(long totalTime, Logger logger) {
     List<Entry<String, Long>> data = new ArrayList<>(durations.entrySet());
     Collections.sort(data, new Comparator<Entry<String, Long>>() {
       @Override
@@ -78,6 +90,10 @@ public class PurgeProfiler {
       StringBuilder sb = new StringBuilder();
       sb.append("   o ").append(entry.getKey()).append(": ").append(TimeUtils.formatDuration(entry.getValue()))
         .append(" (").append((int) (entry.getValue() / percent)).append("%)");
+      long deletedRows = rows.get(entry.getKey());
+      if (deletedRows > 0) {
+        sb.append(", ").append(deletedRows).append(" rows (").append(deletedRows * 1000L / entry.getValue()).append(" rows/s)");
+      }
       logger.info(sb.toString());
     }
   }
@@ -30,6 +30,7 @@ public final class PurgeSnapshotQuery {
   private Boolean islast;
   private Boolean notPurged;
   private Boolean withVersionEvent;
+  private Long maxId;
 
   private PurgeSnapshotQuery() {
   }
@@ -47,6 +48,18 @@ public final class PurgeSnapshotQuery {
     return this;
   }
 
+  public Long getMaxId() {
+    return maxId;
+  }
+
+  /**
+   * Only the snapshots with an id lower than or equal to the given id
+   */
+  public PurgeSnapshotQuery setMaxId(Long l) {
+    this.maxId = l;
+    return this;
+  }
+
   public Long getRootProjectId() {
     return rootProjectId;
   }
@@ -0,0 +1,144 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import javax.annotation.CheckForNull;
+
+/**
+ * Line hashes of a file, as stored in column FILE_SOURCES.LINE_HASHES, with each MD5 hash kept as 16 bytes instead of
+ * a string of 32 hexadecimal characters. Lines without significant characters have an empty hash.
+ */
+final class CompactLineHashes {
+  private static final int DIGEST_LENGTH = 16;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final byte[] digests;
+  private final BitSet blankLines;
+  private final int lineCount;
+
+  private CompactLineHashes(byte[] digests, BitSet blankLines, int lineCount) {
+    this.digests = digests;
+    this.blankLines = blankLines;
+    this.lineCount = lineCount;
+  }
+
+  /**
+   * @return {@code null} if {@code lineHashes} is not made of lowercase MD5 hashes or empty hashes separated by '\n',
+   * in which case it can not be stored compactly.
+   */
+  @CheckForNull
+  static CompactLineHashes of(String lineHashes) {
+    int lineCount = 1;
+    for (int i = 0; i < lineHashes.length(); i++) {
+      if (lineHashes.charAt(i) == '\n') {
+        lineCount++;
+      }
+    }
+    byte[] digests = new byte[lineCount * DIGEST_LENGTH];
+    BitSet blankLines = new BitSet();
+    int line = 0;
+    int start = 0;
+    while (start <= lineHashes.length()) {
+      int end = lineHashes.indexOf('\n', start);
+      if (end < 0) {
+        end = lineHashes.length();
+      }
+      if (end == start) {
+        blankLines.set(line);
+      } else if (end - start != 2 * DIGEST_LENGTH || !decode(lineHashes, start, digests, line * DIGEST_LENGTH)) {
+        return null;
+      }
+      line++;
+      start = end + 1;
+    }
+    return new CompactLineHashes(digests, blankLines, lineCount);
+  }
+
+  private static boolean decode(String hex, int offset, byte[] target, int targetOffset) {
+    for (int i = 0; i < DIGEST_LENGTH; i++) {
+      int high = digit(hex.charAt(offset + 2 * i));
+      int low = digit(hex.charAt(offset + 2 * i + 1));
+      if (high < 0 || low < 0) {
+        return false;
+      }
+      target[targetOffset + i] = (byte) ((high << 4) | low);
+    }
+    return true;
+  }
+
+  private static int digit(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    }
+    return -1;
+  }
+
+  int lineCount() {
+    return lineCount;
+  }
+
+  String lineHash(int index) {
+    if (blankLines.get(index)) {
+      return "";
+    }
+    char[] chars = new char[2 * DIGEST_LENGTH];
+    for (int i = 0; i < DIGEST_LENGTH; i++) {
+      int b = digests[index * DIGEST_LENGTH + i] & 0xFF;
+      chars[2 * i] = HEX_DIGITS[b >>> 4];
+      chars[2 * i + 1] = HEX_DIGITS[b & 0x0F];
+    }
+    return new String(chars);
+  }
+
+  List<String> toList() {
+    List<String> res = new ArrayList<>(lineCount);
+    for (int i = 0; i < lineCount; i++) {
+      res.add(lineHash(i));
+    }
+    return res;
+  }
+
+  /**
+   * Same format as column FILE_SOURCES.LINE_HASHES
+   */
+  String toRawString() {
+    StringBuilder res = new StringBuilder(lineCount * (2 * DIGEST_LENGTH + 1));
+    for (int i = 0; i < lineCount; i++) {
+      if (i > 0) {
+        res.append('\n');
+      }
+      res.append(lineHash(i));
+    }
+    return res.toString();
+  }
+
+  /**
+   * Approximate number of bytes retained in memory
+   */
+  int weight() {
+    return digests.length + blankLines.size() / 8 + 64;
+  }
+}
@@ -22,23 +22,29 @@ package org.sonar.db.source;
 import com.google.common.base.Function;
 import com.google.common.base.Splitter;
 import java.io.Reader;
+import java.io.StringReader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
+
 public class FileSourceDao implements Dao {
 
   private static final Splitter END_OF_LINE_SPLITTER = Splitter.on('\n');
   private final MyBatis mybatis;
+  private final LineHashesCache lineHashesCache = new LineHashesCache(LineHashesCache.DEFAULT_MAX_WEIGHT);
 
   public FileSourceDao(MyBatis myBatis) {
     this.mybatis = myBatis;
@@ -49,6 +55,15 @@ public class FileSourceDao implements Dao {
     return mapper(session).select(fileUuid, Type.SOURCE);
   }
 
+  /**
+   * Date of the last update of the sources of the given file, without loading them.
+   * Returns {@code null} if the file has no sources.
+   */
+  @CheckForNull
+  public Long selectSourceUpdatedAt(DbSession session, String fileUuid) {
+    return mapper(session).selectUpdatedAt(fileUuid, Type.SOURCE);
+  }
+
   @CheckForNull
   public FileSourceDto selectTest(String fileUuid) {
     DbSession session = mybatis.openSession(false);
@@ -59,19 +74,30 @@ public class FileSourceDao implements Dao {
     }
   }
 
+  /**
+   * Line hashes are served by {@link #getLineHashesCache()} if they did not change since being cached. Otherwise they
+   * are loaded, along with the data hash, then cached.
+   */
   @CheckForNull
   public List<String> selectLineHashes(DbSession dbSession, String fileUuid) {
+    CompactLineHashes cachedLineHashes = selectCachedLineHashes(dbSession, fileUuid);
+    if (cachedLineHashes != null) {
+      return cachedLineHashes.toList();
+    }
     Connection connection = dbSession.getConnection();
     PreparedStatement pstmt = null;
     ResultSet rs = null;
     try {
-      pstmt = connection.prepareStatement("SELECT line_hashes FROM file_sources WHERE file_uuid=? AND data_type=?");
+      pstmt = connection.prepareStatement("SELECT line_hashes, data_hash FROM file_sources WHERE file_uuid=? AND data_type=?");
       pstmt.setString(1, fileUuid);
       pstmt.setString(2, Type.SOURCE);
       rs = pstmt.executeQuery();
       if (rs.next()) {
-        return END_OF_LINE_SPLITTER.splitToList(rs.getString(1));
+        String lineHashes = rs.getString(1);
+        lineHashesCache.put(fileUuid, rs.getString(2), lineHashes);
+        return lineHashes == null ? null : END_OF_LINE_SPLITTER.splitToList(lineHashes);
       }
+      lineHashesCache.invalidate(fileUuid);
       return null;
     } catch (SQLException e) {
       throw new IllegalStateException("Fail to read FILE_SOURCES.LINE_HASHES of file " + fileUuid, e);
@@ -80,7 +106,36 @@ public class FileSourceDao implements Dao {
     }
   }
 
+  /**
+   * Streams the source hash and the line hashes of the given files, in a single query per partition of uuids.
+   * Only the fields {@link FileSourceDto#getFileUuid()}, {@link FileSourceDto#getSrcHash()},
+   * {@link FileSourceDto#getDataHash()} and {@link FileSourceDto#getLineHashes()} are populated. Files without sources
+   * are ignored.
+   */
+  public void selectLineHashesByFileUuids(DbSession dbSession, Collection<String> fileUuids, ResultHandler handler) {
+    ResultHandler cachingHandler = context -> {
+      FileSourceDto dto = (FileSourceDto) context.getResultObject();
+      lineHashesCache.put(dto.getFileUuid(), dto.getDataHash(), dto.getLineHashes());
+      handler.handleResult(context);
+    };
+    executeLargeInputsWithoutOutput(
+      fileUuids,
+      uuids -> {
+        mapper(dbSession).selectLineHashesByFileUuids(uuids, Type.SOURCE, cachingHandler);
+        return null;
+      });
+  }
+
+  /**
+   * Line hashes are served by {@link #getLineHashesCache()} if they did not change since being cached. Otherwise they
+   * are streamed from db, without being cached.
+   */
   public <T> void readLineHashesStream(DbSession dbSession, String fileUuid, Function<Reader, T> function) {
+    CompactLineHashes cachedLineHashes = selectCachedLineHashes(dbSession, fileUuid);
+    if (cachedLineHashes != null) {
+      function.apply(new StringReader(cachedLineHashes.toRawString()));
+      return;
+    }
     Connection connection = dbSession.getConnection();
     PreparedStatement pstmt = null;
     ResultSet rs = null;
@@ -102,6 +157,22 @@ public class FileSourceDao implements Dao {
     }
   }
 
+  /**
+   * Line hashes from {@link #lineHashesCache}, if they are still valid for the data hash of the file in db. Data hash
+   * is not requested if line hashes are not cached.
+   */
+  @CheckForNull
+  private CompactLineHashes selectCachedLineHashes(DbSession dbSession, String fileUuid) {
+    return lineHashesCache.get(fileUuid, () -> mapper(dbSession).selectDataHash(fileUuid, Type.SOURCE));
+  }
+
+  /**
+   * Cache of line hashes shared by all the callers of this DAO in the process
+   */
+  public LineHashesCache getLineHashesCache() {
+    return lineHashesCache;
+  }
+
   public void insert(FileSourceDto dto) {
     DbSession session = mybatis.openSession(false);
     try {
@@ -114,6 +185,7 @@ public class FileSourceDao implements Dao {
 
   public void insert(DbSession session, FileSourceDto dto) {
     mapper(session).insert(dto);
+    cacheLineHashes(dto);
   }
 
   public void update(FileSourceDto dto) {
@@ -128,12 +200,24 @@ public class FileSourceDao implements Dao {
 
   public void update(DbSession session, FileSourceDto dto) {
     mapper(session).update(dto);
+    cacheLineHashes(dto);
   }
 
   public void updateDateWhenUpdatedDateIsZero(DbSession session, String projectUuid, long updateDate) {
     mapper(session).updateDateWhenUpdatedDateIsZero(projectUuid, updateDate);
   }
 
+  /**
+   * Line hashes of the next analysis are most likely the ones which have just been written. Entries are validated by
+   * data hash when read, so that a rolled-back transaction can not make them stale.
+   */
+  private void cacheLineHashes(FileSourceDto dto) {
+    String fileUuid = dto.getFileUuid();
+    if (fileUuid != null && !Type.TEST.equals(dto.getDataType())) {
+      lineHashesCache.put(fileUuid, dto.getDataHash(), dto.getLineHashes());
+    }
+  }
+
   private static FileSourceMapper mapper(DbSession session) {
     return session.getMapper(FileSourceMapper.class);
   }
@@ -23,8 +23,11 @@ import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.CheckForNull;
@@ -34,6 +37,7 @@ import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.sonar.db.protobuf.DbFileSources;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 
 public class FileSourceDto {
@@ -41,6 +45,13 @@ public class FileSourceDto {
   private static final String SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE = "Protocol message was too large.  May be malicious.  " +
     "Use CodedInputStream.setSizeLimit() to increase the size limit.";
 
+  /**
+   * Number of lines per block in the column BINARY_DATA of sources.
+   * @see #encodeSourceData(DbFileSources.Data)
+   */
+  public static final int LINES_PER_BLOCK = 250;
+  private static final byte[] CHUNKED_SOURCE_MAGIC = "SQBLOCKS".getBytes(StandardCharsets.US_ASCII);
+
   private Long id;
   private String projectUuid;
   private String fileUuid;
@@ -95,7 +106,55 @@ public class FileSourceDto {
 
   public DbFileSources.Data decodeSourceData(byte[] binaryData) {
     try {
-      return decodeRegularSourceData(binaryData);
+      if (!isChunked(binaryData)) {
+        return decodeRegularSourceData(binaryData);
+      }
+      DbFileSources.Data.Builder data = DbFileSources.Data.newBuilder();
+      ChunkedSourceData chunks = new ChunkedSourceData(binaryData);
+      for (int block = 0; block < chunks.blockCount; block++) {
+        data.addAllLines(chunks.decodeBlock(block));
+      }
+      return data.build();
+    } catch (IOException e) {
+      throw new IllegalStateException(
+        format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
+        e);
+    }
+  }
+
+  /**
+   * Index of the block of {@link #LINES_PER_BLOCK} lines that contains the given line.
+   * @param line starts from 1
+   */
+  public static int blockIndexOfLine(int line) {
+    return (line - 1) / LINES_PER_BLOCK;
+  }
+
+  /**
+   * Decompress and deserialize only the blocks of lines {@code fromBlock} to {@code toBlock} (inclusive) of
+   * column BINARY_DATA. Element {@code i} of the returned list contains the lines of block {@code fromBlock + i}.
+   * The returned list is shorter than requested if {@code toBlock} is greater than the last block of the file.
+   * <p/>
+   * Data written before the introduction of blocks is fully decoded, then split into blocks.
+   */
+  public List<List<DbFileSources.Line>> decodeSourceBlocks(int fromBlock, int toBlock) {
+    checkArgument(fromBlock >= 0 && toBlock >= fromBlock, "Invalid range of blocks [%s, %s]", fromBlock, toBlock);
+    try {
+      List<List<DbFileSources.Line>> blocks = new ArrayList<>();
+      if (isChunked(binaryData)) {
+        ChunkedSourceData chunks = new ChunkedSourceData(binaryData);
+        for (int block = fromBlock; block <= toBlock && block < chunks.blockCount; block++) {
+          blocks.add(chunks.decodeBlock(block));
+        }
+      } else {
+        List<DbFileSources.Line> lines = decodeRegularSourceData(binaryData).getLinesList();
+        for (int block = fromBlock; block <= toBlock && (long) block * LINES_PER_BLOCK < lines.size(); block++) {
+          int start = block * LINES_PER_BLOCK;
+          // copy, so that a cached block does not retain all the lines of the file
+          blocks.add(new ArrayList<>(lines.subList(start, Math.min(start + LINES_PER_BLOCK, lines.size()))));
+        }
+      }
+      return blocks;
     } catch (IOException e) {
       throw new IllegalStateException(
         format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
@@ -103,19 +162,35 @@ public class FileSourceDto {
     }
   }
 
+  private static boolean isChunked(byte[] binaryData) {
+    if (binaryData.length < CHUNKED_SOURCE_MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < CHUNKED_SOURCE_MAGIC.length; i++) {
+      if (binaryData[i] != CHUNKED_SOURCE_MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private static DbFileSources.Data decodeRegularSourceData(byte[] binaryData) throws IOException {
-    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
+    return decodeRegularSourceData(binaryData, 0, binaryData.length);
+  }
+
+  private static DbFileSources.Data decodeRegularSourceData(byte[] binaryData, int offset, int length) throws IOException {
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData, offset, length))) {
       return DbFileSources.Data.parseFrom(lz4Input);
     } catch (InvalidProtocolBufferException e) {
       if (SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE.equals(e.getMessage())) {
-        return decodeHugeSourceData(binaryData);
+        return decodeHugeSourceData(binaryData, offset, length);
       }
       throw e;
     }
   }
 
-  private static DbFileSources.Data decodeHugeSourceData(byte[] binaryData) throws IOException {
-    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
+  private static DbFileSources.Data decodeHugeSourceData(byte[] binaryData, int offset, int length) throws IOException {
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData, offset, length))) {
       CodedInputStream input = CodedInputStream.newInstance(lz4Input);
       input.setSizeLimit(Integer.MAX_VALUE);
       return DbFileSources.Data.parseFrom(input);
@@ -125,8 +200,45 @@ public class FileSourceDto {
   /**
    * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
    * in the column BINARY_DATA.
+   * <p/>
+   * Lines are split into blocks of {@link #LINES_PER_BLOCK} lines which are compressed independently.
+   * Format is:
+   * <ul>
+   *   <li>magic bytes "SQBLOCKS"</li>
+   *   <li>number of lines per block (int)</li>
+   *   <li>number of blocks (int)</li>
+   *   <li>offset table: size in bytes of each block (int)</li>
+   *   <li>blocks, each one being a LZ4-compressed {@link org.sonar.db.protobuf.DbFileSources.Data}</li>
+   * </ul>
    */
   public static byte[] encodeSourceData(DbFileSources.Data data) {
+    List<DbFileSources.Line> lines = data.getLinesList();
+    List<byte[]> blocks = new ArrayList<>();
+    for (int start = 0; start < lines.size(); start += LINES_PER_BLOCK) {
+      DbFileSources.Data block = DbFileSources.Data.newBuilder()
+        .addAllLines(lines.subList(start, Math.min(start + LINES_PER_BLOCK, lines.size())))
+        .build();
+      blocks.add(compress(block));
+    }
+
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(byteOutput)) {
+      output.write(CHUNKED_SOURCE_MAGIC);
+      output.writeInt(LINES_PER_BLOCK);
+      output.writeInt(blocks.size());
+      for (byte[] block : blocks) {
+        output.writeInt(block.length);
+      }
+      for (byte[] block : blocks) {
+        output.write(block);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to serialize and compress source data", e);
+    }
+    return byteOutput.toByteArray();
+  }
+
+  private static byte[] compress(DbFileSources.Data data) {
     ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
     LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput);
     try {
@@ -159,7 +271,7 @@ public class FileSourceDto {
       do {
         currentTest = DbFileSources.Test.parseDelimitedFrom(lz4Input);
         if (currentTest != null) {
-          tests.add(currentTest);
+          tests.add(decodeCoveredLines(currentTest));
         }
       } while (currentTest != null);
       return tests;
@@ -179,7 +291,7 @@ public class FileSourceDto {
     LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput);
     try {
       for (DbFileSources.Test test : tests) {
-        test.writeDelimitedTo(compressedOutput);
+        encodeCoveredLines(test).writeDelimitedTo(compressedOutput);
       }
       compressedOutput.close();
       return byteOutput.toByteArray();
@@ -190,6 +302,46 @@ public class FileSourceDto {
     }
   }
 
+  /**
+   * Covered lines are stored as deltas, which are smaller varints and compress better than line numbers
+   */
+  private static DbFileSources.Test encodeCoveredLines(DbFileSources.Test test) {
+    if (test.getCoveredFileCount() == 0) {
+      return test;
+    }
+    DbFileSources.Test.Builder builder = test.toBuilder();
+    for (DbFileSources.Test.CoveredFile.Builder coveredFile : builder.getCoveredFileBuilderList()) {
+      if (coveredFile.getCoveredLineCount() > 0) {
+        int previousLine = 0;
+        for (int i = 0; i < coveredFile.getCoveredLineCount(); i++) {
+          int line = coveredFile.getCoveredLine(i);
+          coveredFile.addCoveredLineDelta(line - previousLine);
+          previousLine = line;
+        }
+        coveredFile.clearCoveredLine();
+      }
+    }
+    return builder.build();
+  }
+
+  private static DbFileSources.Test decodeCoveredLines(DbFileSources.Test test) {
+    if (test.getCoveredFileCount() == 0) {
+      return test;
+    }
+    DbFileSources.Test.Builder builder = test.toBuilder();
+    for (DbFileSources.Test.CoveredFile.Builder coveredFile : builder.getCoveredFileBuilderList()) {
+      if (coveredFile.getCoveredLineDeltaCount() > 0) {
+        int line = 0;
+        for (int i = 0; i < coveredFile.getCoveredLineDeltaCount(); i++) {
+          line += coveredFile.getCoveredLineDelta(i);
+          coveredFile.addCoveredLine(line);
+        }
+        coveredFile.clearCoveredLineDelta();
+      }
+    }
+    return builder.build();
+  }
+
   /**
    * Compressed value of serialized protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
    */
@@ -290,6 +442,42 @@ public class FileSourceDto {
     return this;
   }
 
+  /**
+   * Header of the chunked format of source data. Blocks are decoded on demand.
+   */
+  private static class ChunkedSourceData {
+    private final byte[] binaryData;
+    private final int blockCount;
+    private final int[] blockOffsets;
+    private final int[] blockSizes;
+
+    private ChunkedSourceData(byte[] binaryData) throws IOException {
+      this.binaryData = binaryData;
+      DataInputStream input = new DataInputStream(new ByteArrayInputStream(binaryData));
+      input.skipBytes(CHUNKED_SOURCE_MAGIC.length);
+      int linesPerBlock = input.readInt();
+      if (linesPerBlock != LINES_PER_BLOCK) {
+        throw new IOException(format("Unsupported number of lines per block: %d", linesPerBlock));
+      }
+      this.blockCount = input.readInt();
+      this.blockOffsets = new int[blockCount];
+      this.blockSizes = new int[blockCount];
+      int offset = CHUNKED_SOURCE_MAGIC.length + 8 + 4 * blockCount;
+      for (int i = 0; i < blockCount; i++) {
+        blockSizes[i] = input.readInt();
+        blockOffsets[i] = offset;
+        offset += blockSizes[i];
+      }
+      if (offset != binaryData.length) {
+        throw new IOException("Source data is truncated");
+      }
+    }
+
+    private List<DbFileSources.Line> decodeBlock(int block) throws IOException {
+      return decodeRegularSourceData(binaryData, blockOffsets[block], blockSizes[block]).getLinesList();
+    }
+  }
+
   public static class Type {
     public static final String SOURCE = "SOURCE";
     public static final String TEST = "TEST";
@@ -0,0 +1,123 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Size-bounded, least-recently-used cache of the line hashes of files, shared by all the users of
+ * {@link FileSourceDao} in the process. Entries are identified by file uuid and are valid as long as the data hash of
+ * the file in db is the one they have been loaded with, so that changes made by other processes are never missed.
+ */
+public class LineHashesCache {
+
+  static final long DEFAULT_MAX_WEIGHT = 32L * 1024 * 1024;
+
+  private final Cache<String, Entry> entriesByFileUuid;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  LineHashesCache(long maxWeight) {
+    this.entriesByFileUuid = CacheBuilder.newBuilder()
+      .maximumWeight(maxWeight)
+      .weigher((String fileUuid, Entry entry) -> entry.lineHashes.weight())
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * The current data hash of the file is requested only if line hashes are cached, so that misses do not need it.
+   *
+   * @return {@code null} if line hashes are not cached or if they have been cached for another data hash
+   */
+  @CheckForNull
+  CompactLineHashes get(String fileUuid, Supplier<String> currentDataHash) {
+    Entry entry = entriesByFileUuid.getIfPresent(fileUuid);
+    if (entry == null || !entry.dataHash.equals(currentDataHash.get())) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return entry.lineHashes;
+  }
+
+  /**
+   * Line hashes which can not be stored compactly and files without data hash are not cached.
+   */
+  void put(String fileUuid, @Nullable String dataHash, @Nullable String lineHashes) {
+    CompactLineHashes compactLineHashes = (dataHash == null || lineHashes == null) ? null : CompactLineHashes.of(lineHashes);
+    if (compactLineHashes == null) {
+      entriesByFileUuid.invalidate(fileUuid);
+    } else {
+      entriesByFileUuid.put(fileUuid, new Entry(dataHash, compactLineHashes));
+    }
+  }
+
+  void invalidate(String fileUuid) {
+    entriesByFileUuid.invalidate(fileUuid);
+  }
+
+  /**
+   * Number of files in cache
+   */
+  public long size() {
+    return entriesByFileUuid.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Ratio of lookups served by the cache, between 0 and 1. Lookups of line hashes loaded for another data hash are
+   * misses. It is 0 as long as there is no lookup.
+   */
+  public double getHitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    return total == 0 ? 0.0 : ((double) hitCount / total);
+  }
+
+  /**
+   * Number of files removed from cache to keep it under its maximum size
+   */
+  public long getEvictions() {
+    return entriesByFileUuid.stats().evictionCount();
+  }
+
+  private static final class Entry {
+    private final String dataHash;
+    private final CompactLineHashes lineHashes;
+
+    private Entry(String dataHash, CompactLineHashes lineHashes) {
+      this.dataHash = dataHash;
+      this.lineHashes = lineHashes;
+    }
+  }
+}
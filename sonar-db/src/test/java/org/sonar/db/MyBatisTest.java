@@ -55,6 +55,22 @@ public class MyBatisTest {
     assertThat(conf.isLazyLoadingEnabled(), Is.is(false));
   }
 
+  @Test
+  public void shouldRecordSqlStatistics() {
+    MyBatis myBatis = new MyBatis(database);
+    myBatis.start();
+    database.getSqlStatistics().reset();
+
+    SqlSession session = myBatis.openSession(false);
+    try {
+      session.getMapper(RuleMapper.class).selectAll();
+    } finally {
+      session.close();
+    }
+
+    assertThat(database.getSqlStatistics().getExecutions(), Is.is(1L));
+  }
+
   @Test
   public void shouldOpenBatchSession() {
     MyBatis myBatis = new MyBatis(database);
@@ -124,6 +124,19 @@ public class CeQueueDaoTest {
     verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, PENDING, TASK_UUID_3, PENDING);
   }
 
+  @Test
+  public void selectMaxCreatedAtOfPending() {
+    assertThat(underTest.selectMaxCreatedAtOfPending(db.getSession()).isPresent()).isFalse();
+
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 1_000L);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    system2.setNow(INIT_TIME + 2_000L);
+    insert(TASK_UUID_3, COMPONENT_UUID_1, IN_PROGRESS);
+
+    assertThat(underTest.selectMaxCreatedAtOfPending(db.getSession()).get()).isEqualTo(INIT_TIME + 1_000L);
+  }
+
   @Test
   public void peek_none_if_no_pendings() throws Exception {
     assertThat(underTest.peek(db.getSession()).isPresent()).isFalse();
@@ -182,6 +195,24 @@ public class CeQueueDaoTest {
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
   }
 
+  @Test
+  public void do_not_peek_next_task_of_project_when_its_oldest_task_is_peeked_by_another_worker() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
+    insert(TASK_UUID_3, COMPONENT_UUID_2, PENDING);
+
+    List<String> candidates = underTest.selectEligibleForPeek(db.getSession());
+    assertThat(candidates).containsExactly(TASK_UUID_1, TASK_UUID_3);
+
+    // first task is peeked by another worker
+    assertThat(underTest.tryToPeek(db.getSession(), TASK_UUID_1).isPresent()).isTrue();
+
+    assertThat(underTest.tryToPeek(db.getSession(), candidates.get(0)).isPresent()).isFalse();
+    assertThat(underTest.tryToPeek(db.getSession(), candidates.get(1)).get().getUuid()).isEqualTo(TASK_UUID_3);
+    verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, PENDING);
+  }
+
   @Test
   public void select_by_query() {
     // task status not in query
@@ -0,0 +1,82 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.es;
+
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.es.EsQueueDto.DOC_TYPE_ISSUES;
+import static org.sonar.db.es.EsQueueDto.DOC_TYPE_TESTS;
+
+public class EsQueueDaoTest {
+
+  private static final long NOW = 1_450_000_000_000L;
+
+  private TestSystem2 system2 = new TestSystem2().setNow(NOW);
+
+  @Rule
+  public DbTester db = DbTester.create(system2);
+
+  private DbSession dbSession = db.getSession();
+  private EsQueueDao underTest = new EsQueueDao(system2);
+
+  @Test
+  public void insert_and_select_oldest() {
+    underTest.insert(dbSession, DOC_TYPE_ISSUES, "P1");
+    underTest.insert(dbSession, DOC_TYPE_TESTS, "P2");
+    underTest.insert(dbSession, DOC_TYPE_ISSUES, "P3");
+    dbSession.commit();
+
+    List<EsQueueDto> dtos = underTest.selectOldest(dbSession, 2);
+
+    assertThat(dtos).extracting("projectUuid").containsExactly("P1", "P2");
+    assertThat(dtos).extracting("docType").containsExactly(DOC_TYPE_ISSUES, DOC_TYPE_TESTS);
+    assertThat(dtos).extracting("createdAt").containsOnly(NOW);
+    assertThat(dtos.get(0).getId()).isLessThan(dtos.get(1).getId());
+    assertThat(underTest.countAll(dbSession)).isEqualTo(3);
+  }
+
+  @Test
+  public void select_oldest_on_empty_queue() {
+    assertThat(underTest.selectOldest(dbSession, 10)).isEmpty();
+    assertThat(underTest.countAll(dbSession)).isEqualTo(0);
+  }
+
+  @Test
+  public void delete() {
+    underTest.insert(dbSession, DOC_TYPE_ISSUES, "P1");
+    underTest.insert(dbSession, DOC_TYPE_ISSUES, "P2");
+    dbSession.commit();
+    List<EsQueueDto> dtos = underTest.selectOldest(dbSession, 10);
+
+    underTest.delete(dbSession, singletonList(dtos.get(0).getId()));
+    underTest.delete(dbSession, emptyList());
+    dbSession.commit();
+
+    assertThat(underTest.selectOldest(dbSession, 10)).extracting("projectUuid").containsExactly("P2");
+  }
+}
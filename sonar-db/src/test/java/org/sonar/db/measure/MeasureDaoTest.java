@@ -25,6 +25,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -212,6 +213,30 @@ public class MeasureDaoTest {
     assertThat(underTest.selectByComponentUuidAndProjectSnapshotIdAndMetricIds(dbSession, "CDEF", 1000L, ImmutableSet.of(123, 456))).isEmpty();
   }
 
+  @Test
+  public void select_past_measures_of_all_components_of_project_snapshot() {
+    db.prepareDbUnit(getClass(), "past_measures.xml");
+
+    List<PastMeasureDto> measures = new ArrayList<>();
+    underTest.selectByProjectSnapshotIdAndMetricIds(dbSession, 1000L, ImmutableSet.of(1, 2), context -> measures.add((PastMeasureDto) context.getResultObject()));
+
+    Map<Long, PastMeasureDto> measuresById = pastMeasuresById(measures);
+    assertThat(measuresById.keySet()).containsOnly(1L, 2L, 3L, 4L, 5L, 6L);
+    assertThat(measuresById.get(1L).getComponentUuid()).isEqualTo("ABCD");
+    assertThat(measuresById.get(1L).getValue()).isEqualTo(60d);
+    assertThat(measuresById.get(4L).getComponentUuid()).isEqualTo("BCDE");
+    assertThat(measuresById.get(4L).getMetricId()).isEqualTo(2);
+    assertThat(measuresById.get(6L).getComponentUuid()).isEqualTo("CDEF");
+
+    measures.clear();
+    underTest.selectByProjectSnapshotIdAndMetricIds(dbSession, 1000L, ImmutableSet.of(1), context -> measures.add((PastMeasureDto) context.getResultObject()));
+    assertThat(measures).extracting("metricId").containsOnly(1);
+
+    measures.clear();
+    underTest.selectByProjectSnapshotIdAndMetricIds(dbSession, 987654L, ImmutableSet.of(1, 2), context -> measures.add((PastMeasureDto) context.getResultObject()));
+    assertThat(measures).isEmpty();
+  }
+
   @Test
   public void select_past_measures_ignore_measures_with_person_id() {
     db.prepareDbUnit(getClass(), "past_measures_with_person_id.xml");
@@ -76,4 +76,22 @@ public class SqlLogFormatterTest {
     assertThat(SqlLogFormatter.countArguments("select * from issues where id=?")).isEqualTo(1);
     assertThat(SqlLogFormatter.countArguments("select * from issues where id=? and kee=?")).isEqualTo(2);
   }
+
+  @Test
+  public void normalizeSql_collapses_whitespaces() {
+    assertThat(SqlLogFormatter.normalizeSql("select *\n  from issues\twhere kee = ? ")).isEqualTo("select * from issues where kee = ?");
+    assertThat(SqlLogFormatter.normalizeSql("insert into foo ( a ,b ) values ( ? , ? )")).isEqualTo("insert into foo (a, b) values (?)");
+  }
+
+  @Test
+  public void normalizeSql_replaces_literals() {
+    assertThat(SqlLogFormatter.normalizeSql("select * from t1 where id=12 and kee='it''s' and p.c2 > 3.5"))
+      .isEqualTo("select * from t1 where id=? and kee=? and p.c2 > ?");
+  }
+
+  @Test
+  public void normalizeSql_collapses_lists_of_parameters() {
+    assertThat(SqlLogFormatter.normalizeSql("select * from projects where uuid in (?,?,?) and id in (1, 2)"))
+      .isEqualTo("select * from projects where uuid in (?) and id in (?)");
+  }
 }
@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlStatementStatisticsTest {
+
+  SqlStatementStatistics underTest = new SqlStatementStatistics("select * from t1");
+
+  @Test
+  public void no_executions() {
+    assertThat(underTest.getSql()).isEqualTo("select * from t1");
+    assertThat(underTest.getExecutions()).isEqualTo(0L);
+    assertThat(underTest.getTotalTimeMicros()).isEqualTo(0L);
+    assertThat(underTest.getMaxTimeMicros()).isEqualTo(0L);
+    assertThat(underTest.getRows()).isEqualTo(0L);
+    assertThat(underTest.getPercentileMicros(0.99)).isEqualTo(0L);
+  }
+
+  @Test
+  public void record_executions() {
+    underTest.recordExecution(3_000L);
+    underTest.recordExecution(100_000L);
+    underTest.recordExecution(5_000_000L);
+    underTest.addRows(10L);
+    underTest.addRows(-1L);
+
+    assertThat(underTest.getExecutions()).isEqualTo(3L);
+    assertThat(underTest.getTotalTimeMicros()).isEqualTo(5_103L);
+    assertThat(underTest.getMaxTimeMicros()).isEqualTo(5_000L);
+    assertThat(underTest.getRows()).isEqualTo(10L);
+  }
+
+  @Test
+  public void percentiles_are_upper_bounds_of_buckets() {
+    for (int i = 0; i < 99; i++) {
+      underTest.recordExecution(100_000L);
+    }
+    underTest.recordExecution(1_000_000_000L);
+
+    // 100 microseconds are in bucket [96, 111]
+    assertThat(underTest.getPercentileMicros(0.5)).isEqualTo(111L);
+    assertThat(underTest.getPercentileMicros(0.99)).isEqualTo(111L);
+    // never greater than max
+    assertThat(underTest.getPercentileMicros(1.0)).isEqualTo(1_000_000L);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_percentile_is_out_of_range() {
+    underTest.getPercentileMicros(99.0);
+  }
+
+  @Test
+  public void buckets_are_contiguous() {
+    assertThat(SqlStatementStatistics.bucketOf(-1L)).isEqualTo(0);
+    for (int bucket = 0; bucket < SqlStatementStatistics.BUCKETS - 1; bucket++) {
+      long upperBound = SqlStatementStatistics.upperBoundOf(bucket);
+      assertThat(SqlStatementStatistics.bucketOf(upperBound)).isEqualTo(bucket);
+      assertThat(SqlStatementStatistics.bucketOf(upperBound + 1)).isEqualTo(bucket + 1);
+    }
+    assertThat(SqlStatementStatistics.bucketOf(Long.MAX_VALUE)).isEqualTo(SqlStatementStatistics.BUCKETS - 1);
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SqlStatisticsInterceptorTest {
+
+  SqlStatistics statistics = new SqlStatistics();
+  StatementHandler handler = mock(StatementHandler.class);
+  Statement statement = mock(Statement.class);
+  ResultHandler resultHandler = mock(ResultHandler.class);
+
+  SqlStatisticsInterceptor underTest = new SqlStatisticsInterceptor(statistics);
+
+  @Test
+  public void record_execution_and_rows_of_query() throws Throwable {
+    mockSql("select * from issues where kee in (?, ?)");
+    when(handler.query(statement, resultHandler)).thenReturn((List) Arrays.asList("a", "b"));
+
+    Object result = underTest.intercept(new Invocation(handler, StatementHandler.class.getMethod("query", Statement.class, ResultHandler.class),
+      new Object[] {statement, resultHandler}));
+
+    assertThat(result).isEqualTo(Arrays.asList("a", "b"));
+    SqlStatementStatistics statementStatistics = statistics.getStatements().get(0);
+    assertThat(statementStatistics.getSql()).isEqualTo("select * from issues where kee in (?)");
+    assertThat(statementStatistics.getExecutions()).isEqualTo(1L);
+    assertThat(statementStatistics.getRows()).isEqualTo(2L);
+  }
+
+  @Test
+  public void record_execution_and_rows_of_update() throws Throwable {
+    mockSql("delete from issues where id=?");
+    when(handler.update(statement)).thenReturn(3, 0);
+    Invocation invocation = new Invocation(handler, StatementHandler.class.getMethod("update", Statement.class), new Object[] {statement});
+
+    assertThat(underTest.intercept(invocation)).isEqualTo(3);
+    assertThat(underTest.intercept(invocation)).isEqualTo(0);
+
+    assertThat(statistics.getStatements()).hasSize(1);
+    SqlStatementStatistics statementStatistics = statistics.getStatements().get(0);
+    assertThat(statementStatistics.getExecutions()).isEqualTo(2L);
+    assertThat(statementStatistics.getRows()).isEqualTo(3L);
+  }
+
+  @Test
+  public void record_execution_of_failed_statement() throws Throwable {
+    mockSql("delete from issues");
+    IllegalStateException error = new IllegalStateException("failure");
+    when(handler.update(statement)).thenThrow(error);
+
+    try {
+      underTest.intercept(new Invocation(handler, StatementHandler.class.getMethod("update", Statement.class), new Object[] {statement}));
+      fail();
+    } catch (Exception e) {
+      assertThat(e.getCause()).isSameAs(error);
+    }
+
+    assertThat(statistics.getExecutions()).isEqualTo(1L);
+  }
+
+  @Test
+  public void plugin_only_wraps_statement_handlers() {
+    Object other = new Object();
+
+    assertThat(underTest.plugin(other)).isSameAs(other);
+    assertThat(underTest.plugin(handler)).isInstanceOf(StatementHandler.class).isNotSameAs(handler);
+  }
+
+  private void mockSql(String sql) {
+    BoundSql boundSql = mock(BoundSql.class);
+    when(boundSql.getSql()).thenReturn(sql);
+    when(handler.getBoundSql()).thenReturn(boundSql);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlStatisticsTest {
+
+  SqlStatistics underTest = new SqlStatistics();
+
+  @Test
+  public void aggregate_by_normalized_sql() {
+    SqlStatementStatistics statement = underTest.of("select * from t1 where id=1");
+    statement.recordExecution(2_000L);
+    underTest.of("select *\n from t1 where id=2").recordExecution(3_000L);
+
+    assertThat(underTest.of("select * from t1 where id=?")).isSameAs(statement);
+    assertThat(underTest.getStatements()).containsExactly(statement);
+    assertThat(underTest.getExecutions()).isEqualTo(2L);
+    assertThat(underTest.getTotalTimeMicros()).isEqualTo(5L);
+  }
+
+  @Test
+  public void number_of_statements_is_bounded() {
+    for (int i = 0; i < SqlStatistics.MAX_STATEMENTS + 10; i++) {
+      underTest.of("select * from t" + i);
+    }
+
+    assertThat(underTest.getStatements()).hasSize(SqlStatistics.MAX_STATEMENTS + 1);
+    assertThat(underTest.getStatements()).extracting("sql").contains(SqlStatistics.OTHER_STATEMENTS);
+  }
+
+  @Test
+  public void same_raw_sql_returns_same_statistics() {
+    SqlStatementStatistics statement = underTest.of("select * from t1 where id=1");
+
+    assertThat(underTest.of("select * from t1 where id=1")).isSameAs(statement);
+  }
+
+  @Test
+  public void reset() {
+    underTest.of("select * from t1").recordExecution(2_000L);
+
+    underTest.reset();
+
+    assertThat(underTest.getStatements()).isEmpty();
+    assertThat(underTest.getExecutions()).isEqualTo(0L);
+
+    underTest.of("select * from t1").recordExecution(2_000L);
+    assertThat(underTest.getExecutions()).isEqualTo(1L);
+  }
+}
@@ -20,13 +20,20 @@
 package org.sonar.db.purge;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 
 public class PurgeCommandsTest {
@@ -101,6 +108,37 @@ public class PurgeCommandsTest {
     assertThat(dbTester.countRowsOfTable("authors")).isZero();
   }
 
+  @Test
+  public void delete_resource_with_concurrent_deletions() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteResource.xml");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      DbSession session = dbTester.getSession();
+      new PurgeCommands(session, session.getMapper(PurgeMapper.class), profiler, dbTester.myBatis(), executor)
+        .deleteComponents(newArrayList(new IdUuidPair(1L, "1")));
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(dbTester.countRowsOfTable("projects")).isZero();
+    assertThat(dbTester.countRowsOfTable("snapshots")).isZero();
+    assertThat(dbTester.countRowsOfTable("events")).isZero();
+    assertThat(dbTester.countRowsOfTable("issues")).isZero();
+    assertThat(dbTester.countRowsOfTable("issue_changes")).isZero();
+    assertThat(dbTester.countRowsOfTable("authors")).isZero();
+  }
+
+  @Test
+  public void profile_deleted_rows_per_table() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteResource.xml");
+    PurgeProfiler profiler = mock(PurgeProfiler.class);
+
+    new PurgeCommands(dbTester.getSession(), profiler).deleteComponents(newArrayList(new IdUuidPair(1L, "1")));
+
+    verify(profiler).record(eq("deleteResource (projects)"), anyLong(), eq(1L));
+    verify(profiler).record(eq("deleteAuthors (authors)"), anyLong(), eq(2L));
+  }
+
   /**
    * Test that SQL queries execution do not fail with a huge number of parameter
    */
@@ -73,4 +73,20 @@ public class PurgeConfigurationTest {
 
     assertThat(underTest.scopesWithoutHistoricalData()).contains(Scopes.DIRECTORY, Scopes.FILE);
   }
+
+  @Test
+  public void purge_tables_sequentially_by_default() {
+    PurgeConfiguration underTest = PurgeConfiguration.newDefaultPurgeConfiguration(new Settings(), new IdUuidPair(42L, "any-uuid"));
+
+    assertThat(underTest.threads()).isEqualTo(1);
+  }
+
+  @Test
+  public void purge_tables_concurrently_if_in_settings() {
+    Settings settings = new Settings().setProperty(PurgeConstants.PROPERTY_THREADS, 4);
+
+    PurgeConfiguration underTest = PurgeConfiguration.newDefaultPurgeConfiguration(settings, new IdUuidPair(42L, "any-uuid"));
+
+    assertThat(underTest.threads()).isEqualTo(4);
+  }
 }
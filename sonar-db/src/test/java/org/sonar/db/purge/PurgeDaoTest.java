@@ -65,6 +65,13 @@ public class PurgeDaoTest {
     dbTester.assertDbUnit(getClass(), "shouldDeleteAbortedBuilds-result.xml", "snapshots");
   }
 
+  @Test
+  public void keep_snapshots_more_recent_than_max_snapshot_id() {
+    dbTester.prepareDbUnit(getClass(), "keep_snapshots_more_recent_than_max_snapshot_id.xml");
+    underTest.purge(newConfigurationWith30Days().setMaxSnapshotId(3L), PurgeListener.EMPTY, new PurgeProfiler());
+    dbTester.assertDbUnit(getClass(), "keep_snapshots_more_recent_than_max_snapshot_id-result.xml", "snapshots");
+  }
+
   @Test
   public void should_purge_project() {
     dbTester.prepareDbUnit(getClass(), "shouldPurgeProject.xml");
@@ -72,6 +79,13 @@ public class PurgeDaoTest {
     dbTester.assertDbUnit(getClass(), "shouldPurgeProject-result.xml", "projects", "snapshots");
   }
 
+  @Test
+  public void purge_project_with_concurrent_deletions() {
+    dbTester.prepareDbUnit(getClass(), "shouldPurgeProject.xml");
+    underTest.purge(new PurgeConfiguration(new IdUuidPair(THE_PROJECT_ID, THE_PROJECT_UUID), new String[0], 30, 4), PurgeListener.EMPTY, new PurgeProfiler());
+    dbTester.assertDbUnit(getClass(), "shouldPurgeProject-result.xml", "projects", "snapshots");
+  }
+
   @Test
   public void delete_file_sources_of_disabled_resources() {
     dbTester.prepareDbUnit(getClass(), "delete_file_sources_of_disabled_resources.xml");
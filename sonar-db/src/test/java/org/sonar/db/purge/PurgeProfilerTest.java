@@ -24,6 +24,7 @@ import org.junit.Test;
 import org.sonar.api.utils.log.Logger;
 
 import static org.mockito.Matchers.contains;
+import static org.mockito.Matchers.endsWith;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -80,6 +81,19 @@ public class PurgeProfilerTest {
     verify(logger).info(contains("bar: 5ms"));
   }
 
+  @Test
+  public void dump_throughput_of_deletions() {
+    profiler.record("foo", 2000, 5000);
+    profiler.record("foo", 2000, 3000);
+    profiler.start("bar");
+    clock.sleep(5);
+    profiler.stop();
+
+    profiler.dump(5000, logger);
+    verify(logger).info(contains("foo: 4s (80%), 8000 rows (2000 rows/s)"));
+    verify(logger).info(endsWith("bar: 5ms (0%)"));
+  }
+
   private class MockedClock extends PurgeProfiler.Clock {
     private long now = 0;
 
@@ -0,0 +1,67 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactLineHashesTest {
+
+  private static final String HASH_1 = "0123456789abcdef0123456789abcdef";
+  private static final String HASH_2 = "fedcba9876543210fedcba9876543210";
+
+  @Test
+  public void decodes_md5_hashes_and_blank_lines() {
+    String lineHashes = "\n" + HASH_1 + "\n\n" + HASH_2 + "\n";
+    CompactLineHashes underTest = CompactLineHashes.of(lineHashes);
+
+    assertThat(underTest.lineCount()).isEqualTo(5);
+    assertThat(underTest.toList()).containsExactly("", HASH_1, "", HASH_2, "");
+    assertThat(underTest.toRawString()).isEqualTo(lineHashes);
+  }
+
+  @Test
+  public void empty_string_is_a_single_blank_line() {
+    CompactLineHashes underTest = CompactLineHashes.of("");
+
+    assertThat(underTest.toList()).containsExactly("");
+    assertThat(underTest.toRawString()).isEmpty();
+  }
+
+  @Test
+  public void weight_is_lower_than_size_of_strings() {
+    StringBuilder lineHashes = new StringBuilder(HASH_1);
+    for (int i = 0; i < 99; i++) {
+      lineHashes.append('\n').append(HASH_2);
+    }
+
+    // 100 strings of 32 chars take more than 100 * 64 bytes
+    assertThat(CompactLineHashes.of(lineHashes.toString()).weight()).isLessThan(100 * 20);
+  }
+
+  @Test
+  public void returns_null_if_line_hashes_are_not_lowercase_md5_hashes() {
+    assertThat(CompactLineHashes.of("ABC\nDEF")).isNull();
+    assertThat(CompactLineHashes.of(HASH_1.toUpperCase())).isNull();
+    assertThat(CompactLineHashes.of(HASH_1 + "0")).isNull();
+    assertThat(CompactLineHashes.of(HASH_1.substring(1) + "g")).isNull();
+  }
+}
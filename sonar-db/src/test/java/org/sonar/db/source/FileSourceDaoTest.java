@@ -22,6 +22,8 @@ package org.sonar.db.source;
 import com.google.common.base.Function;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -30,6 +32,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 
@@ -58,6 +61,14 @@ public class FileSourceDaoTest {
     assertThat(fileSourceDto.getRevision()).isEqualTo("123456789");
   }
 
+  @Test
+  public void select_source_updated_at() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    assertThat(underTest.selectSourceUpdatedAt(session, "FILE1_UUID")).isEqualTo(1500000000000L);
+    assertThat(underTest.selectSourceUpdatedAt(session, "unknown")).isNull();
+  }
+
   @Test
   public void select_line_hashes() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -88,6 +99,76 @@ public class FileSourceDaoTest {
     assertThat(fn.result).isNull();
   }
 
+  @Test
+  public void select_line_hashes_by_file_uuids() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    List<FileSourceDto> dtos = new ArrayList<>();
+    underTest.selectLineHashesByFileUuids(session, asList("FILE1_UUID", "unknown"), context -> dtos.add((FileSourceDto) context.getResultObject()));
+
+    assertThat(dtos).hasSize(1);
+    FileSourceDto dto = dtos.get(0);
+    assertThat(dto.getFileUuid()).isEqualTo("FILE1_UUID");
+    assertThat(dto.getSrcHash()).isEqualTo("FILE_HASH");
+    assertThat(dto.getLineHashes()).isEqualTo("ABC\\nDEF\\nGHI");
+    assertThat(dto.getBinaryData()).isNull();
+  }
+
+  @Test
+  public void select_line_hashes_by_file_uuids_ignores_test_data() {
+    dbTester.prepareDbUnit(getClass(), "no_line_hashes_when_only_test_data.xml");
+
+    List<FileSourceDto> dtos = new ArrayList<>();
+    underTest.selectLineHashesByFileUuids(session, asList("FILE1_UUID"), context -> dtos.add((FileSourceDto) context.getResultObject()));
+
+    assertThat(dtos).isEmpty();
+  }
+
+  @Test
+  public void line_hashes_are_cached_until_data_hash_changes() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    String lineHashes = "0123456789abcdef0123456789abcdef\n\nfedcba9876543210fedcba9876543210";
+    underTest.insert(newSourceDto("FILE2_UUID", "FILE2_DATA_HASH", lineHashes));
+
+    assertThat(underTest.selectLineHashes(session, "FILE2_UUID")).containsExactly(
+      "0123456789abcdef0123456789abcdef", "", "fedcba9876543210fedcba9876543210");
+    ReaderToStringFunction fn = new ReaderToStringFunction();
+    underTest.readLineHashesStream(session, "FILE2_UUID", fn);
+    assertThat(fn.result).isEqualTo(lineHashes);
+    assertThat(underTest.getLineHashesCache().getHits()).isEqualTo(2);
+    assertThat(underTest.getLineHashesCache().getMisses()).isEqualTo(0);
+
+    // sources updated by another process
+    dbTester.executeUpdateSql("update file_sources set data_hash=?, line_hashes=? where file_uuid=?",
+      "NEW_DATA_HASH", "ffffffffffffffffffffffffffffffff", "FILE2_UUID");
+
+    assertThat(underTest.selectLineHashes(session, "FILE2_UUID")).containsExactly("ffffffffffffffffffffffffffffffff");
+    assertThat(underTest.getLineHashesCache().getMisses()).isEqualTo(1);
+    assertThat(underTest.selectLineHashes(session, "FILE2_UUID")).containsExactly("ffffffffffffffffffffffffffffffff");
+    assertThat(underTest.getLineHashesCache().getHits()).isEqualTo(3);
+  }
+
+  @Test
+  public void line_hashes_streamed_from_db_are_not_cached() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbTester.executeUpdateSql("update file_sources set line_hashes=? where file_uuid=?", "0123456789abcdef0123456789abcdef", "FILE1_UUID");
+
+    ReaderToStringFunction fn = new ReaderToStringFunction();
+    underTest.readLineHashesStream(session, "FILE1_UUID", fn);
+
+    assertThat(fn.result).isEqualTo("0123456789abcdef0123456789abcdef");
+    assertThat(underTest.getLineHashesCache().getMisses()).isEqualTo(1);
+    assertThat(underTest.getLineHashesCache().size()).isEqualTo(0);
+  }
+
+  @Test
+  public void line_hashes_which_are_not_md5_hashes_are_not_cached() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    assertThat(underTest.selectLineHashes(session, "FILE1_UUID")).containsExactly("ABC\\nDEF\\nGHI");
+    assertThat(underTest.getLineHashesCache().size()).isEqualTo(0);
+  }
+
   @Test
   public void insert() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -139,6 +220,19 @@ public class FileSourceDaoTest {
       "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
   }
 
+  private static FileSourceDto newSourceDto(String fileUuid, String dataHash, String lineHashes) {
+    return new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid(fileUuid)
+      .setBinaryData("data".getBytes())
+      .setDataHash(dataHash)
+      .setLineHashes(lineHashes)
+      .setSrcHash("SRC_HASH")
+      .setDataType(Type.SOURCE)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000000L);
+  }
+
   private static class ReaderToStringFunction implements Function<Reader, String> {
 
     String result = null;
@@ -19,8 +19,11 @@
  */
 package org.sonar.db.source;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -54,6 +57,33 @@ public class FileSourceDtoTest {
     assertThat(underTest.getTestData().get(0).getName()).isEqualTo("name#1");
   }
 
+  @Test
+  public void encode_covered_lines_as_deltas() {
+    DbFileSources.Test test = DbFileSources.Test.newBuilder()
+      .setName("name#1")
+      .addCoveredFile(DbFileSources.Test.CoveredFile.newBuilder().setFileUuid("FILE_1").addAllCoveredLine(Arrays.asList(3, 4, 10, 250)))
+      .addCoveredFile(DbFileSources.Test.CoveredFile.newBuilder().setFileUuid("FILE_2"))
+      .build();
+
+    FileSourceDto underTest = new FileSourceDto().setTestData(Arrays.asList(test));
+
+    assertThat(underTest.getTestData()).containsExactly(test);
+  }
+
+  @Test
+  public void decode_covered_lines_stored_without_deltas() throws IOException {
+    DbFileSources.Test test = DbFileSources.Test.newBuilder()
+      .setName("name#1")
+      .addCoveredFile(DbFileSources.Test.CoveredFile.newBuilder().setFileUuid("FILE_1").addAllCoveredLine(Arrays.asList(3, 4, 10)))
+      .build();
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput);
+    test.writeDelimitedTo(compressedOutput);
+    compressedOutput.close();
+
+    assertThat(FileSourceDto.decodeTestData(byteOutput.toByteArray())).containsExactly(test);
+  }
+
   @Test
   public void getSourceData_throws_ISE_with_id_fileUuid_and_projectUuid_in_message_when_data_cant_be_read() {
     long id = 12L;
@@ -80,6 +110,77 @@ public class FileSourceDtoTest {
     assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
   }
 
+  @Test
+  public void encode_and_decode_source_data() {
+    DbFileSources.Data data = createData(FileSourceDto.LINES_PER_BLOCK * 2 + 10);
+
+    FileSourceDto underTest = new FileSourceDto().setSourceData(data);
+
+    assertThat(underTest.getSourceData()).isEqualTo(data);
+  }
+
+  @Test
+  public void encode_and_decode_empty_source_data() {
+    DbFileSources.Data data = DbFileSources.Data.newBuilder().build();
+
+    FileSourceDto underTest = new FileSourceDto().setSourceData(data);
+
+    assertThat(underTest.getSourceData().getLinesCount()).isZero();
+    assertThat(underTest.decodeSourceBlocks(0, 1)).isEmpty();
+  }
+
+  @Test
+  public void decodeSourceBlocks_returns_only_requested_blocks() {
+    DbFileSources.Data data = createData(FileSourceDto.LINES_PER_BLOCK * 2 + 10);
+
+    FileSourceDto underTest = new FileSourceDto().setSourceData(data);
+    List<List<DbFileSources.Line>> blocks = underTest.decodeSourceBlocks(1, 3);
+
+    assertThat(blocks).hasSize(2);
+    assertThat(blocks.get(0)).hasSize(FileSourceDto.LINES_PER_BLOCK);
+    assertThat(blocks.get(0).get(0).getLine()).isEqualTo(FileSourceDto.LINES_PER_BLOCK + 1);
+    assertThat(blocks.get(1)).hasSize(10);
+    assertThat(blocks.get(1).get(9).getLine()).isEqualTo(FileSourceDto.LINES_PER_BLOCK * 2 + 10);
+  }
+
+  @Test
+  public void decodeSourceBlocks_supports_data_encoded_without_blocks() throws IOException {
+    DbFileSources.Data data = createData(FileSourceDto.LINES_PER_BLOCK + 10);
+
+    FileSourceDto underTest = new FileSourceDto().setBinaryData(encodeWithoutBlocks(data));
+
+    assertThat(underTest.getSourceData()).isEqualTo(data);
+    List<List<DbFileSources.Line>> blocks = underTest.decodeSourceBlocks(1, 2);
+    assertThat(blocks).hasSize(1);
+    assertThat(blocks.get(0)).hasSize(10);
+    assertThat(blocks.get(0).get(0).getLine()).isEqualTo(FileSourceDto.LINES_PER_BLOCK + 1);
+  }
+
+  @Test
+  public void blockIndexOfLine() {
+    assertThat(FileSourceDto.blockIndexOfLine(1)).isEqualTo(0);
+    assertThat(FileSourceDto.blockIndexOfLine(FileSourceDto.LINES_PER_BLOCK)).isEqualTo(0);
+    assertThat(FileSourceDto.blockIndexOfLine(FileSourceDto.LINES_PER_BLOCK + 1)).isEqualTo(1);
+  }
+
+  private static DbFileSources.Data createData(int numberOfLines) {
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= numberOfLines; i++) {
+      dataBuilder.addLinesBuilder()
+        .setLine(i)
+        .setSource("line " + i);
+    }
+    return dataBuilder.build();
+  }
+
+  private static byte[] encodeWithoutBlocks(DbFileSources.Data data) throws IOException {
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    try (LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput)) {
+      data.writeTo(compressedOutput);
+    }
+    return byteOutput.toByteArray();
+  }
+
   private static DbFileSources.Data createOver64MBDataStructure() {
     DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
@@ -0,0 +1,86 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LineHashesCacheTest {
+
+  private static final String LINE_HASHES = "0123456789abcdef0123456789abcdef\nfedcba9876543210fedcba9876543210";
+
+  private LineHashesCache underTest = new LineHashesCache(LineHashesCache.DEFAULT_MAX_WEIGHT);
+
+  @Test
+  public void get_returns_line_hashes_cached_for_same_data_hash() {
+    underTest.put("FILE_UUID", "DATA_HASH", LINE_HASHES);
+
+    assertThat(underTest.get("FILE_UUID", () -> "DATA_HASH").toRawString()).isEqualTo(LINE_HASHES);
+    assertThat(underTest.get("FILE_UUID", () -> "OTHER_DATA_HASH")).isNull();
+    assertThat(underTest.get("OTHER_UUID", () -> "DATA_HASH")).isNull();
+    assertThat(underTest.getHits()).isEqualTo(1);
+    assertThat(underTest.getMisses()).isEqualTo(2);
+    assertThat(underTest.getHitRate()).isEqualTo(1.0 / 3);
+  }
+
+  @Test
+  public void data_hash_is_not_requested_if_line_hashes_are_not_cached() {
+    assertThat(underTest.get("FILE_UUID", () -> {
+      throw new IllegalStateException("data hash must not be requested");
+    })).isNull();
+    assertThat(underTest.getMisses()).isEqualTo(1);
+  }
+
+  @Test
+  public void put_without_data_hash_or_line_hashes_removes_entry() {
+    underTest.put("FILE_UUID", "DATA_HASH", LINE_HASHES);
+    underTest.put("FILE_UUID", null, LINE_HASHES);
+    assertThat(underTest.size()).isEqualTo(0);
+
+    underTest.put("FILE_UUID", "DATA_HASH", LINE_HASHES);
+    underTest.put("FILE_UUID", "DATA_HASH", null);
+    assertThat(underTest.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void invalidate_removes_entry() {
+    underTest.put("FILE_UUID", "DATA_HASH", LINE_HASHES);
+    underTest.invalidate("FILE_UUID");
+
+    assertThat(underTest.get("FILE_UUID", () -> "DATA_HASH")).isNull();
+  }
+
+  @Test
+  public void entries_are_evicted_when_max_weight_is_reached() {
+    LineHashesCache smallCache = new LineHashesCache(CompactLineHashes.of(LINE_HASHES).weight() * 8);
+    for (int i = 0; i < 10; i++) {
+      smallCache.put("FILE_" + i, "DATA_HASH", LINE_HASHES);
+    }
+
+    assertThat(smallCache.size()).isLessThanOrEqualTo(8);
+    assertThat(smallCache.getEvictions()).isEqualTo(10 - smallCache.size());
+  }
+
+  @Test
+  public void hit_rate_is_0_when_cache_has_not_been_used() {
+    assertThat(underTest.getHitRate()).isEqualTo(0.0);
+  }
+}
@@ -21,6 +21,7 @@ package org.sonar.home.cache;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import javax.annotation.CheckForNull;
 
@@ -73,6 +74,15 @@ public class FileCache {
     void download(String filename, File toFile) throws IOException;
   }
 
+  /**
+   * Downloader that provides the remote content as a stream. The hash of the content is computed
+   * while it is written to the temp file, instead of reading the file again once downloaded.
+   * @since 6.0
+   */
+  public interface StreamDownloader {
+    InputStream download(String filename) throws IOException;
+  }
+
   public File get(String filename, String hash, Downloader downloader) {
     // Does not fail if another process tries to create the directory at the same time.
     File hashDir = hashDir(hash);
@@ -81,16 +91,52 @@ public class FileCache {
       File tempFile = newTempFile();
       download(downloader, filename, tempFile);
       String downloadedHash = hashes.of(tempFile);
-      if (!hash.equals(downloadedHash)) {
-        throw new IllegalStateException("INVALID HASH: File " + tempFile.getAbsolutePath() + " was expected to have hash " + hash
-          + " but was downloaded with hash " + downloadedHash);
+      moveToCache(hash, downloadedHash, tempFile, targetFile);
+    }
+    return targetFile;
+  }
+
+  /**
+   * Same as {@link #get(String, String, Downloader)}, but the hash is computed on the fly.
+   * This method can be called concurrently by several threads: each download goes to its own temp file
+   * which is atomically renamed into the cache.
+   */
+  public File get(String filename, String hash, StreamDownloader downloader) {
+    File targetFile = new File(hashDir(hash), filename);
+    if (!targetFile.exists()) {
+      File tempFile = newTempFile();
+      boolean threw = true;
+      try {
+        String downloadedHash = hashes.copyAndHash(openStream(downloader, filename), tempFile);
+        moveToCache(hash, downloadedHash, tempFile, targetFile);
+        threw = false;
+      } finally {
+        if (threw) {
+          // do not leave partial or corrupted downloads in the temp dir
+          deleteQuietly(tempFile);
+        }
       }
-      mkdirQuietly(hashDir);
-      renameQuietly(tempFile, targetFile);
     }
     return targetFile;
   }
 
+  private void moveToCache(String expectedHash, String downloadedHash, File tempFile, File targetFile) {
+    if (!expectedHash.equals(downloadedHash)) {
+      throw new IllegalStateException("INVALID HASH: File " + tempFile.getAbsolutePath() + " was expected to have hash " + expectedHash
+        + " but was downloaded with hash " + downloadedHash);
+    }
+    mkdirQuietly(targetFile.getParentFile());
+    renameQuietly(tempFile, targetFile);
+  }
+
+  private static InputStream openStream(StreamDownloader downloader, String filename) {
+    try {
+      return downloader.download(filename);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to download " + filename, e);
+    }
+  }
+
   private static void download(Downloader downloader, String filename, File tempFile) {
     try {
       downloader.download(filename, tempFile);
@@ -113,6 +159,14 @@ public class FileCache {
     }
   }
 
+  private static void deleteQuietly(File file) {
+    try {
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      // ignore, the temp dir is cleaned by the next scanner executions
+    }
+  }
+
   private File hashDir(String hash) {
     return new File(dir, hash);
   }
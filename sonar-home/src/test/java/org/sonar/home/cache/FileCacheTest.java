@@ -21,6 +21,8 @@ package org.sonar.home.cache;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -28,6 +30,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -91,6 +94,56 @@ public class FileCacheTest {
     cache.get("sonar-foo-plugin-1.5.jar", "ABCDE", downloader);
   }
 
+  @Test
+  public void download_stream_and_add_to_cache() throws IOException {
+    FileCache cache = FileCache.create(tempFolder.newFolder(), mock(Logger.class));
+
+    FileCache.StreamDownloader downloader = new FileCache.StreamDownloader() {
+      public InputStream download(String filename) throws IOException {
+        return IOUtils.toInputStream("sonar");
+      }
+    };
+    File cachedFile = cache.get("sonar-foo-plugin-1.5.jar", "d85e336d61f5344395c42126fac239bc", downloader);
+    assertThat(cachedFile).isNotNull().exists().isFile();
+    assertThat(cachedFile.getName()).isEqualTo("sonar-foo-plugin-1.5.jar");
+    assertThat(cachedFile.getParentFile().getParentFile()).isEqualTo(cache.getDir());
+    assertThat(FileUtils.readFileToString(cachedFile)).isEqualTo("sonar");
+  }
+
+  @Test
+  public void download_corrupted_stream() throws IOException {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("INVALID HASH");
+
+    FileCache cache = FileCache.create(tempFolder.newFolder(), mock(Logger.class));
+
+    FileCache.StreamDownloader downloader = new FileCache.StreamDownloader() {
+      public InputStream download(String filename) throws IOException {
+        return IOUtils.toInputStream("corrupted body");
+      }
+    };
+    cache.get("sonar-foo-plugin-1.5.jar", "d85e336d61f5344395c42126fac239bc", downloader);
+  }
+
+  @Test
+  public void delete_temp_file_of_corrupted_stream() throws IOException {
+    FileCache cache = FileCache.create(tempFolder.newFolder(), mock(Logger.class));
+
+    FileCache.StreamDownloader downloader = new FileCache.StreamDownloader() {
+      public InputStream download(String filename) throws IOException {
+        return IOUtils.toInputStream("corrupted body");
+      }
+    };
+    try {
+      cache.get("sonar-foo-plugin-1.5.jar", "d85e336d61f5344395c42126fac239bc", downloader);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageContaining("INVALID HASH");
+    }
+    assertThat(new File(cache.getDir(), "_tmp").listFiles()).isEmpty();
+    assertThat(new File(cache.getDir(), "d85e336d61f5344395c42126fac239bc")).doesNotExist();
+  }
+
   @Test
   public void concurrent_download() throws IOException {
     FileHashes hashes = mock(FileHashes.class);
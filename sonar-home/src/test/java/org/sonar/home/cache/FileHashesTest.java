@@ -73,6 +73,15 @@ public class FileHashesTest {
     assertThat(hashFile(f)).isEqualTo("d85e336d61f5344395c42126fac239bc");
   }
 
+  @Test
+  public void test_copy_and_hash() throws IOException {
+    File f = temp.newFile();
+    String hash = new FileHashes().copyAndHash(new ByteArrayInputStream("sonar".getBytes(StandardCharsets.UTF_8)), f);
+
+    assertThat(hash).isEqualTo("d85e336d61f5344395c42126fac239bc");
+    assertThat(FileUtils.readFileToString(f)).isEqualTo("sonar");
+  }
+
   @Test
   public void test_toHex() {
     // lower-case
@@ -0,0 +1,385 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.batch.fs.internal.FileMetadata.LineHashConsumer;
+
+/**
+ * Computes the metadata and the line hashes of a file directly on its bytes, when
+ * decoding is trivial: UTF-8, US-ASCII and ISO-8859-1. Results are the same as the ones computed on decoded chars
+ * by {@link FileMetadata}, including the hashes, which are computed on UTF-8 bytes.
+ * <p/>
+ * Files which can't be read this way (malformed input, UTF-16 or UTF-32 byte order mark, size greater than 2GB)
+ * are rejected, so that they are read as chars.
+ */
+final class ByteFileScanner {
+
+  /**
+   * Files smaller than this size are read in heap, as mapping a file is more expensive than reading it
+   * when the file is small.
+   */
+  static final int MAPPING_THRESHOLD = 1024 * 1024;
+
+  private static final byte LINE_FEED = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+  private static final int REPLACEMENT_CHARACTER = 0xFFFD;
+
+  private final boolean latin1;
+  private final boolean ascii;
+  private final boolean computeLineHashes;
+  private final MessageDigest fileDigest = DigestUtils.getMd5Digest();
+  private final MessageDigest lineDigest = DigestUtils.getMd5Digest();
+  private ByteBuffer view;
+
+  private int offset = 0;
+  private boolean blankLine = true;
+  private byte[] lineBytes = new byte[256];
+  private int lineBytesLength = 0;
+
+  int lines = 1;
+  int nonBlankLines = 0;
+  int[] originalLineOffsets = new int[64];
+  int lastValidOffset = 0;
+  // line of the first U+FFFD character, 0 if none
+  int invalidCharacterLine = 0;
+  private final List<byte[]> lineHashes = new ArrayList<>();
+
+  private ByteFileScanner(Charset encoding, boolean computeLineHashes) {
+    this.latin1 = StandardCharsets.ISO_8859_1.equals(encoding);
+    this.ascii = StandardCharsets.US_ASCII.equals(encoding);
+    this.computeLineHashes = computeLineHashes;
+    this.originalLineOffsets[0] = 0;
+  }
+
+  static boolean supports(Charset encoding) {
+    return StandardCharsets.UTF_8.equals(encoding) || StandardCharsets.US_ASCII.equals(encoding) || StandardCharsets.ISO_8859_1.equals(encoding);
+  }
+
+  /**
+   * @return null if the file must be read as chars
+   */
+  @CheckForNull
+  static ByteFileScanner scan(File file, Charset encoding, boolean computeLineHashes) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        return null;
+      }
+      ByteFileScanner scanner = new ByteFileScanner(encoding, computeLineHashes);
+      if (size < MAPPING_THRESHOLD) {
+        return scanner.scan(read(channel, (int) size)) ? scanner : null;
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      try {
+        return scanner.scan(buffer) ? scanner : null;
+      } finally {
+        // mapped memory is otherwise released only when the buffer is garbage collected
+        unmap(buffer);
+      }
+    }
+  }
+
+  private static ByteBuffer read(FileChannel channel, int size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+      // read until end of file
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static void unmap(MappedByteBuffer buffer) {
+    try {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (Exception e) {
+      // not supported by JVM. Buffer is unmapped when garbage collected.
+    }
+  }
+
+  String hash() {
+    return Hex.encodeHexString(fileDigest.digest());
+  }
+
+  int[] originalLineOffsets() {
+    return Arrays.copyOf(originalLineOffsets, lines);
+  }
+
+  void consumeLineHashes(LineHashConsumer consumer) {
+    for (int i = 0; i < lineHashes.size(); i++) {
+      byte[] hash = lineHashes.get(i);
+      if (hash != null) {
+        consumer.consume(i + 1, hash);
+      }
+    }
+  }
+
+  private boolean scan(ByteBuffer buffer) {
+    view = buffer.duplicate();
+    try {
+      return scanBytes(buffer);
+    } finally {
+      // the scanner must not reference the buffer once it is unmapped
+      view = null;
+    }
+  }
+
+  private boolean scanBytes(ByteBuffer buffer) {
+    int start = contentStart(buffer);
+    if (start < 0) {
+      return false;
+    }
+    int end = buffer.limit();
+    // bytes of the file hash are the bytes of the file, except the ends of lines which are converted to LF
+    int hashedFrom = start;
+    boolean afterCR = false;
+    int i = start;
+    while (i < end) {
+      byte b = buffer.get(i);
+      if (b == LINE_FEED) {
+        offset++;
+        newLine();
+        afterCR = false;
+        i++;
+      } else if (b == CARRIAGE_RETURN) {
+        updateFileHash(hashedFrom, i);
+        hashedFrom = i + 1;
+        if (afterCR) {
+          endLineAfterCR();
+        }
+        offset++;
+        afterCR = true;
+        i++;
+      } else {
+        if (afterCR) {
+          endLineAfterCR();
+          afterCR = false;
+        }
+        if (b >= 0) {
+          offset++;
+          if (!isAsciiWhitespace(b)) {
+            blankLine = false;
+            appendLineByte(b);
+          }
+          i++;
+        } else if (latin1) {
+          // chars from U+0080 to U+00FF are encoded on two bytes in UTF-8, and none of them is a whitespace
+          updateFileHash(hashedFrom, i);
+          hashedFrom = i + 1;
+          int c = b & 0xFF;
+          byte first = (byte) (0xC0 | (c >> 6));
+          byte second = (byte) (0x80 | (c & 0x3F));
+          fileDigest.update(first);
+          fileDigest.update(second);
+          offset++;
+          blankLine = false;
+          appendLineByte(first);
+          appendLineByte(second);
+          i++;
+        } else if (ascii) {
+          return false;
+        } else {
+          int codePoint = decodeUtf8(buffer, i, end);
+          if (codePoint < 0) {
+            return false;
+          }
+          int length = utf8Length(codePoint);
+          if (codePoint == REPLACEMENT_CHARACTER && invalidCharacterLine == 0) {
+            invalidCharacterLine = lines;
+          }
+          if (!Character.isWhitespace(codePoint)) {
+            blankLine = false;
+            for (int k = i; k < i + length; k++) {
+              appendLineByte(buffer.get(k));
+            }
+          }
+          // supplementary characters are counted as two chars
+          offset += codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT ? 2 : 1;
+          i += length;
+        }
+      }
+    }
+    updateFileHash(hashedFrom, end);
+    if (afterCR) {
+      endLineAfterCR();
+    }
+    eof();
+    return true;
+  }
+
+  /**
+   * Skips the UTF-8 byte order mark. Returns -1 if the file starts with another byte order mark.
+   */
+  private static int contentStart(ByteBuffer buffer) {
+    int limit = buffer.limit();
+    int b0 = limit > 0 ? (buffer.get(0) & 0xFF) : -1;
+    int b1 = limit > 1 ? (buffer.get(1) & 0xFF) : -1;
+    int b2 = limit > 2 ? (buffer.get(2) & 0xFF) : -1;
+    int b3 = limit > 3 ? (buffer.get(3) & 0xFF) : -1;
+    if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+      return 3;
+    }
+    if ((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE) || (b0 == 0 && b1 == 0 && b2 == 0xFE && b3 == 0xFF)) {
+      return -1;
+    }
+    return 0;
+  }
+
+  private void endLineAfterCR() {
+    fileDigest.update(LINE_FEED);
+    newLine();
+  }
+
+  private void newLine() {
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+    blankLine = true;
+    if (lines == originalLineOffsets.length) {
+      originalLineOffsets = Arrays.copyOf(originalLineOffsets, lines * 2);
+    }
+    originalLineOffsets[lines] = offset;
+    lines++;
+    endLineHash();
+  }
+
+  private void eof() {
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+    lastValidOffset = offset;
+    endLineHash();
+  }
+
+  private void endLineHash() {
+    if (!computeLineHashes) {
+      return;
+    }
+    if (lineBytesLength > 0) {
+      lineDigest.update(lineBytes, 0, lineBytesLength);
+      lineHashes.add(lineDigest.digest());
+      lineBytesLength = 0;
+    } else {
+      lineHashes.add(null);
+    }
+  }
+
+  private void appendLineByte(byte b) {
+    if (!computeLineHashes) {
+      return;
+    }
+    if (lineBytesLength == lineBytes.length) {
+      lineBytes = Arrays.copyOf(lineBytes, lineBytesLength * 2);
+    }
+    lineBytes[lineBytesLength] = b;
+    lineBytesLength++;
+  }
+
+  private void updateFileHash(int from, int to) {
+    if (to > from) {
+      view.limit(to);
+      view.position(from);
+      fileDigest.update(view);
+    }
+  }
+
+  /**
+   * Same as {@link Character#isWhitespace(char)} for chars lower than U+0080
+   */
+  private static boolean isAsciiWhitespace(byte b) {
+    return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F);
+  }
+
+  private static int utf8Length(int codePoint) {
+    if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+      return 4;
+    }
+    return codePoint >= 0x800 ? 3 : 2;
+  }
+
+  /**
+   * Decodes a multi-byte UTF-8 sequence with the same rules as the JDK decoder: overlong forms,
+   * surrogates and code points greater than U+10FFFF are malformed.
+   *
+   * @return the code point, or -1 if the sequence is malformed
+   */
+  private static int decodeUtf8(ByteBuffer buffer, int index, int end) {
+    int lead = buffer.get(index) & 0xFF;
+    int length;
+    int codePoint;
+    int min = 0x80;
+    int max = 0xBF;
+    if (lead >= 0xC2 && lead <= 0xDF) {
+      length = 2;
+      codePoint = lead & 0x1F;
+    } else if (lead >= 0xE0 && lead <= 0xEF) {
+      length = 3;
+      codePoint = lead & 0x0F;
+      if (lead == 0xE0) {
+        min = 0xA0;
+      } else if (lead == 0xED) {
+        max = 0x9F;
+      }
+    } else if (lead >= 0xF0 && lead <= 0xF4) {
+      length = 4;
+      codePoint = lead & 0x07;
+      if (lead == 0xF0) {
+        min = 0x90;
+      } else if (lead == 0xF4) {
+        max = 0x8F;
+      }
+    } else {
+      return -1;
+    }
+    if (index + length > end) {
+      return -1;
+    }
+    for (int k = 1; k < length; k++) {
+      int b = buffer.get(index + k) & 0xFF;
+      if (b < min || b > max) {
+        return -1;
+      }
+      min = 0x80;
+      max = 0xBF;
+      codePoint = (codePoint << 6) | (b & 0x3F);
+    }
+    return codePoint;
+  }
+}
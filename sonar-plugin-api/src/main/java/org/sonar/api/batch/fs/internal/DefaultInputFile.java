@@ -29,6 +29,7 @@ import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.function.Consumer;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
@@ -54,6 +55,7 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   private String hash;
   private int nonBlankLines;
   private int[] originalLineOffsets;
+  private volatile Consumer<DefaultInputFile> metadataGenerator;
 
   public DefaultInputFile(String moduleKey, String relativePath) {
     this.moduleKey = moduleKey;
@@ -99,16 +101,19 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
    */
   @Override
   public Status status() {
+    checkMetadata();
     return status;
   }
 
   @Override
   public int lines() {
+    checkMetadata();
     return lines;
   }
 
   @Override
   public boolean isEmpty() {
+    checkMetadata();
     return lastValidOffset == 0;
   }
 
@@ -162,6 +167,7 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   }
 
   public int lastValidOffset() {
+    checkMetadata();
     Preconditions.checkState(lastValidOffset >= 0, "InputFile is not properly initialized. Please set 'lastValidOffset' property.");
     return lastValidOffset;
   }
@@ -175,14 +181,17 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
    * Digest hash of the file.
    */
   public String hash() {
+    checkMetadata();
     return hash;
   }
 
   public int nonBlankLines() {
+    checkMetadata();
     return nonBlankLines;
   }
 
   public int[] originalLineOffsets() {
+    checkMetadata();
     Preconditions.checkState(originalLineOffsets != null, "InputFile is not properly initialized. Please set 'originalLineOffsets' property.");
     Preconditions.checkState(originalLineOffsets.length == lines, "InputFile is not properly initialized. 'originalLineOffsets' property length should be equal to 'lines'");
     return originalLineOffsets;
@@ -212,7 +221,7 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
 
   private void checkValid(TextPointer pointer, String owner) {
     Preconditions.checkArgument(pointer.line() >= 1, "%s is not a valid line for a file", pointer.line());
-    Preconditions.checkArgument(pointer.line() <= this.lines, "%s is not a valid line for %s. File %s has %s line(s)", pointer.line(), owner, this, lines);
+    Preconditions.checkArgument(pointer.line() <= lines(), "%s is not a valid line for %s. File %s has %s line(s)", pointer.line(), owner, this, lines);
     Preconditions.checkArgument(pointer.lineOffset() >= 0, "%s is not a valid line offset for a file", pointer.lineOffset());
     int lineLength = lineLength(pointer.line());
     Preconditions.checkArgument(pointer.lineOffset() <= lineLength,
@@ -224,7 +233,7 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   }
 
   private int lastValidGlobalOffsetForLine(int line) {
-    return line < this.lines ? (originalLineOffsets()[line] - 1) : lastValidOffset();
+    return line < lines() ? (originalLineOffsets()[line] - 1) : lastValidOffset();
   }
 
   @Override
@@ -286,6 +295,31 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
     return this;
   }
 
+  /**
+   * Defers the computation of metadata (lines, offsets, hash and status) to the first access to one of them.
+   * The generator is expected to call {@link #initMetadata(Metadata)} and {@link #setStatus(Status)}, without
+   * reading them back.
+   */
+  public DefaultInputFile setMetadataGenerator(Consumer<DefaultInputFile> metadataGenerator) {
+    this.metadataGenerator = metadataGenerator;
+    return this;
+  }
+
+  /**
+   * Computes metadata now if it was deferred. Does nothing if it is already computed.
+   */
+  public void checkMetadata() {
+    if (metadataGenerator != null) {
+      synchronized (this) {
+        Consumer<DefaultInputFile> generator = metadataGenerator;
+        if (generator != null) {
+          generator.accept(this);
+          metadataGenerator = null;
+        }
+      }
+    }
+  }
+
   /**
    * For testing purpose
    */
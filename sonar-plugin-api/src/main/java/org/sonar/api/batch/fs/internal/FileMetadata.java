@@ -90,8 +90,7 @@ public class FileMetadata {
     @Override
     protected void handleAll(char c) {
       if (!alreadyLoggedInvalidCharacter && c == '\ufffd') {
-        LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", file,
-          lines, encoding, CoreProperties.ENCODING_PROPERTY);
+        logInvalidCharacter(file, lines, encoding);
         alreadyLoggedInvalidCharacter = true;
       }
     }
@@ -262,11 +261,23 @@ public class FileMetadata {
 
   }
 
+  private static void logInvalidCharacter(File file, int line, Charset encoding) {
+    LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", file,
+      line, encoding, CoreProperties.ENCODING_PROPERTY);
+  }
+
   /**
    * Compute hash of a file ignoring line ends differences.
    * Maximum performance is needed.
    */
   public Metadata readMetadata(File file, Charset encoding) {
+    ByteFileScanner scanner = scanBytes(file, encoding, false);
+    if (scanner != null) {
+      if (scanner.invalidCharacterLine > 0) {
+        logInvalidCharacter(file, scanner.invalidCharacterLine, encoding);
+      }
+      return new Metadata(scanner.lines, scanner.nonBlankLines, scanner.hash(), scanner.originalLineOffsets(), scanner.lastValidOffset);
+    }
     LineCounter lineCounter = new LineCounter(file, encoding);
     FileHashComputer fileHashComputer = new FileHashComputer(file);
     LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
@@ -291,6 +302,23 @@ public class FileMetadata {
       lineOffsetCounter.getLastValidOffset());
   }
 
+  /**
+   * Fast path for the encodings which can be processed without decoding chars.
+   *
+   * @return null if the file must be read as chars
+   */
+  @CheckForNull
+  private static ByteFileScanner scanBytes(File file, Charset encoding, boolean computeLineHashes) {
+    if (!ByteFileScanner.supports(encoding)) {
+      return null;
+    }
+    try {
+      return ByteFileScanner.scan(file, encoding, computeLineHashes);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
+    }
+  }
+
   public static void readFile(File file, Charset encoding, CharHandler... handlers) {
     try (BOMInputStream bomIn = new BOMInputStream(new FileInputStream(file),
       ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE);
@@ -356,12 +384,20 @@ public class FileMetadata {
     final int lastValidOffset;
 
     private Metadata(int lines, int nonBlankLines, String hash, List<Integer> originalLineOffsets, int lastValidOffset) {
+      this(lines, nonBlankLines, hash, Ints.toArray(originalLineOffsets), lastValidOffset);
+    }
+
+    private Metadata(int lines, int nonBlankLines, String hash, int[] originalLineOffsets, int lastValidOffset) {
       this.lines = lines;
       this.nonBlankLines = nonBlankLines;
       this.hash = hash;
-      this.originalLineOffsets = Ints.toArray(originalLineOffsets);
+      this.originalLineOffsets = originalLineOffsets;
       this.lastValidOffset = lastValidOffset;
     }
+
+    public String hash() {
+      return hash;
+    }
   }
 
   public interface LineHashConsumer {
@@ -374,6 +410,11 @@ public class FileMetadata {
    * Compute a MD5 hash of each line of the file after removing of all blank chars
    */
   public static void computeLineHashesForIssueTracking(DefaultInputFile f, LineHashConsumer consumer) {
+    ByteFileScanner scanner = scanBytes(f.file(), f.charset(), true);
+    if (scanner != null) {
+      scanner.consumeLineHashes(consumer);
+      return;
+    }
     readFile(f.file(), f.charset(), new LineHashComputer(consumer, f.file()));
   }
 }
@@ -43,6 +43,16 @@ public abstract class BlameCommand {
    */
   public abstract void blame(BlameInput input, BlameOutput output);
 
+  /**
+   * Whether {@link #blame(BlameInput, BlameOutput)} can be executed concurrently by different threads,
+   * each of them on a distinct subset of files. If true, the scanner may split the files to blame
+   * and parallelize the calls. Default is false.
+   * @since 6.0
+   */
+  public boolean isThreadSafe() {
+    return false;
+  }
+
   /**
    * Callback for the provider to report results of blame per file.
    */
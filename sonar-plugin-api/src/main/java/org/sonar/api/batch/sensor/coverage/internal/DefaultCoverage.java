@@ -20,9 +20,10 @@
 package org.sonar.api.batch.sensor.coverage.internal;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Maps;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.SortedMap;
+import java.util.TreeMap;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
@@ -33,14 +34,21 @@ import org.sonar.api.batch.sensor.internal.SensorStorage;
 
 public class DefaultCoverage extends DefaultStorable implements NewCoverage {
 
+  /**
+   * Value returned by {@link #hitsAt(int)} for lines which are not executable
+   */
+  public static final int NO_HITS = -1;
+
   private DefaultInputFile inputFile;
   private CoverageType type;
   private int totalCoveredLines = 0;
   private int totalConditions = 0;
   private int totalCoveredConditions = 0;
-  private SortedMap<Integer, Integer> hitsByLine = Maps.newTreeMap();
-  private SortedMap<Integer, Integer> conditionsByLine = Maps.newTreeMap();
-  private SortedMap<Integer, Integer> coveredConditionsByLine = Maps.newTreeMap();
+  private int linesToCover = 0;
+  // indexed by line, allocated when the first value is set
+  private int[] hitsByLine;
+  private int[] conditionsByLine;
+  private int[] coveredConditionsByLine;
 
   public DefaultCoverage() {
     super();
@@ -76,8 +84,13 @@ public class DefaultCoverage extends DefaultStorable implements NewCoverage {
     validateFile();
     validateLine(line);
 
-    if (!hitsByLine.containsKey(line)) {
-      hitsByLine.put(line, hits);
+    if (hitsByLine == null) {
+      hitsByLine = new int[inputFile.lines() + 1];
+      Arrays.fill(hitsByLine, NO_HITS);
+    }
+    if (hitsByLine[line] == NO_HITS) {
+      hitsByLine[line] = hits;
+      linesToCover++;
       if (hits > 0) {
         totalCoveredLines += 1;
       }
@@ -99,11 +112,17 @@ public class DefaultCoverage extends DefaultStorable implements NewCoverage {
     validateFile();
     validateLine(line);
 
-    if (conditions > 0 && !conditionsByLine.containsKey(line)) {
-      totalConditions += conditions;
-      totalCoveredConditions += coveredConditions;
-      conditionsByLine.put(line, conditions);
-      coveredConditionsByLine.put(line, coveredConditions);
+    if (conditions > 0) {
+      if (conditionsByLine == null) {
+        conditionsByLine = new int[inputFile.lines() + 1];
+        coveredConditionsByLine = new int[inputFile.lines() + 1];
+      }
+      if (conditionsByLine[line] == 0) {
+        totalConditions += conditions;
+        totalCoveredConditions += coveredConditions;
+        conditionsByLine[line] = conditions;
+        coveredConditionsByLine[line] = coveredConditions;
+      }
     }
     return this;
   }
@@ -113,7 +132,7 @@ public class DefaultCoverage extends DefaultStorable implements NewCoverage {
   }
 
   public int linesToCover() {
-    return hitsByLine.size();
+    return linesToCover;
   }
 
   public int conditions() {
@@ -124,16 +143,64 @@ public class DefaultCoverage extends DefaultStorable implements NewCoverage {
     return totalCoveredConditions;
   }
 
+  /**
+   * Hits of the given line, or {@link #NO_HITS} if the line is not executable.
+   */
+  public int hitsAt(int line) {
+    return valueAt(hitsByLine, line, NO_HITS);
+  }
+
+  /**
+   * Number of conditions of the given line, zero if none.
+   */
+  public int conditionsAt(int line) {
+    return valueAt(conditionsByLine, line, 0);
+  }
+
+  /**
+   * Number of covered conditions of the given line. Relevant only if {@link #conditionsAt(int)} is positive.
+   */
+  public int coveredConditionsAt(int line) {
+    return valueAt(coveredConditionsByLine, line, 0);
+  }
+
+  private static int valueAt(@Nullable int[] valuesByLine, int line, int defaultValue) {
+    if (valuesByLine == null || line <= 0 || line >= valuesByLine.length) {
+      return defaultValue;
+    }
+    return valuesByLine[line];
+  }
+
   public SortedMap<Integer, Integer> hitsByLine() {
-    return Collections.unmodifiableSortedMap(hitsByLine);
+    SortedMap<Integer, Integer> result = new TreeMap<>();
+    if (hitsByLine != null) {
+      for (int line = 1; line < hitsByLine.length; line++) {
+        if (hitsByLine[line] != NO_HITS) {
+          result.put(line, hitsByLine[line]);
+        }
+      }
+    }
+    return Collections.unmodifiableSortedMap(result);
   }
 
   public SortedMap<Integer, Integer> conditionsByLine() {
-    return Collections.unmodifiableSortedMap(conditionsByLine);
+    return toMapOfConditionLines(conditionsByLine);
   }
 
   public SortedMap<Integer, Integer> coveredConditionsByLine() {
-    return Collections.unmodifiableSortedMap(coveredConditionsByLine);
+    return toMapOfConditionLines(coveredConditionsByLine);
+  }
+
+  private SortedMap<Integer, Integer> toMapOfConditionLines(@Nullable int[] valuesByLine) {
+    SortedMap<Integer, Integer> result = new TreeMap<>();
+    if (valuesByLine != null) {
+      for (int line = 1; line < valuesByLine.length; line++) {
+        if (conditionsByLine[line] > 0) {
+          result.put(line, valuesByLine[line]);
+        }
+      }
+    }
+    return Collections.unmodifiableSortedMap(result);
   }
 
   @Override
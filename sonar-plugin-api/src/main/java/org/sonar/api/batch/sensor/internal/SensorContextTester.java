@@ -188,7 +188,8 @@ public class SensorContextTester implements SensorContext {
       return null;
     }
     if (defaultCoverageByType.containsKey(type)) {
-      return defaultCoverageByType.get(type).hitsByLine().get(line);
+      int hits = defaultCoverageByType.get(type).hitsAt(line);
+      return hits == DefaultCoverage.NO_HITS ? null : hits;
     }
     return null;
   }
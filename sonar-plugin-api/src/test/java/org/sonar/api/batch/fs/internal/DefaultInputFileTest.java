@@ -20,7 +20,9 @@
 package org.sonar.api.batch.fs.internal;
 
 import java.io.File;
+import java.io.StringReader;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -57,6 +59,24 @@ public class DefaultInputFileTest {
     assertThat(inputFile.lines()).isEqualTo(42);
   }
 
+  @Test
+  public void compute_deferred_metadata_once_on_first_access() {
+    AtomicInteger calls = new AtomicInteger();
+    DefaultInputFile inputFile = new DefaultInputFile("ABCDE", "src/Foo.php")
+      .setMetadataGenerator(f -> {
+        calls.incrementAndGet();
+        f.initMetadata(new FileMetadata().readMetadata(new StringReader("foo\nbar")));
+        f.setStatus(InputFile.Status.SAME);
+      });
+
+    assertThat(calls.get()).isEqualTo(0);
+    assertThat(inputFile.lines()).isEqualTo(2);
+    assertThat(inputFile.status()).isEqualTo(InputFile.Status.SAME);
+    assertThat(inputFile.hash()).isNotEmpty();
+    assertThat(inputFile.selectLine(2).end().lineOffset()).isEqualTo(3);
+    assertThat(calls.get()).isEqualTo(1);
+  }
+
   @Test
   public void test_equals_and_hashcode() throws Exception {
     DefaultInputFile f1 = new DefaultInputFile("ABCDE", "src/Foo.php");
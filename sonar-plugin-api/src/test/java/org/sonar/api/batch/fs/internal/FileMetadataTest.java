@@ -22,6 +22,8 @@ package org.sonar.api.batch.fs.internal;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
@@ -74,6 +76,26 @@ public class FileMetadataTest {
     assertThat(metadata.lastValidOffset).isEqualTo(13);
   }
 
+  @Test
+  public void read_file_larger_than_mapping_threshold() throws Exception {
+    StringBuilder content = new StringBuilder();
+    while (content.length() <= ByteFileScanner.MAPPING_THRESHOLD) {
+      content.append("foo\r\nbar\n");
+    }
+    int lines = content.length() / 9 * 2 + 1;
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, content, StandardCharsets.UTF_8, true);
+
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_8);
+    assertThat(metadata.lines).isEqualTo(lines);
+    assertThat(metadata.nonBlankLines).isEqualTo(lines - 1);
+    assertThat(metadata.hash).isEqualTo(md5Hex(content.toString().replace("\r\n", "\n")));
+    assertThat(metadata.lastValidOffset).isEqualTo(content.length());
+
+    // file is unmapped, so it can be deleted, even on Windows
+    assertThat(tempFile.delete()).isTrue();
+  }
+
   @Test
   public void read_with_wrong_encoding() throws Exception {
     File tempFile = temp.newFile();
@@ -108,6 +130,30 @@ public class FileMetadataTest {
     assertThat(metadata.originalLineOffsets).containsOnly(0, 5, 10, 18);
   }
 
+  @Test
+  public void non_ascii_iso_8859_1() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "föo\r\nbàr\r\n baßz\r\n", StandardCharsets.ISO_8859_1, true);
+
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(tempFile, StandardCharsets.ISO_8859_1);
+    assertThat(metadata.lines).isEqualTo(4);
+    assertThat(metadata.nonBlankLines).isEqualTo(3);
+    assertThat(metadata.hash).isEqualTo(md5Hex("föo\nbàr\n baßz\n".getBytes(StandardCharsets.UTF_8)));
+    assertThat(metadata.originalLineOffsets).containsOnly(0, 5, 10, 17);
+  }
+
+  @Test
+  public void supplementary_characters_count_as_two_chars() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "\uD834\uDD1E\u3000\nfoo", StandardCharsets.UTF_8, true);
+
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_8);
+    assertThat(metadata.lines).isEqualTo(2);
+    assertThat(metadata.hash).isEqualTo(md5Hex("\uD834\uDD1E\u3000\nfoo".getBytes(StandardCharsets.UTF_8)));
+    assertThat(metadata.originalLineOffsets).containsOnly(0, 4);
+    assertThat(metadata.lastValidOffset).isEqualTo(7);
+  }
+
   @Test
   public void unix_without_latest_eol() throws Exception {
     File tempFile = temp.newFile();
@@ -249,6 +295,27 @@ public class FileMetadataTest {
     });
   }
 
+  @Test
+  public void ignore_unicode_whitespace_when_computing_line_hashes() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "\u3000f\u00f6o\u2028\n\u00a0", StandardCharsets.UTF_8, true);
+
+    DefaultInputFile f = new DefaultInputFile("foo", tempFile.getName());
+    f.setModuleBaseDir(tempFile.getParentFile().toPath());
+    f.setCharset(StandardCharsets.UTF_8);
+    final Map<Integer, String> hashes = new HashMap<>();
+    FileMetadata.computeLineHashesForIssueTracking(f, new LineHashConsumer() {
+
+      @Override
+      public void consume(int lineIdx, @Nullable byte[] hash) {
+        hashes.put(lineIdx, Hex.encodeHexString(hash));
+      }
+    });
+    assertThat(hashes).hasSize(2);
+    assertThat(hashes.get(1)).isEqualTo(md5Hex("f\u00f6o".getBytes(StandardCharsets.UTF_8)));
+    assertThat(hashes.get(2)).isEqualTo(md5Hex("\u00a0".getBytes(StandardCharsets.UTF_8)));
+  }
+
   @Test
   public void dont_fail_on_empty_file() throws Exception {
     File tempFile = temp.newFile();
@@ -32,6 +32,7 @@ import org.sonar.batch.scan.report.IssuesReportBuilder;
 import org.sonar.batch.scan.report.JSONReport;
 import org.sonar.batch.scan.report.RuleNameProvider;
 import org.sonar.batch.scan.report.SourceProvider;
+import org.sonar.batch.scm.BlameCache;
 import org.sonar.batch.scm.ScmConfiguration;
 import org.sonar.batch.scm.ScmSensor;
 import org.sonar.batch.source.CodeColorizerSensor;
@@ -63,6 +64,7 @@ public class BatchComponents {
     if (!analysisMode.isIssues()) {
       // SCM
       components.add(ScmConfiguration.class);
+      components.add(BlameCache.class);
       components.add(ScmSensor.class);
 
       components.add(LinesSensor.class);
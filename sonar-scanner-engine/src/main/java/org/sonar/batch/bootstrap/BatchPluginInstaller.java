@@ -21,15 +21,21 @@ package org.sonar.batch.bootstrap;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import org.apache.commons.io.FileUtils;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.CharUtils;
 import org.apache.commons.lang.StringUtils;
@@ -54,6 +60,11 @@ public class BatchPluginInstaller implements PluginInstaller {
 
   private static final Logger LOG = Loggers.get(BatchPluginInstaller.class);
   private static final String PLUGINS_INDEX_URL = "/deploy/plugins/index.txt";
+  /**
+   * Maximum number of plugins downloaded at the same time. Downloads are I/O bound,
+   * so this does not depend on the number of cores.
+   */
+  private static final int MAX_PARALLEL_DOWNLOADS = 4;
 
   private final FileCache fileCache;
   private final BatchPluginPredicate pluginPredicate;
@@ -71,22 +82,74 @@ public class BatchPluginInstaller implements PluginInstaller {
   }
 
   private Map<String, PluginInfo> loadPlugins(List<RemotePlugin> remotePlugins) {
-    Map<String, PluginInfo> infosByKey = new HashMap<>();
-
     Profiler profiler = Profiler.create(LOG).startDebug("Load plugins");
 
+    List<RemotePlugin> acceptedPlugins = new ArrayList<>();
     for (RemotePlugin remotePlugin : remotePlugins) {
       if (pluginPredicate.apply(remotePlugin.getKey())) {
-        File jarFile = download(remotePlugin);
-        PluginInfo info = PluginInfo.create(jarFile);
-        infosByKey.put(info.getKey(), info);
+        acceptedPlugins.add(remotePlugin);
       }
     }
+    Map<String, PluginInfo> infosByKey = acceptedPlugins.size() > 1 ? loadInParallel(acceptedPlugins) : loadSerially(acceptedPlugins);
 
     profiler.stopDebug();
     return infosByKey;
   }
 
+  private Map<String, PluginInfo> loadSerially(List<RemotePlugin> remotePlugins) {
+    Map<String, PluginInfo> infosByKey = new HashMap<>();
+    for (RemotePlugin remotePlugin : remotePlugins) {
+      PluginInfo info = load(remotePlugin);
+      infosByKey.put(info.getKey(), info);
+    }
+    return infosByKey;
+  }
+
+  /**
+   * Plugins are downloaded and verified concurrently. The {@link FileCache} supports concurrent downloads,
+   * including from other scanner processes sharing the same user cache.
+   */
+  private Map<String, PluginInfo> loadInParallel(List<RemotePlugin> remotePlugins) {
+    int threads = Math.min(MAX_PARALLEL_DOWNLOADS, remotePlugins.size());
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("PluginDownloader-%d").build());
+    try {
+      List<Future<PluginInfo>> tasks = new ArrayList<>();
+      for (final RemotePlugin remotePlugin : remotePlugins) {
+        tasks.add(executorService.submit(new Callable<PluginInfo>() {
+          @Override
+          public PluginInfo call() {
+            return load(remotePlugin);
+          }
+        }));
+      }
+      Map<String, PluginInfo> infosByKey = new HashMap<>();
+      for (Future<PluginInfo> task : tasks) {
+        PluginInfo info = waitFor(task);
+        infosByKey.put(info.getKey(), info);
+      }
+      return infosByKey;
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static PluginInfo waitFor(Future<PluginInfo> task) {
+    try {
+      return task.get();
+    } catch (ExecutionException e) {
+      // Unwrap ExecutionException
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private PluginInfo load(RemotePlugin remotePlugin) {
+    File jarFile = download(remotePlugin);
+    return PluginInfo.create(jarFile);
+  }
+
   /**
    * Returns empty on purpose. This method is used only by tests.
    * @see org.sonar.batch.mediumtest.BatchMediumTester
@@ -139,7 +202,7 @@ public class BatchPluginInstaller implements PluginInstaller {
     return str;
   }
 
-  private class FileDownloader implements FileCache.Downloader {
+  private class FileDownloader implements FileCache.StreamDownloader {
     private String key;
 
     FileDownloader(String key) {
@@ -147,18 +210,16 @@ public class BatchPluginInstaller implements PluginInstaller {
     }
 
     @Override
-    public void download(String filename, File toFile) throws IOException {
+    public InputStream download(String filename) throws IOException {
       String url = format("/deploy/plugins/%s/%s", key, filename);
       if (LOG.isDebugEnabled()) {
-        LOG.debug("Download plugin {} to {}", filename, toFile);
+        LOG.debug("Download plugin {}", filename);
       } else {
         LOG.info("Download {}", filename);
       }
 
       WsResponse response = wsClient.call(new GetRequest(url));
-      try (InputStream stream = response.contentStream()) {
-        FileUtils.copyInputStreamToFile(stream, toFile);
-      }
+      return response.contentStream();
     }
   }
 }
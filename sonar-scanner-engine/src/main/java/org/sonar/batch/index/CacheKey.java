@@ -0,0 +1,151 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.index;
+
+import java.util.Arrays;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Key of a {@link Cache}, made of one or several parts. Keys are ordered part by part, then by depth,
+ * so that the keys starting with the same parts are contiguous. Parts of different types are
+ * ordered by type.
+ */
+final class CacheKey implements Comparable<CacheKey> {
+
+  // bounds of the children of a key, lower and greater than any part
+  private static final Object BEFORE = new Object();
+  private static final Object AFTER = new Object();
+
+  private static final Class<?>[] ORDERED_TYPES = {Boolean.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, String.class};
+
+  private final Object[] parts;
+
+  private CacheKey(Object[] parts) {
+    this.parts = parts;
+  }
+
+  static CacheKey of(Object... parts) {
+    return new CacheKey(parts.clone());
+  }
+
+  /**
+   * Lower bound, exclusive, of the keys starting with the given parts. The key made of these exact parts is lower.
+   */
+  static CacheKey beforeChildrenOf(Object... parts) {
+    return withLastPart(parts, parts.length, BEFORE);
+  }
+
+  /**
+   * Upper bound, exclusive, of the keys starting with the given parts
+   */
+  static CacheKey afterChildrenOf(Object... parts) {
+    return withLastPart(parts, parts.length, AFTER);
+  }
+
+  private static CacheKey withLastPart(Object[] parts, int length, Object lastPart) {
+    Object[] bound = Arrays.copyOf(parts, length + 1);
+    bound[length] = lastPart;
+    return new CacheKey(bound);
+  }
+
+  int depth() {
+    return parts.length;
+  }
+
+  @CheckForNull
+  Object part(int index) {
+    return parts[index];
+  }
+
+  /**
+   * Upper bound, exclusive, of the keys starting with the first {@code depth} parts of this key
+   */
+  CacheKey afterChildrenOfPrefix(int depth) {
+    return withLastPart(parts, depth, AFTER);
+  }
+
+  Object[] toArray() {
+    return parts.clone();
+  }
+
+  @Override
+  public int compareTo(CacheKey other) {
+    int length = Math.min(parts.length, other.parts.length);
+    for (int i = 0; i < length; i++) {
+      int c = compareParts(parts[i], other.parts[i]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return Integer.compare(parts.length, other.parts.length);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareParts(@Nullable Object a, @Nullable Object b) {
+    if (a == b) {
+      return 0;
+    }
+    if (a == BEFORE || b == AFTER) {
+      return -1;
+    }
+    if (a == AFTER || b == BEFORE) {
+      return 1;
+    }
+    if (a == null) {
+      return -1;
+    }
+    if (b == null) {
+      return 1;
+    }
+    if (a.getClass() != b.getClass()) {
+      int c = Integer.compare(rank(a.getClass()), rank(b.getClass()));
+      return c != 0 ? c : a.getClass().getName().compareTo(b.getClass().getName());
+    }
+    if (a instanceof Comparable) {
+      return ((Comparable) a).compareTo(b);
+    }
+    return a.toString().compareTo(b.toString());
+  }
+
+  private static int rank(Class<?> type) {
+    for (int i = 0; i < ORDERED_TYPES.length; i++) {
+      if (ORDERED_TYPES[i] == type) {
+        return i;
+      }
+    }
+    return ORDERED_TYPES.length;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof CacheKey && compareTo((CacheKey) o) == 0);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(parts);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(parts);
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+import javax.annotation.CheckForNull;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Storage of the serialized values of {@link Cache}s, outside of the heap. Records are appended to
+ * memory-mapped segment files of the given directory. The address of a record is the index of its
+ * segment in the high 32 bits and its offset in the low 32 bits.
+ * <p/>
+ * Space of records is reclaimed by segment: a full segment is deleted as soon as all its records are
+ * {@link #free(long) freed}. Records of full segments which are mostly free are expected to be moved
+ * to the current segment when {@link #needsCompaction()}, see {@link Caches}.
+ * <p/>
+ * Appending is lock-free, except when the current segment is full. Reading is thread-safe.
+ */
+class CacheStorage {
+
+  static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+  static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+  private static final int HEADER_SIZE = 4;
+  // full segments with less than 1/SPARSE_RATIO of live bytes are compacted
+  private static final int SPARSE_RATIO = 4;
+
+  private final File dir;
+  private final int segmentSize;
+  // released segments are replaced by null, so that indices of segments do not change
+  private final List<Segment> segments = new CopyOnWriteArrayList<>();
+  // released segments which files could not be deleted because they are still mapped (Windows)
+  private final List<Segment> undeleted = new ArrayList<>();
+  private final AtomicBoolean compactionNeeded = new AtomicBoolean(false);
+  private volatile Segment current;
+
+  CacheStorage(File dir, int segmentSize) {
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+    this.current = newSegment(segmentSize);
+  }
+
+  /**
+   * @return the address of the record
+   */
+  long append(byte[] bytes, int length) {
+    if (length > MAX_RECORD_SIZE) {
+      throw new IllegalArgumentException(String.format("Value is too big: %d bytes (maximum is %d)", length, MAX_RECORD_SIZE));
+    }
+    int recordSize = HEADER_SIZE + length;
+    while (true) {
+      Segment segment = current;
+      int offset = segment.reserve(recordSize);
+      if (offset >= 0) {
+        segment.write(offset, bytes, length);
+        return ((long) segment.index << 32) | offset;
+      }
+      decrementLiveBytes(segment, recordSize);
+      rollOver(segment, recordSize);
+    }
+  }
+
+  /**
+   * @return the record, or null if it has been freed and its segment has been deleted
+   */
+  @CheckForNull
+  byte[] read(long address) {
+    Segment segment = segments.get((int) (address >>> 32));
+    if (segment == null) {
+      return null;
+    }
+    return segment.read((int) address);
+  }
+
+  /**
+   * Marks the record as not used anymore. It must not be read after being freed.
+   */
+  void free(long address) {
+    Segment segment = segments.get((int) (address >>> 32));
+    if (segment != null) {
+      decrementLiveBytes(segment, HEADER_SIZE + segment.length((int) address));
+    }
+  }
+
+  /**
+   * Whether some full segments are mostly free. Returns true only once, until other segments are
+   * mostly free.
+   */
+  boolean needsCompaction() {
+    return compactionNeeded.get() && compactionNeeded.getAndSet(false);
+  }
+
+  /**
+   * Tests whether addresses are in full segments which are mostly free. The records of these segments
+   * should be copied and freed, so that segments get deleted.
+   */
+  LongPredicate inSparseSegments() {
+    Segment last = current;
+    return address -> {
+      Segment segment = segments.get((int) (address >>> 32));
+      return segment != null && segment.index < last.index && segment.isSparse();
+    };
+  }
+
+  /**
+   * Number of segment files
+   */
+  int segments() {
+    int count = 0;
+    for (Segment segment : segments) {
+      if (segment != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Unmaps and deletes all the segments. Storage must not be used concurrently, nor after being closed.
+   */
+  synchronized void close() {
+    for (Segment segment : segments) {
+      if (segment != null) {
+        unmap(segment.buffer);
+      }
+    }
+    for (Segment segment : undeleted) {
+      unmap(segment.buffer);
+    }
+    segments.clear();
+    undeleted.clear();
+    current = null;
+    // mapped files can't be deleted on Windows
+    deleteQuietly(dir);
+  }
+
+  private void decrementLiveBytes(Segment segment, int size) {
+    int liveBytes = segment.liveBytes.addAndGet(-size);
+    if (segment != current) {
+      if (liveBytes == 0) {
+        release(segment);
+      } else if (segment.isSparse()) {
+        compactionNeeded.set(true);
+      }
+    }
+  }
+
+  private synchronized void rollOver(Segment full, int recordSize) {
+    if (current == full) {
+      // appends which did not reserve space yet go to the new segment
+      full.seal();
+      current = newSegment(Math.max(segmentSize, recordSize));
+      if (full.liveBytes.get() == 0) {
+        release(full);
+      } else if (full.isSparse()) {
+        compactionNeeded.set(true);
+      }
+    }
+  }
+
+  private synchronized void release(Segment segment) {
+    if (segments.isEmpty() || segments.get(segment.index) != segment) {
+      // already released, or storage is closed
+      return;
+    }
+    segments.set(segment.index, null);
+    // the buffer is not unmapped as it may still be read concurrently. Memory is released when it
+    // is garbage collected.
+    if (!segment.file.delete()) {
+      undeleted.add(segment);
+    }
+  }
+
+  private synchronized Segment newSegment(int capacity) {
+    int index = segments.size();
+    File file = new File(dir, "segment-" + index);
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      // the mapping stays valid after the file is closed
+      MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+      Segment segment = new Segment(index, file, buffer, capacity);
+      segments.add(segment);
+      return segment;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create cache segment " + file, e);
+    }
+  }
+
+  /**
+   * Releases the mapping immediately, instead of waiting for the buffer to be garbage collected,
+   * so that the file can be deleted on Windows.
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    try {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (Exception e) {
+      // not supported by JVM. Buffer is unmapped when garbage collected.
+    }
+  }
+
+  private static class Segment {
+    private final int index;
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final AtomicInteger position = new AtomicInteger(0);
+    // size of the reserved records which are not freed yet
+    private final AtomicInteger liveBytes = new AtomicInteger(0);
+
+    Segment(int index, File file, MappedByteBuffer buffer, int capacity) {
+      this.index = index;
+      this.file = file;
+      this.buffer = buffer;
+      this.capacity = capacity;
+    }
+
+    /**
+     * Live bytes are incremented even if there's no space left, so that the segment is not
+     * released while a record is being reserved. Caller must decrement them in this case.
+     *
+     * @return the offset of the reserved space, or -1 if the segment is full
+     */
+    int reserve(int size) {
+      liveBytes.addAndGet(size);
+      while (true) {
+        int offset = position.get();
+        if (offset > capacity - size) {
+          return -1;
+        }
+        if (position.compareAndSet(offset, offset + size)) {
+          return offset;
+        }
+      }
+    }
+
+    void seal() {
+      position.set(capacity);
+    }
+
+    boolean isSparse() {
+      return liveBytes.get() < capacity / SPARSE_RATIO;
+    }
+
+    void write(int offset, byte[] bytes, int length) {
+      ByteBuffer view = buffer.duplicate();
+      view.position(offset);
+      view.putInt(length);
+      view.put(bytes, 0, length);
+    }
+
+    int length(int offset) {
+      return buffer.getInt(offset);
+    }
+
+    byte[] read(int offset) {
+      ByteBuffer view = buffer.duplicate();
+      view.position(offset);
+      byte[] bytes = new byte[view.getInt()];
+      view.get(bytes);
+      return bytes;
+    }
+  }
+}
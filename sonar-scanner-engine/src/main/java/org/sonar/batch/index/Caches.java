@@ -19,82 +19,198 @@
  */
 package org.sonar.batch.index;
 
-import com.google.common.collect.Maps;
-
-import java.util.Map;
-import java.util.Map.Entry;
-
 import com.google.common.base.Preconditions;
-import com.persistit.Exchange;
-import com.persistit.Value;
-import com.persistit.encoding.CoderManager;
-import com.persistit.Persistit;
-import com.persistit.encoding.ValueCoder;
-import com.persistit.exception.PersistitException;
-import com.persistit.Volume;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongPredicate;
+import javax.annotation.CheckForNull;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.BatchSide;
 
 @BatchSide
 public class Caches implements Startable {
-  private final Map<String, Exchange> cacheMap = Maps.newHashMap();
-  private Persistit persistit;
-  private Volume volume;
 
-  public Caches(CachesManager caches) {
-    persistit = caches.persistit();
-    doStart();
+  // buffers bigger than this size are not kept between serializations
+  private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+  private final Map<String, Cache<?>> cacheMap = new ConcurrentHashMap<>();
+  private final Map<Class<?>, Short> codecIdsByClass = new ConcurrentHashMap<>();
+  private final List<ValueCodec<Object>> codecs = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<Buffer> buffers = new ThreadLocal<>();
+  private final CachesManager cachesManager;
+  private final int segmentSize;
+  private CacheStorage storage;
+
+  public Caches(CachesManager cachesManager) {
+    this(cachesManager, CacheStorage.DEFAULT_SEGMENT_SIZE);
   }
 
-  @Override
-  public void start() {
-    // done in constructor
+  Caches(CachesManager cachesManager, int segmentSize) {
+    this.cachesManager = cachesManager;
+    this.segmentSize = segmentSize;
+    // values which are not of a registered type are serialized by Java serialization
+    codecs.add(new SerializableCodec());
+    registerValueCodec(String.class, new StringCodec());
   }
 
-  private void doStart() {
+  /**
+   * Caches can be created before start, for example by constructors of components, but they can
+   * be used only once started.
+   */
+  @Override
+  public void start() {
     try {
-      persistit.flush();
-      volume = persistit.createTemporaryVolume();
+      storage = new CacheStorage(Files.createTempDirectory(cachesManager.tempDir().toPath(), "caches").toFile(), segmentSize);
     } catch (Exception e) {
       throw new IllegalStateException("Fail to create a cache volume", e);
     }
   }
 
-  public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
-    CoderManager cm = persistit.getCoderManager();
-    cm.registerValueCoder(clazz, coder);
+  /**
+   * Registers the binary format of the values of the given type. The type must match exactly the class of values.
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized <V> void registerValueCodec(Class<V> clazz, ValueCodec<V> codec) {
+    Short id = codecIdsByClass.get(clazz);
+    if (id == null) {
+      codecs.add((ValueCodec<Object>) codec);
+      codecIdsByClass.put(clazz, (short) (codecs.size() - 1));
+    } else {
+      codecs.set(id, (ValueCodec<Object>) codec);
+    }
   }
 
   public <V> Cache<V> createCache(String cacheName) {
-    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
     Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: " + cacheName);
+    Cache<V> cache = new Cache<>(cacheName, this);
+    cacheMap.put(cacheName, cache);
+    return cache;
+  }
+
+  /**
+   * @return the address of the serialized value in storage
+   */
+  long write(Object value) throws IOException {
+    Buffer buffer = buffers.get();
+    if (buffer == null) {
+      buffer = new Buffer();
+      buffers.set(buffer);
+    }
     try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Cache<V> cache = new Cache<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
-      return cache;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create cache: " + cacheName, e);
+      Short codecId = codecIdsByClass.get(value.getClass());
+      short id = codecId == null ? 0 : codecId;
+      buffer.data.writeShort(id);
+      codecs.get(id).write(value, buffer.data);
+      buffer.data.flush();
+      if (storage.needsCompaction()) {
+        compact();
+      }
+      return storage.append(buffer.bytes(), buffer.size());
+    } finally {
+      if (buffer.bytes().length > MAX_RETAINED_BUFFER_SIZE) {
+        buffers.remove();
+      } else {
+        buffer.reset();
+      }
     }
   }
 
+  /**
+   * @return the value, or null if it has been moved or removed since the address was read
+   */
+  @CheckForNull
+  Object read(long address) throws IOException {
+    byte[] bytes = storage.read(address);
+    if (bytes == null) {
+      return null;
+    }
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+    return codecs.get(input.readShort()).read(input);
+  }
+
+  void free(long address) {
+    storage.free(address);
+  }
+
+  /**
+   * Moves the values of the segments which are mostly free, so that these segments get deleted
+   */
+  private void compact() {
+    LongPredicate sparse = storage.inSparseSegments();
+    for (Cache<?> cache : cacheMap.values()) {
+      cache.moveValues(sparse, this::copy);
+    }
+  }
+
+  /**
+   * @return the address of the copy, or null if the value has been freed in the meantime
+   */
+  @CheckForNull
+  private Long copy(long address) {
+    byte[] bytes = storage.read(address);
+    return bytes == null ? null : storage.append(bytes, bytes.length);
+  }
+
   @Override
   public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
+    cacheMap.clear();
+
+    if (storage != null) {
+      storage.close();
+      storage = null;
     }
+  }
 
-    cacheMap.clear();
+  private static class Buffer extends ByteArrayOutputStream {
+    private final DataOutputStream data = new DataOutputStream(this);
+
+    byte[] bytes() {
+      return buf;
+    }
+  }
+
+  private static class StringCodec implements ValueCodec<String> {
+    @Override
+    public void write(String value, DataOutputStream output) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+
+    @Override
+    public String read(DataInputStream input) throws IOException {
+      byte[] bytes = new byte[input.readInt()];
+      input.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+
+  private static class SerializableCodec implements ValueCodec<Object> {
+    @Override
+    public void write(Object value, DataOutputStream output) throws IOException {
+      ObjectOutputStream objectOutput = new ObjectOutputStream(output);
+      objectOutput.writeObject(value);
+      objectOutput.flush();
+    }
 
-    if (volume != null) {
+    @Override
+    public Object read(DataInputStream input) throws IOException {
       try {
-        volume.close();
-        volume.delete();
-      } catch (PersistitException e) {
-        throw new IllegalStateException("Fail to close caches", e);
+        return new ObjectInputStream(input).readObject();
+      } catch (ClassNotFoundException e) {
+        throw new IOException(e);
       }
-      volume = null;
     }
   }
 }
@@ -19,27 +19,22 @@
  */
 package org.sonar.batch.issue.tracking;
 
-import com.persistit.Value;
-import com.persistit.encoding.CoderContext;
-import com.persistit.encoding.ValueCoder;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import org.sonar.batch.index.ValueCodec;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 
-public class ServerIssueValueCoder implements ValueCoder {
+public class ServerIssueValueCoder implements ValueCodec<ServerIssue> {
 
   @Override
-  public void put(Value value, Object object, CoderContext context) {
-    ServerIssue issue = (ServerIssue) object;
-    value.putByteArray(issue.toByteArray());
+  public void write(ServerIssue issue, DataOutputStream output) throws IOException {
+    issue.writeDelimitedTo(output);
   }
 
   @Override
-  public Object get(Value value, Class<?> clazz, CoderContext context) {
-    try {
-      return ServerIssue.parseFrom(value.getByteArray());
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to read issue from cache", e);
-    }
+  public ServerIssue read(DataInputStream input) throws IOException {
+    return ServerIssue.parseDelimitedFrom(input);
   }
 
 }
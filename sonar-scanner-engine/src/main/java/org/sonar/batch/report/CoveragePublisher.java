@@ -19,31 +19,24 @@
  */
 package org.sonar.batch.report;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import javax.annotation.Nonnull;
-import org.apache.commons.lang.StringUtils;
-import org.sonar.api.batch.fs.InputFile;
-import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.Measure;
-import org.sonar.api.utils.KeyValueFormat;
+import com.google.common.collect.AbstractIterator;
+import java.util.Collections;
+import java.util.Iterator;
 import org.sonar.batch.index.BatchComponent;
 import org.sonar.batch.index.BatchComponentCache;
-import org.sonar.batch.scan.measure.MeasureCache;
+import org.sonar.batch.sensor.coverage.FileLineCoverage;
+import org.sonar.batch.sensor.coverage.LineCoverageCache;
 import org.sonar.scanner.protocol.output.ScannerReport.LineCoverage;
-import org.sonar.scanner.protocol.output.ScannerReport.LineCoverage.Builder;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
 public class CoveragePublisher implements ReportPublisherStep {
 
   private final BatchComponentCache resourceCache;
-  private final MeasureCache measureCache;
+  private final LineCoverageCache lineCoverageCache;
 
-  public CoveragePublisher(BatchComponentCache resourceCache, MeasureCache measureCache) {
+  public CoveragePublisher(BatchComponentCache resourceCache, LineCoverageCache lineCoverageCache) {
     this.resourceCache = resourceCache;
-    this.measureCache = measureCache;
+    this.lineCoverageCache = lineCoverageCache;
   }
 
   @Override
@@ -52,97 +45,71 @@ public class CoveragePublisher implements ReportPublisherStep {
       if (!resource.isFile()) {
         continue;
       }
-      Map<Integer, LineCoverage.Builder> coveragePerLine = new LinkedHashMap<>();
-
-      int lineCount = ((InputFile) resource.inputComponent()).lines();
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setUtHits(Integer.parseInt(value) > 0);
-          }
-        });
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.IT_COVERAGE_LINE_HITS_DATA_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setItHits(Integer.parseInt(value) > 0);
-          }
-        });
-      // Just in case we have only IT and no UT, we first take conditions from ITs, then from UTs (UTs will override ITs).
-      // Note that it would be very strange (and unsupported in scanner report) to have ITs and UTs don't report the same number of
-      // conditions. Not even talking about overall conditions...
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.IT_CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setConditions(Integer.parseInt(value));
-          }
-        });
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setConditions(Integer.parseInt(value));
-          }
-        });
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setUtCoveredConditions(Integer.parseInt(value));
-          }
-        });
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.IT_COVERED_CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setItCoveredConditions(Integer.parseInt(value));
-          }
-        });
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.OVERALL_COVERED_CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        new MeasureOperation() {
+      final FileLineCoverage coverage = lineCoverageCache.get(resource.key());
+      if (coverage == null || coverage.isEmpty()) {
+        writer.writeComponentCoverage(resource.batchId(), Collections.<LineCoverage>emptyList());
+      } else {
+        writer.writeComponentCoverage(resource.batchId(), new Iterable<LineCoverage>() {
           @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setOverallCoveredConditions(Integer.parseInt(value));
+          public Iterator<LineCoverage> iterator() {
+            return new LineCoverageIterator(coverage);
           }
         });
-      writer.writeComponentCoverage(resource.batchId(), Iterables.transform(coveragePerLine.values(), BuildCoverage.INSTANCE));
-    }
-  }
-
-  void applyLineMeasure(String inputFileKey, int lineCount, String metricKey, Map<Integer, LineCoverage.Builder> coveragePerLine, MeasureOperation op) {
-    Measure measure = measureCache.byMetric(inputFileKey, metricKey);
-    if (measure != null) {
-      Map<Integer, String> lineMeasures = KeyValueFormat.parseIntString((String) measure.value());
-      for (Map.Entry<Integer, String> lineMeasure : lineMeasures.entrySet()) {
-        int lineIdx = lineMeasure.getKey();
-        if (lineIdx <= lineCount) {
-          String value = lineMeasure.getValue();
-          if (StringUtils.isNotEmpty(value)) {
-            LineCoverage.Builder coverageBuilder = coveragePerLine.get(lineIdx);
-            if (coverageBuilder == null) {
-              coverageBuilder = LineCoverage.newBuilder();
-              coverageBuilder.setLine(lineIdx);
-              coveragePerLine.put(lineIdx, coverageBuilder);
-            }
-            op.apply(value, coverageBuilder);
-          }
-        }
       }
     }
   }
 
-  interface MeasureOperation {
-    void apply(String value, LineCoverage.Builder builder);
-  }
+  private static class LineCoverageIterator extends AbstractIterator<LineCoverage> {
+    private final FileLineCoverage coverage;
+    private final LineCoverage.Builder builder = LineCoverage.newBuilder();
+    private int line = 0;
 
-  private enum BuildCoverage implements Function<LineCoverage.Builder, LineCoverage> {
-    INSTANCE;
+    LineCoverageIterator(FileLineCoverage coverage) {
+      this.coverage = coverage;
+    }
 
     @Override
-    public LineCoverage apply(@Nonnull Builder input) {
-      return input.build();
+    protected LineCoverage computeNext() {
+      while (line < coverage.lines()) {
+        line++;
+        if (coverage.hasData(line)) {
+          return toLineCoverage(line);
+        }
+      }
+      return endOfData();
+    }
+
+    private LineCoverage toLineCoverage(int line) {
+      builder.clear();
+      builder.setLine(line);
+      int utHits = coverage.utHits(line);
+      if (utHits != FileLineCoverage.NO_VALUE) {
+        builder.setUtHits(utHits > 0);
+      }
+      int itHits = coverage.itHits(line);
+      if (itHits != FileLineCoverage.NO_VALUE) {
+        builder.setItHits(itHits > 0);
+      }
+      // Just in case we have only IT and no UT, conditions of ITs are used when UTs don't provide them.
+      // Note that it would be very strange (and unsupported in scanner report) to have ITs and UTs don't report the same number of
+      // conditions. Not even talking about overall conditions...
+      int conditions = coverage.conditions(line);
+      if (conditions != FileLineCoverage.NO_VALUE) {
+        builder.setConditions(conditions);
+      }
+      int utCoveredConditions = coverage.utCoveredConditions(line);
+      if (utCoveredConditions != FileLineCoverage.NO_VALUE) {
+        builder.setUtCoveredConditions(utCoveredConditions);
+      }
+      int itCoveredConditions = coverage.itCoveredConditions(line);
+      if (itCoveredConditions != FileLineCoverage.NO_VALUE) {
+        builder.setItCoveredConditions(itCoveredConditions);
+      }
+      int overallCoveredConditions = coverage.overallCoveredConditions(line);
+      if (overallCoveredConditions != FileLineCoverage.NO_VALUE) {
+        builder.setOverallCoveredConditions(overallCoveredConditions);
+      }
+      return builder.build();
     }
   }
 
@@ -81,10 +81,12 @@ import org.sonar.batch.rule.DefaultActiveRulesLoader;
 import org.sonar.batch.rule.DefaultRulesLoader;
 import org.sonar.batch.rule.RulesLoader;
 import org.sonar.batch.rule.RulesProvider;
+import org.sonar.batch.scan.filesystem.InputFileMetadataLoader;
 import org.sonar.batch.scan.filesystem.InputPathCache;
 import org.sonar.batch.scan.measure.DefaultMetricFinder;
 import org.sonar.batch.scan.measure.DeprecatedMetricFinder;
 import org.sonar.batch.scan.measure.MeasureCache;
+import org.sonar.batch.sensor.coverage.LineCoverageCache;
 import org.sonar.batch.source.CodeColorizers;
 import org.sonar.batch.test.TestPlanBuilder;
 import org.sonar.batch.test.TestableBuilder;
@@ -149,6 +151,7 @@ public class ProjectScanContainer extends ComponentContainer {
       // file system
       InputPathCache.class,
       PathResolver.class,
+      InputFileMetadataLoader.class,
 
       // rules
       new ActiveRulesProvider(),
@@ -173,6 +176,7 @@ public class ProjectScanContainer extends ComponentContainer {
 
       // Measures
       MeasureCache.class,
+      LineCoverageCache.class,
 
       ProjectSettings.class,
 
@@ -26,6 +26,7 @@ import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.batch.fs.internal.FileMetadata.Metadata;
 import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
 
@@ -44,9 +45,11 @@ class InputFileBuilder {
   private final DefaultModuleFileSystem fs;
   private final Settings settings;
   private final FileMetadata fileMetadata;
+  private final InputFileMetadataLoader metadataLoader;
 
   InputFileBuilder(String moduleKey, PathResolver pathResolver, LanguageDetection langDetection,
-    StatusDetection statusDetection, DefaultModuleFileSystem fs, Settings settings, FileMetadata fileMetadata) {
+    StatusDetection statusDetection, DefaultModuleFileSystem fs, Settings settings, FileMetadata fileMetadata,
+    InputFileMetadataLoader metadataLoader) {
     this.moduleKey = moduleKey;
     this.pathResolver = pathResolver;
     this.langDetection = langDetection;
@@ -54,6 +57,7 @@ class InputFileBuilder {
     this.fs = fs;
     this.settings = settings;
     this.fileMetadata = fileMetadata;
+    this.metadataLoader = metadataLoader;
   }
 
   String moduleKey() {
@@ -87,7 +91,8 @@ class InputFileBuilder {
   }
 
   /**
-   * Optimization to not compute InputFile metadata if the file is excluded from analysis.
+   * Optimization to not compute InputFile metadata if the file is excluded from analysis. Metadata
+   * may also be computed later, on first access, see {@link InputFileMetadataLoader}.
    */
   @CheckForNull
   DefaultInputFile completeAndComputeMetadata(DefaultInputFile inputFile, InputFile.Type type) {
@@ -101,11 +106,16 @@ class InputFileBuilder {
     }
     inputFile.setLanguage(lang);
 
-    inputFile.initMetadata(fileMetadata.readMetadata(inputFile.file(), fs.encoding()));
-
-    inputFile.setStatus(statusDetection.status(inputFile.moduleKey(), inputFile.relativePath(), inputFile.hash()));
+    metadataLoader.load(inputFile, this::computeMetadata);
 
     return inputFile;
   }
 
+  private void computeMetadata(DefaultInputFile inputFile) {
+    Metadata metadata = fileMetadata.readMetadata(inputFile.file(), fs.encoding());
+    inputFile.initMetadata(metadata);
+    // do not read the hash from the input file, its metadata may not be considered as computed yet
+    inputFile.setStatus(statusDetection.status(inputFile.moduleKey(), inputFile.relativePath(), metadata.hash()));
+  }
+
 }
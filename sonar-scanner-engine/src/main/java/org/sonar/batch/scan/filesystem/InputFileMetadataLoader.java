@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.scan.filesystem;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import org.apache.commons.lang.StringUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.batch.BatchSide;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.config.Settings;
+
+/**
+ * Computes metadata of input files, either immediately during indexing, or on first access when
+ * {@link #LAZY_KEY} is enabled. In lazy mode, the first access to metadata of a file schedules
+ * the computation of metadata of all the other pending files of the same language on a pool of
+ * threads, as sensors usually iterate over all the files of their language.
+ *
+ * @since 6.0
+ */
+@BatchSide
+public class InputFileMetadataLoader implements Startable {
+
+  public static final String LAZY_KEY = "sonar.scanner.lazyFileMetadata";
+
+  private final boolean lazy;
+  private final Map<String, Queue<DefaultInputFile>> pendingByLanguage = new ConcurrentHashMap<>();
+  private ExecutorService executorService;
+
+  public InputFileMetadataLoader(Settings settings) {
+    this.lazy = settings.getBoolean(LAZY_KEY);
+  }
+
+  boolean isLazy() {
+    return lazy;
+  }
+
+  /**
+   * @param generator computes metadata and status of the given file
+   */
+  void load(DefaultInputFile inputFile, Consumer<DefaultInputFile> generator) {
+    if (!lazy) {
+      generator.accept(inputFile);
+      return;
+    }
+    String language = StringUtils.defaultString(inputFile.language());
+    inputFile.setMetadataGenerator(file -> {
+      generator.accept(file);
+      loadPendingFiles(language);
+    });
+    pendingByLanguage.computeIfAbsent(language, l -> new ConcurrentLinkedQueue<>()).add(inputFile);
+  }
+
+  private void loadPendingFiles(String language) {
+    Queue<DefaultInputFile> pendingFiles = pendingByLanguage.get(language);
+    DefaultInputFile pendingFile = pendingFiles.poll();
+    while (pendingFile != null) {
+      executor().submit(pendingFile::checkMetadata);
+      pendingFile = pendingFiles.poll();
+    }
+  }
+
+  private synchronized ExecutorService executor() {
+    if (executorService == null) {
+      int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+      executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("FileMetadata-%d").setDaemon(true).build());
+    }
+    return executorService;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+      executorService = null;
+    }
+  }
+}
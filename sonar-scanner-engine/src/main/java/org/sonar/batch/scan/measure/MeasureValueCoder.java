@@ -19,16 +19,20 @@
  */
 package org.sonar.batch.scan.measure;
 
-import com.persistit.Value;
-import com.persistit.encoding.CoderContext;
-import com.persistit.encoding.ValueCoder;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.measure.MetricFinder;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.measures.PersistenceMode;
+import org.sonar.batch.index.ValueCodec;
 
-class MeasureValueCoder implements ValueCoder {
+class MeasureValueCoder implements ValueCodec<Measure> {
 
   private final MetricFinder metricFinder;
 
@@ -37,58 +41,92 @@ class MeasureValueCoder implements ValueCoder {
   }
 
   @Override
-  public void put(Value value, Object object, CoderContext context) {
-    Measure<?> m = (Measure) object;
-    value.putUTF(m.getMetricKey());
-    value.put(m.getValue());
-    putUTFOrNull(value, m.getData());
-    putUTFOrNull(value, m.getDescription());
-    value.putString(m.getAlertStatus() != null ? m.getAlertStatus().name() : null);
-    putUTFOrNull(value, m.getAlertText());
-    value.putDate(m.getDate());
-    value.put(m.getVariation1());
-    value.put(m.getVariation2());
-    value.put(m.getVariation3());
-    value.put(m.getVariation4());
-    value.put(m.getVariation5());
-    putUTFOrNull(value, m.getUrl());
+  public void write(Measure m, DataOutputStream output) throws IOException {
+    output.writeUTF(m.getMetricKey());
+    writeDoubleOrNull(output, m.getValue());
+    writeStringOrNull(output, m.getData());
+    writeStringOrNull(output, m.getDescription());
+    writeStringOrNull(output, m.getAlertStatus() != null ? m.getAlertStatus().name() : null);
+    writeStringOrNull(output, m.getAlertText());
+    Date date = m.getDate();
+    output.writeBoolean(date != null);
+    if (date != null) {
+      output.writeLong(date.getTime());
+    }
+    writeDoubleOrNull(output, m.getVariation1());
+    writeDoubleOrNull(output, m.getVariation2());
+    writeDoubleOrNull(output, m.getVariation3());
+    writeDoubleOrNull(output, m.getVariation4());
+    writeDoubleOrNull(output, m.getVariation5());
+    writeStringOrNull(output, m.getUrl());
     Integer personId = m.getPersonId();
-    value.put(personId != null ? personId.intValue() : null);
+    output.writeBoolean(personId != null);
+    if (personId != null) {
+      output.writeInt(personId);
+    }
     PersistenceMode persistenceMode = m.getPersistenceMode();
-    value.putString(persistenceMode != null ? persistenceMode.name() : null);
+    writeStringOrNull(output, persistenceMode != null ? persistenceMode.name() : null);
+  }
+
+  private static void writeDoubleOrNull(DataOutputStream output, @Nullable Double d) throws IOException {
+    output.writeBoolean(d != null);
+    if (d != null) {
+      output.writeDouble(d);
+    }
   }
 
-  private static void putUTFOrNull(Value value, @Nullable String utfOrNull) {
-    if (utfOrNull != null) {
-      value.putUTF(utfOrNull);
-    } else {
-      value.putNull();
+  /**
+   * Data of measures can be bigger than the 64K limit of {@link DataOutputStream#writeUTF(String)}
+   */
+  private static void writeStringOrNull(DataOutputStream output, @Nullable String s) throws IOException {
+    output.writeBoolean(s != null);
+    if (s != null) {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
     }
   }
 
   @Override
-  public Object get(Value value, Class clazz, CoderContext context) {
+  public Measure read(DataInputStream input) throws IOException {
     Measure<?> m = new Measure();
-    String metricKey = value.getString();
+    String metricKey = input.readUTF();
     org.sonar.api.batch.measure.Metric metric = metricFinder.findByKey(metricKey);
     if (metric == null) {
       throw new IllegalStateException("Unknow metric with key " + metricKey);
     }
     m.setMetric((org.sonar.api.measures.Metric) metric);
-    m.setRawValue(value.isNull(true) ? null : value.getDouble());
-    m.setData(value.getString());
-    m.setDescription(value.getString());
-    m.setAlertStatus(value.isNull(true) ? null : Metric.Level.valueOf(value.getString()));
-    m.setAlertText(value.getString());
-    m.setDate(value.getDate());
-    m.setVariation1(value.isNull(true) ? null : value.getDouble());
-    m.setVariation2(value.isNull(true) ? null : value.getDouble());
-    m.setVariation3(value.isNull(true) ? null : value.getDouble());
-    m.setVariation4(value.isNull(true) ? null : value.getDouble());
-    m.setVariation5(value.isNull(true) ? null : value.getDouble());
-    m.setUrl(value.getString());
-    m.setPersonId(value.isNull(true) ? null : value.getInt());
-    m.setPersistenceMode(value.isNull(true) ? null : PersistenceMode.valueOf(value.getString()));
+    m.setRawValue(readDoubleOrNull(input));
+    m.setData(readStringOrNull(input));
+    m.setDescription(readStringOrNull(input));
+    String alertStatus = readStringOrNull(input);
+    m.setAlertStatus(alertStatus == null ? null : Metric.Level.valueOf(alertStatus));
+    m.setAlertText(readStringOrNull(input));
+    m.setDate(input.readBoolean() ? new Date(input.readLong()) : null);
+    m.setVariation1(readDoubleOrNull(input));
+    m.setVariation2(readDoubleOrNull(input));
+    m.setVariation3(readDoubleOrNull(input));
+    m.setVariation4(readDoubleOrNull(input));
+    m.setVariation5(readDoubleOrNull(input));
+    m.setUrl(readStringOrNull(input));
+    m.setPersonId(input.readBoolean() ? input.readInt() : null);
+    String persistenceMode = readStringOrNull(input);
+    m.setPersistenceMode(persistenceMode == null ? null : PersistenceMode.valueOf(persistenceMode));
     return m;
   }
+
+  @CheckForNull
+  private static Double readDoubleOrNull(DataInputStream input) throws IOException {
+    return input.readBoolean() ? input.readDouble() : null;
+  }
+
+  @CheckForNull
+  private static String readStringOrNull(DataInputStream input) throws IOException {
+    if (!input.readBoolean()) {
+      return null;
+    }
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
 }
@@ -0,0 +1,198 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.scm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.batch.BatchSide;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.batch.scan.ImmutableProjectReactor;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+/**
+ * Blame results of the previous analyses executed on the same working copy, stored in the user cache.
+ * Entries are keyed by file and are valid as long as the content of the file does not change, so
+ * that a given version of a file is blamed only once, even if server does not know it yet
+ * (new branch, first analysis, ...).
+ * <p/>
+ * Only the entries of the files that are part of the current analysis are kept when the cache is saved.
+ */
+@BatchSide
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public class BlameCache implements Startable {
+
+  private static final Logger LOG = Loggers.get(BlameCache.class);
+  private static final int FORMAT_VERSION = 1;
+
+  private final File cacheFile;
+  private Map<String, Entry> previousEntries;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private boolean updated = false;
+
+  public BlameCache(FileCache fileCache, ImmutableProjectReactor projectReactor) {
+    ProjectDefinition root = projectReactor.getRoot();
+    String workingCopyKey = root.getKeyWithBranch() + "|" + root.getBaseDir().getAbsolutePath();
+    this.cacheFile = new File(new File(fileCache.getDir(), "_scm"), DigestUtils.md5Hex(workingCopyKey) + ".blame");
+  }
+
+  @Override
+  public void start() {
+    // cache is loaded only if SCM is enabled
+  }
+
+  @Override
+  public void stop() {
+    // entries of the files which are not part of the analysis anymore are dropped
+    boolean hasObsoleteEntries = previousEntries != null && !previousEntries.isEmpty();
+    if (updated || hasObsoleteEntries) {
+      save();
+    }
+  }
+
+  /**
+   * Blame of the file, if it was already computed for the same content. The returned changesets
+   * do not have component reference.
+   */
+  @CheckForNull
+  public synchronized ScannerReport.Changesets get(InputFile file) {
+    Entry entry = retainEntry(file);
+    return entry == null ? null : entry.changesets;
+  }
+
+  /**
+   * Keep the cached blame of a file which does not need to be blamed in this analysis.
+   */
+  public synchronized void retain(InputFile file) {
+    retainEntry(file);
+  }
+
+  public synchronized void put(InputFile file, ScannerReport.Changesets changesets) {
+    String hash = ((DefaultInputFile) file).hash();
+    if (hash != null) {
+      entries.put(keyOf(file), new Entry(hash, changesets.toBuilder().clearComponentRef().build()));
+      updated = true;
+    }
+  }
+
+  @CheckForNull
+  private Entry retainEntry(InputFile file) {
+    String key = keyOf(file);
+    String hash = ((DefaultInputFile) file).hash();
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      entry = loadPreviousEntries().remove(key);
+      if (entry == null) {
+        return null;
+      }
+      if (!entry.hash.equals(hash)) {
+        // content changed, entry is obsolete
+        updated = true;
+        return null;
+      }
+      entries.put(key, entry);
+    }
+    return entry.hash.equals(hash) ? entry : null;
+  }
+
+  private static String keyOf(InputFile file) {
+    return ((DefaultInputFile) file).key();
+  }
+
+  private Map<String, Entry> loadPreviousEntries() {
+    if (previousEntries == null) {
+      previousEntries = new HashMap<>();
+      if (cacheFile.exists()) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(cacheFile.toPath()))))) {
+          read(input);
+        } catch (IOException | RuntimeException e) {
+          LOG.debug("Ignoring invalid blame cache " + cacheFile.getAbsolutePath(), e);
+          previousEntries.clear();
+        }
+      }
+    }
+    return previousEntries;
+  }
+
+  private void read(DataInputStream input) throws IOException {
+    if (input.readInt() != FORMAT_VERSION) {
+      return;
+    }
+    int count = input.readInt();
+    for (int i = 0; i < count; i++) {
+      String key = input.readUTF();
+      String hash = input.readUTF();
+      ScannerReport.Changesets changesets = ScannerReport.Changesets.parseDelimitedFrom(input);
+      previousEntries.put(key, new Entry(hash, changesets));
+    }
+  }
+
+  private void save() {
+    try {
+      Files.createDirectories(cacheFile.getParentFile().toPath());
+      File tmpFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmpFile.toPath()))))) {
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          output.writeUTF(entry.getKey());
+          output.writeUTF(entry.getValue().hash);
+          entry.getValue().changesets.writeDelimitedTo(output);
+        }
+      }
+      Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // cache is an optimization, analysis must not fail
+      LOG.warn("Fail to save blame cache " + cacheFile.getAbsolutePath(), e);
+    }
+  }
+
+  File getCacheFile() {
+    return cacheFile;
+  }
+
+  private static class Entry {
+    private final String hash;
+    private final ScannerReport.Changesets changesets;
+
+    private Entry(String hash, ScannerReport.Changesets changesets) {
+      this.hash = hash;
+      this.changesets = changesets;
+    }
+  }
+}
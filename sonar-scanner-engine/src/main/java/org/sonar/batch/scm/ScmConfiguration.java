@@ -55,6 +55,10 @@ public final class ScmConfiguration implements Startable {
   private static final Logger LOG = Loggers.get(ScmConfiguration.class);
 
   public static final String FORCE_RELOAD_KEY = "sonar.scm.forceReloadAll";
+  /**
+   * Max number of threads used to blame files, when supported by provider. Default is the number of processors.
+   */
+  public static final String THREADS_KEY = "sonar.scm.threads";
 
   private final ImmutableProjectReactor projectReactor;
   private final Settings settings;
@@ -143,6 +147,11 @@ public final class ScmConfiguration implements Startable {
     return settings.getBoolean(CoreProperties.SCM_DISABLED_KEY);
   }
 
+  public int blameThreads() {
+    int threads = settings.getInt(THREADS_KEY);
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
   public boolean forceReloadAll() {
     return settings.getBoolean(FORCE_RELOAD_KEY);
   }
@@ -19,14 +19,22 @@
  */
 package org.sonar.batch.scm;
 
-import java.util.LinkedList;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Status;
+import org.sonar.api.batch.scm.BlameCommand;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
@@ -43,6 +51,8 @@ import org.sonar.scanner.protocol.output.ScannerReport.Changesets.Builder;
 public final class ScmSensor implements Sensor {
 
   private static final Logger LOG = Loggers.get(ScmSensor.class);
+  private static final int MIN_FILES_PER_THREAD = 10;
+  private static final int PARTITIONS_PER_THREAD = 4;
 
   private final ProjectDefinition projectDefinition;
   private final ScmConfiguration configuration;
@@ -50,15 +60,18 @@ public final class ScmSensor implements Sensor {
   private final ProjectRepositories projectRepositories;
   private final BatchComponentCache componentCache;
   private final ReportPublisher publishReportJob;
+  private final BlameCache blameCache;
 
   public ScmSensor(ProjectDefinition projectDefinition, ScmConfiguration configuration,
-    ProjectRepositories projectRepositories, FileSystem fs, BatchComponentCache componentCache, ReportPublisher publishReportJob) {
+    ProjectRepositories projectRepositories, FileSystem fs, BatchComponentCache componentCache, ReportPublisher publishReportJob,
+    BlameCache blameCache) {
     this.projectDefinition = projectDefinition;
     this.configuration = configuration;
     this.projectRepositories = projectRepositories;
     this.fs = fs;
     this.componentCache = componentCache;
     this.publishReportJob = publishReportJob;
+    this.blameCache = blameCache;
   }
 
   @Override
@@ -81,22 +94,94 @@ public final class ScmSensor implements Sensor {
     if (!filesToBlame.isEmpty()) {
       String key = configuration.provider().key();
       LOG.info("SCM provider for this project is: " + key);
-      DefaultBlameOutput output = new DefaultBlameOutput(publishReportJob.getWriter(), componentCache, filesToBlame);
-      try {
-        configuration.provider().blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
-      } catch (Exception e) {
-        output.finish(false);
-        throw e;
+      List<InputFile> filesNotInCache = copyDataFromBlameCache(filesToBlame);
+      if (!filesNotInCache.isEmpty()) {
+        blame(filesNotInCache);
       }
-      output.finish(true);
     }
   }
 
+  private void blame(List<InputFile> filesToBlame) {
+    BlameCommand blameCommand = configuration.provider().blameCommand();
+    DefaultBlameOutput output = new DefaultBlameOutput(publishReportJob.getWriter(), componentCache, blameCache, filesToBlame);
+    try {
+      int threads = Math.min(configuration.blameThreads(), filesToBlame.size() / MIN_FILES_PER_THREAD);
+      if (blameCommand.isThreadSafe() && threads > 1) {
+        blameInParallel(blameCommand, filesToBlame, output, threads);
+      } else {
+        blameCommand.blame(new DefaultBlameInput(fs, filesToBlame), output);
+      }
+    } catch (Exception e) {
+      output.finish(false);
+      throw e;
+    }
+    output.finish(true);
+  }
+
+  /**
+   * Files are split in more partitions than threads, so that threads which blame small files
+   * are not idle while others still have work.
+   */
+  private void blameInParallel(BlameCommand blameCommand, List<InputFile> filesToBlame, DefaultBlameOutput output, int threads) {
+    LOG.debug("Blame files using {} threads", threads);
+    int partitionSize = (filesToBlame.size() + PARTITIONS_PER_THREAD * threads - 1) / (PARTITIONS_PER_THREAD * threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("scm-blame-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (List<InputFile> partition : Lists.partition(filesToBlame, partitionSize)) {
+        futures.add(executor.submit(() -> blameCommand.blame(new DefaultBlameInput(fs, partition), output)));
+      }
+      for (Future<?> future : futures) {
+        waitFor(future);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while blaming files", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException("Fail to blame files", e.getCause());
+    }
+  }
+
+  /**
+   * Blame of files whose content did not change since a previous analysis is copied
+   * from the local cache.
+   *
+   * @return the files which are not in cache
+   */
+  private List<InputFile> copyDataFromBlameCache(List<InputFile> filesToBlame) {
+    if (configuration.forceReloadAll()) {
+      return filesToBlame;
+    }
+    List<InputFile> filesNotInCache = new ArrayList<>();
+    for (InputFile f : filesToBlame) {
+      ScannerReport.Changesets changesets = blameCache.get(f);
+      if (changesets == null) {
+        filesNotInCache.add(f);
+      } else {
+        publishReportJob.getWriter().writeComponentChangesets(changesets.toBuilder().setComponentRef(componentCache.get(f).batchId()).build());
+      }
+    }
+    int copied = filesToBlame.size() - filesNotInCache.size();
+    if (copied > 0) {
+      LOG.info("{} files blamed from local cache", copied);
+    }
+    return filesNotInCache;
+  }
+
   private List<InputFile> collectFilesToBlame() {
     if (configuration.forceReloadAll()) {
       LOG.warn("Forced reloading of SCM data for all files.");
     }
-    List<InputFile> filesToBlame = new LinkedList<>();
+    List<InputFile> filesToBlame = new ArrayList<>();
     for (InputFile f : fs.inputFiles(fs.predicates().all())) {
       if (configuration.forceReloadAll() || f.status() != Status.SAME) {
         addIfNotEmpty(filesToBlame, f);
@@ -107,6 +192,7 @@ public final class ScmSensor implements Sensor {
           addIfNotEmpty(filesToBlame, f);
         } else {
           askToCopyDataFromPreviousAnalysis(f);
+          blameCache.retain(f);
         }
       }
     }
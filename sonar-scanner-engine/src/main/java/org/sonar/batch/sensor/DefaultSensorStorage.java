@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +61,8 @@ import org.sonar.batch.report.ReportPublisher;
 import org.sonar.batch.report.ScannerReportUtils;
 import org.sonar.batch.scan.measure.MeasureCache;
 import org.sonar.batch.sensor.coverage.CoverageExclusions;
+import org.sonar.batch.sensor.coverage.FileLineCoverage;
+import org.sonar.batch.sensor.coverage.LineCoverageCache;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.internal.pmd.PmdBlockChunker;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -93,12 +96,14 @@ public class DefaultSensorStorage implements SensorStorage {
   private final BatchComponentCache componentCache;
   private final ReportPublisher reportPublisher;
   private final MeasureCache measureCache;
+  private final LineCoverageCache lineCoverageCache;
   private final SonarCpdBlockIndex index;
   private final Settings settings;
 
   public DefaultSensorStorage(MetricFinder metricFinder, ModuleIssues moduleIssues,
     Settings settings,
-    CoverageExclusions coverageExclusions, BatchComponentCache componentCache, ReportPublisher reportPublisher, MeasureCache measureCache, SonarCpdBlockIndex index) {
+    CoverageExclusions coverageExclusions, BatchComponentCache componentCache, ReportPublisher reportPublisher, MeasureCache measureCache,
+    LineCoverageCache lineCoverageCache, SonarCpdBlockIndex index) {
     this.metricFinder = metricFinder;
     this.moduleIssues = moduleIssues;
     this.settings = settings;
@@ -106,6 +111,7 @@ public class DefaultSensorStorage implements SensorStorage {
     this.componentCache = componentCache;
     this.reportPublisher = reportPublisher;
     this.measureCache = measureCache;
+    this.lineCoverageCache = lineCoverageCache;
     this.index = index;
   }
 
@@ -132,6 +138,27 @@ public class DefaultSensorStorage implements SensorStorage {
   }
 
   public org.sonar.api.measures.Measure saveMeasure(Resource resource, org.sonar.api.measures.Measure measure) {
+    org.sonar.api.measures.Measure saved = putMeasure(resource, measure);
+    if (saved != null && measure.getData() != null && FileLineCoverage.isLineCoverageMetric(measure.getMetricKey())) {
+      // line data provided through the deprecated API, parsed once here rather than when publishing the report
+      FileLineCoverage lineCoverage = lineCoverageOf(resource);
+      if (lineCoverage != null) {
+        lineCoverage.applyData(measure.getMetricKey(), measure.getData());
+      }
+    }
+    return saved;
+  }
+
+  @CheckForNull
+  private FileLineCoverage lineCoverageOf(Resource resource) {
+    BatchComponent component = componentCache.get(resource);
+    if (component == null || !component.isFile()) {
+      return null;
+    }
+    return lineCoverageCache.getOrCreate(component.key(), ((InputFile) component.inputComponent()).lines());
+  }
+
+  private org.sonar.api.measures.Measure putMeasure(Resource resource, org.sonar.api.measures.Measure measure) {
     if (DEPRECATED_METRICS_KEYS.contains(measure.getMetricKey())) {
       // Ignore deprecated metrics
       return null;
@@ -235,15 +262,33 @@ public class DefaultSensorStorage implements SensorStorage {
     }
     CoverageType type = defaultCoverage.type();
     if (defaultCoverage.linesToCover() > 0) {
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.linesToCover(), (double) defaultCoverage.linesToCover()));
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.uncoveredLines(), (double) (defaultCoverage.linesToCover() - defaultCoverage.coveredLines())));
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.lineHitsData()).setData(KeyValueFormat.format(defaultCoverage.hitsByLine())));
+      putMeasure(file, new org.sonar.api.measures.Measure(type.linesToCover(), (double) defaultCoverage.linesToCover()));
+      putMeasure(file, new org.sonar.api.measures.Measure(type.uncoveredLines(), (double) (defaultCoverage.linesToCover() - defaultCoverage.coveredLines())));
+      putMeasure(file, new org.sonar.api.measures.Measure(type.lineHitsData()).setData(KeyValueFormat.format(defaultCoverage.hitsByLine())));
     }
     if (defaultCoverage.conditions() > 0) {
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.conditionsToCover(), (double) defaultCoverage.conditions()));
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.uncoveredConditions(), (double) (defaultCoverage.conditions() - defaultCoverage.coveredConditions())));
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.coveredConditionsByLine()).setData(KeyValueFormat.format(defaultCoverage.coveredConditionsByLine())));
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.conditionsByLine()).setData(KeyValueFormat.format(defaultCoverage.conditionsByLine())));
+      putMeasure(file, new org.sonar.api.measures.Measure(type.conditionsToCover(), (double) defaultCoverage.conditions()));
+      putMeasure(file, new org.sonar.api.measures.Measure(type.uncoveredConditions(), (double) (defaultCoverage.conditions() - defaultCoverage.coveredConditions())));
+      putMeasure(file, new org.sonar.api.measures.Measure(type.coveredConditionsByLine()).setData(KeyValueFormat.format(defaultCoverage.coveredConditionsByLine())));
+      putMeasure(file, new org.sonar.api.measures.Measure(type.conditionsByLine()).setData(KeyValueFormat.format(defaultCoverage.conditionsByLine())));
+    }
+    mergeLineCoverage(defaultCoverage);
+  }
+
+  private void mergeLineCoverage(DefaultCoverage defaultCoverage) {
+    InputFile inputFile = defaultCoverage.inputFile();
+    CoverageType type = defaultCoverage.type();
+    FileLineCoverage lineCoverage = lineCoverageCache.getOrCreate(componentCache.get(inputFile).key(), inputFile.lines());
+    for (int line = 1; line <= inputFile.lines(); line++) {
+      int hits = defaultCoverage.hitsAt(line);
+      if (hits != DefaultCoverage.NO_HITS) {
+        lineCoverage.setHits(type, line, hits);
+      }
+      int conditions = defaultCoverage.conditionsAt(line);
+      if (conditions > 0) {
+        lineCoverage.setConditions(type, line, conditions);
+        lineCoverage.setCoveredConditions(type, line, defaultCoverage.coveredConditionsAt(line));
+      }
     }
   }
 
@@ -0,0 +1,225 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.sensor.coverage;
+
+import java.util.Arrays;
+import org.sonar.api.batch.sensor.coverage.CoverageType;
+import org.sonar.api.measures.CoreMetrics;
+
+/**
+ * Line coverage of a single file, merged in place across {@link CoverageType}s. Values are
+ * stored in arrays indexed by line and sized from the number of lines of the file. Arrays
+ * are allocated only when the first value of their kind is set.
+ */
+public class FileLineCoverage {
+
+  /**
+   * Value returned by the accessors for lines without data
+   */
+  public static final int NO_VALUE = -1;
+
+  private static final int UT_HITS = 0;
+  private static final int IT_HITS = 1;
+  private static final int UT_CONDITIONS = 2;
+  private static final int IT_CONDITIONS = 3;
+  private static final int UT_COVERED_CONDITIONS = 4;
+  private static final int IT_COVERED_CONDITIONS = 5;
+  private static final int OVERALL_COVERED_CONDITIONS = 6;
+
+  private final int lines;
+  private final int[][] values = new int[7][];
+
+  public FileLineCoverage(int lines) {
+    this.lines = lines;
+  }
+
+  public int lines() {
+    return lines;
+  }
+
+  public void setHits(CoverageType type, int line, int hits) {
+    switch (type) {
+      case UNIT:
+        set(UT_HITS, line, hits);
+        break;
+      case IT:
+        set(IT_HITS, line, hits);
+        break;
+      default:
+        // overall hits are not part of the scanner report
+        break;
+    }
+  }
+
+  public void setConditions(CoverageType type, int line, int conditions) {
+    switch (type) {
+      case UNIT:
+        set(UT_CONDITIONS, line, conditions);
+        break;
+      case IT:
+        set(IT_CONDITIONS, line, conditions);
+        break;
+      default:
+        // overall conditions are not part of the scanner report
+        break;
+    }
+  }
+
+  public void setCoveredConditions(CoverageType type, int line, int coveredConditions) {
+    switch (type) {
+      case UNIT:
+        set(UT_COVERED_CONDITIONS, line, coveredConditions);
+        break;
+      case IT:
+        set(IT_COVERED_CONDITIONS, line, coveredConditions);
+        break;
+      default:
+        set(OVERALL_COVERED_CONDITIONS, line, coveredConditions);
+        break;
+    }
+  }
+
+  /**
+   * Applies a line data measure, as formatted by {@link org.sonar.api.utils.KeyValueFormat} (for example "1=3;4=0"),
+   * to this coverage. Data of metrics which are not part of the scanner report are ignored.
+   *
+   * @return false if the metric is not a line coverage metric
+   */
+  public boolean applyData(String metricKey, String data) {
+    int kind = kindOf(metricKey);
+    if (kind == NO_VALUE) {
+      return false;
+    }
+    int length = data.length();
+    int start = 0;
+    while (start < length) {
+      int end = data.indexOf(';', start);
+      if (end < 0) {
+        end = length;
+      }
+      int separator = data.indexOf('=', start);
+      // pairs without value are ignored
+      if (separator > start && separator < end - 1) {
+        int line = Integer.parseInt(data.substring(start, separator).trim());
+        int value = Integer.parseInt(data.substring(separator + 1, end).trim());
+        set(kind, line, value);
+      }
+      start = end + 1;
+    }
+    return true;
+  }
+
+  private static int kindOf(String metricKey) {
+    switch (metricKey) {
+      case CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY:
+        return UT_HITS;
+      case CoreMetrics.IT_COVERAGE_LINE_HITS_DATA_KEY:
+        return IT_HITS;
+      case CoreMetrics.CONDITIONS_BY_LINE_KEY:
+        return UT_CONDITIONS;
+      case CoreMetrics.IT_CONDITIONS_BY_LINE_KEY:
+        return IT_CONDITIONS;
+      case CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY:
+        return UT_COVERED_CONDITIONS;
+      case CoreMetrics.IT_COVERED_CONDITIONS_BY_LINE_KEY:
+        return IT_COVERED_CONDITIONS;
+      case CoreMetrics.OVERALL_COVERED_CONDITIONS_BY_LINE_KEY:
+        return OVERALL_COVERED_CONDITIONS;
+      default:
+        return NO_VALUE;
+    }
+  }
+
+  public static boolean isLineCoverageMetric(String metricKey) {
+    return kindOf(metricKey) != NO_VALUE;
+  }
+
+  private void set(int kind, int line, int value) {
+    // lines out of the file are silently ignored, as they were when reading measures
+    if (line <= 0 || line > lines) {
+      return;
+    }
+    int[] valuesByLine = values[kind];
+    if (valuesByLine == null) {
+      valuesByLine = new int[lines + 1];
+      Arrays.fill(valuesByLine, NO_VALUE);
+      values[kind] = valuesByLine;
+    }
+    valuesByLine[line] = value;
+  }
+
+  private int get(int kind, int line) {
+    int[] valuesByLine = values[kind];
+    if (valuesByLine == null || line <= 0 || line > lines) {
+      return NO_VALUE;
+    }
+    return valuesByLine[line];
+  }
+
+  public boolean isEmpty() {
+    for (int[] valuesByLine : values) {
+      if (valuesByLine != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if at least one value is defined on the line
+   */
+  public boolean hasData(int line) {
+    for (int kind = 0; kind < values.length; kind++) {
+      if (get(kind, line) != NO_VALUE) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int utHits(int line) {
+    return get(UT_HITS, line);
+  }
+
+  public int itHits(int line) {
+    return get(IT_HITS, line);
+  }
+
+  /**
+   * Conditions of unit tests, or of integration tests if unit tests do not provide them.
+   */
+  public int conditions(int line) {
+    int conditions = get(UT_CONDITIONS, line);
+    return conditions == NO_VALUE ? get(IT_CONDITIONS, line) : conditions;
+  }
+
+  public int utCoveredConditions(int line) {
+    return get(UT_COVERED_CONDITIONS, line);
+  }
+
+  public int itCoveredConditions(int line) {
+    return get(IT_COVERED_CONDITIONS, line);
+  }
+
+  public int overallCoveredConditions(int line) {
+    return get(OVERALL_COVERED_CONDITIONS, line);
+  }
+
+}
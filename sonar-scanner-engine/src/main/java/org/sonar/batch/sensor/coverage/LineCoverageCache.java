@@ -0,0 +1,50 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.sensor.coverage;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.BatchSide;
+
+/**
+ * Line coverage of all files, fed by sensors and read when publishing the scanner report.
+ * This cache is shared amongst all project modules.
+ */
+@BatchSide
+public class LineCoverageCache {
+
+  private final Map<String, FileLineCoverage> coverageByComponentKey = new HashMap<>();
+
+  public synchronized FileLineCoverage getOrCreate(String componentKey, int lines) {
+    FileLineCoverage coverage = coverageByComponentKey.get(componentKey);
+    if (coverage == null) {
+      coverage = new FileLineCoverage(lines);
+      coverageByComponentKey.put(componentKey, coverage);
+    }
+    return coverage;
+  }
+
+  @CheckForNull
+  public synchronized FileLineCoverage get(String componentKey) {
+    return coverageByComponentKey.get(componentKey);
+  }
+
+}
@@ -19,6 +19,16 @@
  */
 package org.sonar.batch.source;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.sonar.api.batch.Phase;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
@@ -27,19 +37,28 @@ import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
 import org.sonar.batch.index.BatchComponentCache;
 import org.sonar.batch.report.ReportPublisher;
-import org.sonar.scanner.protocol.output.ScannerReportReader;
+import org.sonar.scanner.protocol.output.FileStructure;
 
 @Phase(name = Phase.Name.POST)
 public final class CodeColorizerSensor implements Sensor {
 
+  private static final int MIN_FILES_PER_THREAD = 50;
+
   private final ReportPublisher reportPublisher;
   private final BatchComponentCache resourceCache;
   private final CodeColorizers codeColorizers;
+  private final int maxThreads;
 
   public CodeColorizerSensor(ReportPublisher reportPublisher, BatchComponentCache resourceCache, CodeColorizers codeColorizers) {
+    this(reportPublisher, resourceCache, codeColorizers, Runtime.getRuntime().availableProcessors());
+  }
+
+  @VisibleForTesting
+  CodeColorizerSensor(ReportPublisher reportPublisher, BatchComponentCache resourceCache, CodeColorizers codeColorizers, int maxThreads) {
     this.reportPublisher = reportPublisher;
     this.resourceCache = resourceCache;
     this.codeColorizers = codeColorizers;
+    this.maxThreads = maxThreads;
   }
 
   @Override
@@ -50,14 +69,57 @@ public final class CodeColorizerSensor implements Sensor {
   @Override
   public void execute(final SensorContext context) {
     FileSystem fs = context.fileSystem();
+    Set<Integer> highlightedRefs = new FileStructure(reportPublisher.getReportDir()).componentRefs(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS);
+    List<InputFile> filesToHighlight = new ArrayList<>();
     for (InputFile f : fs.inputFiles(fs.predicates().all())) {
-      ScannerReportReader reader = new ScannerReportReader(reportPublisher.getReportDir());
-      int batchId = resourceCache.get(f).batchId();
-      String language = f.language();
-      if (reader.hasSyntaxHighlighting(batchId) || language == null) {
-        continue;
+      if (f.language() != null && !highlightedRefs.contains(resourceCache.get(f).batchId())) {
+        filesToHighlight.add(f);
+      }
+    }
+    int threads = Math.min(maxThreads, filesToHighlight.size() / MIN_FILES_PER_THREAD);
+    if (threads > 1) {
+      highlightInParallel(context, filesToHighlight, threads);
+    } else {
+      CodeColorizers.Colorizer colorizer = codeColorizers.newColorizer();
+      for (InputFile f : filesToHighlight) {
+        highlight(context, colorizer, f);
       }
-      codeColorizers.toSyntaxHighlighting(f.file(), fs.encoding(), language, context.newHighlighting().onFile(f));
+    }
+  }
+
+  /**
+   * Each thread has its own colorizer, as tokenizers are not thread-safe. Highlighting of each file
+   * is written to the report as soon as it is computed.
+   */
+  private void highlightInParallel(SensorContext context, List<InputFile> filesToHighlight, int threads) {
+    ThreadLocal<CodeColorizers.Colorizer> colorizers = ThreadLocal.withInitial(codeColorizers::newColorizer);
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("code-colorizer-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(filesToHighlight.size());
+      for (InputFile f : filesToHighlight) {
+        futures.add(executor.submit(() -> highlight(context, colorizers.get(), f)));
+      }
+      for (Future<?> future : futures) {
+        waitFor(future);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void highlight(SensorContext context, CodeColorizers.Colorizer colorizer, InputFile f) {
+    colorizer.toSyntaxHighlighting(f.file(), context.fileSystem().encoding(), f.language(), context.newHighlighting().onFile(f));
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while computing syntax highlighting", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException("Fail to compute syntax highlighting", e.getCause());
     }
   }
 
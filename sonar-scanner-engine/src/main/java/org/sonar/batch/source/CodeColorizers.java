@@ -26,9 +26,11 @@ import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import javax.annotation.CheckForNull;
 import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.lang.StringUtils;
@@ -37,7 +39,10 @@ import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.BatchSide;
 import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.web.CodeColorizerFormat;
+import org.sonar.channel.Channel;
+import org.sonar.colorizer.HtmlCodeBuilder;
 import org.sonar.colorizer.JavaTokenizers;
+import org.sonar.colorizer.NotThreadSafeTokenizer;
 import org.sonar.colorizer.Tokenizer;
 
 /**
@@ -66,8 +71,20 @@ public class CodeColorizers {
     this(Lists.<CodeColorizerFormat>newArrayList());
   }
 
-  @CheckForNull
   public void toSyntaxHighlighting(File file, Charset charset, String language, NewHighlighting highlighting) {
+    newColorizer().toSyntaxHighlighting(file, charset, language, highlighting);
+  }
+
+  /**
+   * New colorizer, which reuses its instances of tokenizers from one file to another. It must be used
+   * by a single thread.
+   */
+  public Colorizer newColorizer() {
+    return new Colorizer();
+  }
+
+  @CheckForNull
+  private List<Channel<HtmlCodeBuilder>> newTokenizers(String language) {
     CodeColorizerFormat format = byLang.get(language);
     List<Tokenizer> tokenizers;
     if (format == null) {
@@ -77,15 +94,35 @@ public class CodeColorizers {
       if ("java".equals(language)) {
         tokenizers = JavaTokenizers.forHtml();
       } else {
-        return;
+        return null;
       }
     } else {
       tokenizers = format.getTokenizers();
     }
-    try (Reader reader = new BufferedReader(new InputStreamReader(new BOMInputStream(new FileInputStream(file)), charset))) {
-      new HighlightingRenderer().render(reader, tokenizers, highlighting);
-    } catch (Exception e) {
-      LOG.warn("Unable to perform colorization of file " + file, e);
+    List<Channel<HtmlCodeBuilder>> result = new ArrayList<>(tokenizers.size());
+    for (Tokenizer tokenizer : tokenizers) {
+      result.add(tokenizer instanceof NotThreadSafeTokenizer ? ((NotThreadSafeTokenizer) tokenizer).clone() : tokenizer);
+    }
+    return result;
+  }
+
+  public class Colorizer {
+    private final Map<String, Optional<List<Channel<HtmlCodeBuilder>>>> tokenizersByLang = new HashMap<>();
+
+    private Colorizer() {
+      // created by newColorizer()
+    }
+
+    public void toSyntaxHighlighting(File file, Charset charset, String language, NewHighlighting highlighting) {
+      Optional<List<Channel<HtmlCodeBuilder>>> tokenizers = tokenizersByLang.computeIfAbsent(language, l -> Optional.ofNullable(newTokenizers(l)));
+      if (!tokenizers.isPresent()) {
+        return;
+      }
+      try (Reader reader = new BufferedReader(new InputStreamReader(new BOMInputStream(new FileInputStream(file)), charset))) {
+        new HighlightingRenderer().renderWithoutCloning(reader, tokenizers.get(), highlighting);
+      } catch (Exception e) {
+        LOG.warn("Unable to perform colorization of file " + file, e);
+      }
     }
   }
 }
@@ -23,6 +23,7 @@ import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.channel.Channel;
 import org.sonar.channel.CodeReader;
 import org.sonar.colorizer.HtmlCodeBuilder;
+import org.sonar.colorizer.NotThreadSafeTokenizer;
 import org.sonar.colorizer.TokenizerDispatcher;
 
 import java.io.Reader;
@@ -40,4 +41,28 @@ public class HighlightingRenderer {
     new TokenizerDispatcher(allTokenizers).colorize(new CodeReader(code), codeBuilder);
     highlighting.save();
   }
+
+  /**
+   * Same as {@link #render(Reader, List, NewHighlighting)}, except that tokenizers are not cloned. Instances of
+   * {@link NotThreadSafeTokenizer} must not be shared by threads.
+   */
+  public void renderWithoutCloning(Reader code, List<? extends Channel<HtmlCodeBuilder>> tokenizers, NewHighlighting highlighting) {
+    HighlightingCodeBuilder codeBuilder = new HighlightingCodeBuilder(highlighting);
+    CodeReader reader = new CodeReader(code);
+    while (reader.peek() != -1) {
+      if (!consume(tokenizers, reader, codeBuilder)) {
+        codeBuilder.append((char) reader.pop());
+      }
+    }
+    highlighting.save();
+  }
+
+  private static boolean consume(List<? extends Channel<HtmlCodeBuilder>> tokenizers, CodeReader reader, HtmlCodeBuilder codeBuilder) {
+    for (Channel<HtmlCodeBuilder> tokenizer : tokenizers) {
+      if (tokenizer.consume(reader, codeBuilder)) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
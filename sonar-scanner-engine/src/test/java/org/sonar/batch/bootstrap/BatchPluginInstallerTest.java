@@ -20,20 +20,31 @@
 package org.sonar.batch.bootstrap;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.StringReader;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.batch.WsTestUtil;
+import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.RemotePlugin;
 import org.sonar.home.cache.FileCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -67,7 +78,7 @@ public class BatchPluginInstallerTest {
   @Test
   public void should_download_plugin() throws Exception {
     File pluginJar = temp.newFile();
-    when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.Downloader.class))).thenReturn(pluginJar);
+    when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.StreamDownloader.class))).thenReturn(pluginJar);
 
     BatchPluginInstaller underTest = new BatchPluginInstaller(wsClient, fileCache, pluginPredicate);
 
@@ -84,4 +95,62 @@ public class BatchPluginInstallerTest {
 
     new BatchPluginInstaller(wsClient, fileCache, pluginPredicate).installRemotes();
   }
+
+  @Test
+  public void download_plugins_in_parallel() throws Exception {
+    WsTestUtil.mockReader(wsClient, "/deploy/plugins/index.txt",
+      new StringReader("checkstyle,checkstyle-plugin.jar|fakemd5_1\nsqale,sqale-plugin.jar|fakemd5_2"));
+    when(pluginPredicate.apply(anyString())).thenReturn(true);
+    final Map<String, File> jarsByFilename = new ConcurrentHashMap<>();
+    jarsByFilename.put("checkstyle-plugin.jar", newPluginJar("checkstyle"));
+    jarsByFilename.put("sqale-plugin.jar", newPluginJar("sqale"));
+    // each download waits for the other one, so the test fails if plugins are downloaded one after the other
+    final CountDownLatch bothStarted = new CountDownLatch(2);
+    final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+    when(fileCache.get(anyString(), anyString(), any(FileCache.StreamDownloader.class))).thenAnswer(invocation -> {
+      threadNames.add(Thread.currentThread().getName());
+      bothStarted.countDown();
+      assertThat(bothStarted.await(10, TimeUnit.SECONDS)).isTrue();
+      return jarsByFilename.get(invocation.getArguments()[0]);
+    });
+
+    Map<String, PluginInfo> infos = new BatchPluginInstaller(wsClient, fileCache, pluginPredicate).installRemotes();
+
+    assertThat(infos.keySet()).containsOnly("checkstyle", "sqale");
+    assertThat(infos.get("sqale").getNonNullJarFile()).isEqualTo(jarsByFilename.get("sqale-plugin.jar"));
+    assertThat(threadNames).hasSize(2);
+    for (String threadName : threadNames) {
+      assertThat(threadName).startsWith("PluginDownloader-");
+    }
+  }
+
+  @Test
+  public void fail_if_one_of_parallel_downloads_fails() throws Exception {
+    WsTestUtil.mockReader(wsClient, "/deploy/plugins/index.txt",
+      new StringReader("checkstyle,checkstyle-plugin.jar|fakemd5_1\nsqale,sqale-plugin.jar|fakemd5_2"));
+    when(pluginPredicate.apply(anyString())).thenReturn(true);
+    File checkstyleJar = newPluginJar("checkstyle");
+    when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.StreamDownloader.class))).thenReturn(checkstyleJar);
+    when(fileCache.get(eq("sqale-plugin.jar"), eq("fakemd5_2"), any(FileCache.StreamDownloader.class))).thenThrow(new IllegalStateException("INVALID HASH"));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Fail to download plugin: sqale");
+
+    new BatchPluginInstaller(wsClient, fileCache, pluginPredicate).installRemotes();
+  }
+
+  private File newPluginJar(String key) throws IOException {
+    Manifest manifest = new Manifest();
+    Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue("Plugin-Key", key);
+    attributes.putValue("Plugin-Name", key);
+    attributes.putValue("Plugin-Version", "1.0");
+    attributes.putValue("Plugin-Class", "org.sonar." + key + ".Plugin");
+    File jar = temp.newFile(key + ".jar");
+    try (JarOutputStream output = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+      // only the manifest is needed
+    }
+    return jar;
+  }
 }
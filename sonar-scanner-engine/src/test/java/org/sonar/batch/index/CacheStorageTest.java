@@ -0,0 +1,157 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.index;
+
+import java.io.File;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheStorageTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void append_and_read_records() throws Exception {
+    CacheStorage storage = new CacheStorage(temp.newFolder(), 1024);
+
+    long first = storage.append("foo".getBytes(), 3);
+    long second = storage.append("barbaz".getBytes(), 6);
+
+    assertThat(storage.read(first)).isEqualTo("foo".getBytes());
+    assertThat(storage.read(second)).isEqualTo("barbaz".getBytes());
+    assertThat(storage.segments()).isEqualTo(1);
+  }
+
+  @Test
+  public void roll_over_full_segment() throws Exception {
+    CacheStorage storage = new CacheStorage(temp.newFolder(), 16);
+
+    long first = storage.append(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}, 8);
+    long second = storage.append(new byte[] {9, 10}, 2);
+
+    assertThat(storage.segments()).isEqualTo(2);
+    assertThat(storage.read(first)).containsExactly(1, 2, 3, 4, 5, 6, 7, 8);
+    assertThat(storage.read(second)).containsExactly(9, 10);
+  }
+
+  @Test
+  public void record_bigger_than_segment_size_has_its_own_segment() throws Exception {
+    CacheStorage storage = new CacheStorage(temp.newFolder(), 16);
+
+    long address = storage.append(new byte[100], 100);
+
+    assertThat(storage.read(address)).hasSize(100);
+    assertThat(storage.segments()).isEqualTo(2);
+  }
+
+  @Test
+  public void fail_if_record_is_too_big() throws Exception {
+    CacheStorage storage = new CacheStorage(temp.newFolder(), 16);
+
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Value is too big");
+
+    storage.append(new byte[0], CacheStorage.MAX_RECORD_SIZE + 1);
+  }
+
+  @Test
+  public void full_segment_is_deleted_when_its_records_are_freed() throws Exception {
+    File dir = temp.newFolder();
+    CacheStorage storage = new CacheStorage(dir, 16);
+    long first = storage.append(new byte[] {1, 2, 3, 4}, 4);
+    long second = storage.append(new byte[] {5, 6, 7, 8}, 4);
+    long third = storage.append(new byte[] {9, 10, 11, 12}, 4);
+    assertThat(storage.segments()).isEqualTo(2);
+
+    storage.free(first);
+    assertThat(storage.segments()).isEqualTo(2);
+    storage.free(second);
+
+    assertThat(storage.segments()).isEqualTo(1);
+    assertThat(dir.list()).containsOnly("segment-1");
+    assertThat(storage.read(second)).isNull();
+    assertThat(storage.read(third)).containsExactly(9, 10, 11, 12);
+  }
+
+  @Test
+  public void current_segment_is_not_deleted_when_its_records_are_freed() throws Exception {
+    CacheStorage storage = new CacheStorage(temp.newFolder(), 16);
+    long address = storage.append(new byte[] {1}, 1);
+
+    storage.free(address);
+
+    assertThat(storage.segments()).isEqualTo(1);
+    long next = storage.append(new byte[] {2}, 1);
+    assertThat(storage.read(next)).containsExactly(2);
+  }
+
+  @Test
+  public void compaction_is_needed_when_full_segment_is_mostly_free() throws Exception {
+    CacheStorage storage = new CacheStorage(temp.newFolder(), 64);
+    long[] addresses = new long[8];
+    for (int i = 0; i < addresses.length; i++) {
+      addresses[i] = storage.append(new byte[] {(byte) i, 0, 0, 0}, 4);
+    }
+    long other = storage.append(new byte[] {1}, 1);
+    assertThat(storage.needsCompaction()).isFalse();
+
+    for (int i = 1; i < addresses.length; i++) {
+      storage.free(addresses[i]);
+    }
+
+    assertThat(storage.needsCompaction()).isTrue();
+    // only once
+    assertThat(storage.needsCompaction()).isFalse();
+    assertThat(storage.inSparseSegments().test(addresses[0])).isTrue();
+    assertThat(storage.inSparseSegments().test(other)).isFalse();
+  }
+
+  @Test
+  public void close_deletes_files() throws Exception {
+    File dir = temp.newFolder();
+    CacheStorage storage = new CacheStorage(dir, 16);
+    storage.append(new byte[] {1}, 1);
+
+    storage.close();
+
+    assertThat(dir).doesNotExist();
+  }
+
+  @Test
+  public void close_deletes_files_of_released_segments() throws Exception {
+    File dir = temp.newFolder();
+    CacheStorage storage = new CacheStorage(dir, 16);
+    long address = storage.append(new byte[8], 8);
+    storage.append(new byte[8], 8);
+    storage.free(address);
+
+    storage.close();
+
+    assertThat(dir).doesNotExist();
+  }
+}
@@ -20,6 +20,12 @@
 package org.sonar.batch.index;
 
 import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import org.sonar.batch.index.Cache.Entry;
 
@@ -247,4 +253,32 @@ public class CacheTest extends AbstractCachesTest {
     cache.clear("foo", "bar", "baz");
     cache.clear();
   }
+
+  @Test
+  public void concurrent_put_and_get() throws Exception {
+    Cache<String> cache = caches.createCache("concurrent");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        String thread = "thread" + t;
+        futures.add(executor.submit((Callable<Void>) () -> {
+          for (int i = 0; i < 1_000; i++) {
+            cache.put(thread, i, thread + "-" + i);
+            assertThat(cache.get(thread, i)).isEqualTo(thread + "-" + i);
+          }
+          return null;
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(cache.keySet()).containsOnly("thread0", "thread1", "thread2", "thread3");
+    assertThat(cache.keySet("thread2")).hasSize(1_000);
+    assertThat(cache.values("thread3")).hasSize(1_000);
+  }
 }
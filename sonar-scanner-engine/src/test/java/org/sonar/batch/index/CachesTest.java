@@ -19,14 +19,23 @@
  */
 package org.sonar.batch.index;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
-
-import com.persistit.exception.PersistitException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
 public class CachesTest extends AbstractCachesTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
   @Test
   public void should_create_cache() {
     Cache<Element> cache = caches.createCache("foo");
@@ -44,6 +53,39 @@ public class CachesTest extends AbstractCachesTest {
     }
   }
 
+  @Test
+  public void should_create_cache_before_start() {
+    caches.stop();
+    caches = new Caches(cachesManager);
+    Cache<String> cache = caches.createCache("foo");
+
+    caches.start();
+    cache.put("a", "b");
+
+    assertThat(cache.get("a")).isEqualTo("b");
+  }
+
+  @Test
+  public void should_reuse_space_of_removed_and_overwritten_values() {
+    caches.stop();
+    caches = new Caches(cachesManager, 1024);
+    caches.start();
+    Cache<String> cache = caches.createCache("foo");
+    for (int i = 0; i < 1000; i++) {
+      cache.put("a" + i, "value" + i);
+      cache.put("a" + i, "new value" + i);
+      if (i % 20 != 0) {
+        cache.remove("a" + i);
+      }
+    }
+
+    assertThat(cachesManager.tempDir().listFiles()[0].list().length).isLessThan(10);
+    for (int i = 0; i < 1000; i += 20) {
+      assertThat(cache.get("a" + i)).isEqualTo("new value" + i);
+    }
+    assertThat(cache.values()).hasSize(50);
+  }
+
   @Test
   public void should_clean_resources() {
     Cache<String> c = caches.<String>createCache("test1");
@@ -54,7 +96,7 @@ public class CachesTest extends AbstractCachesTest {
     caches.stop();
 
     // manager continues up
-    assertThat(cachesManager.persistit().isInitialized()).isTrue();
+    assertThat(cachesManager.tempDir()).isDirectory();
 
     caches = new Caches(cachesManager);
     caches.start();
@@ -62,7 +104,7 @@ public class CachesTest extends AbstractCachesTest {
   }
 
   @Test
-  public void leak_test() throws PersistitException {
+  public void leak_test() {
     caches.stop();
 
     int len = 1 * 1024 * 1024;
@@ -76,14 +118,49 @@ public class CachesTest extends AbstractCachesTest {
       caches.start();
       Cache<String> c = caches.<String>createCache("test" + i);
       c.put("key" + i, sb.toString());
-      cachesManager.persistit().flush();
 
       caches.stop();
     }
   }
 
+  @Test
+  public void should_use_registered_value_codec() {
+    caches.registerValueCodec(Element.class, new ValueCodec<Element>() {
+      @Override
+      public void write(Element value, DataOutputStream output) throws IOException {
+        output.writeInt(value.id);
+      }
+
+      @Override
+      public Element read(DataInputStream input) throws IOException {
+        return new Element(input.readInt() + 1);
+      }
+    });
+    Cache<Element> cache = caches.createCache("foo");
+    cache.put("a", new Element(1));
+
+    assertThat(cache.get("a").id).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_put_too_big_value() {
+    Cache<String> cache = caches.createCache("foo");
+    byte[] value = new byte[CacheStorage.MAX_RECORD_SIZE];
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Fail to put element in the cache foo");
+
+    cache.put("a", new String(value, StandardCharsets.US_ASCII));
+  }
+
   private static class Element implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    private final int id;
+
+    Element(int id) {
+      this.id = id;
+    }
+
   }
 }
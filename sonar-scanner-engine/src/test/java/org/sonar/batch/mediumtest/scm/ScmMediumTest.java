@@ -118,6 +118,33 @@ public class ScmMediumTest {
     assertThat(changesetLine5.getAuthor()).isEqualTo("simon");
   }
 
+  @Test
+  public void reuse_blame_of_previous_analysis_if_content_did_not_change() throws IOException {
+
+    File baseDir = prepareProject();
+    TaskBuilder taskBuilder = tester.newTask()
+      .properties(ImmutableMap.<String, String>builder()
+        .put("sonar.task", "scan")
+        .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+        .put("sonar.projectKey", "com.foo.project")
+        .put("sonar.projectName", "Foo Project")
+        .put("sonar.projectVersion", "1.0-SNAPSHOT")
+        .put("sonar.projectDescription", "Description of Foo Project")
+        .put("sonar.sources", "src")
+        .put("sonar.scm.provider", "xoo")
+        .build());
+    taskBuilder.start();
+    ScannerReport.Changesets firstChangesets = getChangesets(baseDir, "src/sample.xoo");
+
+    // provider would fail to blame the file
+    new File(baseDir, "src/sample.xoo.scm").delete();
+    taskBuilder.start();
+
+    assertThat(getChangesets(baseDir, "src/sample.xoo").getChangesetList()).isEqualTo(firstChangesets.getChangesetList());
+    assertThat(logTester.logs()).contains("1 files blamed from local cache");
+    assertThat(logTester.logs()).doesNotContain(MISSING_BLAME_INFORMATION_FOR_THE_FOLLOWING_FILES);
+  }
+
   private ScannerReport.Changesets getChangesets(File baseDir, String path) {
     File reportDir = new File(baseDir, ".sonar/batch-report");
     ScannerReportReader reader = new ScannerReportReader(reportDir);
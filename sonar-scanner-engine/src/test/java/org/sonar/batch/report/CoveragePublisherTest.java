@@ -28,26 +28,23 @@ import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.Measure;
 import org.sonar.api.resources.Project;
 import org.sonar.batch.index.BatchComponentCache;
-import org.sonar.batch.scan.measure.MeasureCache;
+import org.sonar.batch.sensor.coverage.FileLineCoverage;
+import org.sonar.batch.sensor.coverage.LineCoverageCache;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport.LineCoverage;
 import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.anyString;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
 public class CoveragePublisherTest {
 
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
 
-  private MeasureCache measureCache;
+  private FileLineCoverage coverage;
   private CoveragePublisher publisher;
 
   private org.sonar.api.resources.Resource sampleFile;
@@ -59,34 +56,27 @@ public class CoveragePublisherTest {
     sampleFile = org.sonar.api.resources.File.create("src/Foo.php").setEffectiveKey("foo:src/Foo.php");
     resourceCache.add(p, null).setInputComponent(new DefaultInputModule("foo"));
     resourceCache.add(sampleFile, null).setInputComponent(new DefaultInputFile("foo", "src/Foo.php").setLines(5));
-    measureCache = mock(MeasureCache.class);
-    when(measureCache.byMetric(anyString(), anyString())).thenReturn(null);
-    publisher = new CoveragePublisher(resourceCache, measureCache);
+    LineCoverageCache lineCoverageCache = new LineCoverageCache();
+    coverage = lineCoverageCache.getOrCreate("foo:src/Foo.php", 5);
+    publisher = new CoveragePublisher(resourceCache, lineCoverageCache);
   }
 
   @Test
   public void publishCoverage() throws Exception {
 
-    Measure utLineHits = new Measure<>(CoreMetrics.COVERAGE_LINE_HITS_DATA).setData("2=1;3=1;5=0;6=3");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY)).thenReturn(utLineHits);
+    coverage.applyData(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY, "2=1;3=1;5=0;6=3");
 
-    Measure itsConditionsByLine = new Measure<>(CoreMetrics.IT_CONDITIONS_BY_LINE).setData("3=4");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.IT_CONDITIONS_BY_LINE_KEY)).thenReturn(itsConditionsByLine);
+    coverage.applyData(CoreMetrics.IT_CONDITIONS_BY_LINE_KEY, "3=4");
 
-    Measure conditionsByLine = new Measure<>(CoreMetrics.CONDITIONS_BY_LINE).setData("3=4");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.CONDITIONS_BY_LINE_KEY)).thenReturn(conditionsByLine);
+    coverage.applyData(CoreMetrics.CONDITIONS_BY_LINE_KEY, "3=4");
 
-    Measure coveredConditionsByUts = new Measure<>(CoreMetrics.COVERED_CONDITIONS_BY_LINE).setData("3=2");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY)).thenReturn(coveredConditionsByUts);
+    coverage.applyData(CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY, "3=2");
 
-    Measure itLineHits = new Measure<>(CoreMetrics.IT_COVERAGE_LINE_HITS_DATA).setData("2=0;3=0;5=1");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.IT_COVERAGE_LINE_HITS_DATA_KEY)).thenReturn(itLineHits);
+    coverage.applyData(CoreMetrics.IT_COVERAGE_LINE_HITS_DATA_KEY, "2=0;3=0;5=1");
 
-    Measure coveredConditionsByIts = new Measure<>(CoreMetrics.IT_COVERED_CONDITIONS_BY_LINE).setData("3=1");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.IT_COVERED_CONDITIONS_BY_LINE_KEY)).thenReturn(coveredConditionsByIts);
+    coverage.applyData(CoreMetrics.IT_COVERED_CONDITIONS_BY_LINE_KEY, "3=1");
 
-    Measure overallCoveredConditions = new Measure<>(CoreMetrics.OVERALL_COVERED_CONDITIONS_BY_LINE).setData("3=2");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.OVERALL_COVERED_CONDITIONS_BY_LINE_KEY)).thenReturn(overallCoveredConditions);
+    coverage.applyData(CoreMetrics.OVERALL_COVERED_CONDITIONS_BY_LINE_KEY, "3=2");
 
     File outputDir = temp.newFolder();
     ScannerReportWriter writer = new ScannerReportWriter(outputDir);
@@ -120,14 +110,11 @@ public class CoveragePublisherTest {
   @Test
   public void publishCoverageOnlyUts() throws Exception {
 
-    Measure utLineHits = new Measure<>(CoreMetrics.COVERAGE_LINE_HITS_DATA).setData("2=1;3=1;5=0;6=3");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY)).thenReturn(utLineHits);
+    coverage.applyData(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY, "2=1;3=1;5=0;6=3");
 
-    Measure conditionsByLine = new Measure<>(CoreMetrics.CONDITIONS_BY_LINE).setData("3=4");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.CONDITIONS_BY_LINE_KEY)).thenReturn(conditionsByLine);
+    coverage.applyData(CoreMetrics.CONDITIONS_BY_LINE_KEY, "3=4");
 
-    Measure coveredConditionsByUts = new Measure<>(CoreMetrics.COVERED_CONDITIONS_BY_LINE).setData("3=2");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY)).thenReturn(coveredConditionsByUts);
+    coverage.applyData(CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY, "3=2");
 
     File outputDir = temp.newFolder();
     ScannerReportWriter writer = new ScannerReportWriter(outputDir);
@@ -156,14 +143,11 @@ public class CoveragePublisherTest {
   @Test
   public void publishCoverageOnlyIts() throws Exception {
 
-    Measure itsConditionsByLine = new Measure<>(CoreMetrics.IT_CONDITIONS_BY_LINE).setData("3=4");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.IT_CONDITIONS_BY_LINE_KEY)).thenReturn(itsConditionsByLine);
+    coverage.applyData(CoreMetrics.IT_CONDITIONS_BY_LINE_KEY, "3=4");
 
-    Measure itLineHits = new Measure<>(CoreMetrics.IT_COVERAGE_LINE_HITS_DATA).setData("2=0;3=0;5=1");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.IT_COVERAGE_LINE_HITS_DATA_KEY)).thenReturn(itLineHits);
+    coverage.applyData(CoreMetrics.IT_COVERAGE_LINE_HITS_DATA_KEY, "2=0;3=0;5=1");
 
-    Measure coveredConditionsByIts = new Measure<>(CoreMetrics.IT_COVERED_CONDITIONS_BY_LINE).setData("3=1");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.IT_COVERED_CONDITIONS_BY_LINE_KEY)).thenReturn(coveredConditionsByIts);
+    coverage.applyData(CoreMetrics.IT_COVERED_CONDITIONS_BY_LINE_KEY, "3=1");
 
     File outputDir = temp.newFolder();
     ScannerReportWriter writer = new ScannerReportWriter(outputDir);
@@ -188,4 +172,16 @@ public class CoveragePublisherTest {
     }
 
   }
+
+  @Test
+  public void publishEmptyCoverageOfFileWithoutData() throws Exception {
+    File outputDir = temp.newFolder();
+    ScannerReportWriter writer = new ScannerReportWriter(outputDir);
+
+    publisher.publish(writer);
+
+    try (CloseableIterator<LineCoverage> it = new ScannerReportReader(outputDir).readComponentCoverage(2)) {
+      assertThat(it.hasNext()).isFalse();
+    }
+  }
 }
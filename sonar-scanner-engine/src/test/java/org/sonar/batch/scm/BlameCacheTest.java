@@ -0,0 +1,125 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.scm;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.batch.scan.ImmutableProjectReactor;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlameCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  FileCache fileCache = mock(FileCache.class);
+  ImmutableProjectReactor projectReactor;
+
+  @Before
+  public void setUp() throws IOException {
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    ProjectDefinition root = ProjectDefinition.create().setKey("foo").setBaseDir(temp.newFolder());
+    projectReactor = new ImmutableProjectReactor(root);
+  }
+
+  @Test
+  public void empty_cache() {
+    BlameCache underTest = new BlameCache(fileCache, projectReactor);
+
+    assertThat(underTest.get(file("src/Foo.java", "h1"))).isNull();
+    underTest.stop();
+
+    assertThat(underTest.getCacheFile()).doesNotExist();
+  }
+
+  @Test
+  public void reuse_blame_of_previous_analysis_if_same_content() {
+    BlameCache underTest = new BlameCache(fileCache, projectReactor);
+    underTest.put(file("src/Foo.java", "h1"), changesets("rev1"));
+    underTest.put(file("src/Bar.java", "h2"), changesets("rev2"));
+    underTest.stop();
+    assertThat(underTest.getCacheFile()).exists();
+
+    BlameCache nextAnalysis = new BlameCache(fileCache, projectReactor);
+    ScannerReport.Changesets cached = nextAnalysis.get(file("src/Foo.java", "h1"));
+    assertThat(cached.getComponentRef()).isEqualTo(0);
+    assertThat(cached.getChangeset(0).getRevision()).isEqualTo("rev1");
+    // content changed
+    assertThat(nextAnalysis.get(file("src/Bar.java", "other"))).isNull();
+  }
+
+  @Test
+  public void drop_entries_of_files_which_are_not_analyzed_anymore() {
+    BlameCache underTest = new BlameCache(fileCache, projectReactor);
+    underTest.put(file("src/Foo.java", "h1"), changesets("rev1"));
+    underTest.put(file("src/Bar.java", "h2"), changesets("rev2"));
+    underTest.stop();
+
+    BlameCache secondAnalysis = new BlameCache(fileCache, projectReactor);
+    secondAnalysis.retain(file("src/Foo.java", "h1"));
+    secondAnalysis.stop();
+
+    BlameCache thirdAnalysis = new BlameCache(fileCache, projectReactor);
+    assertThat(thirdAnalysis.get(file("src/Foo.java", "h1"))).isNotNull();
+    assertThat(thirdAnalysis.get(file("src/Bar.java", "h2"))).isNull();
+  }
+
+  @Test
+  public void ignore_corrupted_cache() throws IOException {
+    BlameCache underTest = new BlameCache(fileCache, projectReactor);
+    FileUtils.write(underTest.getCacheFile(), "not a cache");
+
+    assertThat(underTest.get(file("src/Foo.java", "h1"))).isNull();
+  }
+
+  @Test
+  public void cache_depends_on_working_copy() throws IOException {
+    BlameCache underTest = new BlameCache(fileCache, projectReactor);
+    BlameCache otherWorkingCopy = new BlameCache(fileCache,
+      new ImmutableProjectReactor(ProjectDefinition.create().setKey("foo").setBaseDir(temp.newFolder())));
+
+    assertThat(underTest.getCacheFile()).isNotEqualTo(otherWorkingCopy.getCacheFile());
+  }
+
+  private static InputFile file(String path, String hash) {
+    return new DefaultInputFile("foo", path).setHash(hash);
+  }
+
+  private static ScannerReport.Changesets changesets(String revision) {
+    return ScannerReport.Changesets.newBuilder()
+      .setComponentRef(42)
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setRevision(revision).setDate(1_000L))
+      .addChangesetIndexByLine(0)
+      .build();
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.scm;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.batch.AnalysisMode;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.scm.BlameCommand;
+import org.sonar.api.batch.scm.BlameLine;
+import org.sonar.api.batch.scm.ScmProvider;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.config.Settings;
+import org.sonar.batch.index.BatchComponent;
+import org.sonar.batch.index.BatchComponentCache;
+import org.sonar.batch.report.ReportPublisher;
+import org.sonar.batch.repository.ProjectRepositories;
+import org.sonar.batch.scan.ImmutableProjectReactor;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ScmSensorTest {
+
+  private static final int FILES = 100;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Settings settings = new Settings();
+  private BatchComponentCache componentCache = mock(BatchComponentCache.class);
+  private ReportPublisher reportPublisher = mock(ReportPublisher.class);
+  private ScannerReportWriter writer = mock(ScannerReportWriter.class);
+  private DefaultFileSystem fs;
+  private List<InputFile> files = new ArrayList<>();
+
+  @Before
+  public void prepare() throws Exception {
+    fs = new DefaultFileSystem(temp.newFolder());
+    for (int i = 0; i < FILES; i++) {
+      DefaultInputFile file = new DefaultInputFile("foo", "src/File" + i + ".xoo").setLines(2).setLastValidOffset(10);
+      fs.add(file);
+      files.add(file);
+    }
+    BatchComponent component = mock(BatchComponent.class);
+    when(component.batchId()).thenReturn(1);
+    when(componentCache.get(any(InputComponent.class))).thenReturn(component);
+    when(reportPublisher.getWriter()).thenReturn(writer);
+    settings.setProperty(CoreProperties.SCM_PROVIDER_KEY, "xoo");
+    settings.setProperty(ScmConfiguration.FORCE_RELOAD_KEY, true);
+    settings.setProperty(ScmConfiguration.THREADS_KEY, 4);
+  }
+
+  @Test
+  public void blame_each_file_once_in_parallel_when_command_is_thread_safe() {
+    RecordingBlameCommand blameCommand = new ThreadSafeRecordingBlameCommand();
+
+    newSensor(blameCommand).execute(mock(SensorContext.class));
+
+    assertThat(blameCommand.blameCountByFile).hasSize(FILES);
+    for (InputFile file : files) {
+      assertThat(blameCommand.blameCountByFile.get(file).get()).as(file.relativePath()).isEqualTo(1);
+    }
+    assertThat(blameCommand.threadNames).isNotEmpty();
+    for (String threadName : blameCommand.threadNames) {
+      assertThat(threadName).startsWith("scm-blame-");
+    }
+    verify(writer, times(FILES)).writeComponentChangesets(any(ScannerReport.Changesets.class));
+  }
+
+  @Test
+  public void blame_files_in_current_thread_when_command_is_not_thread_safe() {
+    RecordingBlameCommand blameCommand = new RecordingBlameCommand();
+
+    newSensor(blameCommand).execute(mock(SensorContext.class));
+
+    assertThat(blameCommand.blameCountByFile).hasSize(FILES);
+    assertThat(blameCommand.threadNames).containsOnly(Thread.currentThread().getName());
+    verify(writer, times(FILES)).writeComponentChangesets(any(ScannerReport.Changesets.class));
+  }
+
+  private ScmSensor newSensor(final BlameCommand blameCommand) {
+    ScmProvider provider = new ScmProvider() {
+      @Override
+      public String key() {
+        return "xoo";
+      }
+
+      @Override
+      public BlameCommand blameCommand() {
+        return blameCommand;
+      }
+    };
+    ScmConfiguration configuration = new ScmConfiguration(mock(ImmutableProjectReactor.class), mock(AnalysisMode.class), settings, provider);
+    configuration.start();
+    return new ScmSensor(ProjectDefinition.create().setKey("foo"), configuration, mock(ProjectRepositories.class), fs, componentCache,
+      reportPublisher, mock(BlameCache.class));
+  }
+
+  private static class RecordingBlameCommand extends BlameCommand {
+    final Map<InputFile, AtomicInteger> blameCountByFile = new ConcurrentHashMap<>();
+    final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void blame(BlameInput input, BlameOutput output) {
+      threadNames.add(Thread.currentThread().getName());
+      for (InputFile file : input.filesToBlame()) {
+        blameCountByFile.computeIfAbsent(file, f -> new AtomicInteger()).incrementAndGet();
+        List<BlameLine> lines = new ArrayList<>();
+        for (int line = 0; line < file.lines(); line++) {
+          lines.add(new BlameLine().revision("rev").author("author").date(new Date()));
+        }
+        output.blameResult(file, lines);
+      }
+    }
+  }
+
+  private static class ThreadSafeRecordingBlameCommand extends RecordingBlameCommand {
+    @Override
+    public boolean isThreadSafe() {
+      return true;
+    }
+  }
+}
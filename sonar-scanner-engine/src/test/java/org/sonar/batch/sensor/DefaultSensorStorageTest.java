@@ -28,7 +28,10 @@ import org.mockito.ArgumentCaptor;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.measure.Metric;
 import org.sonar.api.batch.measure.MetricFinder;
+import org.sonar.api.batch.sensor.coverage.CoverageType;
+import org.sonar.api.batch.sensor.coverage.internal.DefaultCoverage;
 import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
 import org.sonar.api.config.Settings;
 import org.sonar.api.measures.CoreMetrics;
@@ -42,6 +45,8 @@ import org.sonar.batch.issue.ModuleIssues;
 import org.sonar.batch.report.ReportPublisher;
 import org.sonar.batch.scan.measure.MeasureCache;
 import org.sonar.batch.sensor.coverage.CoverageExclusions;
+import org.sonar.batch.sensor.coverage.FileLineCoverage;
+import org.sonar.batch.sensor.coverage.LineCoverageCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -62,12 +67,14 @@ public class DefaultSensorStorageTest {
   private ModuleIssues moduleIssues;
   private Project project;
   private MeasureCache measureCache;
+  private MetricFinder metricFinder;
+  private LineCoverageCache lineCoverageCache;
 
   private BatchComponentCache resourceCache;
 
   @Before
   public void prepare() {
-    MetricFinder metricFinder = mock(MetricFinder.class);
+    metricFinder = mock(MetricFinder.class);
     when(metricFinder.<Integer>findByKey(CoreMetrics.NCLOC_KEY)).thenReturn(CoreMetrics.NCLOC);
     when(metricFinder.<String>findByKey(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION_KEY)).thenReturn(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION);
     settings = new Settings();
@@ -77,8 +84,9 @@ public class DefaultSensorStorageTest {
     CoverageExclusions coverageExclusions = mock(CoverageExclusions.class);
     when(coverageExclusions.accept(any(Resource.class), any(Measure.class))).thenReturn(true);
     resourceCache = new BatchComponentCache();
+    lineCoverageCache = new LineCoverageCache();
     underTest = new DefaultSensorStorage(metricFinder,
-      moduleIssues, settings, coverageExclusions, resourceCache, mock(ReportPublisher.class), measureCache, mock(SonarCpdBlockIndex.class));
+      moduleIssues, settings, coverageExclusions, resourceCache, mock(ReportPublisher.class), measureCache, lineCoverageCache, mock(SonarCpdBlockIndex.class));
   }
 
   @Test
@@ -130,4 +138,48 @@ public class DefaultSensorStorageTest {
     assertThat(m.getMetric()).isEqualTo(CoreMetrics.NCLOC);
   }
 
+  @Test
+  public void shouldMergeCoverageOfFileInLineCoverageCache() {
+    DefaultInputFile file = new DefaultInputFile("foo", "src/Foo.php").setLines(5);
+    resourceCache.add(File.create("src/Foo.php").setEffectiveKey("foo:src/Foo.php"), null).setInputComponent(file);
+    mockMetrics(CoreMetrics.LINES_TO_COVER, CoreMetrics.UNCOVERED_LINES, CoreMetrics.COVERAGE_LINE_HITS_DATA, CoreMetrics.CONDITIONS_TO_COVER,
+      CoreMetrics.UNCOVERED_CONDITIONS, CoreMetrics.COVERED_CONDITIONS_BY_LINE, CoreMetrics.CONDITIONS_BY_LINE,
+      CoreMetrics.IT_LINES_TO_COVER, CoreMetrics.IT_UNCOVERED_LINES, CoreMetrics.IT_COVERAGE_LINE_HITS_DATA);
+
+    new DefaultCoverage(underTest).onFile(file).ofType(CoverageType.UNIT).lineHits(1, 2).lineHits(3, 0).conditions(3, 4, 1).save();
+    new DefaultCoverage(underTest).onFile(file).ofType(CoverageType.IT).lineHits(3, 1).save();
+
+    FileLineCoverage coverage = lineCoverageCache.get("foo:src/Foo.php");
+    assertThat(coverage.utHits(1)).isEqualTo(2);
+    assertThat(coverage.utHits(2)).isEqualTo(FileLineCoverage.NO_VALUE);
+    assertThat(coverage.utHits(3)).isEqualTo(0);
+    assertThat(coverage.itHits(3)).isEqualTo(1);
+    assertThat(coverage.conditions(3)).isEqualTo(4);
+    assertThat(coverage.utCoveredConditions(3)).isEqualTo(1);
+    assertThat(coverage.itCoveredConditions(3)).isEqualTo(FileLineCoverage.NO_VALUE);
+  }
+
+  @Test
+  public void shouldParseLineDataOfDeprecatedMeasuresOnce() {
+    DefaultInputFile file = new DefaultInputFile("foo", "src/Foo.php").setLines(5);
+    Resource sonarFile = File.create("src/Foo.php").setEffectiveKey("foo:src/Foo.php");
+    resourceCache.add(sonarFile, null).setInputComponent(file);
+    mockMetrics(CoreMetrics.IT_CONDITIONS_BY_LINE, CoreMetrics.IT_COVERED_CONDITIONS_BY_LINE);
+
+    underTest.saveMeasure(sonarFile, new Measure<>(CoreMetrics.IT_CONDITIONS_BY_LINE).setData("2=4;4=;9=1"));
+    underTest.saveMeasure(sonarFile, new Measure<>(CoreMetrics.IT_COVERED_CONDITIONS_BY_LINE).setData("2=3"));
+
+    FileLineCoverage coverage = lineCoverageCache.get("foo:src/Foo.php");
+    assertThat(coverage.conditions(2)).isEqualTo(4);
+    assertThat(coverage.itCoveredConditions(2)).isEqualTo(3);
+    assertThat(coverage.hasData(4)).isFalse();
+    assertThat(coverage.hasData(9)).isFalse();
+  }
+
+  private void mockMetrics(Metric... metrics) {
+    for (Metric metric : metrics) {
+      when(metricFinder.findByKey(metric.key())).thenReturn(metric);
+    }
+  }
+
 }
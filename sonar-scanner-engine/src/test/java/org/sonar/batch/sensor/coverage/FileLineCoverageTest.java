@@ -0,0 +1,85 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.sensor.coverage;
+
+import org.junit.Test;
+import org.sonar.api.batch.sensor.coverage.CoverageType;
+import org.sonar.api.measures.CoreMetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileLineCoverageTest {
+
+  private FileLineCoverage underTest = new FileLineCoverage(10);
+
+  @Test
+  public void empty_until_first_value() {
+    assertThat(underTest.isEmpty()).isTrue();
+    assertThat(underTest.hasData(1)).isFalse();
+    assertThat(underTest.utHits(1)).isEqualTo(FileLineCoverage.NO_VALUE);
+
+    underTest.setHits(CoverageType.UNIT, 1, 0);
+
+    assertThat(underTest.isEmpty()).isFalse();
+    assertThat(underTest.hasData(1)).isTrue();
+    assertThat(underTest.utHits(1)).isEqualTo(0);
+  }
+
+  @Test
+  public void apply_line_data() {
+    assertThat(underTest.applyData(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY, "1=3;2=0;3=;11=1;0=2")).isTrue();
+
+    assertThat(underTest.utHits(1)).isEqualTo(3);
+    assertThat(underTest.utHits(2)).isEqualTo(0);
+    assertThat(underTest.hasData(3)).isFalse();
+    assertThat(underTest.utHits(11)).isEqualTo(FileLineCoverage.NO_VALUE);
+  }
+
+  @Test
+  public void ignore_data_of_other_metrics() {
+    assertThat(underTest.applyData(CoreMetrics.OVERALL_COVERAGE_LINE_HITS_DATA_KEY, "1=3")).isFalse();
+    assertThat(underTest.applyData(CoreMetrics.NCLOC_DATA_KEY, "1=1")).isFalse();
+
+    assertThat(underTest.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void conditions_of_unit_tests_override_conditions_of_integration_tests() {
+    underTest.setConditions(CoverageType.IT, 2, 4);
+    underTest.setConditions(CoverageType.IT, 3, 2);
+    underTest.setConditions(CoverageType.UNIT, 2, 6);
+    underTest.setConditions(CoverageType.OVERALL, 4, 2);
+
+    assertThat(underTest.conditions(2)).isEqualTo(6);
+    assertThat(underTest.conditions(3)).isEqualTo(2);
+    assertThat(underTest.conditions(4)).isEqualTo(FileLineCoverage.NO_VALUE);
+  }
+
+  @Test
+  public void covered_conditions_by_type() {
+    underTest.setCoveredConditions(CoverageType.UNIT, 2, 1);
+    underTest.setCoveredConditions(CoverageType.IT, 2, 2);
+    underTest.setCoveredConditions(CoverageType.OVERALL, 2, 3);
+
+    assertThat(underTest.utCoveredConditions(2)).isEqualTo(1);
+    assertThat(underTest.itCoveredConditions(2)).isEqualTo(2);
+    assertThat(underTest.overallCoveredConditions(2)).isEqualTo(3);
+  }
+}
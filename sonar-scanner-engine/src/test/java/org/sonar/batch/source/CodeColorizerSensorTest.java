@@ -0,0 +1,160 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.source;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.highlighting.internal.DefaultHighlighting;
+import org.sonar.api.batch.sensor.internal.SensorStorage;
+import org.sonar.batch.index.BatchComponent;
+import org.sonar.batch.index.BatchComponentCache;
+import org.sonar.batch.report.ReportPublisher;
+import org.sonar.scanner.protocol.output.FileStructure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CodeColorizerSensorTest {
+
+  private static final String CONTENT = "public class Foo {\n  // comment\n}\n";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File reportDir;
+  private DefaultFileSystem fs;
+  private ReportPublisher reportPublisher = mock(ReportPublisher.class);
+  private BatchComponentCache componentCache = mock(BatchComponentCache.class);
+  private SensorContext context = mock(SensorContext.class);
+  private SensorStorage storage = mock(SensorStorage.class);
+  private Map<InputFile, AtomicInteger> highlightCountByFile = new ConcurrentHashMap<>();
+  private Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+  @Before
+  public void prepare() throws Exception {
+    reportDir = temp.newFolder();
+    fs = new DefaultFileSystem(temp.newFolder()).setEncoding(StandardCharsets.UTF_8);
+    when(reportPublisher.getReportDir()).thenReturn(reportDir);
+    when(context.fileSystem()).thenReturn(fs);
+    when(context.newHighlighting()).thenAnswer(new Answer<DefaultHighlighting>() {
+      @Override
+      public DefaultHighlighting answer(InvocationOnMock invocation) {
+        return new DefaultHighlighting(storage);
+      }
+    });
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        DefaultHighlighting highlighting = (DefaultHighlighting) invocation.getArguments()[0];
+        assertThat(highlighting.getSyntaxHighlightingRuleSet()).isNotEmpty();
+        highlightCountByFile.computeIfAbsent(highlighting.inputFile(), f -> new AtomicInteger()).incrementAndGet();
+        threadNames.add(Thread.currentThread().getName());
+        return null;
+      }
+    }).when(storage).store(any(DefaultHighlighting.class));
+  }
+
+  @Test
+  public void highlight_files_concurrently() throws Exception {
+    List<InputFile> files = addFiles(500, "java");
+
+    new CodeColorizerSensor(reportPublisher, componentCache, new CodeColorizers(), 4).execute(context);
+
+    assertThat(highlightCountByFile).hasSize(files.size());
+    for (InputFile file : files) {
+      assertThat(highlightCountByFile.get(file).get()).as(file.relativePath()).isEqualTo(1);
+    }
+    for (String threadName : threadNames) {
+      assertThat(threadName).startsWith("code-colorizer-");
+    }
+  }
+
+  @Test
+  public void highlight_few_files_in_current_thread() throws Exception {
+    List<InputFile> files = addFiles(3, "java");
+
+    new CodeColorizerSensor(reportPublisher, componentCache, new CodeColorizers(), 4).execute(context);
+
+    assertThat(highlightCountByFile.keySet()).containsOnly(files.toArray(new InputFile[0]));
+    assertThat(threadNames).containsOnly(Thread.currentThread().getName());
+  }
+
+  @Test
+  public void skip_files_which_are_already_highlighted() throws Exception {
+    List<InputFile> files = addFiles(200, "java");
+    // highlighting of first and last files has been saved by a sensor
+    FileStructure fileStructure = new FileStructure(reportDir);
+    FileUtils.touch(fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, 1));
+    FileUtils.touch(fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, files.size()));
+
+    new CodeColorizerSensor(reportPublisher, componentCache, new CodeColorizers(), 4).execute(context);
+
+    assertThat(highlightCountByFile).hasSize(files.size() - 2);
+    assertThat(highlightCountByFile).doesNotContainKey(files.get(0)).doesNotContainKey(files.get(files.size() - 1));
+  }
+
+  @Test
+  public void skip_files_without_language() throws Exception {
+    addFiles(2, null);
+
+    new CodeColorizerSensor(reportPublisher, componentCache, new CodeColorizers(), 4).execute(context);
+
+    assertThat(highlightCountByFile).isEmpty();
+  }
+
+  /**
+   * Adds files whose component references start at 1
+   */
+  private List<InputFile> addFiles(int count, @Nullable String language) throws Exception {
+    List<InputFile> files = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      String relativePath = "src/Foo" + i + ".java";
+      FileUtils.write(new File(fs.baseDir(), relativePath), CONTENT, StandardCharsets.UTF_8);
+      DefaultInputFile file = new DefaultInputFile("foo", relativePath).setLanguage(language).initMetadata(CONTENT);
+      fs.add(file);
+      BatchComponent component = mock(BatchComponent.class);
+      when(component.batchId()).thenReturn(i + 1);
+      when(componentCache.get(file)).thenReturn(component);
+      files.add(file);
+    }
+    return files;
+  }
+}
@@ -49,6 +49,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 public class CodeColorizersTest {
 
@@ -79,6 +80,24 @@ public class CodeColorizersTest {
     verify(highlighting).highlight(120, 124, TypeOfText.KEYWORD);
   }
 
+  @Test
+  public void colorizer_reuses_tokenizers_between_files() throws Exception {
+    CodeColorizers codeColorizers = new CodeColorizers(Arrays.<CodeColorizerFormat>asList(new JavaScriptColorizerFormat(), new WebCodeColorizerFormat()));
+    File jsFile = new File(this.getClass().getResource("CodeColorizersTest/Person.js").toURI());
+    CodeColorizers.Colorizer colorizer = codeColorizers.newColorizer();
+
+    NewHighlighting highlighting1 = mock(NewHighlighting.class);
+    colorizer.toSyntaxHighlighting(jsFile, StandardCharsets.UTF_8, "js", highlighting1);
+    NewHighlighting highlighting2 = mock(NewHighlighting.class);
+    colorizer.toSyntaxHighlighting(jsFile, StandardCharsets.UTF_8, "js", highlighting2);
+    NewHighlighting unknownLanguage = mock(NewHighlighting.class);
+    colorizer.toSyntaxHighlighting(jsFile, StandardCharsets.UTF_8, "unknown", unknownLanguage);
+
+    verifyForJs(highlighting1);
+    verifyForJs(highlighting2);
+    verifyZeroInteractions(unknownLanguage);
+  }
+
   @Test
   public void testConvertToHighlightingIgnoreBOM() throws Exception {
     CodeColorizers codeColorizers = new CodeColorizers(Arrays.<CodeColorizerFormat>asList(new JavaScriptColorizerFormat(), new WebCodeColorizerFormat()));
@@ -20,6 +20,8 @@
 package org.sonar.scanner.protocol.output;
 
 import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Structure of files in the zipped report
@@ -75,4 +77,24 @@ public class FileStructure {
     return new File(dir, domain.filePrefix + componentRef + domain.fileSuffix);
   }
 
+  /**
+   * References of the components which have a file of the given domain. The directory is listed only once,
+   * so it's cheaper than checking existence of {@link #fileFor(Domain, int)} for each component.
+   */
+  public Set<Integer> componentRefs(Domain domain) {
+    Set<Integer> refs = new HashSet<>();
+    String[] fileNames = dir.list();
+    if (fileNames != null) {
+      for (String fileName : fileNames) {
+        if (fileName.startsWith(domain.filePrefix) && fileName.endsWith(domain.fileSuffix)) {
+          String ref = fileName.substring(domain.filePrefix.length(), fileName.length() - domain.fileSuffix.length());
+          if (!ref.isEmpty() && ref.chars().allMatch(Character::isDigit)) {
+            refs.add(Integer.parseInt(ref));
+          }
+        }
+      }
+    }
+    return refs;
+  }
+
 }
@@ -71,4 +71,18 @@ public class FileStructureTest {
     assertThat(structure.fileFor(FileStructure.Domain.ISSUES, 3)).exists().isFile();
     assertThat(structure.fileFor(FileStructure.Domain.ISSUES, 42)).doesNotExist();
   }
+
+  @Test
+  public void list_component_refs_of_domain() throws Exception {
+    File dir = temp.newFolder();
+    FileUtils.write(new File(dir, "metadata.pb"), "metadata content");
+    FileUtils.write(new File(dir, "syntax-highlightings-3.pb"), "highlighting of component 3");
+    FileUtils.write(new File(dir, "syntax-highlightings-42.pb"), "highlighting of component 42");
+    FileUtils.write(new File(dir, "syntax-highlightings-foo.pb"), "unexpected");
+    FileUtils.write(new File(dir, "component-5.pb"), "details of component 5");
+
+    FileStructure structure = new FileStructure(dir);
+    assertThat(structure.componentRefs(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS)).containsOnly(3, 42);
+    assertThat(structure.componentRefs(FileStructure.Domain.SYMBOLS)).isEmpty();
+  }
 }
@@ -0,0 +1,323 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarqube.ws.generator;
+
+import com.google.common.base.Joiner;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Generates, for each file of a Protocol Buffers descriptor set, a class writing its messages to
+ * {@code org.sonar.api.utils.text.JsonWriter} through the generated accessors. The generated JSON is the same
+ * as the one of the reflective {@code org.sonar.core.util.ProtobufJsonFormat}, which looks up the generated
+ * class {@code <outer class name>Json} and falls back to reflection when it does not exist.
+ * <p/>
+ * Only proto2 files are supported.
+ * <p/>
+ * Usage: {@code JsonWriterGenerator <descriptor set file> <output directory>}. The descriptor set is produced by
+ * {@code protoc --include_imports --descriptor_set_out=<file>}.
+ */
+public class JsonWriterGenerator {
+
+  public static final String CLASS_SUFFIX = "Json";
+
+  private static final String JSON_WRITER = "org.sonar.api.utils.text.JsonWriter";
+  private static final String MESSAGE = "com.google.protobuf.Message";
+  private static final String INDENT = "  ";
+
+  private final FileDescriptor file;
+  private final StringBuilder source = new StringBuilder();
+
+  private JsonWriterGenerator(FileDescriptor file) {
+    this.file = file;
+  }
+
+  public static void main(String[] args) throws IOException, DescriptorValidationException {
+    checkArgument(args.length == 2, "Usage: JsonWriterGenerator <descriptor set file> <output directory>");
+    File outputDir = new File(args[1]);
+    for (FileDescriptor file : load(new File(args[0]))) {
+      File javaFile = new File(outputDir, javaPackage(file).replace('.', File.separatorChar) + File.separator + jsonClassName(file) + ".java");
+      Files.createDirectories(javaFile.getParentFile().toPath());
+      try (Writer writer = new OutputStreamWriter(new FileOutputStream(javaFile), StandardCharsets.UTF_8)) {
+        writer.write(generate(file));
+      }
+    }
+  }
+
+  /**
+   * Files of the descriptor set, which must be ordered so that dependencies are declared before the files importing them.
+   */
+  static List<FileDescriptor> load(File descriptorSetFile) throws IOException, DescriptorValidationException {
+    FileDescriptorSet set;
+    try (InputStream input = new FileInputStream(descriptorSetFile)) {
+      set = FileDescriptorSet.parseFrom(input);
+    }
+    Map<String, FileDescriptor> filesByName = new HashMap<>();
+    List<FileDescriptor> files = new ArrayList<>();
+    for (FileDescriptorProto proto : set.getFileList()) {
+      FileDescriptor[] dependencies = new FileDescriptor[proto.getDependencyCount()];
+      for (int i = 0; i < dependencies.length; i++) {
+        dependencies[i] = filesByName.get(proto.getDependency(i));
+        checkArgument(dependencies[i] != null, "Dependency %s of %s must be declared before it in the descriptor set", proto.getDependency(i), proto.getName());
+      }
+      FileDescriptor file = FileDescriptor.buildFrom(proto, dependencies);
+      filesByName.put(proto.getName(), file);
+      files.add(file);
+    }
+    return files;
+  }
+
+  static String generate(FileDescriptor file) {
+    String syntax = file.toProto().getSyntax();
+    checkArgument(syntax.isEmpty() || "proto2".equals(syntax), "Only proto2 files are supported: %s", file.getName());
+    JsonWriterGenerator generator = new JsonWriterGenerator(file);
+    generator.generateClass();
+    return generator.source.toString();
+  }
+
+  private void generateClass() {
+    List<Descriptor> messages = new ArrayList<>();
+    collectMessages(file.getMessageTypes(), messages);
+    String className = jsonClassName(file);
+
+    line(0, "// Generated by %s from %s. Do not edit.", JsonWriterGenerator.class.getName(), file.getName());
+    line(0, "package %s;", javaPackage(file));
+    line(0, "");
+    line(0, "/**");
+    line(0, " * JSON writers of the messages declared in %s", file.getName());
+    line(0, " */");
+    line(0, "public final class %s {", className);
+    line(0, "");
+    line(1, "private static final java.util.Map<Class<? extends %s>, java.util.function.BiConsumer<%s, %s>> WRITERS = new java.util.HashMap<>();",
+      MESSAGE, MESSAGE, JSON_WRITER);
+    line(0, "");
+    line(1, "static {");
+    for (Descriptor message : messages) {
+      line(2, "WRITERS.put(%s.class, (message, writer) -> writeFields((%s) message, writer));", javaClassName(message), javaClassName(message));
+    }
+    line(1, "}");
+    line(0, "");
+    line(1, "private %s() {", className);
+    line(2, "// only statics");
+    line(1, "}");
+    line(0, "");
+    line(1, "/**");
+    line(1, " * Writer of the fields of the given message type, or {@code null} if the type is not declared in %s", file.getName());
+    line(1, " */");
+    line(1, "public static java.util.function.BiConsumer<%s, %s> writerOf(Class<? extends %s> messageClass) {", MESSAGE, JSON_WRITER, MESSAGE);
+    line(2, "return WRITERS.get(messageClass);");
+    line(1, "}");
+    for (Descriptor message : messages) {
+      generateWriteFields(message);
+      generateWriteValue(message);
+    }
+    line(0, "}");
+  }
+
+  private static void collectMessages(List<Descriptor> descriptors, List<Descriptor> result) {
+    for (Descriptor descriptor : descriptors) {
+      if (!descriptor.getOptions().getMapEntry()) {
+        result.add(descriptor);
+        collectMessages(descriptor.getNestedTypes(), result);
+      }
+    }
+  }
+
+  private void generateWriteFields(Descriptor message) {
+    line(0, "");
+    line(1, "public static void writeFields(%s message, %s writer) {", javaClassName(message), JSON_WRITER);
+    for (FieldDescriptor field : message.getFields()) {
+      if (field.isRepeated()) {
+        line(2, "writer.name(\"%s\");", field.getName());
+        generateRepeated(2, field);
+      } else {
+        line(2, "if (message.has%s()) {", camelCase(field.getName()));
+        line(3, "writer.name(\"%s\");", field.getName());
+        generateValue(3, field, "message.get" + camelCase(field.getName()) + "()");
+        line(2, "}");
+      }
+    }
+    line(1, "}");
+  }
+
+  private void generateWriteValue(Descriptor message) {
+    line(0, "");
+    line(1, "public static void writeValue(%s message, %s writer) {", javaClassName(message), JSON_WRITER);
+    if (doesWrapRepeated(message)) {
+      // the message is an intermediary wrapper of an array or of a map, which is inlined
+      generateRepeated(2, message.getFields().get(0));
+    } else {
+      line(2, "writer.beginObject();");
+      line(2, "writeFields(message, writer);");
+      line(2, "writer.endObject();");
+    }
+    line(1, "}");
+  }
+
+  private static boolean doesWrapRepeated(Descriptor message) {
+    List<FieldDescriptor> fields = message.getFields();
+    return fields.size() == 1 && fields.get(0).isRepeated() && message.getName().equalsIgnoreCase(fields.get(0).getName());
+  }
+
+  private void generateRepeated(int indent, FieldDescriptor field) {
+    String accessor = "message.get" + camelCase(field.getName());
+    if (field.isMapField()) {
+      FieldDescriptor key = field.getMessageType().findFieldByName("key");
+      FieldDescriptor value = field.getMessageType().findFieldByName("value");
+      line(indent, "writer.beginObject();");
+      line(indent, "for (java.util.Map.Entry<%s, %s> entry : %s().entrySet()) {", boxedJavaType(key), boxedJavaType(value), accessor);
+      // Key fields are always double-quoted in json
+      line(indent + 1, "writer.name(String.valueOf(entry.getKey()));");
+      generateValue(indent + 1, value, "entry.getValue()");
+      line(indent, "}");
+      line(indent, "writer.endObject();");
+    } else {
+      line(indent, "writer.beginArray();");
+      line(indent, "for (int i = 0; i < %sCount(); i++) {", accessor);
+      generateValue(indent + 1, field, accessor + "(i)");
+      line(indent, "}");
+      line(indent, "writer.endArray();");
+    }
+  }
+
+  private void generateValue(int indent, FieldDescriptor field, String value) {
+    switch (field.getJavaType()) {
+      case INT:
+      case LONG:
+      case DOUBLE:
+      case BOOLEAN:
+      case STRING:
+        line(indent, "writer.value(%s);", value);
+        break;
+      case ENUM:
+        line(indent, "writer.value(%s.name());", value);
+        break;
+      case MESSAGE:
+        line(indent, "%s.writeValue(%s, writer);", javaPackage(field.getMessageType().getFile()) + "." + jsonClassName(field.getMessageType().getFile()), value);
+        break;
+      default:
+        line(indent, "throw new IllegalStateException(\"JSON format does not support type '%s' of field '%s'\");", field.getJavaType(), field.getName());
+        break;
+    }
+  }
+
+  private static String boxedJavaType(FieldDescriptor field) {
+    switch (field.getJavaType()) {
+      case INT:
+        return "Integer";
+      case LONG:
+        return "Long";
+      case FLOAT:
+        return "Float";
+      case DOUBLE:
+        return "Double";
+      case BOOLEAN:
+        return "Boolean";
+      case STRING:
+        return "String";
+      case BYTE_STRING:
+        return "com.google.protobuf.ByteString";
+      case ENUM:
+        return javaPackage(field.getEnumType().getFile()) + "." + outerClassName(field.getEnumType().getFile()) + "." + relativeName(field.getEnumType().getFullName(), field.getEnumType().getFile());
+      default:
+        return javaClassName(field.getMessageType());
+    }
+  }
+
+  private void line(int indent, String format, Object... args) {
+    if (!format.isEmpty()) {
+      for (int i = 0; i < indent; i++) {
+        source.append(INDENT);
+      }
+      source.append(String.format(format, args));
+    }
+    source.append('\n');
+  }
+
+  static String javaPackage(FileDescriptor file) {
+    return file.getOptions().hasJavaPackage() ? file.getOptions().getJavaPackage() : file.getPackage();
+  }
+
+  static String outerClassName(FileDescriptor file) {
+    if (file.getOptions().hasJavaOuterClassname()) {
+      return file.getOptions().getJavaOuterClassname();
+    }
+    String name = file.getName();
+    name = name.substring(name.lastIndexOf('/') + 1);
+    if (name.endsWith(".proto")) {
+      name = name.substring(0, name.length() - ".proto".length());
+    }
+    return camelCase(name);
+  }
+
+  static String jsonClassName(FileDescriptor file) {
+    return outerClassName(file) + CLASS_SUFFIX;
+  }
+
+  private static String javaClassName(Descriptor message) {
+    return Joiner.on('.').join(javaPackage(message.getFile()), outerClassName(message.getFile()), relativeName(message.getFullName(), message.getFile()));
+  }
+
+  private static String relativeName(String fullName, FileDescriptor file) {
+    return file.getPackage().isEmpty() ? fullName : fullName.substring(file.getPackage().length() + 1);
+  }
+
+  /**
+   * Same conversion of names as protoc when generating Java accessors, for example "created_at" to "CreatedAt"
+   */
+  static String camelCase(String name) {
+    StringBuilder result = new StringBuilder(name.length());
+    boolean capitalizeNext = true;
+    for (char c : name.toCharArray()) {
+      if (c >= 'a' && c <= 'z') {
+        result.append(capitalizeNext ? Character.toUpperCase(c) : c);
+        capitalizeNext = false;
+      } else if (c >= 'A' && c <= 'Z') {
+        result.append(c);
+        capitalizeNext = false;
+      } else if (c >= '0' && c <= '9') {
+        result.append(c);
+        capitalizeNext = true;
+      } else {
+        capitalizeNext = true;
+      }
+    }
+    return result.toString();
+  }
+}
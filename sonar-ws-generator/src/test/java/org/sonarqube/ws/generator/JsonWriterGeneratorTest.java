@@ -0,0 +1,183 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarqube.ws.generator;
+
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto.Label;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto.Type;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.FileOptions;
+import com.google.protobuf.DescriptorProtos.MessageOptions;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonWriterGeneratorTest {
+
+  private static final FileDescriptorProto COMMONS = FileDescriptorProto.newBuilder()
+    .setName("ws-commons.proto")
+    .setPackage("sonarqube.ws.commons")
+    .setSyntax("proto2")
+    .setOptions(FileOptions.newBuilder().setJavaPackage("org.sonarqube.ws").setJavaOuterClassname("Common"))
+    .addMessageType(DescriptorProto.newBuilder().setName("Paging")
+      .addField(field("pageIndex", 1, Label.LABEL_OPTIONAL, Type.TYPE_INT32)))
+    .build();
+
+  private static final FileDescriptorProto CE = FileDescriptorProto.newBuilder()
+    .setName("ws-ce.proto")
+    .setPackage("sonarqube.ws.ce")
+    .setSyntax("proto2")
+    .addDependency("ws-commons.proto")
+    .setOptions(FileOptions.newBuilder().setJavaPackage("org.sonarqube.ws").setJavaOuterClassname("WsCe"))
+    .addMessageType(DescriptorProto.newBuilder().setName("ActivityResponse")
+      .addField(field("paging", 1, Label.LABEL_OPTIONAL, Type.TYPE_MESSAGE).setTypeName(".sonarqube.ws.commons.Paging"))
+      .addField(field("tasks", 2, Label.LABEL_REPEATED, Type.TYPE_MESSAGE).setTypeName(".sonarqube.ws.ce.Task"))
+      .addField(field("warnings", 3, Label.LABEL_OPTIONAL, Type.TYPE_MESSAGE).setTypeName(".sonarqube.ws.ce.Warnings"))
+      .addField(field("tasks_by_uuid", 4, Label.LABEL_REPEATED, Type.TYPE_MESSAGE).setTypeName(".sonarqube.ws.ce.ActivityResponse.TasksByUuidEntry"))
+      .addNestedType(DescriptorProto.newBuilder().setName("TasksByUuidEntry")
+        .setOptions(MessageOptions.newBuilder().setMapEntry(true))
+        .addField(field("key", 1, Label.LABEL_OPTIONAL, Type.TYPE_STRING))
+        .addField(field("value", 2, Label.LABEL_OPTIONAL, Type.TYPE_MESSAGE).setTypeName(".sonarqube.ws.ce.Task"))))
+    .addMessageType(DescriptorProto.newBuilder().setName("Task")
+      .addField(field("id", 1, Label.LABEL_OPTIONAL, Type.TYPE_STRING))
+      .addField(field("executionTimeMs", 2, Label.LABEL_OPTIONAL, Type.TYPE_INT64))
+      .addField(field("log_size", 3, Label.LABEL_OPTIONAL, Type.TYPE_INT32))
+      .addField(field("ratio", 4, Label.LABEL_OPTIONAL, Type.TYPE_FLOAT)))
+    .addMessageType(DescriptorProto.newBuilder().setName("Warnings")
+      .addField(field("warnings", 1, Label.LABEL_REPEATED, Type.TYPE_STRING)))
+    .build();
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void generate_writers_of_all_messages_except_map_entries() throws Exception {
+    String source = JsonWriterGenerator.generate(loadCe());
+
+    assertThat(source).contains("package org.sonarqube.ws;");
+    assertThat(source).contains("public final class WsCeJson {");
+    assertThat(source).contains("WRITERS.put(org.sonarqube.ws.WsCe.ActivityResponse.class, (message, writer) -> writeFields((org.sonarqube.ws.WsCe.ActivityResponse) message, writer));");
+    assertThat(source).contains("public static void writeFields(org.sonarqube.ws.WsCe.Task message, org.sonar.api.utils.text.JsonWriter writer) {");
+    assertThat(source).doesNotContain("TasksByUuidEntry");
+  }
+
+  @Test
+  public void write_singular_fields_only_when_present() throws Exception {
+    String source = JsonWriterGenerator.generate(loadCe());
+
+    assertThat(source).contains(
+      "    if (message.hasExecutionTimeMs()) {\n" +
+        "      writer.name(\"executionTimeMs\");\n" +
+        "      writer.value(message.getExecutionTimeMs());\n" +
+        "    }\n");
+    assertThat(source).contains("    if (message.hasLogSize()) {\n");
+    assertThat(source).contains("      org.sonarqube.ws.CommonJson.writeValue(message.getPaging(), writer);\n");
+    assertThat(source).contains("      throw new IllegalStateException(\"JSON format does not support type 'FLOAT' of field 'ratio'\");\n");
+  }
+
+  @Test
+  public void write_arrays_and_maps() throws Exception {
+    String source = JsonWriterGenerator.generate(loadCe());
+
+    assertThat(source).contains(
+      "    writer.name(\"tasks\");\n" +
+        "    writer.beginArray();\n" +
+        "    for (int i = 0; i < message.getTasksCount(); i++) {\n" +
+        "      org.sonarqube.ws.WsCeJson.writeValue(message.getTasks(i), writer);\n" +
+        "    }\n" +
+        "    writer.endArray();\n");
+    assertThat(source).contains(
+      "    writer.name(\"tasks_by_uuid\");\n" +
+        "    writer.beginObject();\n" +
+        "    for (java.util.Map.Entry<String, org.sonarqube.ws.WsCe.Task> entry : message.getTasksByUuid().entrySet()) {\n" +
+        "      writer.name(String.valueOf(entry.getKey()));\n" +
+        "      org.sonarqube.ws.WsCeJson.writeValue(entry.getValue(), writer);\n" +
+        "    }\n" +
+        "    writer.endObject();\n");
+  }
+
+  @Test
+  public void inline_wrappers_of_arrays() throws Exception {
+    String source = JsonWriterGenerator.generate(loadCe());
+
+    assertThat(source).contains(
+      "  public static void writeValue(org.sonarqube.ws.WsCe.Warnings message, org.sonar.api.utils.text.JsonWriter writer) {\n" +
+        "    writer.beginArray();\n");
+    assertThat(source).contains(
+      "  public static void writeValue(org.sonarqube.ws.WsCe.Task message, org.sonar.api.utils.text.JsonWriter writer) {\n" +
+        "    writer.beginObject();\n" +
+        "    writeFields(message, writer);\n" +
+        "    writer.endObject();\n");
+  }
+
+  @Test
+  public void fail_on_proto3_files() throws Exception {
+    FileDescriptor file = FileDescriptor.buildFrom(FileDescriptorProto.newBuilder().setName("foo.proto").setSyntax("proto3").build(), new FileDescriptor[0]);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Only proto2 files are supported: foo.proto");
+
+    JsonWriterGenerator.generate(file);
+  }
+
+  @Test
+  public void main_writes_a_class_per_file() throws Exception {
+    File descriptorSet = temp.newFile();
+    try (OutputStream output = new FileOutputStream(descriptorSet)) {
+      FileDescriptorSet.newBuilder().addFile(COMMONS).addFile(CE).build().writeTo(output);
+    }
+    File outputDir = temp.newFolder();
+
+    JsonWriterGenerator.main(new String[] {descriptorSet.getAbsolutePath(), outputDir.getAbsolutePath()});
+
+    assertThat(new File(outputDir, "org/sonarqube/ws/CommonJson.java")).isFile();
+    assertThat(new File(outputDir, "org/sonarqube/ws/WsCeJson.java")).isFile();
+  }
+
+  @Test
+  public void camel_case_like_protoc() {
+    assertThat(JsonWriterGenerator.camelCase("created_at")).isEqualTo("CreatedAt");
+    assertThat(JsonWriterGenerator.camelCase("qProfiles")).isEqualTo("QProfiles");
+    assertThat(JsonWriterGenerator.camelCase("FileDataByPath")).isEqualTo("FileDataByPath");
+    assertThat(JsonWriterGenerator.camelCase("line2col")).isEqualTo("Line2Col");
+    assertThat(JsonWriterGenerator.camelCase("ws-user_tokens")).isEqualTo("WsUserTokens");
+  }
+
+  private static FileDescriptor loadCe() throws Exception {
+    FileDescriptor commons = FileDescriptor.buildFrom(COMMONS, new FileDescriptor[0]);
+    return FileDescriptor.buildFrom(CE, new FileDescriptor[] {commons});
+  }
+
+  private static FieldDescriptorProto.Builder field(String name, int number, Label label, Type type) {
+    return FieldDescriptorProto.newBuilder().setName(name).setNumber(number).setLabel(label).setType(type);
+  }
+}